@@ -19,6 +19,7 @@ package com.servoy.j2db.server.headlessclient;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.ServletRequest;
 
@@ -74,15 +75,38 @@ public class HeadlessClientFactory
 		return createHeadlessClient(solutionname, null, null, solutionOpenMethodArgs);
 	}
 
+	/**
+	 * Create a headless client with the solution loaded.
+	 * When the {@link HeadlessClientPool} is enabled for the solution the client is borrowed from the pool and shutting it down returns it, the solution
+	 * open method of a pooled client has already run before this call, when the client was created or reset.
+	 */
 	public static IHeadlessClient createHeadlessClient(String solutionname, String username, String password, Object[] solutionOpenMethodArgs) throws Exception
 	{
-		final ISessionClient sb = HeadlessClientFactoryInternal.createHeadlessClient(solutionname, username, password, solutionOpenMethodArgs);
+		final ISessionClient sb = HeadlessClientPool.isEnabled(solutionname)
+			? HeadlessClientPool.borrow(solutionname, username, password, solutionOpenMethodArgs)
+			: HeadlessClientFactoryInternal.createHeadlessClient(solutionname, username, password, solutionOpenMethodArgs);
+		final boolean pooled = HeadlessClientPool.isPooled(sb);
+		final AtomicBoolean returned = new AtomicBoolean();
 		return (IHeadlessClient)Proxy.newProxyInstance(HeadlessClientFactory.class.getClassLoader(),
 			new Class[] { IHeadlessClient.class, ISessionClient.class }, new InvocationHandler()
 			{
 				@Override
 				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
 				{
+					if (pooled)
+					{
+						// a pooled client is returned instead of shut down, after that it can be used by someone else
+						if ("shutDown".equals(method.getName())) //$NON-NLS-1$
+						{
+							if (returned.compareAndSet(false, true)) HeadlessClientPool.release(sb);
+							return null;
+						}
+						if (returned.get() && method.getDeclaringClass() != Object.class)
+						{
+							if ("isValid".equals(method.getName())) return Boolean.FALSE; //$NON-NLS-1$
+							throw new IllegalStateException("Headless client of solution " + solutionname + " was shut down"); //$NON-NLS-1$ //$NON-NLS-2$
+						}
+					}
 					return method.invoke(sb, args);
 				}
 			});
@@ -0,0 +1,455 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.headlessclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.servoy.j2db.ISessionClient;
+import com.servoy.j2db.dataprocessing.IFoundSetManagerInternal;
+import com.servoy.j2db.server.shared.ApplicationServerRegistry;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+import com.servoy.j2db.util.xmlxport.SolutionImportNotifier;
+
+/**
+ * Pool of headless clients that have their solution loaded, so that {@link HeadlessClientFactory#createHeadlessClient(String)} doesn't have to create
+ * and load a new client every time.
+ * The pool is opt-in per solution with servoy.headlessclient.pool.maxSize (or servoy.headlessclient.pool.maxSize.&lt;solutionname&gt;), there is a pool per
+ * solution, user, password and solution open arguments.
+ * <p>
+ * When a borrowed client is shut down it is returned to the pool: in the background a transaction is rolled back and the solution is closed and loaded
+ * again, so the next borrower gets fresh foundsets, scopes and table filters.
+ * Note that this changes when the solution open method runs: for a pooled client it runs right after the previous borrower shut the client down (or when
+ * the pool creates the client), not when the next borrower gets it. A solution whose open method depends on that moment, for example because it stores
+ * the current time or reads state that is set up by the caller just before creating the client, should not be pooled.
+ * When the pool is at its maximum size a client is created that is not pooled.
+ * At least servoy.headlessclient.pool.minSize clients are kept loaded, idle clients above that are shut down after servoy.headlessclient.pool.idleTimeout
+ * seconds (default 600). Idle clients are shut down when a solution is imported.
+ * <p>
+ * Not used in developer, debug clients can't be reused.
+ * The size and statistics of the pools are shown in the {@link PerformanceStatistics} as "headless client pools".
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class HeadlessClientPool
+{
+	private static final ConcurrentMap<List<Object>, Pool> POOLS = new ConcurrentHashMap<>();
+	private static final Map<ISessionClient, Pool> BORROWED = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static boolean evictionScheduled;
+	private static volatile IClientCreator clientCreator = HeadlessClientFactoryInternal::createHeadlessClient;
+
+	static
+	{
+		SolutionImportNotifier.addImportListener(() -> POOLS.values().forEach(Pool::clearIdle));
+	}
+
+	private HeadlessClientPool()
+	{
+	}
+
+	/**
+	 * Creates the clients of the pools.
+	 */
+	@FunctionalInterface
+	public interface IClientCreator
+	{
+		ISessionClient createHeadlessClient(String solutionName, String username, String password, Object[] solutionOpenMethodArgs) throws Exception;
+	}
+
+	/**
+	 * Set how the pools create clients, by default {@link HeadlessClientFactoryInternal#createHeadlessClient(String, String, String, Object[])}.
+	 * For tests that can't create real headless clients.
+	 *
+	 * @param creator the creator, null to use the default again.
+	 */
+	public static void setClientCreator(IClientCreator creator)
+	{
+		clientCreator = creator == null ? HeadlessClientFactoryInternal::createHeadlessClient : creator;
+	}
+
+	private static int getSetting(String name, String solutionName, String defaultValue)
+	{
+		return Utils.getAsInteger(Settings.getInstance().getProperty(name + '.' + solutionName, Settings.getInstance().getProperty(name, defaultValue)));
+	}
+
+	static boolean isEnabled(String solutionName)
+	{
+		return getSetting("servoy.headlessclient.pool.maxSize", solutionName, "0") > 0 && !ApplicationServerRegistry.get().isDeveloperStartup();
+	}
+
+	/**
+	 * Get a loaded client from the pool, or create one.
+	 */
+	static ISessionClient borrow(String solutionName, String username, String password, Object[] solutionOpenMethodArgs) throws Exception
+	{
+		long start = System.nanoTime();
+		Pool pool = POOLS.computeIfAbsent(Arrays.asList(solutionName, username, password == null ? null : Utils.calculateMD5HashBase16(password),
+			solutionOpenMethodArgs == null ? null : Arrays.asList(solutionOpenMethodArgs)),
+			key -> new Pool(solutionName, username, password, solutionOpenMethodArgs));
+		scheduleEviction();
+
+		ISessionClient client = pool.takeIdle();
+		if (client == null)
+		{
+			if (!pool.reserve())
+			{
+				pool.statistics.overflow();
+				return clientCreator.createHeadlessClient(solutionName, username, password, solutionOpenMethodArgs);
+			}
+			client = pool.create();
+		}
+		BORROWED.put(client, pool);
+		pool.statistics.borrowed(System.nanoTime() - start);
+		pool.warmUp();
+		return client;
+	}
+
+	static boolean isPooled(ISessionClient client)
+	{
+		return BORROWED.containsKey(client);
+	}
+
+	/**
+	 * Return a borrowed client, it is reset in the background: that closes the solution and loads it again, which runs the solution open method before
+	 * the client is borrowed again.
+	 *
+	 * @return false when the client was not borrowed from the pool.
+	 */
+	static boolean release(ISessionClient client)
+	{
+		Pool pool = BORROWED.remove(client);
+		if (pool == null) return false;
+		ApplicationServerRegistry.get().getExecutor().execute(() -> pool.reset(client));
+		return true;
+	}
+
+	/**
+	 * @return the statistics per pool, by solution and user name.
+	 */
+	public static Map<String, Statistics> getStatistics()
+	{
+		Map<String, Statistics> statistics = new TreeMap<>();
+		POOLS.values().forEach(pool -> statistics.put(pool.getName(), pool.statistics));
+		return Collections.unmodifiableMap(statistics);
+	}
+
+	/**
+	 * The size, idle clients and statistics of each pool, as shown in the {@link PerformanceStatistics}.
+	 */
+	private static String getSummary()
+	{
+		Map<String, String> pools = new TreeMap<>();
+		POOLS.values().forEach(pool -> pools.put(pool.getName(), pool.toString()));
+		return pools.entrySet().stream().map(entry -> entry.getKey() + ": " + entry.getValue()).collect(Collectors.joining("\n  ", "\n  ", ""));
+	}
+
+	private static synchronized void scheduleEviction()
+	{
+		if (!evictionScheduled)
+		{
+			evictionScheduled = true;
+			ApplicationServerRegistry.get().getExecutor().scheduleWithFixedDelay(() -> POOLS.values().forEach(Pool::evictIdle), 60, 60, TimeUnit.SECONDS);
+			PerformanceStatistics.register("headless client pools", HeadlessClientPool::getSummary);
+		}
+	}
+
+	private static final class Pool
+	{
+		private final String solutionName;
+		private final String username;
+		private final String password;
+		private final Object[] solutionOpenMethodArgs;
+		private final Statistics statistics = new Statistics();
+
+		// idle clients with the time they were returned, the most recently used first
+		private final Deque<Object[]> idle = new ArrayDeque<>();
+		// idle, borrowed and clients that are being created or reset
+		private int size;
+
+		private Pool(String solutionName, String username, String password, Object[] solutionOpenMethodArgs)
+		{
+			this.solutionName = solutionName;
+			this.username = username;
+			this.password = password;
+			this.solutionOpenMethodArgs = solutionOpenMethodArgs;
+		}
+
+		private String getName()
+		{
+			return solutionName + (username == null ? "" : " (" + username + ')');
+		}
+
+		private ISessionClient takeIdle()
+		{
+			while (true)
+			{
+				ISessionClient client;
+				synchronized (this)
+				{
+					Object[] entry = idle.pollFirst();
+					if (entry == null) return null;
+					client = (ISessionClient)entry[0];
+				}
+				if (!client.isShutDown() && client.isSolutionLoaded()) return client;
+				discard(client);
+			}
+		}
+
+		private synchronized boolean reserve()
+		{
+			if (size >= getSetting("servoy.headlessclient.pool.maxSize", solutionName, "0")) return false;
+			size++;
+			return true;
+		}
+
+		/**
+		 * Create a client for a reserved place.
+		 */
+		private ISessionClient create() throws Exception
+		{
+			try
+			{
+				ISessionClient client = clientCreator.createHeadlessClient(solutionName, username, password, solutionOpenMethodArgs);
+				statistics.created();
+				return client;
+			}
+			catch (Exception e)
+			{
+				synchronized (this)
+				{
+					size--;
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Create clients in the background until there are at least the minimum number of clients.
+		 */
+		private void warmUp()
+		{
+			int minSize = getSetting("servoy.headlessclient.pool.minSize", solutionName, "0");
+			while (true)
+			{
+				synchronized (this)
+				{
+					if (size >= minSize || !reserve()) return;
+				}
+				ApplicationServerRegistry.get().getExecutor().execute(() -> {
+					try
+					{
+						addIdle(create());
+					}
+					catch (Exception e)
+					{
+						Debug.error("Could not create a headless client for the pool of solution " + solutionName, e);
+					}
+				});
+			}
+		}
+
+		private void reset(ISessionClient client)
+		{
+			long start = System.nanoTime();
+			try
+			{
+				IFoundSetManagerInternal foundSetManager = client.getFoundSetManager();
+				if (foundSetManager != null && foundSetManager.hasTransaction())
+				{
+					foundSetManager.rollbackTransaction();
+				}
+				// closing the solution clears foundsets, scopes and table filters, loading it again runs the solution open method
+				client.closeSolution(true, null);
+				client.loadSolution(solutionName);
+				if (client.isShutDown() || !client.isSolutionLoaded())
+				{
+					discard(client);
+					return;
+				}
+				statistics.reset(System.nanoTime() - start);
+				addIdle(client);
+			}
+			catch (Exception e)
+			{
+				Debug.error("Could not reset headless client of solution " + solutionName + " for reuse", e);
+				discard(client);
+			}
+		}
+
+		private synchronized void addIdle(ISessionClient client)
+		{
+			idle.addFirst(new Object[] { client, Long.valueOf(System.currentTimeMillis()) });
+		}
+
+		private void discard(ISessionClient client)
+		{
+			synchronized (this)
+			{
+				size--;
+			}
+			statistics.discarded();
+			try
+			{
+				if (!client.isShutDown()) client.shutDown(true);
+			}
+			catch (Exception e)
+			{
+				Debug.error(e);
+			}
+		}
+
+		private void evictIdle()
+		{
+			long idleSince = System.currentTimeMillis() - getSetting("servoy.headlessclient.pool.idleTimeout", solutionName, "600") * 1000L;
+			int minSize = getSetting("servoy.headlessclient.pool.minSize", solutionName, "0");
+			List<ISessionClient> evicted = new ArrayList<>();
+			synchronized (this)
+			{
+				// the least recently used are at the end
+				while (!idle.isEmpty() && size - evicted.size() > minSize && ((Long)idle.peekLast()[1]).longValue() < idleSince)
+				{
+					evicted.add((ISessionClient)idle.pollLast()[0]);
+				}
+			}
+			evicted.forEach(this::discard);
+		}
+
+		private void clearIdle()
+		{
+			List<ISessionClient> cleared = new ArrayList<>();
+			synchronized (this)
+			{
+				idle.forEach(entry -> cleared.add((ISessionClient)entry[0]));
+				idle.clear();
+			}
+			cleared.forEach(this::discard);
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return "size: " + size + ", idle: " + idle.size() + ", " + statistics;
+		}
+	}
+
+	public static final class Statistics
+	{
+		private long borrows;
+		private long borrowNanos;
+		private long maxBorrowNanos;
+		private long resets;
+		private long resetNanos;
+		private long created;
+		private long discarded;
+		private long overflows;
+
+		private synchronized void borrowed(long nanos)
+		{
+			borrows++;
+			borrowNanos += nanos;
+			maxBorrowNanos = Math.max(maxBorrowNanos, nanos);
+		}
+
+		private synchronized void reset(long nanos)
+		{
+			resets++;
+			resetNanos += nanos;
+		}
+
+		private synchronized void created()
+		{
+			created++;
+		}
+
+		private synchronized void discarded()
+		{
+			discarded++;
+		}
+
+		private synchronized void overflow()
+		{
+			overflows++;
+		}
+
+		public synchronized long getBorrows()
+		{
+			return borrows;
+		}
+
+		/**
+		 * @return the average time to get a client from the pool (including creating one when there was no idle client), in milliseconds.
+		 */
+		public synchronized double getAverageBorrowTime()
+		{
+			return borrows == 0 ? 0 : borrowNanos / 1000000d / borrows;
+		}
+
+		public synchronized double getMaxBorrowTime()
+		{
+			return maxBorrowNanos / 1000000d;
+		}
+
+		/**
+		 * @return the average time to reset a returned client (in the background), in milliseconds.
+		 */
+		public synchronized double getAverageResetTime()
+		{
+			return resets == 0 ? 0 : resetNanos / 1000000d / resets;
+		}
+
+		public synchronized long getCreated()
+		{
+			return created;
+		}
+
+		public synchronized long getDiscarded()
+		{
+			return discarded;
+		}
+
+		/**
+		 * @return the number of clients that were created outside of the pool because it was at its maximum size.
+		 */
+		public synchronized long getOverflows()
+		{
+			return overflows;
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return "borrows: " + borrows + ", average borrow time: " + Math.round(getAverageBorrowTime()) + "ms, max borrow time: " +
+				Math.round(getMaxBorrowTime()) + "ms, average reset time: " + Math.round(getAverageResetTime()) + "ms, created: " + created +
+				", discarded: " + discarded + ", overflows: " + overflows;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.dataprocessing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.servoy.j2db.persistence.IColumnTypes;
+
+/**
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class ColumnarDataSetTest
+{
+	private static BufferedDataSet createRowSet(int rows)
+	{
+		BufferedDataSet set = new BufferedDataSet(new String[] { "id", "name", "amount", "created", "other" },
+			new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT, IColumnTypes.NUMBER, IColumnTypes.DATETIME, IColumnTypes.NUMBER });
+		for (int i = 0; i < rows; i++)
+		{
+			set.addRow(new Object[] { Integer.valueOf(i), i % 3 == 0 ? null : "name" + (i % 5), Double.valueOf(i * 1.5), new Date(1700000000000L + i),
+				BigDecimal.valueOf(i) });
+		}
+		return set;
+	}
+
+	@Test
+	public void valuesKeepTheirType()
+	{
+		BufferedDataSet rows = createRowSet(50);
+		ColumnarDataSet columnar = ColumnarDataSet.create(rows);
+
+		assertEquals(50, columnar.getRowCount());
+		assertArrayEquals(rows.getColumnNames(), columnar.getColumnNames());
+		assertArrayEquals(rows.getColumnTypes(), columnar.getColumnTypes());
+		for (int r = 0; r < rows.getRowCount(); r++)
+		{
+			Object[] expected = rows.getRow(r);
+			Object[] actual = columnar.getRow(r);
+			assertArrayEquals(expected, actual);
+			for (int c = 0; c < expected.length; c++)
+			{
+				if (expected[c] != null) assertSame(expected[c].getClass(), actual[c].getClass());
+				assertEquals(expected[c], columnar.getValue(r, c));
+			}
+		}
+		assertNull(columnar.getRow(50));
+		assertNull(columnar.getValue(50, 0));
+		assertNull(columnar.getValue(0, 5));
+	}
+
+	@Test
+	public void rowsAreCopies()
+	{
+		ColumnarDataSet columnar = ColumnarDataSet.create(createRowSet(3));
+		Object[] row = columnar.getRow(1);
+		assertNotSame(row, columnar.getRow(1));
+
+		row[1] = "changed";
+		assertEquals("name1", columnar.getValue(1, 1));
+
+		columnar.setRow(1, row);
+		assertEquals("changed", columnar.getValue(1, 1));
+	}
+
+	@Test
+	public void otherTypeSwitchesToObjectColumn()
+	{
+		ColumnarDataSet columnar = ColumnarDataSet.create(createRowSet(5));
+		columnar.setRow(2, new Object[] { "two", Integer.valueOf(2), null, null, null });
+
+		assertEquals("two", columnar.getValue(2, 0));
+		assertEquals(Integer.valueOf(2), columnar.getValue(2, 1));
+		assertNull(columnar.getValue(2, 2));
+		assertEquals(Integer.valueOf(1), columnar.getValue(1, 0));
+		assertEquals("name1", columnar.getValue(1, 1));
+		assertEquals(Integer.valueOf(3), columnar.getValue(3, 0));
+	}
+
+	@Test
+	public void timestampsWithNanosAreKept()
+	{
+		Timestamp nanos = new Timestamp(1700000000000L);
+		nanos.setNanos(123456789);
+		ColumnarDataSet columnar = new ColumnarDataSet(new String[] { "ts" }, new int[] { IColumnTypes.DATETIME });
+		columnar.addRow(new Object[] { new Timestamp(1700000000000L) });
+		columnar.addRow(new Object[] { nanos });
+
+		assertEquals(new Timestamp(1700000000000L), columnar.getValue(0, 0));
+		assertEquals(nanos, columnar.getValue(1, 0));
+	}
+
+	@Test
+	public void addAndRemoveRows()
+	{
+		ColumnarDataSet columnar = ColumnarDataSet.create(createRowSet(4));
+		columnar.addRow(0, new Object[] { Integer.valueOf(-1), "first", null, null, null });
+		assertEquals(5, columnar.getRowCount());
+		assertEquals(Integer.valueOf(-1), columnar.getValue(0, 0));
+		assertEquals(Integer.valueOf(0), columnar.getValue(1, 0));
+		assertNull(columnar.getValue(1, 1));
+
+		columnar.removeRow(0);
+		assertEquals(4, columnar.getRowCount());
+		assertEquals(Integer.valueOf(0), columnar.getValue(0, 0));
+		assertEquals(Integer.valueOf(3), columnar.getValue(3, 0));
+
+		// adding past the end fills up with empty rows
+		columnar.addRow(6, new Object[] { Integer.valueOf(6) });
+		assertEquals(7, columnar.getRowCount());
+		assertArrayEquals(new Object[] { null, null, null, null, null }, columnar.getRow(5));
+		assertEquals(Integer.valueOf(6), columnar.getValue(6, 0));
+
+		columnar.removeRow(-1);
+		assertEquals(0, columnar.getRowCount());
+	}
+
+	@Test
+	public void addAndRemoveColumns()
+	{
+		ColumnarDataSet columnar = ColumnarDataSet.create(createRowSet(3));
+		assertTrue(columnar.addColumn(1, "inserted", IColumnTypes.TEXT));
+		assertEquals(6, columnar.getColumnCount());
+		assertEquals("inserted", columnar.getColumnNames()[1]);
+		assertNull(columnar.getValue(1, 1));
+		assertEquals("name1", columnar.getValue(1, 2));
+
+		assertTrue(columnar.removeColumn(0));
+		assertEquals(5, columnar.getColumnCount());
+		assertEquals("name1", columnar.getValue(1, 1));
+		assertFalse(columnar.removeColumn(5));
+	}
+
+	@Test
+	public void sortAndClone()
+	{
+		ColumnarDataSet columnar = ColumnarDataSet.create(createRowSet(10));
+		IDataSet clone = columnar.clone();
+		columnar.sort(0, false);
+
+		assertEquals(Integer.valueOf(9), columnar.getValue(0, 0));
+		assertEquals(Integer.valueOf(0), columnar.getValue(9, 0));
+		assertEquals(Integer.valueOf(0), clone.getValue(0, 0));
+	}
+
+	@Test
+	public void compactLargeUsesMinRows()
+	{
+		BufferedDataSet rows = createRowSet(10);
+		assertSame(rows, ColumnarDataSet.compactLarge(rows, 0));
+		assertSame(rows, ColumnarDataSet.compactLarge(rows, 11));
+		assertTrue(ColumnarDataSet.compactLarge(rows, 10) instanceof ColumnarDataSet);
+	}
+
+	@Test
+	public void serializable() throws Exception
+	{
+		ColumnarDataSet columnar = ColumnarDataSet.create(createRowSet(20));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(columnar);
+		}
+		IDataSet copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			copy = (IDataSet)in.readObject();
+		}
+		assertEquals(20, copy.getRowCount());
+		for (int r = 0; r < 20; r++)
+		{
+			assertArrayEquals(columnar.getRow(r), copy.getRow(r));
+		}
+		// the string dictionary is rebuilt after deserialization
+		copy.setRow(0, new Object[] { Integer.valueOf(0), "name1", null, null, null });
+		assertEquals("name1", copy.getValue(0, 1));
+	}
+
+	@Test
+	public void jsDataSetRowAccessKeepsChanges()
+	{
+		JSDataSet jsDataSet = new JSDataSet(ColumnarDataSet.create(createRowSet(3)));
+		assertEquals("name1", jsDataSet.getValue(1, 1));
+		assertEquals(Integer.valueOf(2), jsDataSet.js_getColumnAsArray(1)[2]);
+	}
+}
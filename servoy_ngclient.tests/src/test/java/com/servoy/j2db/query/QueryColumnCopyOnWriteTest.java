@@ -0,0 +1,156 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.Types;
+
+import org.junit.Test;
+
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.util.serialize.ReplacedObject;
+import com.servoy.j2db.util.visitor.ReplaceVisitor;
+import com.servoy.j2db.util.visitor.VisitOnceDelegateVisitor;
+
+/**
+ * Query columns are shared between query clones, visitors that replace something in a column get a copy.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class QueryColumnCopyOnWriteTest
+{
+	private final QueryTable table = new QueryTable("orders", "db:/example/orders", null, null);
+	private final QueryColumn id = new QueryColumn(table, "id");
+	private final QueryColumn name = new QueryColumn(table, "name");
+
+	private QuerySelect createSelect()
+	{
+		QuerySelect select = new QuerySelect(table);
+		select.addColumn(id);
+		select.addColumn(name);
+		select.addCondition("search", new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, name, "x"));
+		return select;
+	}
+
+	@Test
+	public void clonesShareColumns()
+	{
+		QuerySelect select = createSelect();
+		QuerySelect clone = AbstractBaseQuery.deepClone(select);
+
+		assertNotSame(select, clone);
+		assertNotSame(select.getColumns(), clone.getColumns());
+		assertSame(id, clone.getColumns().get(0));
+		assertSame(name, clone.getColumns().get(1));
+		assertSame(name, ((CompareCondition)clone.getConditions("search").get(0)).getOperand1());
+	}
+
+	@Test
+	public void cloneImmutablesCopiesColumns()
+	{
+		QuerySelect clone = AbstractBaseQuery.deepClone(createSelect(), true);
+
+		QueryColumn clonedName = (QueryColumn)clone.getColumns().get(1);
+		assertNotSame(name, clonedName);
+		assertNotSame(table, clonedName.getTable());
+		assertSame(clonedName, ((CompareCondition)clone.getConditions("search").get(0)).getOperand1());
+		assertSame(table, name.getTable());
+	}
+
+	@Test
+	public void replaceBelowColumnGivesCopy()
+	{
+		QuerySelect select = createSelect();
+		QueryTable other = new QueryTable("orders", "db:/example/orders", null, null, "other_alias");
+
+		QuerySelect relinked = AbstractBaseQuery.acceptVisitor(AbstractBaseQuery.deepClone(select),
+			new VisitOnceDelegateVisitor(new ReplaceVisitor(table, other, false)));
+		QueryColumn relinkedName = (QueryColumn)relinked.getColumns().get(1);
+		assertSame(other, relinkedName.getTable());
+		assertEquals("name", relinkedName.getName());
+
+		// the original columns are untouched
+		assertSame(table, id.getTable());
+		assertSame(table, name.getTable());
+		assertSame(table, ((QueryColumn)select.getColumns().get(1)).getTable());
+
+		// the same column in the condition gets the same copy
+		CompareCondition condition = (CompareCondition)relinked.getConditions("search").get(0);
+		assertSame(relinkedName, condition.getOperand1());
+	}
+
+	@Test
+	public void searchDoesNotCopyColumns()
+	{
+		QuerySelect select = createSelect();
+		// name is found as column and in the condition
+		assertEquals(3, AbstractBaseQuery.search(select, QueryColumn.class::isInstance).size());
+		assertSame(id, select.getColumns().get(0));
+		assertSame(name, select.getColumns().get(1));
+		assertSame(name, ((CompareCondition)select.getConditions("search").get(0)).getOperand1());
+	}
+
+	@Test
+	public void relinkTableOnlyCopiesChangedColumns()
+	{
+		QueryTable other = new QueryTable("customers", "db:/example/customers", null, null);
+		QueryColumn otherColumn = new QueryColumn(other, "name");
+		QuerySelect select = createSelect();
+		select.addColumn(otherColumn);
+
+		QueryTable relinkedTable = new QueryTable("customers", "db:/example/customers", null, null, "c2");
+		select.relinkTable(other, relinkedTable);
+
+		assertSame(id, select.getColumns().get(0));
+		assertSame(name, select.getColumns().get(1));
+		assertNotSame(otherColumn, select.getColumns().get(2));
+		assertSame(relinkedTable, ((QueryColumn)select.getColumns().get(2)).getTable());
+		assertSame(other, otherColumn.getTable());
+	}
+
+	@Test
+	public void onlyColumnDeserializedByIdCanBeUpdated()
+	{
+		QueryColumn deserialized = new QueryColumn((ReplacedObject)new QueryColumn(table, 5, "id", Types.INTEGER, 0, 0, null, 0).writeReplace());
+		deserialized.update("id", Types.INTEGER, 0, 0, null, 0, true);
+		assertEquals("id", deserialized.getName());
+		assertEquals(Types.INTEGER, deserialized.getColumnType().getSqlType());
+
+		assertUpdateFails(deserialized);
+		assertUpdateFails(id);
+	}
+
+	private static void assertUpdateFails(QueryColumn column)
+	{
+		try
+		{
+			column.update("other", Types.VARCHAR, 10, 0, null, 0, false);
+			fail("a complete column may be shared and should not be updated");
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+		assertNotEquals("other", column.getName());
+	}
+}
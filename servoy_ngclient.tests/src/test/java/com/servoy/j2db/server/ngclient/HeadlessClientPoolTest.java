@@ -0,0 +1,285 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.servoy.j2db.ISessionClient;
+import com.servoy.j2db.server.headlessclient.HeadlessClientFactory;
+import com.servoy.j2db.server.headlessclient.HeadlessClientPool;
+import com.servoy.j2db.server.headlessclient.IHeadlessClient;
+import com.servoy.j2db.server.shared.ApplicationServerRegistry;
+import com.servoy.j2db.server.shared.IApplicationServerSingleton;
+import com.servoy.j2db.util.Settings;
+
+/**
+ * Tests for the {@link HeadlessClientPool} through {@link HeadlessClientFactory#createHeadlessClient(String)}, with clients that only track their state.
+ * The executor of the application server runs the background work (resetting and creating clients) right away.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class HeadlessClientPoolTest
+{
+	// the eviction is scheduled once for all pools
+	private static Runnable eviction;
+
+	private final List<FakeClient> created = new ArrayList<>();
+	private final List<String> settings = new ArrayList<>();
+	private ScheduledThreadPoolExecutor executor;
+
+	@Before
+	public void setUp()
+	{
+		executor = new ScheduledThreadPoolExecutor(1)
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				command.run();
+			}
+
+			@Override
+			public ScheduledFuture< ? > scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+			{
+				eviction = command;
+				return null;
+			}
+		};
+		ApplicationServerRegistry.setApplicationServerSingleton((IApplicationServerSingleton)Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class[] { IApplicationServerSingleton.class }, (proxy, method, args) -> {
+				if ("getExecutor".equals(method.getName())) return executor;
+				if (method.getReturnType() == boolean.class) return Boolean.FALSE;
+				return null;
+			}));
+		HeadlessClientPool.setClientCreator((solutionName, username, password, solutionOpenMethodArgs) -> {
+			FakeClient client = new FakeClient(solutionName + '_' + created.size());
+			created.add(client);
+			return client.proxy;
+		});
+	}
+
+	@After
+	public void tearDown()
+	{
+		HeadlessClientPool.setClientCreator(null);
+		settings.forEach(Settings.getInstance()::remove);
+		ApplicationServerRegistry.destroy();
+		executor.shutdownNow();
+	}
+
+	private void setting(String name, String solutionName, int value)
+	{
+		String key = name + '.' + solutionName;
+		settings.add(key);
+		Settings.getInstance().setProperty(key, Integer.toString(value));
+	}
+
+	private static HeadlessClientPool.Statistics getStatistics(String solutionName)
+	{
+		HeadlessClientPool.Statistics statistics = HeadlessClientPool.getStatistics().get(solutionName);
+		assertNotNull(statistics);
+		return statistics;
+	}
+
+	@Test
+	public void shutDownReturnsTheClientAndItIsBorrowedAgain() throws Exception
+	{
+		setting("servoy.headlessclient.pool.maxSize", "pooltest_reuse", 2);
+
+		IHeadlessClient client = HeadlessClientFactory.createHeadlessClient("pooltest_reuse");
+		assertEquals("pooltest_reuse_0", client.getClientID());
+		assertEquals(1, created.size());
+		FakeClient fake = created.get(0);
+		assertEquals(0, fake.solutionLoads);
+
+		client.shutDown(true);
+		// returned instead of shut down, the solution is closed and loaded again which runs the solution open method before the next borrow
+		assertFalse(fake.shutDown);
+		assertEquals(1, fake.solutionCloses);
+		assertEquals(1, fake.solutionLoads);
+		assertFalse(client.isValid());
+		try
+		{
+			client.getClientID();
+			fail("a returned client should not be usable");
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+		// a second shut down doesn't return it twice
+		client.shutDown(true);
+		assertEquals(1, fake.solutionLoads);
+
+		IHeadlessClient again = HeadlessClientFactory.createHeadlessClient("pooltest_reuse");
+		assertEquals("pooltest_reuse_0", again.getClientID());
+		assertEquals(1, created.size());
+
+		HeadlessClientPool.Statistics statistics = getStatistics("pooltest_reuse");
+		assertEquals(2, statistics.getBorrows());
+		assertEquals(1, statistics.getCreated());
+		assertEquals(0, statistics.getDiscarded());
+		assertEquals(0, statistics.getOverflows());
+	}
+
+	@Test
+	public void clientIsNotPooledWhenThePoolIsFull() throws Exception
+	{
+		setting("servoy.headlessclient.pool.maxSize", "pooltest_overflow", 1);
+
+		IHeadlessClient pooled = HeadlessClientFactory.createHeadlessClient("pooltest_overflow");
+		IHeadlessClient overflow = HeadlessClientFactory.createHeadlessClient("pooltest_overflow");
+		assertNotEquals(pooled.getClientID(), overflow.getClientID());
+		assertEquals(1, getStatistics("pooltest_overflow").getOverflows());
+		assertEquals(1, getStatistics("pooltest_overflow").getCreated());
+
+		// the client that is not pooled is really shut down
+		overflow.shutDown(true);
+		assertTrue(created.get(1).shutDown);
+
+		pooled.shutDown(true);
+		assertFalse(created.get(0).shutDown);
+		assertEquals("pooltest_overflow_0", HeadlessClientFactory.createHeadlessClient("pooltest_overflow").getClientID());
+	}
+
+	@Test
+	public void clientThatFailsToResetIsDiscarded() throws Exception
+	{
+		setting("servoy.headlessclient.pool.maxSize", "pooltest_reset", 1);
+
+		IHeadlessClient client = HeadlessClientFactory.createHeadlessClient("pooltest_reset");
+		created.get(0).failLoad = true;
+		client.shutDown(true);
+		assertTrue(created.get(0).shutDown);
+		assertEquals(1, getStatistics("pooltest_reset").getDiscarded());
+
+		// the discarded client made room for a new one
+		assertEquals("pooltest_reset_1", HeadlessClientFactory.createHeadlessClient("pooltest_reset").getClientID());
+		assertEquals(0, getStatistics("pooltest_reset").getOverflows());
+	}
+
+	@Test
+	public void minimumNumberOfClientsIsCreated() throws Exception
+	{
+		setting("servoy.headlessclient.pool.maxSize", "pooltest_warmup", 5);
+		setting("servoy.headlessclient.pool.minSize", "pooltest_warmup", 3);
+
+		IHeadlessClient client = HeadlessClientFactory.createHeadlessClient("pooltest_warmup");
+		assertEquals(3, created.size());
+		assertEquals(3, getStatistics("pooltest_warmup").getCreated());
+
+		// the next borrow gets one of the idle clients
+		IHeadlessClient second = HeadlessClientFactory.createHeadlessClient("pooltest_warmup");
+		assertNotEquals(client.getClientID(), second.getClientID());
+		assertEquals(3, created.size());
+	}
+
+	@Test
+	public void idleClientsAboveTheMinimumAreEvicted() throws Exception
+	{
+		setting("servoy.headlessclient.pool.maxSize", "pooltest_evict", 5);
+		setting("servoy.headlessclient.pool.minSize", "pooltest_evict", 1);
+		setting("servoy.headlessclient.pool.idleTimeout", "pooltest_evict", 0);
+
+		IHeadlessClient first = HeadlessClientFactory.createHeadlessClient("pooltest_evict");
+		IHeadlessClient second = HeadlessClientFactory.createHeadlessClient("pooltest_evict");
+		first.shutDown(true);
+		second.shutDown(true);
+		Thread.sleep(5);
+
+		assertNotNull(eviction);
+		eviction.run();
+		// one idle client is kept for the minimum size, the least recently returned one is shut down
+		assertEquals(1, getStatistics("pooltest_evict").getDiscarded());
+		assertTrue(created.get(0).shutDown);
+		assertFalse(created.get(1).shutDown);
+		assertEquals("pooltest_evict_1", HeadlessClientFactory.createHeadlessClient("pooltest_evict").getClientID());
+	}
+
+	private static final class FakeClient implements InvocationHandler
+	{
+		private final String clientID;
+		private final ISessionClient proxy;
+		private boolean shutDown;
+		private boolean solutionLoaded = true;
+		private boolean failLoad;
+		private int solutionCloses;
+		private int solutionLoads;
+
+		private FakeClient(String clientID)
+		{
+			this.clientID = clientID;
+			this.proxy = (ISessionClient)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { ISessionClient.class, IHeadlessClient.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object p, Method method, Object[] args) throws Throwable
+		{
+			switch (method.getName())
+			{
+				case "getClientID" :
+					return clientID;
+				case "isShutDown" :
+					return Boolean.valueOf(shutDown);
+				case "isSolutionLoaded" :
+					return Boolean.valueOf(solutionLoaded);
+				case "isValid" :
+					return Boolean.valueOf(!shutDown);
+				case "shutDown" :
+					shutDown = true;
+					return null;
+				case "closeSolution" :
+					solutionCloses++;
+					solutionLoaded = false;
+					return Boolean.TRUE;
+				case "loadSolution" :
+					solutionLoads++;
+					solutionLoaded = !failLoad;
+					return null;
+				case "hashCode" :
+					return Integer.valueOf(System.identityHashCode(p));
+				case "equals" :
+					return Boolean.valueOf(p == args[0]);
+				case "toString" :
+					return clientID;
+			}
+			if (method.getReturnType() == boolean.class) return Boolean.FALSE;
+			if (method.getReturnType() == int.class) return Integer.valueOf(0);
+			if (method.getReturnType() == long.class) return Long.valueOf(0);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.ImageLoader;
+import com.servoy.j2db.util.ImageResizeCache;
+import com.servoy.j2db.util.Settings;
+
+/**
+ * Tests for the {@link ImageResizeCache} through {@link ImageLoader#resize(byte[], int, int, boolean, Boolean)}.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class ImageResizeCacheTest
+{
+	private long hits;
+	private long misses;
+
+	@Before
+	public void setUp()
+	{
+		ImageResizeCache.clear();
+		hits = ImageResizeCache.getHits();
+		misses = ImageResizeCache.getMisses();
+	}
+
+	private static byte[] createImage(Color color) throws IOException
+	{
+		BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(color);
+		graphics.fillRect(0, 0, 100, 50);
+		graphics.dispose();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", bytes);
+		return bytes.toByteArray();
+	}
+
+	private void assertCounts(long expectedHits, long expectedMisses)
+	{
+		assertEquals(expectedHits, ImageResizeCache.getHits() - hits);
+		assertEquals(expectedMisses, ImageResizeCache.getMisses() - misses);
+	}
+
+	@Test
+	public void sameImageAndSizeIsResizedOnce() throws IOException
+	{
+		byte[] image = createImage(Color.BLUE);
+		byte[] resized = ImageLoader.resize(image, 40, 20, true);
+		assertNotNull(resized);
+		assertCounts(0, 1);
+
+		// the same content in another array
+		assertArrayEquals(resized, ImageLoader.resize(image.clone(), 40, 20, true));
+		assertCounts(1, 1);
+	}
+
+	@Test
+	public void otherImageOrSizeIsAnotherEntry() throws IOException
+	{
+		byte[] image = createImage(Color.BLUE);
+		ImageLoader.resize(image, 40, 20, true);
+		assertCounts(0, 1);
+
+		ImageLoader.resize(createImage(Color.RED), 40, 20, true);
+		assertCounts(0, 2);
+		ImageLoader.resize(image, 20, 40, true);
+		assertCounts(0, 3);
+		ImageLoader.resize(image, 40, 20, false);
+		assertCounts(0, 4);
+		ImageLoader.resize(image, 40, 20, true, Boolean.TRUE);
+		assertCounts(0, 5);
+		ImageLoader.resize(image, 40, 20, true, Boolean.FALSE);
+		assertCounts(0, 6);
+
+		ImageLoader.resize(image, 40, 20, true);
+		ImageLoader.resize(image, 40, 20, true, Boolean.TRUE);
+		assertCounts(2, 6);
+	}
+
+	@Test
+	public void resultIsACopy() throws IOException
+	{
+		byte[] image = createImage(Color.GREEN);
+		byte[] resized = ImageLoader.resize(image, 40, 20, true);
+		byte[] original = resized.clone();
+		resized[0]++;
+
+		byte[] cached = ImageLoader.resize(image, 40, 20, true);
+		assertArrayEquals(original, cached);
+		cached[0]++;
+		assertArrayEquals(original, ImageLoader.resize(image, 40, 20, true));
+		assertCounts(2, 1);
+	}
+
+	@Test
+	public void clearedCacheResizesAgain() throws IOException
+	{
+		byte[] image = createImage(Color.YELLOW);
+		ImageLoader.resize(image, 40, 20, true);
+		ImageResizeCache.clear();
+		ImageLoader.resize(image, 40, 20, true);
+		assertCounts(0, 2);
+	}
+
+	@Test
+	public void disabledCacheIsNotUsed() throws IOException
+	{
+		Settings.getInstance().setProperty("servoy.image.resizeCache.maxSize", "0");
+		try
+		{
+			byte[] image = createImage(Color.BLACK);
+			assertNotNull(ImageLoader.resize(image, 40, 20, true));
+			assertNotNull(ImageLoader.resize(image, 40, 20, true));
+			assertCounts(0, 0);
+		}
+		finally
+		{
+			Settings.getInstance().remove("servoy.image.resizeCache.maxSize");
+		}
+	}
+
+	@Test
+	public void statisticsAreShown() throws IOException
+	{
+		byte[] image = createImage(Color.WHITE);
+		ImageLoader.resize(image, 40, 20, true);
+		ImageLoader.resize(image, 40, 20, true);
+
+		String statistics = PerformanceStatistics.getStatistics().get("image resize cache");
+		assertNotNull(statistics);
+		assertTrue(statistics, statistics.startsWith("hits: " + ImageResizeCache.getHits() + ", disk hits: " + ImageResizeCache.getDiskHits() + ", misses: " +
+			ImageResizeCache.getMisses()));
+		assertEquals(statistics, ImageResizeCache.getStatistics());
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+/**
+ * Tests for the Range, If-Range and If-None-Match handling of the {@link MediaResourcesServlet}.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class MediaResourcesServletTest
+{
+	private static final long LENGTH = 1000;
+	private static final String ETAG = MediaResourcesServlet.createETag(new byte[] { 1, 2, 3 });
+	private static final long LAST_MODIFIED = 1700000000123L;
+
+	private final Map<String, String> requestHeaders = new HashMap<>();
+	private final Map<String, String> responseHeaders = new HashMap<>();
+	private int status = HttpServletResponse.SC_OK;
+
+	private final HttpServletRequest request = (HttpServletRequest)Proxy.newProxyInstance(getClass().getClassLoader(),
+		new Class[] { HttpServletRequest.class }, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "getHeader" :
+					return requestHeaders.get(args[0]);
+				case "getDateHeader" :
+					String value = requestHeaders.get(args[0]);
+					if (value == null) return Long.valueOf(-1);
+					try
+					{
+						return Long.valueOf(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli());
+					}
+					catch (DateTimeParseException e)
+					{
+						throw new IllegalArgumentException(value);
+					}
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+	private final HttpServletResponse response = (HttpServletResponse)Proxy.newProxyInstance(getClass().getClassLoader(),
+		new Class[] { HttpServletResponse.class }, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "setHeader" :
+					responseHeaders.put((String)args[0], (String)args[1]);
+					return null;
+				case "setStatus" :
+					status = ((Integer)args[0]).intValue();
+					return null;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+	private long[] range(String range)
+	{
+		requestHeaders.put("Range", range);
+		return MediaResourcesServlet.getRequestedRange(request, LENGTH, ETAG, LAST_MODIFIED);
+	}
+
+	private static void assertUnsatisfiable(long[] range)
+	{
+		assertEquals(0, range.length);
+	}
+
+	private static String httpDate(long millis)
+	{
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+	}
+
+	@Test
+	public void noRangeIsTheWholeContent()
+	{
+		assertNull(MediaResourcesServlet.getRequestedRange(request, LENGTH, ETAG, LAST_MODIFIED));
+		assertNull(range("items=0-10"));
+		assertNull(range("bytes=10"));
+		assertNull(range("bytes=a-b"));
+	}
+
+	@Test
+	public void closedRange()
+	{
+		assertArrayEquals(new long[] { 0, 99 }, range("bytes=0-99"));
+		assertArrayEquals(new long[] { 500, 500 }, range("bytes=500-500"));
+		// a last position after the end is the end
+		assertArrayEquals(new long[] { 900, 999 }, range("bytes=900-5000"));
+	}
+
+	@Test
+	public void openEndedRange()
+	{
+		assertArrayEquals(new long[] { 100, 999 }, range("bytes=100-"));
+		assertArrayEquals(new long[] { 999, 999 }, range("bytes=999-"));
+	}
+
+	@Test
+	public void suffixRange()
+	{
+		assertArrayEquals(new long[] { 900, 999 }, range("bytes=-100"));
+		// a suffix longer than the content is the whole content
+		assertArrayEquals(new long[] { 0, 999 }, range("bytes=-5000"));
+		assertUnsatisfiable(range("bytes=-0"));
+	}
+
+	@Test
+	public void lastBeforeFirstIsIgnored()
+	{
+		assertNull(range("bytes=500-100"));
+	}
+
+	@Test
+	public void firstAfterTheEndIsNotSatisfiable()
+	{
+		assertUnsatisfiable(range("bytes=1000-"));
+		assertUnsatisfiable(range("bytes=1000-2000"));
+		assertUnsatisfiable(range("bytes=5000-6000"));
+	}
+
+	@Test
+	public void multipleRangesSendTheWholeContent()
+	{
+		assertNull(range("bytes=0-10,20-30"));
+		assertNull(range("bytes=0-10, -5"));
+	}
+
+	@Test
+	public void ifRangeWithStrongETag()
+	{
+		requestHeaders.put("If-Range", ETAG);
+		assertArrayEquals(new long[] { 0, 99 }, range("bytes=0-99"));
+
+		// the content changed
+		requestHeaders.put("If-Range", MediaResourcesServlet.createETag(new byte[] { 4 }));
+		assertNull(range("bytes=0-99"));
+
+		// no etag known for the content
+		requestHeaders.put("If-Range", ETAG);
+		assertNull(MediaResourcesServlet.getRequestedRange(request, LENGTH, null, LAST_MODIFIED));
+	}
+
+	@Test
+	public void ifRangeWithWeakETagSendsTheWholeContent()
+	{
+		requestHeaders.put("If-Range", "W/" + ETAG);
+		assertNull(range("bytes=0-99"));
+		// also when the content has the same weak tag, a weak validator can't be used for ranges
+		assertNull(MediaResourcesServlet.getRequestedRange(request, LENGTH, "W/" + ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void ifRangeWithDate()
+	{
+		// http dates have seconds precision
+		requestHeaders.put("If-Range", httpDate(LAST_MODIFIED));
+		assertArrayEquals(new long[] { 0, 99 }, range("bytes=0-99"));
+
+		requestHeaders.put("If-Range", httpDate(LAST_MODIFIED - 60000));
+		assertNull(range("bytes=0-99"));
+
+		// last modified not known
+		requestHeaders.put("If-Range", httpDate(LAST_MODIFIED));
+		assertNull(MediaResourcesServlet.getRequestedRange(request, LENGTH, ETAG, -1));
+
+		requestHeaders.put("If-Range", "not a date");
+		assertNull(range("bytes=0-99"));
+	}
+
+	@Test
+	public void etagIsSet()
+	{
+		assertFalse(MediaResourcesServlet.checkAndSetETag(request, response, ETAG));
+		assertEquals(ETAG, responseHeaders.get("ETag"));
+		assertEquals(HttpServletResponse.SC_OK, status);
+
+		assertFalse(MediaResourcesServlet.checkAndSetETag(request, response, null));
+	}
+
+	@Test
+	public void ifNoneMatchWithAList()
+	{
+		requestHeaders.put("If-None-Match", "\"other\", " + ETAG + " ,\"third\"");
+		assertTrue(MediaResourcesServlet.checkAndSetETag(request, response, ETAG));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, status);
+	}
+
+	@Test
+	public void ifNoneMatchUsesWeakComparison()
+	{
+		requestHeaders.put("If-None-Match", "W/" + ETAG);
+		assertTrue(MediaResourcesServlet.checkAndSetETag(request, response, ETAG));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, status);
+	}
+
+	@Test
+	public void ifNoneMatchWithOtherTags()
+	{
+		requestHeaders.put("If-None-Match", "\"other\", \"third\"");
+		assertFalse(MediaResourcesServlet.checkAndSetETag(request, response, ETAG));
+		assertEquals(HttpServletResponse.SC_OK, status);
+		assertEquals(ETAG, responseHeaders.get("ETag"));
+	}
+
+	@Test
+	public void ifNoneMatchAny()
+	{
+		requestHeaders.put("If-None-Match", "*");
+		assertTrue(MediaResourcesServlet.checkAndSetETag(request, response, ETAG));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, status);
+	}
+}
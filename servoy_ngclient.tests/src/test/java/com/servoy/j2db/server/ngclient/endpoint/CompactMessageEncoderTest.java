@@ -0,0 +1,269 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.endpoint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Checks that the compact messages decode to the same JSON and are smaller than the JSON text.
+ * The decoder here does the same as the one in servoy_compactmessages.ts.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class CompactMessageEncoderTest
+{
+	@Test
+	public void roundTrip()
+	{
+		assertRoundTrip("{}");
+		assertRoundTrip("[]");
+		assertRoundTrip("{\"a\":1,\"b\":[true,false,null],\"c\":{\"d\":\"e\"}}");
+		assertRoundTrip("[0,23,24,255,256,65535,65536,4294967295,4294967296,-1,-24,-25,-4294967297,999999999999999,-999999999999999]");
+		assertRoundTrip("[1.5,-0.25,1e21,3.141592653589793]");
+		assertRoundTrip("{\"text\":\"quote \\\" backslash \\\\ slash \\/ tab \\t newline \\n unicode \\u00e9\\u20ac \\ud83d\\ude00 \"}");
+		assertRoundTrip(" { \"spaces\" : [ 1 , 2 ] , \"x\" : \"\" } ");
+	}
+
+	@Test
+	public void repeatedStringsAreReferenced()
+	{
+		String json = "[{\"firstname\":\"value1\",\"lastname\":\"value2\"},{\"firstname\":\"value1\",\"lastname\":\"value2\"}]";
+		byte[] encoded = toBytes(CompactMessageEncoder.encode(json));
+		assertRoundTrip(json);
+
+		// second row only has references: 4 x (tag 25 + index) plus the map start/end
+		byte[] firstRowOnly = toBytes(CompactMessageEncoder.encode("[{\"firstname\":\"value1\",\"lastname\":\"value2\"}]"));
+		assertEquals(firstRowOnly.length + 4 * 3 + 2, encoded.length);
+	}
+
+	@Test
+	public void messageIsOneStringrefNamespace()
+	{
+		byte[] encoded = toBytes(CompactMessageEncoder.encode("[]"));
+		// self describe tag 55799, stringref namespace tag 256, empty indefinite array
+		assertArrayEquals(new byte[] { (byte)0xd9, (byte)0xd9, (byte)0xf7, (byte)0xd9, 0x01, 0x00, (byte)0x9f, (byte)0xff }, encoded);
+	}
+
+	@Test
+	public void stringrefMinimumLengthGrowsWithTheTable()
+	{
+		// fill the first 24 table entries with 3 byte strings
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 24; i++)
+		{
+			json.append("\"s").append((char)('a' + i)).append("_\",");
+		}
+		String prefix = json.toString();
+
+		// from index 24 on a string must have 4 bytes, so a 3 byte string is not added and written in full again
+		byte[] threeBytes = toBytes(CompactMessageEncoder.encode(prefix + "\"xyz\",\"xyz\"]"));
+		byte[] threeBytesOnce = toBytes(CompactMessageEncoder.encode(prefix + "\"xyz\"]"));
+		assertEquals(threeBytesOnce.length + 4, threeBytes.length);
+		assertRoundTrip(prefix + "\"xyz\",\"xyz\"]");
+
+		// a 4 byte string does get index 24, so the second one is a reference: tag 25 + 1 byte index 24 (0x18 0x18)
+		byte[] fourBytes = toBytes(CompactMessageEncoder.encode(prefix + "\"wxyz\",\"wxyz\"]"));
+		byte[] fourBytesOnce = toBytes(CompactMessageEncoder.encode(prefix + "\"wxyz\"]"));
+		assertEquals(fourBytesOnce.length + 4, fourBytes.length);
+		assertArrayEquals(new byte[] { (byte)0xd8, 0x19, 0x18, 0x18, (byte)0xff }, Arrays.copyOfRange(fourBytes, fourBytes.length - 5, fourBytes.length));
+		assertRoundTrip(prefix + "\"wxyz\",\"wxyz\"]");
+
+		assertEquals(3, CompactMessageEncoder.minimumStringrefLength(23));
+		assertEquals(4, CompactMessageEncoder.minimumStringrefLength(24));
+		assertEquals(4, CompactMessageEncoder.minimumStringrefLength(255));
+		assertEquals(5, CompactMessageEncoder.minimumStringrefLength(256));
+		assertEquals(7, CompactMessageEncoder.minimumStringrefLength(65536));
+	}
+
+	@Test
+	public void invalidJSONIsRejected()
+	{
+		for (String invalid : new String[] { "", "p", "{\"a\":}", "[1,2", "{\"a\" 1}", "\"unterminated", "[1] 2" })
+		{
+			try
+			{
+				CompactMessageEncoder.encode(invalid);
+				fail("should not encode " + invalid);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void viewportMessageSize()
+	{
+		// something like a foundset viewport of a wide grid
+		JSONArray rows = new JSONArray();
+		for (int r = 0; r < 50; r++)
+		{
+			JSONObject row = new JSONObject();
+			row.put("_svyRowId", "1." + (1000 + r) + ";_" + r);
+			for (int c = 0; c < 40; c++)
+			{
+				row.put("dp" + c, c % 4 == 0 ? Integer.valueOf(r * c) : "status " + (c % 3));
+			}
+			rows.put(row);
+		}
+		String json = new JSONObject().put("forms", new JSONObject().put("orders",
+			new JSONObject().put("grid", new JSONObject().put("myfoundset", new JSONObject().put("viewPort", new JSONObject().put("rows", rows)))))).toString();
+
+		int compactSize = CompactMessageEncoder.encode(json).remaining();
+		int textSize = json.getBytes(StandardCharsets.UTF_8).length;
+
+		assertRoundTrip(json);
+		// the 40 dataprovider names and the status values are only written once
+		assertTrue(compactSize + " of " + textSize, compactSize < textSize * 0.5);
+	}
+
+	private static void assertRoundTrip(String json)
+	{
+		String decoded = new Decoder(toBytes(CompactMessageEncoder.encode(json))).decode();
+		Object expected = json.trim().startsWith("[") ? new JSONArray(json) : new JSONObject(json);
+		Object actual = decoded.startsWith("[") ? new JSONArray(decoded) : new JSONObject(decoded);
+		assertTrue(json + " <> " + decoded, expected instanceof JSONArray ? ((JSONArray)expected).similar(actual) : ((JSONObject)expected).similar(actual));
+	}
+
+	private static byte[] toBytes(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static class Decoder
+	{
+		private final ByteBuffer bytes;
+		private List<String> strings;
+		private final StringBuilder out = new StringBuilder();
+
+		Decoder(byte[] bytes)
+		{
+			this.bytes = ByteBuffer.wrap(bytes);
+		}
+
+		String decode()
+		{
+			readItem();
+			assertEquals(0, bytes.remaining());
+			return out.toString();
+		}
+
+		private long readUint(int info)
+		{
+			switch (info)
+			{
+				case 24 :
+					return bytes.get() & 0xff;
+				case 25 :
+					return bytes.getShort() & 0xffff;
+				case 26 :
+					return bytes.getInt() & 0xffffffffL;
+				case 27 :
+					return bytes.getLong();
+				default :
+					return info;
+			}
+		}
+
+		private void readItem()
+		{
+			int initialByte = bytes.get() & 0xff;
+			int majorType = initialByte >> 5;
+			int info = initialByte & 0x1f;
+			switch (majorType)
+			{
+				case 0 :
+					out.append(readUint(info));
+					break;
+				case 1 :
+					out.append(-1 - readUint(info));
+					break;
+				case 3 :
+					byte[] utf8 = new byte[(int)readUint(info)];
+					bytes.get(utf8);
+					String s = new String(utf8, StandardCharsets.UTF_8);
+					if (strings != null && utf8.length >= CompactMessageEncoder.minimumStringrefLength(strings.size())) strings.add(s);
+					out.append(JSONObject.quote(s));
+					break;
+				case 4 :
+				case 5 :
+					out.append(majorType == 4 ? '[' : '{');
+					boolean first = true;
+					while ((bytes.get(bytes.position()) & 0xff) != 0xff)
+					{
+						if (!first) out.append(',');
+						first = false;
+						readItem();
+						if (majorType == 5)
+						{
+							out.append(':');
+							readItem();
+						}
+					}
+					bytes.get();
+					out.append(majorType == 4 ? ']' : '}');
+					break;
+				case 6 :
+					long tag = readUint(info);
+					if (tag == 25)
+					{
+						int reference = bytes.get() & 0xff;
+						assertEquals(0, reference >> 5);
+						out.append(JSONObject.quote(strings.get((int)readUint(reference & 0x1f))));
+					}
+					else if (tag == 256)
+					{
+						assertNull("one namespace per message", strings);
+						strings = new ArrayList<>();
+						readItem();
+					}
+					else
+					{
+						assertEquals(55799, tag);
+						readItem();
+					}
+					break;
+				case 7 :
+					if (info == 20) out.append("false");
+					else if (info == 21) out.append("true");
+					else if (info == 27) out.append(Double.toString(bytes.getDouble()));
+					else out.append("null");
+					break;
+				default :
+					fail("unexpected major type " + majorType);
+			}
+		}
+	}
+}
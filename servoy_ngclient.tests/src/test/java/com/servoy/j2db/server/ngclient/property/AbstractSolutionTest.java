@@ -483,7 +483,7 @@ public abstract class AbstractSolutionTest extends Log4JToConsoleTest
 				@Override
 				protected IEventDispatcher createEventDispatcher()
 				{
-					return new TestNGEventDispatcher(endpoint);
+					return createTestEventDispatcher();
 				}
 			};
 
@@ -552,6 +552,14 @@ public abstract class AbstractSolutionTest extends Log4JToConsoleTest
 
 	protected abstract void setupData() throws ServoyException;
 
+	/**
+	 * Create the event dispatcher of the client, by default events are run directly on the calling thread.
+	 */
+	protected IEventDispatcher createTestEventDispatcher()
+	{
+		return new TestNGEventDispatcher(endpoint);
+	}
+
 	/**
 	 * @throws RepositoryException
 	 * @throws ServoyException
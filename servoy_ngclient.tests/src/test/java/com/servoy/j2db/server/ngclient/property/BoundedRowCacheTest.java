@@ -0,0 +1,136 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.j2db.dataprocessing.BoundedRowCache;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.dataprocessing.FoundSetManager;
+import com.servoy.j2db.dataprocessing.IRowCache;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Tests for the row cache with a budget of rows (servoy.foundset.rowCache.maxRows).
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class BoundedRowCacheTest extends AbstractSolutionTest
+{
+	private static final int ROWS = 40;
+	private static final int MAX_ROWS = 5;
+
+	@BeforeClass
+	public static void enableBoundedCache()
+	{
+		Settings.getInstance().setProperty("servoy.foundset.rowCache.maxRows", Integer.toString(MAX_ROWS));
+	}
+
+	@AfterClass
+	public static void disableBoundedCache()
+	{
+		Settings.getInstance().remove("servoy.foundset.rowCache.maxRows");
+	}
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		for (int i = 0; i < ROWS; i++)
+		{
+			ds.addRow(new Object[] { Integer.valueOf(i), "name" + i });
+		}
+		client.getFoundSetManager().insertToDataSource("rowcachetest", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	private FoundSet loadAll() throws ServoyException
+	{
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:rowcachetest");
+		foundset.loadAllRecords();
+		foundset.queryForAllPKs();
+		assertEquals(ROWS, foundset.getSize());
+		for (int i = 0; i < ROWS; i++)
+		{
+			assertEquals("name" + i, foundset.getRecord(i).getValue("name"));
+		}
+		return foundset;
+	}
+
+	@Test
+	public void rowsAreBounded() throws ServoyException
+	{
+		loadAll();
+
+		IRowCache rowCache = ((FoundSetManager)client.getFoundSetManager()).getRowCaches().get("mem:rowcachetest");
+		assertTrue(rowCache instanceof BoundedRowCache);
+		assertTrue(rowCache.getCachedRowCount() <= MAX_ROWS);
+		assertTrue(rowCache.getMissCount() >= ROWS);
+		assertTrue(rowCache.getEvictionCount() >= ROWS - MAX_ROWS);
+
+		// loading again finds the rows in the row manager or loads them again
+		loadAll();
+		assertTrue(rowCache.getHitCount() + rowCache.getMissCount() >= 2 * ROWS);
+		assertTrue(rowCache.getCachedRowCount() <= MAX_ROWS);
+	}
+
+	@Test
+	public void statisticsAreRegisteredPerClient() throws ServoyException
+	{
+		loadAll();
+
+		String name = "row caches of client " + client.getClientID();
+		String statistics = PerformanceStatistics.getStatistics().get(name);
+		assertTrue(statistics, statistics.startsWith("caches=1, "));
+		assertTrue(statistics, statistics.contains("BoundedRowCache[mem:rowcachetest"));
+
+		client.getFoundSetManager().flushCachedItems();
+		assertFalse(PerformanceStatistics.getStatistics().containsKey(name));
+	}
+}
@@ -0,0 +1,386 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.IDataServer;
+import com.servoy.j2db.dataprocessing.IDataSet;
+import com.servoy.j2db.dataprocessing.InMemoryTableEngine;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.persistence.SortingNullprecedence;
+import com.servoy.j2db.query.CompareCondition;
+import com.servoy.j2db.query.IQuerySelectValue;
+import com.servoy.j2db.query.ISQLCondition;
+import com.servoy.j2db.query.QueryAggregate;
+import com.servoy.j2db.query.QueryColumn;
+import com.servoy.j2db.query.QueryColumnValue;
+import com.servoy.j2db.query.QueryFunction;
+import com.servoy.j2db.query.QueryFunction.QueryFunctionType;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.QuerySort;
+import com.servoy.j2db.query.QueryTable;
+import com.servoy.j2db.query.SetCondition;
+import com.servoy.j2db.query.SortOptions;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Selects on the columnar copy of an in-memory table must give the same results as the in-memory database.
+ * The selects go through the data server of the client, the test data server ignores conditions, sorts and paging, so the results show what the columnar
+ * copy did; the statistics of the {@link InMemoryTableEngine} show whether a select was executed in memory.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class ColumnarTableTest extends AbstractSolutionTest
+{
+	private static final int LARGE_ROWS = 50000;
+
+	private QueryTable table;
+	private QueryColumn id;
+	private QueryColumn name;
+	private QueryColumn amount;
+
+	@BeforeClass
+	public static void enableColumnarEngine()
+	{
+		Settings.getInstance().setProperty("servoy.inmem.columnarEngine", "true");
+	}
+
+	@AfterClass
+	public static void disableColumnarEngine()
+	{
+		Settings.getInstance().remove("servoy.inmem.columnarEngine");
+	}
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		// id, name, amount
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "id", "name", "amount" },
+			new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT, IColumnTypes.INTEGER });
+		ds.addRow(new Object[] { Integer.valueOf(1), "Apple", Integer.valueOf(10) });
+		ds.addRow(new Object[] { Integer.valueOf(2), "banana", null });
+		ds.addRow(new Object[] { Integer.valueOf(3), null, Integer.valueOf(30) });
+		ds.addRow(new Object[] { Integer.valueOf(4), "apple", Integer.valueOf(10) });
+		ds.addRow(new Object[] { Integer.valueOf(5), "100%_sure", Integer.valueOf(12) });
+		ds.addRow(new Object[] { Integer.valueOf(6), "cherry", Integer.valueOf(20) });
+		client.getFoundSetManager().insertToDataSource("columnarorders", ds, null, new WrappedObjectReference<String[]>(new String[] { "id" }), true,
+			false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+
+		table = client.getFoundSetManager().getTable("mem:columnarorders").queryTable();
+		id = new QueryColumn(table, "id");
+		name = new QueryColumn(table, "name");
+		amount = new QueryColumn(table, "amount");
+	}
+
+	/**
+	 * Execute the select through the data server of the client, it must be executed in memory.
+	 */
+	private IDataSet select(QuerySelect select, boolean distinctInMemory, int startRow, int rowsToRetrieve) throws ServoyException
+	{
+		long served = InMemoryTableEngine.getStatistics().getServed();
+		IDataSet result = client.getDataServer().performQuery(client.getClientID(), IServer.INMEM_SERVER, null, select, null, null, distinctInMemory,
+			startRow, rowsToRetrieve, IDataServer.FOUNDSET_LOAD_QUERY);
+		assertEquals("select should be executed in memory", served + 1, InMemoryTableEngine.getStatistics().getServed());
+		return result;
+	}
+
+	private QuerySelect select(ISQLCondition condition)
+	{
+		QuerySelect select = new QuerySelect(table);
+		select.addColumn(id);
+		select.addColumn(name);
+		if (condition != null) select.addCondition("test", condition);
+		select.addSort(new QuerySort(id, true, SortOptions.NONE));
+		return select;
+	}
+
+	private Object[] ids(ISQLCondition condition) throws ServoyException
+	{
+		IDataSet result = select(select(condition), false, 0, -1);
+		Object[] ids = new Object[result.getRowCount()];
+		for (int r = 0; r < ids.length; r++)
+		{
+			ids[r] = Integer.valueOf(((Number)result.getRow(r)[0]).intValue());
+		}
+		return ids;
+	}
+
+	private static Object[] ints(int... values)
+	{
+		return Arrays.stream(values).mapToObj(Integer::valueOf).toArray();
+	}
+
+	private static Object[] numbers(IDataSet result)
+	{
+		Object[] values = new Object[result.getRowCount()];
+		for (int r = 0; r < values.length; r++)
+		{
+			Object value = result.getRow(r)[0];
+			values[r] = value == null ? null : Integer.valueOf(((Number)value).intValue());
+		}
+		return values;
+	}
+
+	private void assertUnsupported(QuerySelect select) throws ServoyException
+	{
+		long served = InMemoryTableEngine.getStatistics().getServed();
+		long fallbacks = InMemoryTableEngine.getStatistics().getFallbacks();
+		client.getDataServer().performQuery(client.getClientID(), IServer.INMEM_SERVER, null, select, null, null, false, 0, -1,
+			IDataServer.FOUNDSET_LOAD_QUERY);
+		assertEquals("select should go to the database", served, InMemoryTableEngine.getStatistics().getServed());
+		assertEquals(fallbacks + 1, InMemoryTableEngine.getStatistics().getFallbacks());
+	}
+
+	@Test
+	public void nullsDoNotMatchCompares() throws Exception
+	{
+		assertArrayEquals(ints(1, 4), ids(new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, amount, Integer.valueOf(10))));
+		assertArrayEquals(ints(3, 5, 6), ids(new CompareCondition(IBaseSQLCondition.NOT_OPERATOR, amount, Integer.valueOf(10))));
+		assertArrayEquals(ints(3, 6), ids(new CompareCondition(IBaseSQLCondition.GT_OPERATOR, amount, Integer.valueOf(15))));
+		assertArrayEquals(ints(2), ids(new CompareCondition(IBaseSQLCondition.ISNULL_OPERATOR, amount, null)));
+		assertArrayEquals(ints(1, 3, 4, 5, 6), ids(new CompareCondition(IBaseSQLCondition.ISNOTNULL_OPERATOR, amount, null)));
+	}
+
+	@Test
+	public void inUsesNumberEquality() throws Exception
+	{
+		// Long, BigDecimal and Double values find the Integer values in the table
+		SetCondition in = new SetCondition(IBaseSQLCondition.IN_OPERATOR, new IQuerySelectValue[] { amount },
+			new Object[][] { { Long.valueOf(10), new BigDecimal("30.00"), Double.valueOf(12) } }, true);
+		assertArrayEquals(ints(1, 3, 4, 5), ids(in));
+
+		SetCondition names = new SetCondition(IBaseSQLCondition.IN_OPERATOR, new IQuerySelectValue[] { name },
+			new Object[][] { { "apple", "cherry", "durian" } }, true);
+		assertArrayEquals(ints(4, 6), ids(names));
+	}
+
+	@Test
+	public void notInExcludesNulls() throws Exception
+	{
+		SetCondition notIn = new SetCondition(IBaseSQLCondition.NOT_IN_OPERATOR, new IQuerySelectValue[] { amount },
+			new Object[][] { { Integer.valueOf(10), Integer.valueOf(20) } }, false);
+		// null amount of row 2 is not in the result, like in sql
+		assertArrayEquals(ints(3, 5), ids(notIn));
+
+		SetCondition notInOrNull = new SetCondition(IBaseSQLCondition.NOT_IN_OPERATOR | IBaseSQLCondition.ORNULL_MODIFIER,
+			new IQuerySelectValue[] { amount }, new Object[][] { { Integer.valueOf(10), Integer.valueOf(20) } }, false);
+		assertArrayEquals(ints(2, 3, 5), ids(notInOrNull));
+
+		// a null in the list is left to the database
+		SetCondition notInWithNull = new SetCondition(IBaseSQLCondition.NOT_IN_OPERATOR, new IQuerySelectValue[] { amount },
+			new Object[][] { { Integer.valueOf(10), null } }, false);
+		assertUnsupported(select(notInWithNull));
+		assertUnsupported(select(new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, amount, null)));
+	}
+
+	@Test
+	public void like() throws Exception
+	{
+		assertArrayEquals(ints(4), ids(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR, name, "app%")));
+		assertArrayEquals(ints(2), ids(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR, name, "_a%")));
+		assertArrayEquals(ints(1, 2, 5, 6), ids(new CompareCondition(IBaseSQLCondition.NOT_LIKE_OPERATOR, name, "app%")));
+		// no escape character by default
+		assertArrayEquals(ints(), ids(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR, name, "100\\%%")));
+		// escaped % and _ only match themselves
+		assertArrayEquals(ints(5), ids(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR, name, new Object[] { "100#%#_%", "#" })));
+		assertArrayEquals(ints(), ids(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR, name, new Object[] { "100#_%", "#" })));
+	}
+
+	@Test
+	public void modifiers() throws Exception
+	{
+		int equalsCaseInsensitive = IBaseSQLCondition.EQUALS_OPERATOR | IBaseSQLCondition.CASEINSENSITIVE_MODIFIER;
+		assertArrayEquals(ints(1, 4), ids(new CompareCondition(equalsCaseInsensitive, name, "APPLE")));
+		assertArrayEquals(ints(1, 4),
+			ids(new SetCondition(equalsCaseInsensitive, new IQuerySelectValue[] { name }, new Object[][] { { "APPLE", "durian" } }, true)));
+		assertArrayEquals(ints(1, 4),
+			ids(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR | IBaseSQLCondition.CASEINSENSITIVE_MODIFIER, name, "APP%")));
+
+		assertArrayEquals(ints(1, 2, 4),
+			ids(new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR | IBaseSQLCondition.ORNULL_MODIFIER, amount, Integer.valueOf(10))));
+		assertArrayEquals(ints(2, 3),
+			ids(new CompareCondition(IBaseSQLCondition.GT_OPERATOR | IBaseSQLCondition.ORNULL_MODIFIER, amount, Integer.valueOf(25))));
+	}
+
+	@Test
+	public void upperAndLower() throws Exception
+	{
+		QueryFunction upper = new QueryFunction(QueryFunctionType.upper, name, "upper_name");
+		assertArrayEquals(ints(1, 4), ids(new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, upper, "APPLE")));
+		QueryFunction lower = new QueryFunction(QueryFunctionType.lower, name, "lower_name");
+		assertArrayEquals(ints(6), ids(new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, lower, "cherry")));
+	}
+
+	@Test
+	public void nullPrecedence() throws Exception
+	{
+		assertArrayEquals(new Object[] { null, Integer.valueOf(10), Integer.valueOf(10) }, sortedAmounts(true, SortingNullprecedence.databaseDefault));
+		assertArrayEquals(ints(30, 20, 12), sortedAmounts(false, SortingNullprecedence.databaseDefault));
+		assertArrayEquals(ints(10, 10, 12), sortedAmounts(true, SortingNullprecedence.ascNullsLast));
+		assertArrayEquals(new Object[] { null, Integer.valueOf(30), Integer.valueOf(20) }, sortedAmounts(false, SortingNullprecedence.ascNullsLast));
+		assertArrayEquals(new Object[] { null, Integer.valueOf(10), Integer.valueOf(10) }, sortedAmounts(true, SortingNullprecedence.ascNullsFirst));
+	}
+
+	private Object[] sortedAmounts(boolean ascending, SortingNullprecedence nullprecedence) throws ServoyException
+	{
+		QuerySelect select = new QuerySelect(table);
+		select.addColumn(amount);
+		select.addSort(new QuerySort(amount, ascending, new SortOptions(false, nullprecedence)));
+		return numbers(select(select, false, 0, 3));
+	}
+
+	@Test
+	public void aggregates() throws Exception
+	{
+		QuerySelect select = new QuerySelect(table);
+		select.addColumn(new QueryAggregate(QueryAggregate.COUNT, new QueryColumnValue(Integer.valueOf(1), "n", true), "count"));
+		select.addColumn(new QueryAggregate(QueryAggregate.COUNT, amount, "count_amount"));
+		select.addColumn(new QueryAggregate(QueryAggregate.COUNT, QueryAggregate.DISTINCT, amount, "distinct_amount", null, false));
+		select.addColumn(new QueryAggregate(QueryAggregate.SUM, amount, "sum_amount"));
+		select.addColumn(new QueryAggregate(QueryAggregate.MIN, amount, "min_amount"));
+		select.addColumn(new QueryAggregate(QueryAggregate.MAX, amount, "max_amount"));
+		select.addColumn(new QueryAggregate(QueryAggregate.AVG, amount, "avg_amount"));
+		IDataSet result = select(select, false, 0, -1);
+		assertEquals(1, result.getRowCount());
+		Object[] row = result.getRow(0);
+		assertEquals(6, ((Number)row[0]).longValue());
+		assertEquals(5, ((Number)row[1]).longValue());
+		assertEquals(4, ((Number)row[2]).longValue());
+		assertEquals(82, ((Number)row[3]).longValue());
+		assertEquals(10, ((Number)row[4]).longValue());
+		assertEquals(30, ((Number)row[5]).longValue());
+		assertEquals(16.4, ((Number)row[6]).doubleValue(), 0.0001);
+
+		// aggregates of no rows
+		select.setCondition("test", new CompareCondition(IBaseSQLCondition.GT_OPERATOR, amount, Integer.valueOf(100)));
+		row = select(select, false, 0, -1).getRow(0);
+		assertEquals(0, ((Number)row[0]).longValue());
+		assertNull(row[3]);
+		assertNull(row[6]);
+
+		// mixing aggregates and columns needs a group by
+		select.addColumn(id);
+		assertUnsupported(select);
+	}
+
+	@Test
+	public void paging() throws Exception
+	{
+		QuerySelect select = select(null);
+		IDataSet page = select(select, false, 2, 3);
+		assertEquals(3, page.getRowCount());
+		assertEquals(3, ((Number)page.getRow(0)[0]).intValue());
+		assertEquals(5, ((Number)page.getRow(2)[0]).intValue());
+		assertTrue(page.hadMoreRows());
+
+		IDataSet last = select(select, false, 4, 3);
+		assertEquals(2, last.getRowCount());
+		assertFalse(last.hadMoreRows());
+
+		assertEquals(0, select(select, false, 10, 3).getRowCount());
+	}
+
+	@Test
+	public void distinct() throws Exception
+	{
+		QuerySelect select = new QuerySelect(table);
+		select.addColumn(amount);
+		select.addSort(new QuerySort(amount, true, new SortOptions(false, SortingNullprecedence.ascNullsLast)));
+		assertEquals(6, select(select, false, 0, -1).getRowCount());
+
+		assertArrayEquals(new Object[] { Integer.valueOf(10), Integer.valueOf(12), Integer.valueOf(20), Integer.valueOf(30), null },
+			numbers(select(select, true, 0, -1)));
+
+		select.setDistinct(true);
+		IDataSet page = select(select, false, 1, 2);
+		assertArrayEquals(ints(12, 20), numbers(page));
+		assertTrue(page.hadMoreRows());
+	}
+
+	/**
+	 * Not a benchmark, but guards against the columnar copy becoming slow on the tables it is meant for: a table of 50000 rows is loaded once and then
+	 * each select with a condition, sort and page scans the columns in memory instead of going to the in-memory database.
+	 */
+	@Test
+	public void selectsOnALargeTableAreFast() throws Exception
+	{
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "id", "name", "amount" },
+			new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT, IColumnTypes.INTEGER });
+		for (int i = 0; i < LARGE_ROWS; i++)
+		{
+			ds.addRow(new Object[] { Integer.valueOf(i), "name" + (i % 1000), Integer.valueOf(i % 100) });
+		}
+		client.getFoundSetManager().insertToDataSource("columnarlarge", ds, null, new WrappedObjectReference<String[]>(new String[] { "id" }), true,
+			false);
+		table = client.getFoundSetManager().getTable("mem:columnarlarge").queryTable();
+		id = new QueryColumn(table, "id");
+		name = new QueryColumn(table, "name");
+		amount = new QueryColumn(table, "amount");
+
+		// the first select loads the columnar copy
+		assertEquals(LARGE_ROWS / 100, ids(new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, amount, Integer.valueOf(7))).length);
+
+		int selects = 20;
+		long start = System.nanoTime();
+		for (int i = 0; i < selects; i++)
+		{
+			QuerySelect select = select(new CompareCondition(IBaseSQLCondition.LIKE_OPERATOR, name, "name" + (i + 1) + "%"));
+			select.clearSorts();
+			select.addSort(new QuerySort(amount, false, SortOptions.NONE));
+			assertEquals(200, select(select, false, 0, 200).getRowCount());
+		}
+		long averageMillis = (System.nanoTime() - start) / 1000000 / selects;
+		// a scan of the columns takes a few milliseconds, the bound is generous so slow build machines pass
+		assertTrue("average select time " + averageMillis + "ms on " + LARGE_ROWS + " rows", averageMillis < 500);
+	}
+}
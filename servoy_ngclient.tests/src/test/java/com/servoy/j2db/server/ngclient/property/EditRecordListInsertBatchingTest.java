@@ -0,0 +1,181 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.IDataSet;
+import com.servoy.j2db.dataprocessing.IFoundSetInternal;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.dataprocessing.ISQLActionTypes;
+import com.servoy.j2db.dataprocessing.ISQLStatement;
+import com.servoy.j2db.dataprocessing.ISaveConstants;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Tests for merging the insert statements of new records on save (servoy.foundset.statementBatching, on by default).
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class EditRecordListInsertBatchingTest extends AbstractSolutionTest
+{
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet parents = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		parents.addRow(new Object[] { Integer.valueOf(100), "existing" });
+		client.getFoundSetManager().insertToDataSource("parent", parents, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		// the foreign key is a number column, its values are not of the same type as the integer pk of the parent
+		BufferedDataSet children = new BufferedDataSet(new String[] { "pk", "parentid" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.NUMBER });
+		client.getFoundSetManager().insertToDataSource("child", children, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	private IRecordInternal newRecord(String table, Object... values) throws ServoyException
+	{
+		IFoundSetInternal foundset = client.getFoundSetManager().getSharedFoundSet("mem:" + table);
+		IRecordInternal record = foundset.getRecord(foundset.newRecord(foundset.getSize(), false));
+		record.startEditing();
+		record.setValue("pk", values[0]);
+		if (values.length > 1)
+		{
+			record.setValue(table.equals("child") ? "parentid" : "name", values[1]);
+		}
+		return record;
+	}
+
+	private ISQLStatement[] save()
+	{
+		client.getPerformedUpdates().clear();
+		assertEquals(ISaveConstants.STOPPED, client.getFoundSetManager().getEditRecordList().stopEditing(true));
+		assertEquals(1, client.getPerformedUpdates().size());
+		return client.getPerformedUpdates().get(0);
+	}
+
+	private static void assertStatement(ISQLStatement statement, int action, Object... pks)
+	{
+		assertEquals(action, statement.getAction());
+		IDataSet pkSet = statement.getPKs();
+		assertEquals(pks.length, pkSet.getRowCount());
+		for (int i = 0; i < pks.length; i++)
+		{
+			assertEquals(((Number)pks[i]).longValue(), ((Number)pkSet.getRow(i)[0]).longValue());
+		}
+	}
+
+	@Test
+	public void insertsAreMergedPerTable() throws ServoyException
+	{
+		newRecord("parent", Integer.valueOf(1), "p1");
+		newRecord("parent", Integer.valueOf(2), "p2");
+		newRecord("child", Integer.valueOf(1));
+		newRecord("child", Integer.valueOf(2));
+
+		ISQLStatement[] statements = save();
+		assertEquals(2, statements.length);
+		assertStatement(statements[0], ISQLActionTypes.INSERT_ACTION, 1, 2);
+		assertStatement(statements[1], ISQLActionTypes.INSERT_ACTION, 1, 2);
+	}
+
+	@Test
+	public void childIsNotMovedBeforeParentWithOtherNumberType() throws ServoyException
+	{
+		newRecord("child", Integer.valueOf(10));
+		newRecord("parent", Integer.valueOf(11), "p11");
+		// the double 11.0 refers to the integer pk 11 of the new parent
+		newRecord("child", Integer.valueOf(12), Double.valueOf(11));
+
+		ISQLStatement[] statements = save();
+		assertEquals(3, statements.length);
+		assertStatement(statements[0], ISQLActionTypes.INSERT_ACTION, 10);
+		assertStatement(statements[1], ISQLActionTypes.INSERT_ACTION, 11);
+		assertStatement(statements[2], ISQLActionTypes.INSERT_ACTION, 12);
+	}
+
+	@Test
+	public void insertIsNotMovedBeforeUpdate() throws ServoyException
+	{
+		newRecord("child", Integer.valueOf(20));
+		IRecordInternal existing = client.getFoundSetManager().getSharedFoundSet("mem:parent").getRecord(0);
+		existing.startEditing();
+		existing.setValue("name", "updated");
+		newRecord("child", Integer.valueOf(21));
+
+		ISQLStatement[] statements = save();
+		assertEquals(3, statements.length);
+		assertStatement(statements[0], ISQLActionTypes.INSERT_ACTION, 20);
+		assertStatement(statements[1], ISQLActionTypes.UPDATE_ACTION, 100);
+		assertStatement(statements[2], ISQLActionTypes.INSERT_ACTION, 21);
+	}
+
+	@Test
+	public void childIsNotMovedBeforeParentWithDecimalForeignKey() throws ServoyException
+	{
+		newRecord("child", Integer.valueOf(30));
+		newRecord("parent", Integer.valueOf(31), "p31");
+		newRecord("child", Integer.valueOf(32), new BigDecimal("31.00"));
+
+		ISQLStatement[] statements = save();
+		assertEquals(3, statements.length);
+		assertStatement(statements[0], ISQLActionTypes.INSERT_ACTION, 30);
+		assertStatement(statements[1], ISQLActionTypes.INSERT_ACTION, 31);
+		assertStatement(statements[2], ISQLActionTypes.INSERT_ACTION, 32);
+	}
+
+	@Test
+	public void childWithFractionForeignKeyIsMerged() throws ServoyException
+	{
+		newRecord("child", Integer.valueOf(40));
+		newRecord("parent", Integer.valueOf(41), "p41");
+		// 41.5 is not the pk of the new parent, so the child can be merged into the first insert
+		newRecord("child", Integer.valueOf(42), Double.valueOf(41.5));
+
+		ISQLStatement[] statements = save();
+		assertEquals(2, statements.length);
+		assertStatement(statements[0], ISQLActionTypes.INSERT_ACTION, 40, 42);
+		assertStatement(statements[1], ISQLActionTypes.INSERT_ACTION, 41);
+	}
+}
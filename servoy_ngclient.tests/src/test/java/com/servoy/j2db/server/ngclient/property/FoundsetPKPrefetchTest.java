@@ -0,0 +1,200 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+import org.sablo.eventthread.IEventDispatcher;
+
+import com.servoy.j2db.J2DBGlobals;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Tests for the read-ahead of the next pk chunk of a foundset (servoy.foundset.pkPrefetch).
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class FoundsetPKPrefetchTest extends AbstractSolutionTest
+{
+	private static final int ROWS = 943;
+
+	/**
+	 * Lock of the client like the executing lock of a session or headless client, held by the client thread while it runs.
+	 */
+	private final ReentrantLock executing = new ReentrantLock();
+
+	@BeforeClass
+	public static void enablePrefetch()
+	{
+		Settings.getInstance().setProperty("servoy.foundset.pkPrefetch", "true");
+	}
+
+	@AfterClass
+	public static void disablePrefetch()
+	{
+		Settings.getInstance().remove("servoy.foundset.pkPrefetch");
+	}
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected IEventDispatcher createTestEventDispatcher()
+	{
+		return new TestNGEventDispatcher(endpoint)
+		{
+			@Override
+			public void postEvent(Runnable event)
+			{
+				// invokeLater of a session or headless client is a synchronous invokeAndWait on the executing lock
+				executing.lock();
+				try
+				{
+					event.run();
+				}
+				finally
+				{
+					executing.unlock();
+				}
+			}
+		};
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "pk", "test1" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		for (int i = 0; i < ROWS; i++)
+		{
+			ds.addRow(new Object[] { Integer.valueOf(i), "value" + i });
+		}
+		client.getFoundSetManager().insertToDataSource("prefetchtest", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	@Test
+	public void queryForAllPKsWithPendingReadAhead() throws ServoyException
+	{
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:prefetchtest");
+		foundset.loadAllRecords();
+		int firstChunk = foundset.getSize();
+		assertTrue(foundset.hadMoreRows());
+		assertTrue(firstChunk < ROWS);
+
+		// passing the threshold starts the read-ahead of the next chunk
+		assertEquals(Integer.valueOf(firstChunk - 10), foundset.getRecord(firstChunk - 10).getValue("pk"));
+
+		// loading all pks must not stop after adding the read-ahead chunk
+		foundset.queryForAllPKs();
+		assertEquals(ROWS, foundset.getSize());
+		assertFalse(foundset.hadMoreRows());
+		assertEquals(Integer.valueOf(ROWS - 1), foundset.getRecord(ROWS - 1).getValue("pk"));
+	}
+
+	@Test
+	public void loadNextChunkWithPendingReadAhead() throws ServoyException
+	{
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:prefetchtest");
+		foundset.loadAllRecords();
+		int firstChunk = foundset.getSize();
+
+		foundset.getRecord(firstChunk - 10);
+		// accessing the last loaded record uses the read-ahead and adds at least one chunk
+		foundset.getRecord(firstChunk - 1);
+		assertTrue(foundset.getSize() > firstChunk);
+		for (int i = 0; i < foundset.getSize(); i++)
+		{
+			assertEquals(Integer.valueOf(i), foundset.getRecord(i).getValue("pk"));
+		}
+	}
+
+	@Test
+	public void readAheadIsAddedFromTheClientThreadCallback() throws Exception
+	{
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:prefetchtest");
+		foundset.loadAllRecords();
+		int firstChunk = foundset.getSize();
+
+		foundset.getRecord(firstChunk - 10);
+		// the callback of the read-ahead adds the next chunk without another access
+		for (int i = 0; i < 1000 && foundset.getSize() == firstChunk; i++)
+		{
+			Thread.sleep(10);
+		}
+		assertTrue(foundset.getSize() > firstChunk);
+		for (int i = 0; i < foundset.getSize(); i++)
+		{
+			assertEquals(Integer.valueOf(i), foundset.getRecord(i).getValue("pk"));
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void waitForReadAheadWhileHoldingTheClientLock() throws ServoyException
+	{
+		// test runs on its own thread because of the timeout
+		J2DBGlobals.setServiceProvider(client);
+		executing.lock();
+		try
+		{
+			FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:prefetchtest");
+			foundset.loadAllRecords();
+			int firstChunk = foundset.getSize();
+
+			foundset.getRecord(firstChunk - 10);
+			// waits for the read-ahead, its hand-off to the client thread is blocked until the lock is released
+			foundset.getRecord(firstChunk - 1);
+			assertTrue(foundset.getSize() > firstChunk);
+			for (int i = 0; i < foundset.getSize(); i++)
+			{
+				assertEquals(Integer.valueOf(i), foundset.getRecord(i).getValue("pk"));
+			}
+		}
+		finally
+		{
+			executing.unlock();
+		}
+	}
+}
@@ -78,19 +78,24 @@ public class FoundsetTest extends AbstractSolutionTest
 	@Override
 	protected InMemPackageReader getTestComponents() throws IOException
 	{
-		InputStream is = getClass().getResourceAsStream("FoundSetTest.manifest");
+		return getFoundsetTestComponents();
+	}
+
+	static InMemPackageReader getFoundsetTestComponents() throws IOException
+	{
+		InputStream is = FoundsetTest.class.getResourceAsStream("FoundSetTest.manifest");
 		byte[] bytes = new byte[is.available()];
 		is.read(bytes);
 		String manifest = new String(bytes);
 		is.close();
 
-		is = getClass().getResourceAsStream("FoundSetTest-mycomponent.spec");
+		is = FoundsetTest.class.getResourceAsStream("FoundSetTest-mycomponent.spec");
 		bytes = new byte[is.available()];
 		is.read(bytes);
 		String comp1 = new String(bytes);
 		is.close();
 
-		is = getClass().getResourceAsStream("FoundSetTest-mydynamiccomponent.spec");
+		is = FoundsetTest.class.getResourceAsStream("FoundSetTest-mydynamiccomponent.spec");
 		bytes = new byte[is.available()];
 		is.read(bytes);
 		String comp2 = new String(bytes);
@@ -965,4 +970,39 @@ public class FoundsetTest extends AbstractSolutionTest
 		assertEquals("{\"n\":true}", stringWriter3.toString());
 	}
 
+	@Test
+	public void foundsetViewportWindowEvictsRecords() throws JSONException
+	{
+		IWebFormController form = (IWebFormController)client.getFormManager().showFormInCurrentContainer("test");
+		assertNotNull(form);
+		WebFormComponent wc = form.getFormUI().getWebComponent("mycustombean");
+		FoundsetTypeSabloValue rawPropertyValue = (FoundsetTypeSabloValue)wc.getRawPropertyValue("myfoundset");
+		BrowserConverterContext allowBrowserConverterContext = new BrowserConverterContext(wc, PushToServerEnum.allow);
+		FoundsetTypeViewport viewPort = rawPropertyValue.getViewPort();
+
+		rawPropertyValue.browserUpdatesReceived(new JSONArray("[{\"" + FoundsetTypeSabloValue.MAX_VIEWPORT_SIZE + "\":5}]"),
+			wc.getSpecification().getProperty("myfoundset"), allowBrowserConverterContext);
+		assertEquals(5, viewPort.getMaxViewportSize());
+
+		viewPort.setBounds(0, 5);
+		rawPropertyValue.toJSON(new JSONWriter(new StringWriter()), allowBrowserConverterContext);
+
+		// scrolling down keeps the viewport at the max size, records at the start are removed
+		viewPort.loadExtraRecords(3);
+		assertEquals(3, viewPort.getStartIndex());
+		assertEquals(5, viewPort.getSize());
+
+		StringWriter stringWriter = new StringWriter();
+		rawPropertyValue.changesToJSON(new JSONWriter(stringWriter), allowBrowserConverterContext);
+		JSONObject viewPortChanges = new JSONObject(stringWriter.toString()).getJSONObject("upd_viewPort");
+		assertEquals(3, viewPortChanges.getInt("startIndex"));
+		assertEquals(5, viewPortChanges.getInt("size"));
+
+		// scrolling back up removes records from the end
+		viewPort.loadExtraRecords(-2);
+		assertEquals(1, viewPort.getStartIndex());
+		assertEquals(5, viewPort.getSize());
+		assertEquals("value3", rawPropertyValue.getFoundset().getRecord(viewPort.getStartIndex()).getValue("test1"));
+	}
+
 }
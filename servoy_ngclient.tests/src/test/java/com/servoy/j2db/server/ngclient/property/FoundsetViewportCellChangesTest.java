@@ -0,0 +1,282 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.property;
+
+import static com.servoy.base.query.IQueryConstants.LEFT_OUTER_JOIN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONWriter;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+import org.sablo.specification.WebObjectSpecification.PushToServerEnum;
+import org.sablo.specification.property.ArrayOperation;
+import org.sablo.specification.property.BrowserConverterContext;
+
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.base.solutionmodel.IBaseSMPart;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.FireCollector;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.persistence.Column;
+import com.servoy.j2db.persistence.Form;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.persistence.Relation;
+import com.servoy.j2db.persistence.Table;
+import com.servoy.j2db.persistence.WebComponent;
+import com.servoy.j2db.server.ngclient.IWebFormController;
+import com.servoy.j2db.server.ngclient.WebFormComponent;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.ServoyJSONObject;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Checks that changes in a wide foundset viewport only send the changed cells to the client, unless the foundset property
+ * also shows related dataproviders that can change with them.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class FoundsetViewportCellChangesTest extends AbstractSolutionTest
+{
+	private static final int COLUMNS = 40;
+	private static final int ROWS = 50;
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return FoundsetTest.getFoundsetTestComponents();
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+		Form form = solution.createNewForm(validator, null, "wide", "mem:wide", false, new Dimension(600, 400));
+		form.setNavigatorID(-1);
+		form.createNewPart(IBaseSMPart.BODY, 5);
+
+		StringBuilder dataproviders = new StringBuilder();
+		for (int c = 0; c < COLUMNS; c++)
+		{
+			if (c > 0) dataproviders.append(',');
+			dataproviders.append("dp").append(c).append(":'col").append(c).append('\'');
+		}
+		WebComponent grid = form.createNewWebComponent("grid", "my-dynamiccomponent");
+		grid.setProperty("myfoundset", new ServoyJSONObject("{foundsetSelector:'',dataproviders:{" + dataproviders + "}}", false));
+
+		WebComponent relatedGrid = form.createNewWebComponent("relatedgrid", "my-dynamiccomponent");
+		relatedGrid.setProperty("myfoundset",
+			new ServoyJSONObject("{foundsetSelector:'',dataproviders:{dp0:'col0',dp1:'col1',detail:'wide_to_detail.name'}}", false));
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		String[] columnNames = new String[COLUMNS + 1];
+		int[] columnTypes = new int[COLUMNS + 1];
+		columnNames[0] = "pk";
+		columnTypes[0] = IColumnTypes.INTEGER;
+		for (int c = 0; c < COLUMNS; c++)
+		{
+			columnNames[c + 1] = "col" + c;
+			columnTypes[c + 1] = IColumnTypes.TEXT;
+		}
+		BufferedDataSet ds = new BufferedDataSet(columnNames, columnTypes);
+		for (int r = 0; r < ROWS; r++)
+		{
+			Object[] row = new Object[COLUMNS + 1];
+			row[0] = Integer.valueOf(r);
+			for (int c = 0; c < COLUMNS; c++)
+			{
+				row[c + 1] = c == 0 ? "code0" : "row " + r + " column " + c;
+			}
+			ds.addRow(row);
+		}
+		client.getFoundSetManager().insertToDataSource("wide", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		BufferedDataSet detailDS = new BufferedDataSet(new String[] { "code", "name" }, new int[] { IColumnTypes.TEXT, IColumnTypes.TEXT });
+		detailDS.addRow(new Object[] { "code0", "name of code0" });
+		detailDS.addRow(new Object[] { "code1", "name of code1" });
+		client.getFoundSetManager().insertToDataSource("detail", detailDS, null, new WrappedObjectReference<String[]>(new String[] { "code" }), true,
+			false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+
+		Relation relation = solution.createNewRelation(validator, "wide_to_detail", "mem:wide", "mem:detail", LEFT_OUTER_JOIN);
+		Column primaryColumn = ((Table)client.getFoundSetManager().getTable(relation.getPrimaryDataSource())).getColumn("col0");
+		Column foreignColumn = ((Table)client.getFoundSetManager().getTable(relation.getForeignDataSource())).getColumn("code");
+		relation.createNewRelationItem(client.getFoundSetManager(), primaryColumn, IBaseSQLCondition.EQUALS_OPERATOR, foreignColumn);
+	}
+
+	@Test
+	public void gridEditSendsOnlyChangedCell() throws JSONException, ServoyException
+	{
+		WebFormComponent grid = showGrid("grid");
+		FoundsetTypeSabloValue foundsetValue = (FoundsetTypeSabloValue)grid.getRawPropertyValue("myfoundset");
+		BrowserConverterContext context = new BrowserConverterContext(grid, PushToServerEnum.allow);
+
+		IRecordInternal record = foundsetValue.getFoundset().getRecord(3);
+		record.startEditing();
+		record.setValue("col7", "edited");
+		record.stopEditing();
+		String changes = changesToJSON(foundsetValue, context);
+
+		JSONArray operations = new JSONObject(changes).getJSONObject("upd_viewPort").getJSONArray("upd_rows");
+		assertEquals(1, operations.length());
+		JSONObject row = operations.getJSONObject(0).getJSONArray("rows").getJSONObject(0);
+		assertEquals("edited", row.getString("dp7"));
+		assertEquals("only the changed cell should be sent", 1, row.length());
+
+		assertTrue(changes.length() < wholeRowsJSON(foundsetValue, context, 3, 3).length());
+	}
+
+	@Test
+	public void multiRecordChangeSendsOnlyChangedCells() throws JSONException, ServoyException
+	{
+		WebFormComponent grid = showGrid("grid");
+		FoundsetTypeSabloValue foundsetValue = (FoundsetTypeSabloValue)grid.getRawPropertyValue("myfoundset");
+		BrowserConverterContext context = new BrowserConverterContext(grid, PushToServerEnum.allow);
+
+		// like a data broadcast that updated a couple of columns of a range of records, all fired at once
+		int firstRow = 10;
+		int lastRow = 29;
+		updateRange(foundsetValue, firstRow, lastRow, "col1", "col2");
+		String changes = changesToJSON(foundsetValue, context);
+
+		JSONArray operations = new JSONObject(changes).getJSONObject("upd_viewPort").getJSONArray("upd_rows");
+		int cellsWritten = 0;
+		for (int o = 0; o < operations.length(); o++)
+		{
+			JSONArray rows = operations.getJSONObject(o).getJSONArray("rows");
+			for (int r = 0; r < rows.length(); r++)
+			{
+				JSONObject row = rows.getJSONObject(r);
+				assertTrue("only the changed cells should be sent: " + row, row.length() <= 2);
+				assertEquals("updated col1", row.optString("dp1", "updated col1"));
+				assertEquals("updated col2", row.optString("dp2", "updated col2"));
+				cellsWritten += row.length();
+			}
+		}
+		assertEquals((lastRow - firstRow + 1) * 2, cellsWritten);
+
+		assertTrue(changes.length() < wholeRowsJSON(foundsetValue, context, firstRow, lastRow).length());
+	}
+
+	@Test
+	public void relatedDataproviderSendsWholeRows() throws JSONException, ServoyException
+	{
+		WebFormComponent grid = showGrid("relatedgrid");
+		FoundsetTypeSabloValue foundsetValue = (FoundsetTypeSabloValue)grid.getRawPropertyValue("myfoundset");
+		BrowserConverterContext context = new BrowserConverterContext(grid, PushToServerEnum.allow);
+
+		// the relation uses col0, so the related dataprovider changes as well, but only col0 is in the changed columns
+		int firstRow = 4;
+		int lastRow = 7;
+		updateRange(foundsetValue, firstRow, lastRow, "col0");
+		String changes = changesToJSON(foundsetValue, context);
+
+		JSONArray operations = new JSONObject(changes).getJSONObject("upd_viewPort").getJSONArray("upd_rows");
+		int rowsWritten = 0;
+		for (int o = 0; o < operations.length(); o++)
+		{
+			JSONArray rows = operations.getJSONObject(o).getJSONArray("rows");
+			for (int r = 0; r < rows.length(); r++)
+			{
+				JSONObject row = rows.getJSONObject(r);
+				assertTrue("the whole row should be sent: " + row, row.has("dp1") && row.has("detail"));
+				rowsWritten++;
+			}
+		}
+		assertEquals(lastRow - firstRow + 1, rowsWritten);
+		assertTrue(changes, changes.contains("name of code1"));
+	}
+
+	private WebFormComponent showGrid(String name) throws JSONException
+	{
+		IWebFormController form = (IWebFormController)client.getFormManager().showFormInCurrentContainer("wide");
+		assertNotNull(form);
+		WebFormComponent grid = form.getFormUI().getWebComponent(name);
+		FoundsetTypeSabloValue foundsetValue = (FoundsetTypeSabloValue)grid.getRawPropertyValue("myfoundset");
+		BrowserConverterContext context = new BrowserConverterContext(grid, PushToServerEnum.allow);
+
+		foundsetValue.getViewPort().setBounds(0, ROWS);
+		foundsetValue.toJSON(new JSONWriter(new StringWriter()), context);
+		return grid;
+	}
+
+	/**
+	 * Updates the given columns of a range of records, firing the changes at once.
+	 */
+	private static void updateRange(FoundsetTypeSabloValue foundsetValue, int firstRow, int lastRow, String... columns)
+	{
+		for (int r = firstRow; r <= lastRow; r++)
+		{
+			foundsetValue.getFoundset().getRecord(r).startEditing();
+		}
+		FireCollector fireCollector = FireCollector.getFireCollector();
+		try
+		{
+			for (int r = firstRow; r <= lastRow; r++)
+			{
+				IRecordInternal record = foundsetValue.getFoundset().getRecord(r);
+				for (String column : columns)
+				{
+					record.setValue(column, column.equals("col0") ? "code1" : "updated " + column);
+				}
+			}
+		}
+		finally
+		{
+			fireCollector.done();
+		}
+		for (int r = firstRow; r <= lastRow; r++)
+		{
+			foundsetValue.getFoundset().getRecord(r).stopEditing();
+		}
+	}
+
+	/**
+	 * @return the changes JSON when the given viewport rows are sent completely
+	 */
+	private static String wholeRowsJSON(FoundsetTypeSabloValue foundsetValue, BrowserConverterContext context, int firstRow, int lastRow)
+		throws JSONException
+	{
+		FoundsetTypeViewport viewPort = foundsetValue.getViewPort();
+		viewPort.changeMonitor.viewPortDataChangeMonitor.queueOperation(firstRow - viewPort.getStartIndex(), lastRow - viewPort.getStartIndex(),
+			viewPort.getSize(), ArrayOperation.CHANGE);
+		return changesToJSON(foundsetValue, context);
+	}
+
+	private static String changesToJSON(FoundsetTypeSabloValue foundsetValue, BrowserConverterContext context) throws JSONException
+	{
+		StringWriter stringWriter = new StringWriter();
+		foundsetValue.changesToJSON(new JSONWriter(stringWriter), context);
+		return stringWriter.toString();
+	}
+}
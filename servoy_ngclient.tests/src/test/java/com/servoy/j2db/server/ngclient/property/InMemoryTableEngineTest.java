@@ -0,0 +1,122 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.dataprocessing.ISaveConstants;
+import com.servoy.j2db.dataprocessing.InMemoryTableEngine;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Selects of foundsets on in-memory tables are executed on the columnar copy when servoy.inmem.columnarEngine is enabled.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class InMemoryTableEngineTest extends AbstractSolutionTest
+{
+	@BeforeClass
+	public static void enableColumnarEngine()
+	{
+		Settings.getInstance().setProperty("servoy.inmem.columnarEngine", "true");
+	}
+
+	@AfterClass
+	public static void disableColumnarEngine()
+	{
+		Settings.getInstance().remove("servoy.inmem.columnarEngine");
+	}
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		ds.addRow(new Object[] { Integer.valueOf(1), "delta" });
+		ds.addRow(new Object[] { Integer.valueOf(2), "alpha" });
+		ds.addRow(new Object[] { Integer.valueOf(3), "charlie" });
+		ds.addRow(new Object[] { Integer.valueOf(4), "bravo" });
+		client.getFoundSetManager().insertToDataSource("columnartest", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	@Test
+	public void sortIsExecutedInMemory() throws ServoyException
+	{
+		long served = InMemoryTableEngine.getStatistics().getServed();
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:columnartest");
+		foundset.js_sort("name asc");
+
+		// the test data server returns the rows unsorted
+		assertEquals(4, foundset.getSize());
+		assertEquals("alpha", foundset.getRecord(0).getValue("name"));
+		assertEquals("bravo", foundset.getRecord(1).getValue("name"));
+		assertEquals("charlie", foundset.getRecord(2).getValue("name"));
+		assertEquals("delta", foundset.getRecord(3).getValue("name"));
+		assertTrue(InMemoryTableEngine.getStatistics().getServed() > served);
+		assertTrue(PerformanceStatistics.getStatistics().containsKey("in-memory columnar engine"));
+	}
+
+	@Test
+	public void updateReloadsTheTable() throws ServoyException
+	{
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:columnartest");
+		foundset.js_sort("name desc");
+		assertEquals("delta", foundset.getRecord(0).getValue("name"));
+		long loads = InMemoryTableEngine.getStatistics().getLoads();
+
+		IRecordInternal record = foundset.getRecord(0);
+		record.startEditing();
+		record.setValue("name", "echo");
+		assertEquals(ISaveConstants.STOPPED, client.getFoundSetManager().getEditRecordList().stopEditing(true));
+
+		foundset.js_sort("name asc");
+		assertEquals(loads + 1, InMemoryTableEngine.getStatistics().getLoads());
+	}
+}
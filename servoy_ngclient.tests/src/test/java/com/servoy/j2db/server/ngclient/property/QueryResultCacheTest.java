@@ -0,0 +1,225 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.IDataServer;
+import com.servoy.j2db.dataprocessing.IDataSet;
+import com.servoy.j2db.dataprocessing.QueryResultCache;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.query.CompareCondition;
+import com.servoy.j2db.query.CustomCondition;
+import com.servoy.j2db.query.QueryColumn;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.QueryTable;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+
+/**
+ * Tests for the {@link QueryResultCache} through the data server it wraps around the data server of a client.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class QueryResultCacheTest
+{
+	private IDataServer dataServer;
+	private int queries;
+	// run by the database while it performs a query
+	private Runnable duringQuery;
+
+	@BeforeClass
+	public static void enableCache()
+	{
+		Settings.getInstance().setProperty("servoy.queryCache.datasources", "db:/example/*");
+	}
+
+	@AfterClass
+	public static void disableCache()
+	{
+		Settings.getInstance().remove("servoy.queryCache.datasources");
+		QueryResultCache.dataChanged(null);
+	}
+
+	@Before
+	public void setUp()
+	{
+		IDataServer database = (IDataServer)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IDataServer.class },
+			(proxy, method, args) -> {
+				if (!"performQuery".equals(method.getName())) return null;
+				queries++;
+				if (duringQuery != null) duringQuery.run();
+				BufferedDataSet result = new BufferedDataSet(new String[] { "id", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+				result.addRow(new Object[] { Integer.valueOf(1), "query " + queries });
+				return result;
+			});
+		dataServer = QueryResultCache.createCachingDataServer(database);
+		assertNotSame(database, dataServer);
+	}
+
+	private static QuerySelect createSelect(String tableName, Object id)
+	{
+		QueryTable table = new QueryTable(tableName, "db:/example/" + tableName, null, null, "t");
+		QuerySelect select = new QuerySelect(table);
+		select.addColumn(new QueryColumn(table, "id"));
+		select.addColumn(new QueryColumn(table, "name"));
+		select.addCondition("search", new CompareCondition(IBaseSQLCondition.EQUALS_OPERATOR, new QueryColumn(table, "id"), id));
+		return select;
+	}
+
+	private IDataSet query(String serverName, String transactionID, QuerySelect select, int startRow, int type) throws ServoyException
+	{
+		return dataServer.performQuery("client", serverName, transactionID, select, null, null, false, startRow, 100, type, null);
+	}
+
+	private IDataSet query(QuerySelect select) throws ServoyException
+	{
+		return query("example", null, select, 0, IDataServer.FOUNDSET_LOAD_QUERY);
+	}
+
+	@Test
+	public void equalQueriesAreServedFromTheCache() throws ServoyException
+	{
+		IDataSet first = query(createSelect("orders", Integer.valueOf(1)));
+		IDataSet second = query(createSelect("orders", Integer.valueOf(1)));
+		assertEquals(1, queries);
+		assertArrayEquals(first.getRow(0), second.getRow(0));
+
+		// other values of the placeholders, other tables and other row ranges are other queries
+		query(createSelect("orders", Integer.valueOf(2)));
+		assertEquals(2, queries);
+		query(createSelect("customers", Integer.valueOf(1)));
+		assertEquals(3, queries);
+		query("example", null, createSelect("orders", Integer.valueOf(1)), 100, IDataServer.FOUNDSET_LOAD_QUERY);
+		assertEquals(4, queries);
+	}
+
+	@Test
+	public void uncacheableQueriesAlwaysGoToTheDatabase() throws ServoyException
+	{
+		// not an enabled datasource
+		query("other", null, createSelect("orders", Integer.valueOf(3)), 0, IDataServer.FOUNDSET_LOAD_QUERY);
+		query("other", null, createSelect("orders", Integer.valueOf(3)), 0, IDataServer.FOUNDSET_LOAD_QUERY);
+		assertEquals(2, queries);
+
+		// in a transaction
+		query("example", "tid", createSelect("orders", Integer.valueOf(3)), 0, IDataServer.FOUNDSET_LOAD_QUERY);
+		query("example", "tid", createSelect("orders", Integer.valueOf(3)), 0, IDataServer.FOUNDSET_LOAD_QUERY);
+		assertEquals(4, queries);
+
+		// refresh
+		query("example", null, createSelect("orders", Integer.valueOf(3)), 0, IDataServer.REFRESH_ROLLBACK_QUERY);
+		query("example", null, createSelect("orders", Integer.valueOf(3)), 0, IDataServer.REFRESH_ROLLBACK_QUERY);
+		assertEquals(6, queries);
+
+		QuerySelect locked = createSelect("orders", Integer.valueOf(3));
+		locked.setLockMode(QuerySelect.LOCK_MODE_LOCK_NOWAIT);
+		query(locked);
+		query(locked);
+		assertEquals(8, queries);
+
+		// custom sql can read any table
+		QuerySelect customSql = createSelect("orders", Integer.valueOf(3));
+		customSql.addCondition("custom", new CustomCondition("id in (select order_id from lines)", null));
+		query(customSql);
+		query(customSql);
+		assertEquals(10, queries);
+	}
+
+	@Test
+	public void resultIsCopied() throws ServoyException
+	{
+		IDataSet first = query(createSelect("orders", Integer.valueOf(10)));
+		Object name = first.getRow(0)[1];
+		first.getRow(0)[1] = "changed";
+
+		IDataSet second = query(createSelect("orders", Integer.valueOf(10)));
+		assertEquals(1, queries);
+		assertEquals(name, second.getRow(0)[1]);
+	}
+
+	@Test
+	public void dataChangeInvalidates() throws ServoyException
+	{
+		query(createSelect("invoices", Integer.valueOf(20)));
+
+		// other tables don't matter
+		QueryResultCache.dataChanged("db:/example/orders");
+		query(createSelect("invoices", Integer.valueOf(20)));
+		assertEquals(1, queries);
+
+		QueryResultCache.dataChanged("db:/example/invoices");
+		assertEquals("query 2", query(createSelect("invoices", Integer.valueOf(20))).getRow(0)[1]);
+		assertEquals("query 2", query(createSelect("invoices", Integer.valueOf(20))).getRow(0)[1]);
+
+		QueryResultCache.serverChanged("example");
+		assertEquals("query 3", query(createSelect("invoices", Integer.valueOf(20))).getRow(0)[1]);
+		assertEquals(3, queries);
+	}
+
+	@Test
+	public void resultOfAQueryDuringAChangeIsNotStored() throws ServoyException
+	{
+		duringQuery = () -> QueryResultCache.dataChanged("db:/example/payments");
+		query(createSelect("payments", Integer.valueOf(30)));
+		duringQuery = null;
+
+		assertEquals("query 2", query(createSelect("payments", Integer.valueOf(30))).getRow(0)[1]);
+		assertEquals("query 2", query(createSelect("payments", Integer.valueOf(30))).getRow(0)[1]);
+		assertEquals(2, queries);
+	}
+
+	@Test
+	public void statisticsPerMainTable() throws ServoyException
+	{
+		query(createSelect("products", Integer.valueOf(40)));
+		query(createSelect("products", Integer.valueOf(40)));
+
+		QueryResultCache.Statistics statistics = QueryResultCache.getStatistics().get("db:/example/products");
+		assertEquals(1, statistics.getHits());
+		assertEquals(1, statistics.getMisses());
+		assertEquals(1, statistics.getStored());
+		assertEquals(0.5, statistics.getHitRate(), 0.001);
+	}
+
+	@Test
+	public void disabledCacheDoesNotWrap()
+	{
+		Settings.getInstance().setProperty("servoy.queryCache.datasources", "");
+		try
+		{
+			assertSame(dataServer, QueryResultCache.createCachingDataServer(dataServer));
+		}
+		finally
+		{
+			Settings.getInstance().setProperty("servoy.queryCache.datasources", "db:/example/*");
+		}
+	}
+}
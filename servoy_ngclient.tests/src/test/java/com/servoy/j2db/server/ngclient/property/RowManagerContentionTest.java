@@ -0,0 +1,148 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.j2db.J2DBGlobals;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.dataprocessing.Row;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Foundsets of one datasource that load records on several threads share the row manager of the datasource.
+ * The rows are created under pk lock stripes, so every thread must get the same row object for a pk.
+ * The timing of loading with 1 and with {@link #THREADS} threads is logged as a simple contention benchmark.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class RowManagerContentionTest extends AbstractSolutionTest
+{
+	private static final int ROWS = 3000;
+	private static final int THREADS = 8;
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		for (int i = 0; i < ROWS; i++)
+		{
+			ds.addRow(new Object[] { Integer.valueOf(i), "name" + i });
+		}
+		client.getFoundSetManager().insertToDataSource("contentiontest", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	private Callable<Void> loadAll(AtomicReferenceArray<Row> rows)
+	{
+		return () -> {
+			J2DBGlobals.setServiceProvider(client);
+			FoundSet foundset = (FoundSet)client.getFoundSetManager().getNewFoundSet("mem:contentiontest");
+			foundset.loadAllRecords();
+			foundset.queryForAllPKs();
+			assertEquals(ROWS, foundset.getSize());
+			for (int i = 0; i < ROWS; i++)
+			{
+				IRecordInternal record = foundset.getRecord(i);
+				assertEquals("name" + i, record.getValue("name"));
+				Row row = record.getRawData();
+				if (!rows.compareAndSet(i, null, row))
+				{
+					assertSame("pk " + i, rows.get(i), row);
+				}
+			}
+			return null;
+		};
+	}
+
+	private long run(int threads, AtomicReferenceArray<Row> rows) throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			long start = System.nanoTime();
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++)
+			{
+				futures.add(executor.submit(loadAll(rows)));
+			}
+			for (Future<Void> future : futures)
+			{
+				// rethrows assertion errors of the threads
+				future.get();
+			}
+			return System.nanoTime() - start;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void threadsShareTheRows() throws Exception
+	{
+		AtomicReferenceArray<Row> rows = new AtomicReferenceArray<>(ROWS);
+		long single = run(1, rows);
+		long concurrent = run(THREADS, rows);
+		Debug.log("RowManager contention: 1 thread loaded " + ROWS + " records in " + single / 1000000 + "ms, " + THREADS + " threads in " +
+			concurrent / 1000000 + "ms");
+	}
+
+	@Test
+	public void concurrentFirstLoadCreatesOneRowPerPk() throws Exception
+	{
+		// no rows are cached yet, all threads race to create them
+		run(THREADS, new AtomicReferenceArray<>(ROWS));
+	}
+}
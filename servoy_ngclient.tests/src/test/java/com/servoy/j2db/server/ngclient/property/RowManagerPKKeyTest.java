@@ -0,0 +1,183 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.dataprocessing.RowManager;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.UUID;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Rows are kept in the row manager under a compact key (Long or UUID) for single-column pks and under the pk hash for other pks.
+ * Pks of a different type but with the same pk hash must find the same row.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class RowManagerPKKeyTest extends AbstractSolutionTest
+{
+	private static final String[] UUIDS = { "0b2d6f7e-1c1a-4a8e-9d3e-5f0e2c4b6a10", "FFFFFFFF-0000-4000-8000-000000000001", "12345678-9abc-4def-8123-456789abcdef" };
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet ints = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		for (int i = 0; i < 5; i++)
+		{
+			ints.addRow(new Object[] { Integer.valueOf(i * 1000 - 2000), "int" + i });
+		}
+		client.getFoundSetManager().insertToDataSource("pkints", ints, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		BufferedDataSet uuids = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.TEXT, IColumnTypes.TEXT });
+		for (int i = 0; i < UUIDS.length; i++)
+		{
+			uuids.addRow(new Object[] { UUIDS[i], "uuid" + i });
+		}
+		client.getFoundSetManager().insertToDataSource("pkuuids", uuids, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		BufferedDataSet texts = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.TEXT, IColumnTypes.TEXT });
+		texts.addRow(new Object[] { "7", "seven" });
+		texts.addRow(new Object[] { "007", "double o seven" });
+		texts.addRow(new Object[] { "-0", "minus zero" });
+		client.getFoundSetManager().insertToDataSource("pktexts", texts, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		BufferedDataSet multi = new BufferedDataSet(new String[] { "a", "b", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT, IColumnTypes.TEXT });
+		multi.addRow(new Object[] { Integer.valueOf(1), "x", "1x" });
+		multi.addRow(new Object[] { Integer.valueOf(1), "y", "1y" });
+		multi.addRow(new Object[] { Integer.valueOf(2), "x", "2x" });
+		client.getFoundSetManager().insertToDataSource("pkmulti", multi, null, new WrappedObjectReference<String[]>(new String[] { "a", "b" }), true,
+			false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	private List<IRecordInternal> load(String dataSource, Object[]... pks) throws ServoyException
+	{
+		BufferedDataSet pkSet = new BufferedDataSet();
+		for (Object[] pk : pks)
+		{
+			pkSet.addRow(pk);
+		}
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getNewFoundSet(dataSource);
+		foundset.loadExternalPKList(pkSet);
+		assertEquals(pks.length, foundset.getSize());
+		List<IRecordInternal> records = new ArrayList<>();
+		for (int i = 0; i < pks.length; i++)
+		{
+			IRecordInternal record = foundset.getRecord(i);
+			assertNotNull("pk " + i, record);
+			records.add(record);
+		}
+		return records;
+	}
+
+	@Test
+	public void pkHashIsTheSameForEqualValues()
+	{
+		assertEquals(RowManager.createPKHashKey(new Object[] { Integer.valueOf(42) }), RowManager.createPKHashKey(new Object[] { Long.valueOf(42) }));
+		assertEquals("3.-42;", RowManager.createPKHashKey(new Object[] { Long.valueOf(-42) }));
+		assertEquals(RowManager.createPKHashKey(new Object[] { UUID.fromString(UUIDS[1]) }), RowManager.createPKHashKey(new Object[] { UUIDS[1] }));
+		assertEquals(RowManager.createPKHashKey(new Object[] { UUIDS[1].toLowerCase() }), RowManager.createPKHashKey(new Object[] { UUIDS[1] }));
+		assertNotEquals(RowManager.createPKHashKey(new Object[] { "007" }), RowManager.createPKHashKey(new Object[] { "7" }));
+		assertEquals("1.1;1.x;", RowManager.createPKHashKey(new Object[] { Integer.valueOf(1), "x" }));
+	}
+
+	@Test
+	public void integerAndLongPksFindTheSameRow() throws ServoyException
+	{
+		List<IRecordInternal> byInteger = load("mem:pkints", new Object[] { Integer.valueOf(-2000) }, new Object[] { Integer.valueOf(0) },
+			new Object[] { Integer.valueOf(2000) });
+		assertEquals("int0", byInteger.get(0).getValue("name"));
+		assertEquals("int2", byInteger.get(1).getValue("name"));
+		assertEquals("int4", byInteger.get(2).getValue("name"));
+
+		List<IRecordInternal> byLong = load("mem:pkints", new Object[] { Long.valueOf(2000) }, new Object[] { Long.valueOf(-2000) },
+			new Object[] { Long.valueOf(0) });
+		assertSame(byInteger.get(2).getRawData(), byLong.get(0).getRawData());
+		assertSame(byInteger.get(0).getRawData(), byLong.get(1).getRawData());
+		assertSame(byInteger.get(1).getRawData(), byLong.get(2).getRawData());
+	}
+
+	@Test
+	public void uuidAndCanonicalStringFindTheSameRow() throws ServoyException
+	{
+		// rows are created from the data with an uppercase uuid, requested as uuid objects
+		List<IRecordInternal> byUUID = load("mem:pkuuids", new Object[] { UUID.fromString(UUIDS[1]) }, new Object[] { UUID.fromString(UUIDS[0]) });
+		assertEquals("uuid1", byUUID.get(0).getValue("name"));
+		assertEquals("uuid0", byUUID.get(1).getValue("name"));
+
+		List<IRecordInternal> byString = load("mem:pkuuids", new Object[] { UUIDS[0].toUpperCase() }, new Object[] { UUIDS[1].toLowerCase() },
+			new Object[] { UUIDS[2] });
+		assertSame(byUUID.get(1).getRawData(), byString.get(0).getRawData());
+		assertSame(byUUID.get(0).getRawData(), byString.get(1).getRawData());
+		assertEquals("uuid2", byString.get(2).getValue("name"));
+	}
+
+	@Test
+	public void nonCanonicalNumberStringsAreDifferentRows() throws ServoyException
+	{
+		List<IRecordInternal> records = load("mem:pktexts", new Object[] { "007" }, new Object[] { "7" }, new Object[] { "-0" });
+		assertEquals("double o seven", records.get(0).getValue("name"));
+		assertEquals("seven", records.get(1).getValue("name"));
+		assertEquals("minus zero", records.get(2).getValue("name"));
+	}
+
+	@Test
+	public void multiColumnPksUseThePkHash() throws ServoyException
+	{
+		List<IRecordInternal> records = load("mem:pkmulti", new Object[] { Integer.valueOf(2), "x" }, new Object[] { Integer.valueOf(1), "y" },
+			new Object[] { Integer.valueOf(1), "x" });
+		assertEquals("2x", records.get(0).getValue("name"));
+		assertEquals("1y", records.get(1).getValue("name"));
+		assertEquals("1x", records.get(2).getValue("name"));
+
+		List<IRecordInternal> again = load("mem:pkmulti", new Object[] { Long.valueOf(1), "x" });
+		assertSame(records.get(2).getRawData(), again.get(0).getRawData());
+	}
+}
@@ -90,6 +90,8 @@ public class TestNGClient extends NGClient
 	 */
 	private final TestRepository tr;
 
+	private final List<ISQLStatement[]> performedUpdates = new ArrayList<>();
+
 	/**
 	 * @param wsSession
 	 * @param tr
@@ -106,6 +108,14 @@ public class TestNGClient extends NGClient
 		Debug.init();
 	}
 
+	/**
+	 * @return the statements of every performUpdates call on the data server of this client
+	 */
+	public List<ISQLStatement[]> getPerformedUpdates()
+	{
+		return performedUpdates;
+	}
+
 	@Override
 	protected IDataServer createDataServer()
 	{
@@ -169,6 +179,7 @@ public class TestNGClient extends NGClient
 			@Override
 			public Object[] performUpdates(String clientId, ISQLStatement[] statements) throws ServoyException
 			{
+				performedUpdates.add(statements);
 				return statements;
 			}
 
@@ -254,7 +265,7 @@ public class TestNGClient extends NGClient
 				if (sqlSelect instanceof QuerySelect && ((QuerySelect)sqlSelect).getColumns().size() == 1)
 				{
 					// pk select
-					int lastRow = Math.min(set.getRowCount(), startRow + rowsToRetrieve);
+					int lastRow = rowsToRetrieve > 0 ? Math.min(set.getRowCount(), startRow + rowsToRetrieve) : set.getRowCount();
 					BufferedDataSet ds = BufferedDataSetInternal.createBufferedDataSet(null, null, new SafeArrayList<Object[]>(0), lastRow < set.getRowCount());
 					for (int i = startRow; i < lastRow; i++)
 					{
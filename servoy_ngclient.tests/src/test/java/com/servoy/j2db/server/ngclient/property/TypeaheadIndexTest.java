@@ -0,0 +1,201 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.base.persistence.constants.IValueListConstants;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.IDataServer;
+import com.servoy.j2db.dataprocessing.IDataSet;
+import com.servoy.j2db.dataprocessing.LookupListModel;
+import com.servoy.j2db.dataprocessing.LookupValueList;
+import com.servoy.j2db.dataprocessing.ValueListCache;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.persistence.ITable;
+import com.servoy.j2db.persistence.ValueList;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.QueryTable;
+import com.servoy.j2db.util.DataSourceUtils;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Tests for the shared typeahead index of lookup valuelists (servoy.valuelist.typeaheadIndex).
+ * <p>
+ * The test data server ignores the where clause, a lookup that is not answered by the index returns all rows.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class TypeaheadIndexTest extends AbstractSolutionTest
+{
+	private static final String VALUELIST = "typeaheadtest_names";
+
+	@BeforeClass
+	public static void enableIndex()
+	{
+		Settings.getInstance().setProperty("servoy.valuelist.typeaheadIndex", "true");
+	}
+
+	@AfterClass
+	public static void disableIndex()
+	{
+		Settings.getInstance().remove("servoy.valuelist.typeaheadIndex");
+		ValueListCache.invalidateAll();
+	}
+
+	@After
+	public void removeMaxRows()
+	{
+		Settings.getInstance().remove("servoy.valuelist.typeaheadIndex.maxRows");
+	}
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+		ValueList vl = solution.createNewValueList(validator, VALUELIST);
+		vl.setValueListType(IValueListConstants.DATABASE_VALUES);
+		vl.setDataSource("mem:typeaheadtest");
+		vl.setDataProviderID1("name");
+		vl.setShowDataProviders(1);
+		vl.setReturnDataProviders(1);
+		vl.setSortOptions("name asc");
+		vl.setAddEmptyValue(IValueListConstants.EMPTY_VALUE_NEVER);
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		// the valuelist column comes first, the index loads the valuelist columns followed by the pk
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "name", "pk" }, new int[] { IColumnTypes.TEXT, IColumnTypes.INTEGER });
+		ds.addRow(new Object[] { "apple", Integer.valueOf(1) });
+		ds.addRow(new Object[] { "Banana", Integer.valueOf(2) });
+		ds.addRow(new Object[] { "apricot", Integer.valueOf(3) });
+		ds.addRow(new Object[] { "cherry", Integer.valueOf(4) });
+		client.getFoundSetManager().insertToDataSource("typeaheadtest", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true,
+			false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	private List<String> lookup(String filter) throws Exception
+	{
+		LookupListModel model = new LookupListModel(client,
+			new LookupValueList(client.getFlattenedSolution().getValueList(VALUELIST), client, null, null));
+		model.fill(null, null, filter, false);
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < model.getSize(); i++)
+		{
+			values.add(String.valueOf(model.getElementAt(i)));
+		}
+		return values;
+	}
+
+	private ITable getTable() throws Exception
+	{
+		return client.getFoundSetManager().getTable("mem:typeaheadtest");
+	}
+
+	/**
+	 * The rows that the test data server returns for the table.
+	 */
+	private IDataSet getDatabaseRows() throws Exception
+	{
+		ITable table = getTable();
+		QuerySelect select = new QuerySelect(new QueryTable(table.getSQLName(), table.getDataSource(), null, null));
+		return client.getDataServer().performQuery(client.getClientID(), table.getServerName(), null, select, null, null, false, 0, -1,
+			IDataServer.VALUELIST_QUERY);
+	}
+
+	private void dataChanged(Integer pk) throws Exception
+	{
+		ITable table = getTable();
+		ValueListCache.invalidate(DataSourceUtils.createDBTableDataSource(table.getServerName(), table.getName()),
+			pk == null ? null : new BufferedDataSet(null, Arrays.<Object[]> asList(new Object[] { pk })));
+	}
+
+	@Test
+	public void searchStartingWithAndContaining() throws Exception
+	{
+		assertEquals(Arrays.asList("apple", "apricot"), sorted(lookup("ap")));
+		assertEquals(Arrays.asList("Banana"), lookup("%AN"));
+		assertEquals(Arrays.asList("apple", "apricot", "Banana", "cherry"), lookup(""));
+	}
+
+	@Test
+	public void changedRowsAreLoaded() throws Exception
+	{
+		assertEquals(Arrays.asList("apple", "apricot"), sorted(lookup("ap")));
+
+		getDatabaseRows().setRow(0, new Object[] { "avocado", Integer.valueOf(1) });
+		// not notified yet, the index still has the old value
+		assertEquals(Arrays.asList("apple", "apricot"), sorted(lookup("ap")));
+
+		dataChanged(Integer.valueOf(1));
+		assertEquals(Arrays.asList("apricot"), lookup("ap"));
+		assertEquals(Arrays.asList("avocado"), lookup("av"));
+	}
+
+	@Test
+	public void unknownChangesReloadTheIndex() throws Exception
+	{
+		assertEquals(Arrays.asList("apple", "apricot"), sorted(lookup("ap")));
+
+		getDatabaseRows().addRow(new Object[] { "apex", Integer.valueOf(5) });
+		dataChanged(null);
+		assertEquals(Arrays.asList("apex", "apple", "apricot"), sorted(lookup("ap")));
+	}
+
+	@Test
+	public void tooLargeTableIsNotIndexed() throws Exception
+	{
+		Settings.getInstance().setProperty("servoy.valuelist.typeaheadIndex.maxRows", "3");
+		// answered by the database, which ignores the filter
+		assertEquals(4, lookup("ap").size());
+	}
+
+	private static List<String> sorted(List<String> values)
+	{
+		List<String> sorted = new ArrayList<>(values);
+		sorted.sort(null);
+		return sorted;
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sablo.InMemPackageReader;
+
+import com.servoy.base.persistence.constants.IValueListConstants;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
+import com.servoy.j2db.dataprocessing.DBValueList;
+import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.dataprocessing.ISaveConstants;
+import com.servoy.j2db.dataprocessing.ValueListCache;
+import com.servoy.j2db.persistence.IColumnTypes;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.persistence.ITable;
+import com.servoy.j2db.persistence.ValueList;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.WrappedObjectReference;
+
+/**
+ * Tests for the server wide cache of database valuelist contents (servoy.valuelist.sharedCache).
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class ValueListCacheTest extends AbstractSolutionTest
+{
+	private static final String VALUELIST = "vlcachetest_names";
+
+	@BeforeClass
+	public static void enableCache()
+	{
+		Settings.getInstance().setProperty("servoy.valuelist.sharedCache", "true");
+	}
+
+	@AfterClass
+	public static void disableCache()
+	{
+		Settings.getInstance().remove("servoy.valuelist.sharedCache");
+		ValueListCache.invalidateAll();
+	}
+
+	@Override
+	protected InMemPackageReader getTestComponents() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	protected void fillTestSolution() throws ServoyException
+	{
+		ValueList vl = solution.createNewValueList(validator, VALUELIST);
+		vl.setValueListType(IValueListConstants.DATABASE_VALUES);
+		vl.setDataSource("mem:vlcachetest");
+		vl.setDataProviderID1("name");
+		vl.setShowDataProviders(1);
+		vl.setReturnDataProviders(1);
+		vl.setAddEmptyValue(IValueListConstants.EMPTY_VALUE_NEVER);
+	}
+
+	@Override
+	protected void setupData() throws ServoyException
+	{
+		BufferedDataSet ds = new BufferedDataSet(new String[] { "pk", "name" }, new int[] { IColumnTypes.INTEGER, IColumnTypes.TEXT });
+		ds.addRow(new Object[] { Integer.valueOf(1), "alpha" });
+		ds.addRow(new Object[] { Integer.valueOf(2), "bravo" });
+		ds.addRow(new Object[] { Integer.valueOf(3), "charlie" });
+		client.getFoundSetManager().insertToDataSource("vlcachetest", ds, null, new WrappedObjectReference<String[]>(new String[] { "pk" }), true, false);
+
+		ConcurrentHashMap<String, IServer> serverProxies = new ConcurrentHashMap<String, IServer>();
+		serverProxies.put("_sv_inmem", DUMMY_ISERVER);
+		solution.setServerProxies(serverProxies);
+	}
+
+	private List<Object> loadValues()
+	{
+		DBValueList valuelist = new DBValueList(client, client.getFlattenedSolution().getValueList(VALUELIST));
+		List<Object> values = new ArrayList<>();
+		for (int i = 0; i < valuelist.getSize(); i++)
+		{
+			values.add(valuelist.getElementAt(i));
+		}
+		return values;
+	}
+
+	private static long hits()
+	{
+		ValueListCache.Statistics statistics = ValueListCache.getStatistics().get(VALUELIST);
+		return statistics == null ? 0 : statistics.getHits();
+	}
+
+	private static long misses()
+	{
+		ValueListCache.Statistics statistics = ValueListCache.getStatistics().get(VALUELIST);
+		return statistics == null ? 0 : statistics.getMisses();
+	}
+
+	@Test
+	public void contentsAreShared()
+	{
+		ValueListCache.invalidateAll();
+		long hits = hits();
+		long misses = misses();
+
+		List<Object> values = loadValues();
+		assertEquals(3, values.size());
+		assertTrue(values.contains("bravo"));
+		assertEquals(misses + 1, misses());
+
+		assertEquals(values, loadValues());
+		assertEquals(hits + 1, hits());
+		assertEquals(misses + 1, misses());
+
+		String statistics = PerformanceStatistics.getStatistics().get("valuelist cache");
+		assertTrue(statistics, statistics.contains(VALUELIST + ": hits: "));
+	}
+
+	@Test
+	public void updateRemovesTheContents() throws ServoyException
+	{
+		loadValues();
+		long misses = misses();
+
+		FoundSet foundset = (FoundSet)client.getFoundSetManager().getSharedFoundSet("mem:vlcachetest");
+		foundset.loadAllRecords();
+		IRecordInternal record = foundset.getRecord(0);
+		Object oldName = record.getValue("name");
+		record.startEditing();
+		record.setValue("name", "delta");
+		assertEquals(ISaveConstants.STOPPED, client.getFoundSetManager().getEditRecordList().stopEditing(true));
+
+		List<Object> values = loadValues();
+		assertEquals(misses + 1, misses());
+		assertTrue(values.contains("delta"));
+		assertFalse(values.contains(oldName));
+	}
+
+	@Test
+	public void broadcastIsHandledOncePerChange() throws Exception
+	{
+		loadValues();
+		long misses = misses();
+		ITable table = client.getFoundSetManager().getTable("mem:vlcachetest");
+		BufferedDataSet pks = new BufferedDataSet(new String[] { "pk" }, new int[] { IColumnTypes.INTEGER });
+		pks.addRow(new Object[] { Integer.valueOf(2) });
+
+		ValueListCache.dataBroadcast(table.getServerName(), table.getName(), pks);
+		loadValues();
+		assertEquals(misses + 1, misses());
+
+		// the same broadcast received by another client of this server
+		ValueListCache.dataBroadcast(table.getServerName(), table.getName(), pks);
+		loadValues();
+		assertEquals(misses + 1, misses());
+
+		// a next change
+		ValueListCache.dataBroadcast(table.getServerName(), table.getName(), new BufferedDataSet(pks.getColumnNames(), pks.getRows()));
+		loadValues();
+		assertEquals(misses + 2, misses());
+	}
+}
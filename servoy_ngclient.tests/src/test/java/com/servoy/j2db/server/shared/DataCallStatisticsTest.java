@@ -0,0 +1,129 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.servoy.j2db.server.shared.DataCallStatistics.DataCallStatistic;
+
+/**
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public class DataCallStatisticsTest
+{
+	@Test
+	public void normalizeReplacesValues()
+	{
+		assertNull(DataCallStatistics.normalize(null));
+		assertEquals("select * from orders1 where id = ? and name = ? and status in (?...)",
+			DataCallStatistics.normalize("select *\n  from orders1 where id = 42 and name = 'o''brien' and status in (?, ?,?)"));
+		assertEquals("select amount from t where amount > ? and code = ${code}",
+			DataCallStatistics.normalize("select amount from t where amount > 3.5 and code = ${code=abc}"));
+		assertEquals(DataCallStatistics.normalize("select * from t where id = 1"), DataCallStatistics.normalize("select * from t where id = 2"));
+	}
+
+	@Test
+	public void sameShapeIsAggregated()
+	{
+		DataCallStatistics statistics = new DataCallStatistics();
+		statistics.record("Query", "example", "select * from t where id = ?", 10);
+		statistics.record("Query", "example", "select * from t where id = ?", 30);
+		statistics.record("Query", "other", "select * from t where id = ?", 5);
+		statistics.record("Update", "example", "update t set x = ?", 100);
+
+		assertEquals(3, statistics.size());
+		DataCallStatistic mostFrequent = statistics.getMostFrequent(1).get(0);
+		assertEquals("example", mostFrequent.getServerName());
+		assertEquals(2, mostFrequent.getCount());
+		assertEquals(40, mostFrequent.getTotalTimeMS());
+		assertEquals(30, mostFrequent.getMaxTimeMS());
+		assertEquals(20, mostFrequent.getAverageTimeMS());
+		assertTrue(mostFrequent.getPercentileTimeMS(99) >= 30);
+
+		List<DataCallStatistic> slowest = statistics.getSlowest(5);
+		assertEquals(3, slowest.size());
+		assertEquals("Update", slowest.get(0).getAction());
+		assertEquals("other", slowest.get(2).getServerName());
+
+		statistics.clear();
+		assertEquals(0, statistics.size());
+	}
+
+	@Test
+	public void leastFrequentShapesAreRemoved()
+	{
+		DataCallStatistics statistics = new DataCallStatistics(10);
+		for (int i = 0; i < 10; i++)
+		{
+			statistics.record("Query", "example", "select " + i, 1);
+			statistics.record("Query", "example", "select " + i, 1);
+		}
+		statistics.record("Query", "example", "select 10", 1);
+		assertEquals(11, statistics.size());
+
+		// more than 10% over the max removes the least frequent ones, but not the new one
+		statistics.record("Query", "example", "select 11", 1);
+		assertEquals(10, statistics.size());
+		List<DataCallStatistic> shapes = statistics.getMostFrequent(10);
+		assertEquals("select 11", shapes.get(9).getShape());
+		for (int i = 0; i < 9; i++)
+		{
+			assertEquals(2, shapes.get(i).getCount());
+		}
+	}
+
+	@Test
+	public void newHotShapeGetsInAFullTable()
+	{
+		DataCallStatistics statistics = new DataCallStatistics(10);
+		for (int i = 0; i < 11; i++)
+		{
+			statistics.record("Query", "example", "select " + i, 1);
+			statistics.record("Query", "example", "select " + i, 1);
+		}
+		for (int i = 0; i < 5; i++)
+		{
+			statistics.record("Query", "example", "select hot", 1);
+		}
+		assertEquals(10, statistics.size());
+		DataCallStatistic hot = statistics.getMostFrequent(1).get(0);
+		assertEquals("select hot", hot.getShape());
+		assertEquals(5, hot.getCount());
+		assertEquals(5, hot.getTotalTimeMS());
+	}
+
+	@Test
+	public void summaryShowsSlowestAndMostFrequent()
+	{
+		DataCallStatistics statistics = new DataCallStatistics();
+		for (int i = 0; i < 8; i++)
+		{
+			statistics.record("Query", "example", "select " + i, i);
+		}
+		String summary = statistics.toString();
+		assertTrue(summary, summary.startsWith("shapes: 8\nslowest:\n  Query on example: select 7 [count: 1, total: 7ms, max: 7ms, p99: 7ms]"));
+		assertTrue(summary, summary.contains("\nmost frequent:\n"));
+		assertEquals(summary, 1 + 1 + 5 + 1 + 5, summary.split("\n").length);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @since 2024.09
+ */
+public class LatencyHistogramTest
+{
+	private static long recorded(long ms)
+	{
+		LatencyHistogram histogram = new LatencyHistogram(0);
+		histogram.record(ms);
+		return histogram.getPercentile(100);
+	}
+
+	@Test
+	public void recordedValuesAreClose()
+	{
+		long previous = 0;
+		for (long ms = 0; ms < 100000; ms++)
+		{
+			long value = recorded(ms);
+			assertClose(ms, value);
+			assertTrue(value >= previous);
+			previous = value;
+		}
+		for (long ms = 0; ms < 16; ms++)
+		{
+			assertEquals(ms, recorded(ms));
+		}
+		assertEquals(0, recorded(-5));
+	}
+
+	@Test
+	public void largeValuesAreInTheLastBucket()
+	{
+		long highest = recorded((1L << 24) - 1);
+		assertEquals((1L << 24) - 1, highest);
+		assertEquals(highest, recorded(1L << 24));
+		assertEquals(highest, recorded(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void percentilesAreClose()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(-1, histogram.getPercentile(50));
+		assertEquals(-1, histogram.getWindowPercentile(50));
+
+		for (int ms = 1; ms <= 10000; ms++)
+		{
+			histogram.record(ms);
+		}
+		assertClose(5000, histogram.getPercentile(50));
+		assertClose(9900, histogram.getPercentile(99));
+		assertClose(10000, histogram.getPercentile(100));
+		assertEquals(1, histogram.getPercentile(0));
+		assertClose(9500, histogram.getWindowPercentile(95));
+	}
+
+	@Test
+	public void noWindow()
+	{
+		LatencyHistogram histogram = new LatencyHistogram(0);
+		histogram.record(10);
+		assertEquals(0, histogram.getWindowMS());
+		assertEquals(-1, histogram.getWindowPercentile(50));
+		assertEquals(10, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void copyIncludesTheWindow()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(3);
+		histogram.record(100);
+		LatencyHistogram copy = new LatencyHistogram(histogram);
+		histogram.record(5000);
+
+		assertEquals(histogram.getWindowMS(), copy.getWindowMS());
+		assertEquals(3, copy.getPercentile(50));
+		assertEquals(3, copy.getWindowPercentile(50));
+		assertClose(100, copy.getWindowPercentile(100));
+		assertClose(5000, histogram.getWindowPercentile(100));
+	}
+
+	private static void assertClose(long expected, long actual)
+	{
+		assertTrue("expected about " + expected + " but was " + actual, actual >= expected && actual <= expected + expected / 8); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -24,7 +24,15 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 
 import javax.servlet.ServletConfig;
@@ -94,6 +102,9 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 	public static final String FLATTENED_SOLUTION_ACCESS = "fs";
 	public static final String DYNAMIC_DATA_ACCESS = "dynamic";
 
+	private static final long[] UNSATISFIABLE_RANGE = new long[0];
+	private static final int CONTENT_TYPE_HEADER_LENGTH = 64; // enough for the file signatures that MimeTypes detects
+
 	private static File tempDir;
 
 	@Override
@@ -183,8 +194,15 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 				if (clientnr != null && (client = getClient(req, Integer.parseInt(clientnr))) != null)
 				{
 					String decrypt = client.getFlattenedSolution().getEncryptionHandler().decryptString(encrypted);
-					found = sendData(resp, MediaURLStreamHandler.getBlobLoaderMedia(client, decrypt),
-						MediaURLStreamHandler.getBlobLoaderMimeType(decrypt), MediaURLStreamHandler.getBlobLoaderFileName(decrypt), null);
+					byte[] blob = MediaURLStreamHandler.getBlobLoaderMedia(client, decrypt);
+					if (blob != null && blob.length > 0)
+					{
+						// the record data can change for the same url, so the content decides if the client has it already
+						String etag = createETag(blob);
+						if (checkAndSetETag(req, resp, etag)) return;
+						found = sendData(req, resp, blob, MediaURLStreamHandler.getBlobLoaderMimeType(decrypt),
+							MediaURLStreamHandler.getBlobLoaderFileName(decrypt), null, etag, -1);
+					}
 				}
 
 			}
@@ -206,9 +224,17 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 			if (mediaInfo != null)
 			{
 				mediaInfo.touch();
+				if (checkAndSetETag(request, response, mediaInfo.getETag())) return true;
 				if (HTTPUtils.checkAndSetUnmodified(request, response, mediaInfo.getLastModifiedTimeStamp())) return true;
 
-				return sendData(response, mediaInfo.getData(), mediaInfo.getContentType(), mediaInfo.getFileName(), mediaInfo.getContentDisposition());
+				File file = mediaInfo.getFile();
+				if (file != null)
+				{
+					return sendFile(request, response, file, mediaInfo.getContentType(), mediaInfo.getFileName(), mediaInfo.getContentDisposition(),
+						mediaInfo.getETag(), mediaInfo.getLastModifiedTimeStamp());
+				}
+				return sendData(request, response, mediaInfo.getData(), mediaInfo.getContentType(), mediaInfo.getFileName(),
+					mediaInfo.getContentDisposition(), mediaInfo.getETag(), mediaInfo.getLastModifiedTimeStamp());
 			}
 
 		}
@@ -310,10 +336,11 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 	{
 		setHeaders(request, response);
 		// cache resources on client until changed
-		if (HTTPUtils.checkAndSetUnmodified(request, response, media.getLastModifiedTime() != -1 ? media.getLastModifiedTime() : fs.getLastModifiedTime()))
-			return true;
-		return sendData(response, media.getName().endsWith(".less") ? LessCompiler.compileSolutionLessFile(media, fs).getBytes("UTF-8") : media.getMediaData(),
-			media.getName().endsWith(".less") ? "text/css" : media.getMimeType(), media.getName(), null);
+		long lastModifiedTime = media.getLastModifiedTime() != -1 ? media.getLastModifiedTime() : fs.getLastModifiedTime();
+		if (HTTPUtils.checkAndSetUnmodified(request, response, lastModifiedTime)) return true;
+		return sendData(request, response,
+			media.getName().endsWith(".less") ? LessCompiler.compileSolutionLessFile(media, fs).getBytes("UTF-8") : media.getMediaData(),
+			media.getName().endsWith(".less") ? "text/css" : media.getMimeType(), media.getName(), null, null, lastModifiedTime);
 	}
 
 	private boolean sendClientFlattenedSolutionBasedMedia(HttpServletRequest request, HttpServletResponse response, int clientnr, String mediaName)
@@ -332,7 +359,14 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 		return false;
 	}
 
-	private boolean sendData(HttpServletResponse resp, byte[] mediaData, String contentType, String fileName, String contentDisposition) throws IOException
+	/**
+	 * Send the data or the requested range of it.
+	 *
+	 * @param etag strong entity tag of the data, null when unknown
+	 * @param lastModified last modified time of the data, -1 when unknown
+	 */
+	private boolean sendData(HttpServletRequest request, HttpServletResponse resp, byte[] mediaData, String contentType, String fileName,
+		String contentDisposition, String etag, long lastModified) throws IOException
 	{
 		boolean dataWasSent = false;
 		if (mediaData != null && mediaData.length > 0)
@@ -342,21 +376,215 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 			{
 				ct = MimeTypes.getContentType(mediaData, fileName);
 			}
-			if (ct != null) resp.setContentType(ct);
-			resp.setContentLength(mediaData.length);
-			if (fileName != null)
+			setContentHeaders(resp, ct, fileName, contentDisposition);
+			long[] range = setRangeHeaders(request, resp, mediaData.length, etag, lastModified);
+			if (range != null)
 			{
-				resp.setHeader("Content-disposition", (contentDisposition == null ? "attachment" : contentDisposition) + "; filename=\"" + fileName +
-					"\"; filename*=UTF-8''" + Rfc5987Util.encode(fileName, "UTF8") + "");
+				ServletOutputStream outputStream = resp.getOutputStream();
+				outputStream.write(mediaData, (int)range[0], (int)(range[1] - range[0] + 1));
+				outputStream.flush();
 			}
-			ServletOutputStream outputStream = resp.getOutputStream();
-			outputStream.write(mediaData);
-			outputStream.flush();
 			dataWasSent = true;
 		}
 		return dataWasSent;
 	}
 
+	/**
+	 * Stream the file or the requested range of it, without loading it in memory.
+	 */
+	private boolean sendFile(HttpServletRequest request, HttpServletResponse resp, File file, String contentType, String fileName,
+		String contentDisposition, String etag, long lastModified) throws IOException
+	{
+		long length = file.length();
+		if (!file.isFile() || length == 0) return false;
+
+		String ct = contentType;
+		if (ct == null)
+		{
+			ct = getContentType(file, fileName);
+		}
+		setContentHeaders(resp, ct, fileName, contentDisposition);
+		long[] range = setRangeHeaders(request, resp, length, etag, lastModified);
+		if (range != null)
+		{
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+			{
+				ServletOutputStream outputStream = resp.getOutputStream();
+				WritableByteChannel out = Channels.newChannel(outputStream);
+				long position = range[0];
+				long remaining = range[1] - range[0] + 1;
+				while (remaining > 0)
+				{
+					long transferred = channel.transferTo(position, remaining, out);
+					if (transferred <= 0) break;
+					position += transferred;
+					remaining -= transferred;
+				}
+				outputStream.flush();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Detect the content type from the first bytes of the file and the file name, like for data.
+	 */
+	private static String getContentType(File file, String fileName) throws IOException
+	{
+		byte[] header;
+		try (InputStream is = Files.newInputStream(file.toPath()))
+		{
+			header = is.readNBytes(CONTENT_TYPE_HEADER_LENGTH);
+		}
+		return MimeTypes.getContentType(header, fileName != null ? fileName : file.getName());
+	}
+
+	private static void setContentHeaders(HttpServletResponse resp, String contentType, String fileName, String contentDisposition)
+		throws UnsupportedEncodingException
+	{
+		if (contentType != null) resp.setContentType(contentType);
+		if (fileName != null)
+		{
+			resp.setHeader("Content-disposition", (contentDisposition == null ? "attachment" : contentDisposition) + "; filename=\"" + fileName +
+				"\"; filename*=UTF-8''" + Rfc5987Util.encode(fileName, "UTF8") + "");
+		}
+	}
+
+	/**
+	 * Set the status and headers for the (partial) content.
+	 *
+	 * @return the first and last byte position to send, null when nothing must be sent
+	 */
+	private static long[] setRangeHeaders(HttpServletRequest request, HttpServletResponse resp, long length, String etag, long lastModified)
+		throws IOException
+	{
+		resp.setHeader("Accept-Ranges", "bytes");
+		long[] range = getRequestedRange(request, length, etag, lastModified);
+		if (range == UNSATISFIABLE_RANGE)
+		{
+			resp.setHeader("Content-Range", "bytes */" + length);
+			resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return null;
+		}
+		if (range == null)
+		{
+			resp.setContentLengthLong(length);
+			return new long[] { 0, length - 1 };
+		}
+		resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		resp.setHeader("Content-Range", "bytes " + range[0] + '-' + range[1] + '/' + length);
+		resp.setContentLengthLong(range[1] - range[0] + 1);
+		return range;
+	}
+
+	/**
+	 * Get the single byte range of the Range header, only when the If-Range header (if any) matches the current content.
+	 * Multiple ranges are not supported, for those the whole content is sent, which is allowed by RFC 9110.
+	 *
+	 * @return the first and last byte position, null for the whole content or {@link #UNSATISFIABLE_RANGE}
+	 */
+	static long[] getRequestedRange(HttpServletRequest request, long length, String etag, long lastModified)
+	{
+		String rangeHeader = request.getHeader("Range");
+		if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') != -1) return null;
+
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange != null)
+		{
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+			{
+				// only strong validators can be used for ranges
+				if (ifRange.startsWith("W/") || etag == null || !ifRange.equals(etag)) return null;
+			}
+			else
+			{
+				try
+				{
+					if (lastModified == -1 || request.getDateHeader("If-Range") != lastModified / 1000 * 1000) return null;
+				}
+				catch (IllegalArgumentException e)
+				{
+					// not a date
+					return null;
+				}
+			}
+		}
+
+		String spec = rangeHeader.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1) return null;
+		try
+		{
+			long first;
+			long last;
+			if (dash == 0)
+			{
+				// suffix range, the last n bytes
+				long suffixLength = Long.parseLong(spec.substring(1));
+				if (suffixLength <= 0) return UNSATISFIABLE_RANGE;
+				first = Math.max(0, length - suffixLength);
+				last = length - 1;
+			}
+			else
+			{
+				first = Long.parseLong(spec.substring(0, dash));
+				if (first >= length) return UNSATISFIABLE_RANGE;
+				last = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+				if (last < first) return null;
+			}
+			if (first >= length) return UNSATISFIABLE_RANGE;
+			return new long[] { first, last };
+		}
+		catch (NumberFormatException e)
+		{
+			// invalid range header is ignored
+			return null;
+		}
+	}
+
+	/**
+	 * Set the ETag header, if the request has the same tag in If-None-Match then the not modified status is set.
+	 *
+	 * @return true when the client already has this content
+	 */
+	static boolean checkAndSetETag(HttpServletRequest request, HttpServletResponse response, String etag)
+	{
+		if (etag == null) return false;
+		response.setHeader("ETag", etag);
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null)
+		{
+			for (String tag : ifNoneMatch.split(","))
+			{
+				String t = tag.trim();
+				// weak comparison
+				if (t.startsWith("W/")) t = t.substring(2);
+				if ("*".equals(t) || etag.equals(t))
+				{
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return a strong entity tag made of the hash of the content
+	 */
+	static String createETag(byte[] data)
+	{
+		try
+		{
+			return '"' + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data)) + '"';
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			Debug.error(e);
+			return null;
+		}
+	}
+
 	@Override
 	protected void doPost(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException
 	{
@@ -478,6 +706,7 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 		private final long modifiedTimeStamp;
 		private long accessedTimeStamp;
 		private final Dimension mediaSize;
+		private final String etag;
 		private byte[] data;
 
 		MediaInfo(String name, String fileName, String contentType, String contentDisposition, byte[] data)
@@ -488,6 +717,7 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 			this.contentDisposition = contentDisposition;
 			modifiedTimeStamp = accessedTimeStamp = System.currentTimeMillis();
 			this.mediaSize = ImageLoader.getSize(data);
+			this.etag = createETag(data);
 			if (data.length < MAX_DATA_SIZE_FOR_IN_MEMORY)
 			{
 				this.data = data;
@@ -536,6 +766,22 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 			return mediaSize;
 		}
 
+		/**
+		 * @return strong entity tag based on the content
+		 */
+		public String getETag()
+		{
+			return etag;
+		}
+
+		/**
+		 * @return the file that holds the data when it is too big to keep in memory, null when the data is in memory
+		 */
+		public File getFile()
+		{
+			return data == null && MediaResourcesServlet.tempDir != null ? new File(MediaResourcesServlet.tempDir, name) : null;
+		}
+
 		public byte[] getData()
 		{
 			if (data == null)
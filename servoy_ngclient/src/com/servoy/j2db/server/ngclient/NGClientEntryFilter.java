@@ -139,6 +139,7 @@ public class NGClientEntryFilter extends WebEntry
 		"js/fileupload.js", //
 		"js/servoy-components.js", //
 		"js/servoy_alltemplates.js", //
+		"js/servoy_compactmessages.js", //
 		"js/servoy_app.js" };
 
 	private String[] locations;
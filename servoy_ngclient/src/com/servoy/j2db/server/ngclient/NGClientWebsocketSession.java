@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import org.json.JSONArray;
@@ -70,6 +71,7 @@ import com.servoy.j2db.persistence.SolutionMetaData;
 import com.servoy.j2db.scripting.RuntimeWindow;
 import com.servoy.j2db.scripting.StartupArguments;
 import com.servoy.j2db.server.ngclient.INGClientWindow.IFormHTMLAndJSGenerator;
+import com.servoy.j2db.server.ngclient.endpoint.WebsocketMessageStatistics;
 import com.servoy.j2db.server.ngclient.eventthread.NGClientWebsocketSessionWindows;
 import com.servoy.j2db.server.ngclient.eventthread.NGEventDispatcher;
 import com.servoy.j2db.server.shared.ApplicationServerRegistry;
@@ -147,9 +149,20 @@ public class NGClientWebsocketSession extends BaseWebsocketSession implements IN
 
 	private NGClient client;
 
+	private final WebsocketMessageStatistics messageStatistics = new WebsocketMessageStatistics();
+
+	/**
+	 * Max time in ms that changes made outside of the event thread (for example by headless clients or scheduled jobs) wait before they are sent,
+	 * so that a burst of them goes out in one message. 0 sends them right away.
+	 */
+	private final int changesMaxDelay;
+
+	private final AtomicBoolean changesScheduled = new AtomicBoolean();
+
 	public NGClientWebsocketSession(WebsocketSessionKey sessionKey, IDesignerCallback designerCallback)
 	{
 		super(sessionKey);
+		changesMaxDelay = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.ngclient.changes.maxDelay", "0")); //$NON-NLS-1$ //$NON-NLS-2$
 		registerClientService(new ServoyClientService(NGRuntimeWindowManager.WINDOW_SERVICE, WINDOWS_SERVICE_SPEC, this, false));
 		registerClientService(new ServoyClientService(TypesRegistryService.TYPES_REGISTRY_SERVICE, TYPES_REGISTRY_SERVICE_SPEC, this, false));
 		registerClientService(new ServoyClientService(CLIENT_FUNCTION_SERVICE, CLIENT_FUNCTIONS_SERVICE_SPEC, this, false));
@@ -174,6 +187,14 @@ public class NGClientWebsocketSession extends BaseWebsocketSession implements IN
 		return client;
 	}
 
+	/**
+	 * @return the counts and rates of the websocket messages of this session.
+	 */
+	public WebsocketMessageStatistics getMessageStatistics()
+	{
+		return messageStatistics;
+	}
+
 	/**
 	 * @return the clientType
 	 */
@@ -516,6 +537,26 @@ public class NGClientWebsocketSession extends BaseWebsocketSession implements IN
 	{
 		if (client != null)
 		{
+			// on the event thread the changes are already sent in one go when the event is done
+			if (changesMaxDelay > 0 && !client.isEventDispatchThread())
+			{
+				if (!changesScheduled.compareAndSet(false, true))
+				{
+					messageStatistics.changesCoalesced();
+					return;
+				}
+				IApplicationServerSingleton as = ApplicationServerRegistry.get();
+				ScheduledExecutorService ee = (as != null ? as.getExecutor() : null);
+				if (ee != null)
+				{
+					ee.schedule(() -> {
+						changesScheduled.set(false);
+						if (client != null && !client.isShutDown()) super.valueChanged();
+					}, changesMaxDelay, TimeUnit.MILLISECONDS);
+					return;
+				}
+				changesScheduled.set(false);
+			}
 			super.valueChanged();
 		}
 	}
@@ -597,6 +638,7 @@ public class NGClientWebsocketSession extends BaseWebsocketSession implements IN
 						" because it was already shut down.");
 			}
 		}
+		messageStatistics.dispose();
 		super.sessionExpired();
 	}
 
@@ -0,0 +1,373 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.endpoint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the JSON text messages that are sent to the browser as CBOR (RFC 8949).<br/>
+ * Maps and arrays are written with indefinite length so the JSON text can be converted in one pass, and strings that were already written
+ * in the same message (dataprovider names, pk hashes, repeated values) are written as a reference to the first occurrence, using the
+ * stringref extension (http://cbor.schmorp.de/stringref): the message is one stringref namespace (tag 256) and references are tag 25.<br/>
+ * Every text string that is not written as a reference is added to the table of the namespace when it has at least
+ * {@link #minimumStringrefLength(int)} UTF-8 bytes for the next index, so a reference is never longer than the string itself.
+ * The browser side decoder is in js/servoy_compactmessages.ts.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class CompactMessageEncoder
+{
+	private static final int MAX_SAFE_INTEGER_DIGITS = 15;
+
+	private final String json;
+	private final Map<String, Integer> stringReferences = new HashMap<>();
+	private int pos;
+	private byte[] buffer;
+	private int length;
+
+	private CompactMessageEncoder(String json)
+	{
+		this.json = json;
+		this.buffer = new byte[Math.max(64, json.length() / 2)];
+	}
+
+	/**
+	 * @return the message as CBOR, starting with the self describe tag and the stringref namespace tag
+	 * @throws IllegalArgumentException when the message is not valid JSON
+	 */
+	public static ByteBuffer encode(String json)
+	{
+		CompactMessageEncoder encoder = new CompactMessageEncoder(json);
+		// self describe CBOR tag 55799, so the client can recognize the format
+		encoder.write(0xd9);
+		encoder.write(0xd9);
+		encoder.write(0xf7);
+		// stringref namespace tag 256 around the whole message
+		encoder.writeTypeAndValue(6, 256);
+		encoder.writeValue();
+		encoder.skipWhitespace();
+		if (encoder.pos != json.length()) throw encoder.error("end of message expected");
+		return ByteBuffer.wrap(encoder.buffer, 0, encoder.length);
+	}
+
+	private void writeValue()
+	{
+		skipWhitespace();
+		if (pos >= json.length()) throw error("value expected");
+		char c = json.charAt(pos);
+		switch (c)
+		{
+			case '{' :
+				pos++;
+				write(0xbf);
+				skipWhitespace();
+				if (peek() == '}')
+				{
+					pos++;
+				}
+				else
+				{
+					do
+					{
+						skipWhitespace();
+						if (peek() != '"') throw error("key expected");
+						writeString(readString());
+						skipWhitespace();
+						expect(':');
+						writeValue();
+						skipWhitespace();
+					}
+					while (next(',', '}'));
+				}
+				write(0xff);
+				break;
+
+			case '[' :
+				pos++;
+				write(0x9f);
+				skipWhitespace();
+				if (peek() == ']')
+				{
+					pos++;
+				}
+				else
+				{
+					do
+					{
+						writeValue();
+						skipWhitespace();
+					}
+					while (next(',', ']'));
+				}
+				write(0xff);
+				break;
+
+			case '"' :
+				writeString(readString());
+				break;
+
+			case 't' :
+				expectLiteral("true");
+				write(0xf5);
+				break;
+
+			case 'f' :
+				expectLiteral("false");
+				write(0xf4);
+				break;
+
+			case 'n' :
+				expectLiteral("null");
+				write(0xf6);
+				break;
+
+			default :
+				writeNumber();
+		}
+	}
+
+	private void writeString(String s)
+	{
+		Integer reference = stringReferences.get(s);
+		if (reference != null)
+		{
+			writeTypeAndValue(6, 25);
+			writeTypeAndValue(0, reference.intValue());
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeTypeAndValue(3, bytes.length);
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+		if (bytes.length >= minimumStringrefLength(stringReferences.size()))
+		{
+			stringReferences.put(s, Integer.valueOf(stringReferences.size()));
+		}
+	}
+
+	/**
+	 * The minimum length in bytes of a string to get the given index in the stringref table.
+	 */
+	static int minimumStringrefLength(int index)
+	{
+		if (index < 24) return 3;
+		if (index < 0x100) return 4;
+		if (index < 0x10000) return 5;
+		return 7; // 11 from index 2^32 on, a message is never that big
+	}
+
+	private void writeNumber()
+	{
+		int start = pos;
+		boolean integer = true;
+		while (pos < json.length())
+		{
+			char c = json.charAt(pos);
+			if (c == '.' || c == 'e' || c == 'E') integer = false;
+			else if (c != '-' && c != '+' && (c < '0' || c > '9')) break;
+			pos++;
+		}
+		if (start == pos) throw error("unexpected character '" + json.charAt(pos) + "'");
+
+		String number = json.substring(start, pos);
+		try
+		{
+			int digits = number.charAt(0) == '-' ? number.length() - 1 : number.length();
+			if (integer && digits <= MAX_SAFE_INTEGER_DIGITS)
+			{
+				long value = Long.parseLong(number);
+				if (value >= 0) writeTypeAndValue(0, value);
+				else writeTypeAndValue(1, -1 - value);
+			}
+			else
+			{
+				// same value as a JSON.parse in the browser would give
+				long bits = Double.doubleToLongBits(Double.parseDouble(number));
+				write(0xfb);
+				for (int shift = 56; shift >= 0; shift -= 8)
+				{
+					write((int)(bits >>> shift) & 0xff);
+				}
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw error("invalid number '" + number + "'");
+		}
+	}
+
+	private String readString()
+	{
+		pos++; // opening quote
+		int start = pos;
+		while (pos < json.length())
+		{
+			char c = json.charAt(pos);
+			if (c == '"')
+			{
+				return json.substring(start, pos++);
+			}
+			if (c == '\\') break;
+			pos++;
+		}
+
+		StringBuilder sb = new StringBuilder(json.substring(start, pos));
+		while (pos < json.length())
+		{
+			char c = json.charAt(pos++);
+			if (c == '"') return sb.toString();
+			if (c != '\\')
+			{
+				sb.append(c);
+				continue;
+			}
+			if (pos >= json.length()) break;
+			char escaped = json.charAt(pos++);
+			switch (escaped)
+			{
+				case 'b' :
+					sb.append('\b');
+					break;
+				case 'f' :
+					sb.append('\f');
+					break;
+				case 'n' :
+					sb.append('\n');
+					break;
+				case 'r' :
+					sb.append('\r');
+					break;
+				case 't' :
+					sb.append('\t');
+					break;
+				case 'u' :
+					if (pos + 4 > json.length()) throw error("invalid unicode escape");
+					try
+					{
+						sb.append((char)Integer.parseInt(json.substring(pos, pos + 4), 16));
+					}
+					catch (NumberFormatException e)
+					{
+						throw error("invalid unicode escape");
+					}
+					pos += 4;
+					break;
+				default :
+					sb.append(escaped);
+			}
+		}
+		throw error("unterminated string");
+	}
+
+	private void writeTypeAndValue(int majorType, long value)
+	{
+		int type = majorType << 5;
+		if (value < 24)
+		{
+			write(type | (int)value);
+		}
+		else if (value < 0x100)
+		{
+			write(type | 24);
+			write((int)value);
+		}
+		else if (value < 0x10000)
+		{
+			write(type | 25);
+			write((int)(value >>> 8) & 0xff);
+			write((int)value & 0xff);
+		}
+		else if (value < 0x100000000L)
+		{
+			write(type | 26);
+			for (int shift = 24; shift >= 0; shift -= 8)
+			{
+				write((int)(value >>> shift) & 0xff);
+			}
+		}
+		else
+		{
+			write(type | 27);
+			for (int shift = 56; shift >= 0; shift -= 8)
+			{
+				write((int)(value >>> shift) & 0xff);
+			}
+		}
+	}
+
+	private void write(int b)
+	{
+		ensureCapacity(1);
+		buffer[length++] = (byte)b;
+	}
+
+	private void ensureCapacity(int extra)
+	{
+		if (length + extra > buffer.length)
+		{
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+
+	private void skipWhitespace()
+	{
+		while (pos < json.length() && Character.isWhitespace(json.charAt(pos)))
+		{
+			pos++;
+		}
+	}
+
+	private char peek()
+	{
+		return pos < json.length() ? json.charAt(pos) : 0;
+	}
+
+	private void expect(char c)
+	{
+		if (peek() != c) throw error("'" + c + "' expected");
+		pos++;
+	}
+
+	/**
+	 * @return true when the separator was found, false when the end of the map or array was found
+	 */
+	private boolean next(char separator, char end)
+	{
+		char c = peek();
+		pos++;
+		if (c == separator) return true;
+		if (c == end) return false;
+		throw error("'" + separator + "' or '" + end + "' expected");
+	}
+
+	private void expectLiteral(String literal)
+	{
+		if (!json.startsWith(literal, pos)) throw error(literal + " expected");
+		pos += literal.length();
+	}
+
+	private IllegalArgumentException error(String message)
+	{
+		return new IllegalArgumentException("Cannot encode message, " + message + " at " + pos);
+	}
+}
@@ -17,7 +17,8 @@
 
 package com.servoy.j2db.server.ngclient.endpoint;
 
-
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,11 +35,13 @@ import javax.websocket.server.ServerEndpoint;
 import org.sablo.websocket.CurrentWindow;
 import org.sablo.websocket.GetHttpSessionConfigurator;
 import org.sablo.websocket.IWebsocketSession;
+import org.sablo.websocket.IWindow;
 import org.sablo.websocket.WebsocketEndpoint;
 
 import com.servoy.j2db.ApplicationException;
 import com.servoy.j2db.server.ngclient.INGClientWebsocketSession;
 import com.servoy.j2db.server.ngclient.NGClient;
+import com.servoy.j2db.server.ngclient.NGClientWebsocketSession;
 import com.servoy.j2db.server.ngclient.WebsocketSessionFactory;
 import com.servoy.j2db.server.ngclient.eventthread.NGClientWebsocketSessionWindows;
 import com.servoy.j2db.util.Debug;
@@ -53,9 +56,18 @@ import com.servoy.j2db.util.Utils;
  *
  */
 
-@ServerEndpoint(value = "/websocket/{clientnr}/{windowname}/{windownr}", configurator = GetHttpSessionConfigurator.class)
+@ServerEndpoint(value = "/websocket/{clientnr}/{windowname}/{windownr}", configurator = NGClientEndpointConfigurator.class, subprotocols = {
+	NGClientEndpointConfigurator.COMPACT_MESSAGES_PROTOCOL })
 public class NGClientEndpoint extends WebsocketEndpoint
 {
+	private static final int COMPACT_MESSAGES_MIN_LENGTH = 512;
+
+	private Session compactMessagesSession;
+
+	private boolean compressed;
+
+	private volatile WebsocketMessageStatistics messageStatistics;
+
 	public NGClientEndpoint()
 	{
 		super(WebsocketSessionFactory.CLIENT_ENDPOINT);
@@ -66,9 +78,73 @@ public class NGClientEndpoint extends WebsocketEndpoint
 	public void start(Session newSession, @PathParam("clientnr") String clientnr, @PathParam("windowname") String windowname,
 		@PathParam("windownr") String windownr) throws Exception
 	{
+		// compact messages are only sent when the browser asked for them and the configurator accepted that (enabled on the server)
+		if (NGClientEndpointConfigurator.COMPACT_MESSAGES_PROTOCOL.equals(newSession.getNegotiatedSubprotocol()))
+		{
+			compactMessagesSession = newSession;
+		}
+		compressed = newSession.getNegotiatedExtensions().stream()
+			.anyMatch(extension -> NGClientEndpointConfigurator.PERMESSAGE_DEFLATE.equals(extension.getName()));
 		super.start(newSession, clientnr, windowname, windownr);
 	}
 
+	@Override
+	public synchronized void sendText(String message) throws IOException
+	{
+		if (compactMessagesSession != null && message.length() >= COMPACT_MESSAGES_MIN_LENGTH && compactMessagesSession.isOpen())
+		{
+			ByteBuffer compactMessage = null;
+			try
+			{
+				compactMessage = CompactMessageEncoder.encode(message);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// not a JSON message, just send it as text
+				Debug.trace(e);
+			}
+			if (compactMessage != null)
+			{
+				WebsocketMessageStatistics statistics = getMessageStatistics();
+				if (statistics != null) statistics.messageSent(compactMessage.remaining());
+				compactMessagesSession.getBasicRemote().sendBinary(compactMessage);
+				return;
+			}
+		}
+		WebsocketMessageStatistics statistics = getMessageStatistics();
+		if (statistics != null) statistics.messageSent(utf8Length(message));
+		super.sendText(message);
+	}
+
+	/**
+	 * The statistics of the session of this endpoint, the session is only known when a window of it is the current one, which is the case when sending.
+	 */
+	private WebsocketMessageStatistics getMessageStatistics()
+	{
+		if (messageStatistics == null)
+		{
+			IWindow window = CurrentWindow.safeGet();
+			if (window != null && window.getSession() instanceof NGClientWebsocketSession)
+			{
+				messageStatistics = ((NGClientWebsocketSession)window.getSession()).getMessageStatistics();
+				if (compressed) messageStatistics.setCompressed(true);
+			}
+		}
+		return messageStatistics;
+	}
+
+	private static int utf8Length(String message)
+	{
+		int length = message.length();
+		for (int i = 0; i < message.length(); i++)
+		{
+			char c = message.charAt(i);
+			if (c >= 0x800 && !Character.isSurrogate(c)) length += 2;
+			else if (c >= 0x80) length++; // surrogate pairs are 4 bytes, so 2 for each half
+		}
+		return length;
+	}
+
 	@Override
 	protected HttpSession getHttpSession(Session session)
 	{
@@ -79,6 +155,8 @@ public class NGClientEndpoint extends WebsocketEndpoint
 	@OnMessage
 	public void incoming(String msg, boolean lastPart)
 	{
+		WebsocketMessageStatistics statistics = messageStatistics;
+		if (statistics != null) statistics.messageReceived(utf8Length(msg), lastPart);
 		super.incoming(msg, lastPart);
 	}
 
@@ -0,0 +1,66 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.endpoint;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.websocket.Extension;
+
+import org.sablo.websocket.GetHttpSessionConfigurator;
+
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Configurator of the NG client websocket endpoints, the container negotiates compressed (permessage-deflate) frames when the browser asks for them;
+ * that can be turned off with the servoy.ngclient.websocket.compression setting (for instance when a proxy in between already compresses).<br/>
+ * The compact (CBOR) messages subprotocol is only accepted when servoy.ngclient.compactMessages is enabled.
+ *
+ * @since 2024.09
+ */
+public class NGClientEndpointConfigurator extends GetHttpSessionConfigurator
+{
+	public static final String PERMESSAGE_DEFLATE = "permessage-deflate"; //$NON-NLS-1$
+
+	/**
+	 * Websocket subprotocol with which the browser tells that it can decode compact (CBOR) messages, see {@link CompactMessageEncoder}.
+	 */
+	public static final String COMPACT_MESSAGES_PROTOCOL = "svy-compact"; //$NON-NLS-1$
+
+	@Override
+	public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested)
+	{
+		if (!Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.ngclient.websocket.compression", "true"))) //$NON-NLS-1$ //$NON-NLS-2$
+		{
+			return super.getNegotiatedExtensions(installed,
+				requested.stream().filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName())).collect(Collectors.toList()));
+		}
+		return super.getNegotiatedExtensions(installed, requested);
+	}
+
+	@Override
+	public String getNegotiatedSubprotocol(List<String> supported, List<String> requested)
+	{
+		if (!Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.ngclient.compactMessages", "false"))) //$NON-NLS-1$ //$NON-NLS-2$
+		{
+			return super.getNegotiatedSubprotocol(supported,
+				requested.stream().filter(protocol -> !COMPACT_MESSAGES_PROTOCOL.equals(protocol)).collect(Collectors.toList()));
+		}
+		return super.getNegotiatedSubprotocol(supported, requested);
+	}
+}
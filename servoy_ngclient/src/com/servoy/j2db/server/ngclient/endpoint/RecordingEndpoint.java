@@ -25,8 +25,6 @@ import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.server.ServerEndpoint;
 
-import org.sablo.websocket.GetHttpSessionConfigurator;
-
 import com.servoy.j2db.server.ngclient.IMessagesRecorder;
 import com.servoy.j2db.server.shared.ApplicationServerRegistry;
 
@@ -34,7 +32,7 @@ import com.servoy.j2db.server.shared.ApplicationServerRegistry;
  * @author jcompagner
  *
  */
-@ServerEndpoint(value = "/recording/websocket/{clientnr}/{windowname}/{windownr}", configurator = GetHttpSessionConfigurator.class)
+@ServerEndpoint(value = "/recording/websocket/{clientnr}/{windowname}/{windownr}", configurator = NGClientEndpointConfigurator.class)
 public class RecordingEndpoint extends NGClientEndpoint
 {
 	private final StringBuilder incomingPartialMessage = new StringBuilder();
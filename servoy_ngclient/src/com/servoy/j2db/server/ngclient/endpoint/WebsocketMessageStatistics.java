@@ -0,0 +1,241 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.ngclient.endpoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+
+/**
+ * Counts the websocket messages and bytes that are sent to and received from the browser for one NG client session.<br/>
+ * Besides the totals it keeps the rates of the last full second and the highest rates seen, which is what is needed to size reverse proxies.
+ * <p>
+ * The totals of all open sessions with the busiest sessions are shown in the {@link PerformanceStatistics} as "ngclient websocket messages".
+ *
+ * @since 2024.09
+ */
+public class WebsocketMessageStatistics
+{
+	private static final int SUMMARY_SESSIONS = 5;
+
+	private static final Set<WebsocketMessageStatistics> SESSIONS = Collections.newSetFromMap(new WeakHashMap<>());
+
+	static
+	{
+		PerformanceStatistics.register("ngclient websocket messages", WebsocketMessageStatistics::getSummary); //$NON-NLS-1$
+	}
+
+	private final long startTime = System.currentTimeMillis();
+
+	private long messagesSent;
+	private long bytesSent;
+	private long messagesReceived;
+	private long bytesReceived;
+	private long coalescedChanges;
+	private boolean compressed;
+
+	private long currentSecond;
+	private long currentSecondMessages;
+	private long currentSecondBytes;
+	private long lastSecondMessages;
+	private long lastSecondBytes;
+	private long peakMessagesPerSecond;
+	private long peakBytesPerSecond;
+
+	public WebsocketMessageStatistics()
+	{
+		synchronized (SESSIONS)
+		{
+			SESSIONS.add(this);
+		}
+	}
+
+	/**
+	 * The session is closed, its messages are no longer part of the totals of the open sessions.
+	 */
+	public void dispose()
+	{
+		synchronized (SESSIONS)
+		{
+			SESSIONS.remove(this);
+		}
+	}
+
+	/**
+	 * Totals of the open sessions followed by the sessions that sent the most bytes.
+	 */
+	@SuppressWarnings("nls")
+	static String getSummary()
+	{
+		List<WebsocketMessageStatistics> sessions;
+		synchronized (SESSIONS)
+		{
+			sessions = new ArrayList<>(SESSIONS);
+		}
+		long sent = 0, sentBytes = 0, received = 0, receivedBytes = 0;
+		for (WebsocketMessageStatistics statistics : sessions)
+		{
+			synchronized (statistics)
+			{
+				sent += statistics.messagesSent;
+				sentBytes += statistics.bytesSent;
+				received += statistics.messagesReceived;
+				receivedBytes += statistics.bytesReceived;
+			}
+		}
+		return "sessions: " + sessions.size() + ", sent: " + sent + " messages, " + sentBytes + " bytes, received: " + received + " messages, " +
+			receivedBytes + " bytes" + sessions.stream()
+				.sorted(Comparator.comparingLong(WebsocketMessageStatistics::getBytesSent).reversed())
+				.limit(SUMMARY_SESSIONS)
+				.map(statistics -> "\n  " + statistics)
+				.collect(Collectors.joining());
+	}
+
+	public synchronized void messageSent(long bytes)
+	{
+		messagesSent++;
+		bytesSent += bytes;
+		updateCurrentSecond();
+		currentSecondMessages++;
+		currentSecondBytes += bytes;
+		peakMessagesPerSecond = Math.max(peakMessagesPerSecond, currentSecondMessages);
+		peakBytesPerSecond = Math.max(peakBytesPerSecond, currentSecondBytes);
+	}
+
+	/**
+	 * @param lastPart false when this is a part of a message that is received in multiple parts, the message is counted with its last part.
+	 */
+	public synchronized void messageReceived(long bytes, boolean lastPart)
+	{
+		if (lastPart) messagesReceived++;
+		bytesReceived += bytes;
+	}
+
+	/**
+	 * A change notification that didn't result in a separate send because it was merged with an already scheduled one.
+	 */
+	public synchronized void changesCoalesced()
+	{
+		coalescedChanges++;
+	}
+
+	public synchronized void setCompressed(boolean compressed)
+	{
+		this.compressed = compressed;
+	}
+
+	private void updateCurrentSecond()
+	{
+		long second = System.currentTimeMillis() / 1000;
+		if (second != currentSecond)
+		{
+			// only when the previous second is really the last one, else there was nothing sent in the last second
+			boolean previous = second == currentSecond + 1;
+			lastSecondMessages = previous ? currentSecondMessages : 0;
+			lastSecondBytes = previous ? currentSecondBytes : 0;
+			currentSecond = second;
+			currentSecondMessages = 0;
+			currentSecondBytes = 0;
+		}
+	}
+
+	public synchronized long getMessagesSent()
+	{
+		return messagesSent;
+	}
+
+	public synchronized long getBytesSent()
+	{
+		return bytesSent;
+	}
+
+	public synchronized long getMessagesReceived()
+	{
+		return messagesReceived;
+	}
+
+	public synchronized long getBytesReceived()
+	{
+		return bytesReceived;
+	}
+
+	public synchronized long getCoalescedChanges()
+	{
+		return coalescedChanges;
+	}
+
+	/**
+	 * @return true if the browser and the server agreed on compressed (permessage-deflate) frames; the byte counts are then the sizes before compression.
+	 */
+	public synchronized boolean isCompressed()
+	{
+		return compressed;
+	}
+
+	/**
+	 * @return the messages sent in the last full second.
+	 */
+	public synchronized long getMessagesPerSecond()
+	{
+		updateCurrentSecond();
+		return lastSecondMessages;
+	}
+
+	/**
+	 * @return the bytes sent in the last full second.
+	 */
+	public synchronized long getBytesPerSecond()
+	{
+		updateCurrentSecond();
+		return lastSecondBytes;
+	}
+
+	public synchronized long getPeakMessagesPerSecond()
+	{
+		return peakMessagesPerSecond;
+	}
+
+	public synchronized long getPeakBytesPerSecond()
+	{
+		return peakBytesPerSecond;
+	}
+
+	public synchronized double getAverageMessagesPerSecond()
+	{
+		return messagesSent * 1000d / Math.max(1, System.currentTimeMillis() - startTime);
+	}
+
+	public synchronized double getAverageBytesPerSecond()
+	{
+		return bytesSent * 1000d / Math.max(1, System.currentTimeMillis() - startTime);
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public synchronized String toString()
+	{
+		return "WebsocketMessageStatistics[sent: " + messagesSent + " messages, " + bytesSent + " bytes, received: " + messagesReceived + " messages, " +
+			bytesReceived + " bytes, peak: " + peakMessagesPerSecond + " messages/s, " + peakBytesPerSecond + " bytes/s, coalesced changes: " +
+			coalescedChanges + ", compressed: " + compressed + "]";
+	}
+}
@@ -468,10 +468,7 @@ public class FoundsetTypeChangeMonitor
 					{
 						public void run(ViewportDataChangeMonitor< ? > vpdcm)
 						{
-							for (String dataprovider : dataproviders)
-							{
-								vpdcm.queueCellChangeDueToColumn(firstViewPortIndex - viewPort.getStartIndex(), viewPort.getSize(), dataprovider);
-							}
+							queueCellChanges(vpdcm, firstViewPortIndex, lastViewPortIndex, viewPort, dataproviders);
 						}
 					});
 				}
@@ -493,12 +490,10 @@ public class FoundsetTypeChangeMonitor
 					{
 						public void run(ViewportDataChangeMonitor< ? > vpdcm)
 						{
-							if (firstViewPortIndex == lastViewPortIndex && dataproviders != null && dataproviders.size() > 0)
+							if (dataproviders != null && dataproviders.size() > 0)
 							{
-								for (String dataprovider : dataproviders)
-								{
-									vpdcm.queueCellChangeDueToColumn(firstViewPortIndex - viewPort.getStartIndex(), viewPort.getSize(), dataprovider);
-								}
+								// only the changed cells of the changed rows need to be sent to the client, not the whole rows
+								queueCellChanges(vpdcm, firstViewPortIndex, lastViewPortIndex, viewPort, dataproviders);
 							}
 							else
 							{
@@ -513,6 +508,25 @@ public class FoundsetTypeChangeMonitor
 		}
 	}
 
+	private void queueCellChanges(ViewportDataChangeMonitor< ? > vpdcm, int firstViewPortIndex, int lastViewPortIndex, FoundsetTypeViewport viewPort,
+		List<String> dataproviders)
+	{
+		if (propertyValue.hasNonColumnDataproviders())
+		{
+			// a related or global dataprovider can change because of a changed column without being in the changed dataproviders, send the whole rows
+			vpdcm.queueOperation(firstViewPortIndex - viewPort.getStartIndex(), lastViewPortIndex - viewPort.getStartIndex(), viewPort.getSize(),
+				ArrayOperation.CHANGE);
+			return;
+		}
+		for (int i = firstViewPortIndex; i <= lastViewPortIndex; i++)
+		{
+			for (String dataprovider : dataproviders)
+			{
+				vpdcm.queueCellChangeDueToColumn(i - viewPort.getStartIndex(), viewPort.getSize(), dataprovider);
+			}
+		}
+	}
+
 	protected boolean belongsToInterval(int x, int intervalStartInclusive, int intervalEndInclusive)
 	{
 		return intervalStartInclusive <= x && x <= intervalEndInclusive;
@@ -60,6 +60,7 @@ import com.servoy.j2db.dataprocessing.IRecord;
 import com.servoy.j2db.dataprocessing.IRecordInternal;
 import com.servoy.j2db.dataprocessing.ISwingFoundSet;
 import com.servoy.j2db.dataprocessing.PrototypeState;
+import com.servoy.j2db.dataprocessing.SQLSheet;
 import com.servoy.j2db.dataprocessing.SortColumn;
 import com.servoy.j2db.dataprocessing.ValueFactory.DbIdentValue;
 import com.servoy.j2db.persistence.Form;
@@ -138,6 +139,7 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 	public static final String SIZE = "size";
 	public static final String PREFERRED_VIEWPORT_SIZE = "preferredViewportSize";
 	public static final String INITIAL_SELECTION_VIEWPORT_CENTERED = "initialSelectionViewportCentered";
+	public static final String MAX_VIEWPORT_SIZE = "maxViewportSize";
 	public static final String ROWS = "rows";
 	public static final String NO_OP = "n";
 
@@ -804,6 +806,24 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 		return somethingChanged;
 	}
 
+	/**
+	 * @return true if this property or a property linked to it uses a dataprovider that is not a column or calculation of the foundset (a related or global one for instance),
+	 * such a dataprovider can change when a column changes without being one of the changed columns.
+	 */
+	protected boolean hasNonColumnDataproviders()
+	{
+		SQLSheet sheet = foundset != null ? foundset.getSQLSheet() : null;
+		if (sheet == null) return true;
+		for (Map<String, String> dps : Arrays.asList(dataproviders, recordDataLinkedPropertyIDToColumnDP))
+		{
+			for (String dataprovider : dps.values())
+			{
+				if (dataprovider != null && sheet.getColumnIndex(dataprovider) == -1 && !sheet.containsCalculation(dataprovider)) return true;
+			}
+		}
+		return false;
+	}
+
 	protected String getClientIDForColumnName(String columnName, boolean searchInRecordDataLinkedPropertyIDsAsWell)
 	{
 		String clientID = getKeyForValue(dataproviders, columnName);
@@ -910,6 +930,11 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 
 						changeMonitor.requestIdHandled(requestID, true);
 					}
+					if (update.has(MAX_VIEWPORT_SIZE))
+					{
+						// {maxViewportSize: size}; client uses a sliding window of records, so the viewport should not grow beyond that
+						viewPort.setMaxViewportSize(update.getInt(MAX_VIEWPORT_SIZE));
+					}
 					if (update.has(PREFERRED_VIEWPORT_SIZE))
 					{
 						viewPort.setPreferredViewportSize(update.getInt(PREFERRED_VIEWPORT_SIZE));
@@ -19,6 +19,7 @@ package com.servoy.j2db.server.ngclient.property;
 
 import org.slf4j.Logger;
 
+import com.servoy.j2db.dataprocessing.FoundSet;
 import com.servoy.j2db.dataprocessing.FoundSetEvent;
 import com.servoy.j2db.dataprocessing.IFoundSetEventListener;
 import com.servoy.j2db.dataprocessing.IFoundSetInternal;
@@ -41,6 +42,7 @@ public class FoundsetTypeViewport
 	protected IFoundSetEventListener foundsetEventListener;
 
 	protected int preferredViewPortSize; // 50 by default; see constructor
+	protected int maxViewPortSize = 0; // 0 means that the viewport can grow without limit; see setMaxViewportSize(...) below
 	private boolean sendSelectionViewportInitially; // default is false; see constructor
 	private boolean initialSelectionViewportCentered = true; // see setInitialSelectionViewportCentered(...) below
 
@@ -198,6 +200,32 @@ public class FoundsetTypeViewport
 			if (foundset.getSize() != oldFoundsetSize) changeMonitor.foundSetSizeChanged();
 			foundset.addFoundSetEventListener(getFoundsetEventListener());
 		}
+
+		if (maxViewPortSize > 0 && size > maxViewPortSize)
+		{
+			// windowed viewport; drop the records at the other end of the viewport from where it was extended
+			evictRecords(positiveOrNegativeRecordNo >= 0 ? size - maxViewPortSize : maxViewPortSize - size);
+		}
+	}
+
+	/**
+	 * Removes records from the viewport that are outside of the window that the client uses and releases them in the foundset, so that
+	 * memory use and change monitoring cost do not keep growing while scrolling. They will be loaded again when the client scrolls back to them.
+	 *
+	 * @param positiveOrNegativeRecordNo see {@link #loadLessRecords(int)}
+	 */
+	protected void evictRecords(int positiveOrNegativeRecordNo)
+	{
+		int oldStartIndex = this.startIndex;
+		int oldEndIndex = this.startIndex + this.size - 1;
+
+		loadLessRecords(positiveOrNegativeRecordNo);
+
+		if (foundset instanceof FoundSet && size > 0)
+		{
+			if (positiveOrNegativeRecordNo >= 0) ((FoundSet)foundset).releaseCachedRecords(oldStartIndex, startIndex - 1);
+			else ((FoundSet)foundset).releaseCachedRecords(startIndex + size, oldEndIndex);
+		}
 	}
 
 	/**
@@ -380,6 +408,22 @@ public class FoundsetTypeViewport
 		this.preferredViewPortSize = preferredViewPortSize;
 	}
 
+	/**
+	 * Sets the maximum size of the viewport; when the client scrolls and loads extra records beyond that size, the records that are furthest away
+	 * are removed from the viewport (client is notified of that) so that the viewport acts as a sliding window.
+	 *
+	 * @param maxViewPortSize the maximum number of records in the viewport; 0 means no limit.
+	 */
+	public void setMaxViewportSize(int maxViewPortSize)
+	{
+		this.maxViewPortSize = Math.max(0, maxViewPortSize);
+	}
+
+	public int getMaxViewportSize()
+	{
+		return maxViewPortSize;
+	}
+
 	/**
 	 * If this is true, then server side foundset property will initially send to client a viewport of 'preferredViewPortSize' based on currently selected row.
 	 * If this is false, then server side foundset property will initially send to client a viewport of 'preferredViewPortSize' starting from row 0.
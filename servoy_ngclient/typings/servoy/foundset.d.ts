@@ -233,6 +233,16 @@ declare namespace foundsetType {
         setPreferredViewportSize(preferredSize: number, sendViewportWithSelection: boolean,
                                     centerViewportOnSelected: boolean): void;
 
+        /**
+         * Makes the viewport a sliding window of at most maxSize rows. When more records are loaded
+         * through loadExtraRecordsAsync, the server will remove the records at the other end of the
+         * viewport so that the viewport does not grow beyond maxSize; they can be loaded again when
+         * scrolling back.
+         *
+         * @param maxSize the maximum number of rows in the viewport; 0 means no limit (the default).
+         */
+        setMaxViewportSize(maxSize: number): void;
+
         /**
          * It will send a data update for a cell (a column in a row) in the foundset to the server.
          * Please make sure to adjust the viewport value as well not just call this method.
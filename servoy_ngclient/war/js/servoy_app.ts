@@ -236,7 +236,10 @@ angular.module('servoyApp', ['sabloApp', 'servoy','webStorageModule','servoy-com
 			recordingPrefix = "/recording/websocket";
 			
 		}
-		var wsSession = $sabloApplication.connect('/solutions/'+$solutionSettings.solutionName, {solution:$solutionSettings.solutionName}, recordingPrefix)
+		var queryArgs = {solution:$solutionSettings.solutionName};
+		// marks the websocket for which servoy_compactmessages.ts asks the server for compact messages
+		if ($window['svyCompactMessages']) queryArgs['svy_compact'] = true;
+		var wsSession = $sabloApplication.connect('/solutions/'+$solutionSettings.solutionName, queryArgs, recordingPrefix)
 		wsSession.onMessageObject(function (msg, scopesToDigest) {
 			// data got back from the server
 			for(var formname in msg.forms) {
@@ -0,0 +1,225 @@
+/**
+ * Decoder for the compact messages that the server can send instead of JSON text when servoy.ngclient.compactMessages is enabled.
+ * Those are CBOR (RFC 8949) with indefinite length maps/arrays, one stringref namespace (tag 256) per message and references (tag 25)
+ * to strings that were already sent in that namespace (http://cbor.schmorp.de/stringref); see CompactMessageEncoder.java.
+ *
+ * Only the sablo endpoint websocket that servoy_app.ts opens with the svy_compact url parameter is touched, any other websocket is the native one.
+ * That websocket asks for the svy-compact subprotocol, the server only accepts it when compact messages are enabled; only when it did,
+ * binary messages are converted back to JSON text before the sablo websocket code gets them.
+ * window.svyCompactMessages tells connect() that the websocket url can ask for compact messages.
+ */
+(function(window: any) {
+	const COMPACT_MESSAGES_PROTOCOL = "svy-compact";
+	const COMPACT_MESSAGES_URL_PARAMETER = "svy_compact=";
+	// self describe tag 55799 followed by stringref namespace tag 256
+	const COMPACT_MESSAGE_HEADER = [0xd9, 0xd9, 0xf7, 0xd9, 0x01, 0x00];
+	const NativeWebSocket = window.WebSocket;
+	if (!NativeWebSocket || typeof window.TextDecoder === "undefined" || typeof window.MessageEvent !== "function") return;
+	const nativeOnMessage = Object.getOwnPropertyDescriptor(NativeWebSocket.prototype, "onmessage");
+	if (!nativeOnMessage || !nativeOnMessage.set) return;
+
+	const textDecoder = new window.TextDecoder("utf-8");
+
+	// minimum length in bytes of a string to get the next index in the stringref table
+	function minimumStringrefLength(index: number): number {
+		if (index < 24) return 3;
+		if (index < 256) return 4;
+		if (index < 65536) return 5;
+		if (index < 4294967296) return 7;
+		return 11;
+	}
+
+	function isCompactMessage(data: any): boolean {
+		if (!(data instanceof ArrayBuffer) || data.byteLength < COMPACT_MESSAGE_HEADER.length) return false;
+		const bytes = new Uint8Array(data, 0, COMPACT_MESSAGE_HEADER.length);
+		return COMPACT_MESSAGE_HEADER.every(function(b, i) { return bytes[i] === b; });
+	}
+
+	function decodeToJSON(data: ArrayBuffer): string {
+		const bytes = new Uint8Array(data);
+		const view = new DataView(data);
+		let strings: string[] = null;
+		const out: string[] = [];
+		let pos = 0;
+
+		function readUint(info: number): number {
+			let value: number;
+			switch (info) {
+				case 24:
+					value = bytes[pos];
+					pos += 1;
+					break;
+				case 25:
+					value = view.getUint16(pos);
+					pos += 2;
+					break;
+				case 26:
+					value = view.getUint32(pos);
+					pos += 4;
+					break;
+				case 27:
+					value = view.getUint32(pos) * 4294967296 + view.getUint32(pos + 4);
+					pos += 8;
+					break;
+				default:
+					if (info > 27) throw new Error("Unsupported length in compact message at " + pos);
+					value = info;
+			}
+			return value;
+		}
+
+		function readItem(): void {
+			const initialByte = bytes[pos++];
+			const majorType = initialByte >> 5;
+			const info = initialByte & 0x1f;
+			switch (majorType) {
+				case 0:
+					out.push(String(readUint(info)));
+					break;
+				case 1:
+					out.push(String(-1 - readUint(info)));
+					break;
+				case 3: {
+					const length = readUint(info);
+					const s: string = textDecoder.decode(bytes.subarray(pos, pos + length));
+					pos += length;
+					if (strings && length >= minimumStringrefLength(strings.length)) strings.push(s);
+					out.push(JSON.stringify(s));
+					break;
+				}
+				case 4: {
+					out.push("[");
+					let first = true;
+					while (bytes[pos] !== 0xff) {
+						if (!first) out.push(",");
+						first = false;
+						readItem();
+					}
+					pos++;
+					out.push("]");
+					break;
+				}
+				case 5: {
+					out.push("{");
+					let first = true;
+					while (bytes[pos] !== 0xff) {
+						if (!first) out.push(",");
+						first = false;
+						readItem();
+						out.push(":");
+						readItem();
+					}
+					pos++;
+					out.push("}");
+					break;
+				}
+				case 6: {
+					const tag = readUint(info);
+					if (tag === 25) {
+						// reference to a string that was already in this namespace
+						const referenceByte = bytes[pos++];
+						if (!strings || referenceByte >> 5 !== 0) throw new Error("Invalid string reference in compact message at " + (pos - 1));
+						const s = strings[readUint(referenceByte & 0x1f)];
+						if (s === undefined) throw new Error("Unknown string reference in compact message at " + pos);
+						out.push(JSON.stringify(s));
+					}
+					else if (tag === 256) {
+						// new stringref namespace for the tagged item
+						const outerStrings = strings;
+						strings = [];
+						readItem();
+						strings = outerStrings;
+					}
+					else readItem(); // self describe tag (55799)
+					break;
+				}
+				case 7:
+					if (info === 20) out.push("false");
+					else if (info === 21) out.push("true");
+					else if (info === 27) {
+						const value = view.getFloat64(pos);
+						pos += 8;
+						out.push(isFinite(value) ? String(value) : "null");
+					}
+					else out.push("null");
+					break;
+				default:
+					throw new Error("Unsupported type " + majorType + " in compact message at " + (pos - 1));
+			}
+		}
+
+		readItem();
+		return out.join("");
+	}
+
+	function isCompactMessagesURL(url: any): boolean {
+		return typeof url === "string" && url.indexOf("/websocket/") >= 0 && url.indexOf(COMPACT_MESSAGES_URL_PARAMETER) >= 0;
+	}
+
+	function wrapCompactMessagesWebSocket(ws: any): void {
+		// decoding must be synchronous to keep the order of the messages, so the native websocket always gets array buffers;
+		// other binary messages are given to the listeners in the binary type that they asked for
+		let binaryType = ws.binaryType;
+		ws.binaryType = "arraybuffer";
+		Object.defineProperty(ws, "binaryType", {
+			configurable: true,
+			get: function() { return binaryType; },
+			set: function(type) { binaryType = type; }
+		});
+
+		function decodeEvent(event: MessageEvent): MessageEvent {
+			if (!(event.data instanceof ArrayBuffer)) return event;
+			let data: any = event.data;
+			if (ws.protocol === COMPACT_MESSAGES_PROTOCOL && isCompactMessage(data)) data = decodeToJSON(data);
+			else if (binaryType === "blob") data = new window.Blob([data]);
+			else return event;
+			return new window.MessageEvent("message", { data: data, origin: event.origin, lastEventId: event.lastEventId });
+		}
+
+		let messageHandler = null;
+		Object.defineProperty(ws, "onmessage", {
+			configurable: true,
+			get: function() { return messageHandler; },
+			set: function(handler) {
+				messageHandler = handler;
+				nativeOnMessage.set.call(ws, handler ? function(event: MessageEvent) { return handler.call(ws, decodeEvent(event)); } : null);
+			}
+		});
+
+		const wrappedListeners = new WeakMap();
+		const nativeAddEventListener = ws.addEventListener;
+		const nativeRemoveEventListener = ws.removeEventListener;
+		ws.addEventListener = function(type: string, listener, options?) {
+			if (type === "message" && typeof listener === "function") {
+				let wrapped = wrappedListeners.get(listener);
+				if (!wrapped) {
+					wrapped = function(event: MessageEvent) { return listener.call(ws, decodeEvent(event)); };
+					wrappedListeners.set(listener, wrapped);
+				}
+				return nativeAddEventListener.call(ws, type, wrapped, options);
+			}
+			return nativeAddEventListener.call(ws, type, listener, options);
+		};
+		ws.removeEventListener = function(type: string, listener, options?) {
+			const wrapped = type === "message" && listener ? wrappedListeners.get(listener) : null;
+			return nativeRemoveEventListener.call(ws, type, wrapped || listener, options);
+		};
+	}
+
+	// the sablo websocket code creates its websocket itself, so the constructor is replaced; for other urls it just creates the native websocket
+	const CompactMessagesWebSocket: any = function(url: string, protocols?: string | string[]) {
+		if (!isCompactMessagesURL(url)) {
+			return protocols !== undefined ? new NativeWebSocket(url, protocols) : new NativeWebSocket(url);
+		}
+		const requestedProtocols = protocols === undefined ? [] : (typeof protocols === "string" ? [protocols] : protocols.slice());
+		requestedProtocols.push(COMPACT_MESSAGES_PROTOCOL);
+		const ws = new NativeWebSocket(url, requestedProtocols);
+		wrapCompactMessagesWebSocket(ws);
+		return ws;
+	};
+	CompactMessagesWebSocket.prototype = NativeWebSocket.prototype;
+	["CONNECTING", "OPEN", "CLOSING", "CLOSED"].forEach(function(state) { CompactMessagesWebSocket[state] = NativeWebSocket[state]; });
+
+	window.WebSocket = CompactMessagesWebSocket;
+	window.svyCompactMessages = { decodeToJSON: decodeToJSON, isCompactMessage: isCompactMessage };
+})(window);
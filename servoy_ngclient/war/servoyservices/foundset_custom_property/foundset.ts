@@ -575,6 +575,13 @@ namespace ngclient.propertyTypes {
             if (this.__internalState.changeNotifier) this.__internalState.changeNotifier();
         }
         
+        public setMaxViewportSize(size: number): void {
+            if (this.__internalState.log.debugEnabled && this.__internalState.log.debugLevel === this.__internalState.log.SPAM) this.__internalState.log.debug("svy foundset * setMaxViewportSize called with (" + size + ")");
+            if (isNaN(size)) throw new Error("setMaxViewportSize(...): illegal argument; size is not a number (" + size + ")");
+            this.__internalState.requests.push({ "maxViewportSize" : size });
+            if (this.__internalState.changeNotifier) this.__internalState.changeNotifier();
+        }
+        
         public requestSelectionUpdate(tmpSelectedRowIdxs: number[]): angular.IPromise<any> {
             if (this.__internalState.log.debugEnabled && this.__internalState.log.debugLevel === this.__internalState.log.SPAM) this.__internalState.log.debug("svy foundset * requestSelectionUpdate called with " + JSON.stringify(tmpSelectedRowIdxs));
             if (this.__internalState.selectionUpdateDefer) {
@@ -52,6 +52,10 @@ import com.servoy.j2db.dataprocessing.IDataServer;
 import com.servoy.j2db.dataprocessing.IFoundSetManagerInternal;
 import com.servoy.j2db.dataprocessing.ISaveConstants;
 import com.servoy.j2db.dataprocessing.IValueList;
+import com.servoy.j2db.dataprocessing.InMemoryTableEngine;
+import com.servoy.j2db.dataprocessing.QueryResultCache;
+import com.servoy.j2db.dataprocessing.SamplingProfileDataServer;
+import com.servoy.j2db.dataprocessing.ValueListCache;
 import com.servoy.j2db.persistence.ClientMethodTemplatesLoader;
 import com.servoy.j2db.persistence.IActiveSolutionHandler;
 import com.servoy.j2db.persistence.IColumnTypes;
@@ -69,7 +73,9 @@ import com.servoy.j2db.server.shared.ApplicationServerRegistry;
 import com.servoy.j2db.server.shared.IApplicationServer;
 import com.servoy.j2db.server.shared.IApplicationServerAccess;
 import com.servoy.j2db.server.shared.IClientManager;
+import com.servoy.j2db.server.shared.IPerformanceDataProvider;
 import com.servoy.j2db.server.shared.IUserManager;
+import com.servoy.j2db.server.shared.PerformanceData;
 import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.Pair;
 import com.servoy.j2db.util.ServoyException;
@@ -775,7 +781,8 @@ public abstract class ClientState extends ClientVersion implements IServiceProvi
 			{
 				if (dataServer == null)
 				{
-					dataServer = createDataServer();
+					dataServer = createProfilingDataServer(InMemoryTableEngine.createDataServer(
+						QueryResultCache.createCachingDataServer(ValueListCache.createInvalidatingDataServer(createDataServer()))));
 				}
 			}
 			catch (Exception ex)
@@ -836,6 +843,26 @@ public abstract class ClientState extends ClientVersion implements IServiceProvi
 		return null;
 	}
 
+	/**
+	 * Wrap the data server so a sample of the data calls is recorded in the performance data of this client,
+	 * when enabled with servoy.performanceStats.dataCalls.sampleRate (1 out of n calls is profiled, 0 is off).
+	 */
+	private IDataServer createProfilingDataServer(IDataServer ds)
+	{
+		if (ds != null && this instanceof IPerformanceDataProvider)
+		{
+			int sampleRate = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.performanceStats.dataCalls.sampleRate", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+			if (sampleRate > 0)
+			{
+				return new SamplingProfileDataServer(ds, () -> {
+					PerformanceData performanceData = ((IPerformanceDataProvider)this).getPerformanceData();
+					return performanceData != null ? performanceData.getDataCallStatistics() : null;
+				}, sampleRate);
+			}
+		}
+		return ds;
+	}
+
 	protected IDataServer createDataServer()
 	{
 		try
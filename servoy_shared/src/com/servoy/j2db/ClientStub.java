@@ -24,6 +24,7 @@ import com.servoy.j2db.dataprocessing.FoundSetManager;
 import com.servoy.j2db.dataprocessing.IClient;
 import com.servoy.j2db.dataprocessing.IDataServer;
 import com.servoy.j2db.dataprocessing.IDataSet;
+import com.servoy.j2db.dataprocessing.ValueListCache;
 import com.servoy.j2db.scripting.StartupArguments;
 import com.servoy.j2db.util.DataSourceUtils;
 import com.servoy.j2db.util.Debug;
@@ -109,6 +110,7 @@ public class ClientStub implements IClient
 
 	public void flushCachedDatabaseData(final String dataSource)
 	{
+		ValueListCache.flushBroadcast(dataSource);
 		if (client.isShutDown()) return;
 		if (Debug.tracing())
 		{
@@ -161,6 +163,8 @@ public class ClientStub implements IClient
 
 	public void notifyDataChange(final String server_name, final String table_name, final IDataSet pks, final int sql_action, final Object[] insertColumnData)
 	{
+		// right away, so clients that fill a valuelist before they have handled this change don't get the old contents
+		ValueListCache.dataBroadcast(server_name, table_name, pks);
 		if (client.isShutDown()) return;
 		if (Debug.tracing())
 		{
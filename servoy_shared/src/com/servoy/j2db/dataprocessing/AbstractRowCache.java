@@ -0,0 +1,87 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base row cache that keeps hit, miss and eviction counters.
+ *
+ * @since 2024.09
+ */
+public abstract class AbstractRowCache implements IRowCache
+{
+	private final String name;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	protected final LongAdder evictions = new LongAdder();
+
+	protected AbstractRowCache(String name)
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public void rowHit(Row row)
+	{
+		hits.increment();
+	}
+
+	@Override
+	public void rowMiss()
+	{
+		misses.increment();
+	}
+
+	@Override
+	public void rowCollected()
+	{
+		evictions.increment();
+	}
+
+	@Override
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	@Override
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	@Override
+	public long getEvictionCount()
+	{
+		return evictions.sum();
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[" + name + ", rows=" + getCachedRowCount() + ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+			", evictions=" + getEvictionCount() + "]";
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.Date;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.servoy.j2db.util.IReferenceWithData;
+import com.servoy.j2db.util.WeakReferenceWithData;
+
+/**
+ * Row cache with a budget of rows or estimated bytes.
+ * <p>
+ * The most recently used rows are strongly held in a least-recently-used cache, the row manager only has weak references to the rows.
+ * So rows that are evicted from this cache and are not used by any record anymore are collected at the next gc instead of all soft references at once
+ * when the heap is full.
+ *
+ * @since 2024.09
+ */
+public class BoundedRowCache extends AbstractRowCache
+{
+	private static final Object PRESENT = Boolean.TRUE;
+
+	private final Cache<Row, Object> rows;
+
+	public BoundedRowCache(String name, long maxRows, long maxBytes)
+	{
+		super(name);
+		CacheBuilder<Row, Object> builder = CacheBuilder.newBuilder().removalListener((RemovalListener<Row, Object>)notification -> {
+			if (notification.wasEvicted())
+			{
+				evictions.increment();
+			}
+		});
+		if (maxBytes > 0)
+		{
+			builder.maximumWeight(maxBytes).weigher((Row row, Object value) -> estimateSize(row));
+		}
+		else
+		{
+			builder.maximumSize(maxRows);
+		}
+		rows = builder.build();
+	}
+
+	@Override
+	public <D> IReferenceWithData<Row, D> createReference(Row row, ReferenceQueue< ? super Row> queue)
+	{
+		rows.put(row, PRESENT);
+		return new WeakReferenceWithData<Row, D>(row, queue);
+	}
+
+	@Override
+	public void rowHit(Row row)
+	{
+		super.rowHit(row);
+		if (rows.getIfPresent(row) == null)
+		{
+			// row was evicted but is still used, keep it again as most recently used
+			rows.put(row, PRESENT);
+		}
+	}
+
+	@Override
+	public void rowCollected()
+	{
+		// evictions are counted when the row is dropped from the cache
+	}
+
+	@Override
+	public void invalidate(Row row)
+	{
+		if (row != null)
+		{
+			rows.invalidate(row);
+		}
+	}
+
+	@Override
+	public long getCachedRowCount()
+	{
+		return rows.size();
+	}
+
+	/**
+	 * Rough estimate of the heap used by a row, used when the budget is in bytes.
+	 */
+	static int estimateSize(Row row)
+	{
+		Object[] data = row.getRawColumnData();
+		long size = 64; // row object with its maps
+		if (data != null)
+		{
+			size += 16 + 4 * data.length;
+			for (Object value : data)
+			{
+				size += estimateValueSize(value);
+			}
+		}
+		return (int)Math.min(size, Integer.MAX_VALUE);
+	}
+
+	private static long estimateValueSize(Object value)
+	{
+		if (value == null) return 0;
+		if (value instanceof String) return 40 + 2L * ((String)value).length();
+		if (value instanceof byte[]) return 16 + ((byte[])value).length;
+		if (value instanceof Long || value instanceof Double || value instanceof Date) return 24;
+		return 16;
+	}
+}
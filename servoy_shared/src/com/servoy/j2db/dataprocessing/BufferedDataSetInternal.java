@@ -48,6 +48,10 @@ public class BufferedDataSetInternal
 		{
 			return ((DataSetWithIndex)set).getColumnTypeInfo();
 		}
+		if (set instanceof ColumnarDataSet)
+		{
+			return ((ColumnarDataSet)set).getColumnTypeInfo();
+		}
 		return null;
 	}
 
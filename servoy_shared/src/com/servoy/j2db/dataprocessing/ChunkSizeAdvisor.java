@@ -0,0 +1,123 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import com.servoy.j2db.IApplication;
+import com.servoy.j2db.server.shared.IPerformanceDataProvider;
+import com.servoy.j2db.server.shared.PerformanceData;
+
+/**
+ * Chooses the pk and record chunk sizes of a foundset.
+ * <p>
+ * When servoy.foundset.adaptiveChunkSize is enabled the sizes are doubled for every chunk that is loaded within servoy.foundset.adaptiveChunkSize.window ms
+ * of the previous one while the foundset is scrolled through sequentially (table views, forEach, growing viewports), up to the configured max sizes.
+ * Random access or a pause in scrolling sets them back to the configured sizes. Otherwise the configured sizes are always used.
+ *
+ * @since 2024.09
+ */
+class ChunkSizeAdvisor
+{
+	private final FoundSetManagerConfig config;
+
+	private int pkChunkSize;
+	private int chunkSize;
+	private long lastPkChunkLoad;
+	private long lastChunkLoad;
+
+	ChunkSizeAdvisor(FoundSetManagerConfig config)
+	{
+		this.config = config;
+		this.pkChunkSize = config.pkChunkSize();
+		this.chunkSize = config.chunkSize();
+	}
+
+	/**
+	 * The number of pks to load in the next roundtrip when more pks are needed, call this once for every query that loads more pks.
+	 */
+	synchronized int nextPkChunkSize()
+	{
+		if (config.adaptiveChunkSize())
+		{
+			long now = System.currentTimeMillis();
+			if (now - lastPkChunkLoad <= config.adaptiveChunkSizeWindow())
+			{
+				pkChunkSize = Math.min(pkChunkSize * 2, config.maxPkChunkSize());
+			}
+			else
+			{
+				pkChunkSize = config.pkChunkSize();
+			}
+			lastPkChunkLoad = now;
+		}
+		return pkChunkSize;
+	}
+
+	/**
+	 * The number of records to load in the next roundtrip.
+	 *
+	 * @param requested number of records the caller asked for
+	 * @param sequential whether the record is next to already loaded records
+	 */
+	synchronized int nextChunkSize(int requested, boolean sequential)
+	{
+		if (!config.adaptiveChunkSize())
+		{
+			return requested;
+		}
+		long now = System.currentTimeMillis();
+		if (!sequential || now - lastChunkLoad > config.adaptiveChunkSizeWindow())
+		{
+			chunkSize = config.chunkSize();
+		}
+		else if (requested >= chunkSize)
+		{
+			chunkSize = Math.min(chunkSize * 2, config.maxChunkSize());
+		}
+		lastChunkLoad = now;
+		return Math.max(requested, chunkSize);
+	}
+
+	synchronized int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * The pk chunk size that was used for the last query, without advancing it.
+	 */
+	synchronized int getPkChunkSize()
+	{
+		return pkChunkSize;
+	}
+
+	/**
+	 * Add the chosen chunk size to the performance data of the client, one action per datasource with the timings per size below it.
+	 */
+	@SuppressWarnings("nls")
+	void chunkLoaded(IApplication application, String dataSource, boolean pks, int size, long time_ms)
+	{
+		if (config.adaptiveChunkSize() && application instanceof IPerformanceDataProvider)
+		{
+			PerformanceData performanceData = ((IPerformanceDataProvider)application).getPerformanceData();
+			if (performanceData != null)
+			{
+				performanceData.addTiming((pks ? "pk chunk: " : "record chunk: ") + dataSource, "size " + size, time_ms, IDataServer.FOUNDSET_LOAD_QUERY);
+			}
+		}
+	}
+}
@@ -0,0 +1,904 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.io.Serializable;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * {@link IDataSet} implementation that stores the data per column instead of per row.
+ * <p>
+ * Integer, long, floating point and date columns are kept in primitive arrays with a null bitmap and string columns are dictionary encoded,
+ * this needs a lot less memory and gc work for large results than the boxed cells of a {@link BufferedDataSet}.
+ * A column that gets a value of another type than it was created for falls back to storing objects.
+ * Query results are only stored this way when they have at least servoy.dataset.columnar.minRows rows, the default 0 disables it.
+ * <p>
+ * Rows are created when requested, so changes to an array returned by {@link #getRow(int)} must be stored with {@link #setRow(int, Object[])};
+ * use {@link #getValue(int, int)} to read a single cell without creating the row.
+ *
+ * @since 2024.09
+ */
+public class ColumnarDataSet implements ISerializableDataSet
+{
+	private static final long serialVersionUID = 1L;
+
+	private ColumnData[] columns;
+	private int rowCount;
+	private boolean hadMore;
+	private String[] columnNames;
+	private ColumnType[] columnTypes;
+
+	public ColumnarDataSet(String[] columnNames, int[] columnTypes)
+	{
+		this(columnNames, ColumnType.getColumnTypes(columnTypes), columnNames == null ? 0 : columnNames.length, false);
+	}
+
+	private ColumnarDataSet(String[] columnNames, ColumnType[] columnTypes, int columnCount, boolean hadMore)
+	{
+		this.columnNames = columnNames;
+		this.columnTypes = columnTypes;
+		this.hadMore = hadMore;
+		this.columns = new ColumnData[columnCount];
+	}
+
+	/**
+	 * Create a columnar copy of a data set.
+	 */
+	public static ColumnarDataSet create(IDataSet set)
+	{
+		int columnCount = set.getColumnCount();
+		ColumnarDataSet columnar = new ColumnarDataSet(set instanceof BufferedDataSet || set instanceof ColumnarDataSet ? set.getColumnNames() : null,
+			BufferedDataSetInternal.getColumnTypeInfo(set), columnCount, set.hadMoreRows());
+		int count = set.getRowCount();
+		for (int r = 0; r < count; r++)
+		{
+			columnar.addRow(set.getRow(r));
+		}
+		columnar.trimToSize();
+		return columnar;
+	}
+
+	/**
+	 * Create a columnar copy of the data set when it has at least minRows rows, otherwise return the data set itself.
+	 *
+	 * @param minRows minimum number of rows, 0 or less to never convert
+	 */
+	public static IDataSet compactLarge(IDataSet set, int minRows)
+	{
+		if (set == null || minRows <= 0 || set.getRowCount() < minRows || set instanceof ColumnarDataSet)
+		{
+			return set;
+		}
+		return create(set);
+	}
+
+	@Override
+	public IDataSet clone()
+	{
+		ColumnarDataSet clone = new ColumnarDataSet(columnNames != null ? columnNames.clone() : null, columnTypes != null ? columnTypes.clone() : null,
+			columns.length, hadMore);
+		for (int c = 0; c < columns.length; c++)
+		{
+			clone.columns[c] = columns[c] == null ? null : columns[c].copy(rowCount);
+		}
+		clone.rowCount = rowCount;
+		return clone;
+	}
+
+	public int getRowCount()
+	{
+		return rowCount;
+	}
+
+	public Object[] getRow(int row)
+	{
+		if (row < 0 || row >= rowCount)
+		{
+			return null;
+		}
+		Object[] array = new Object[columns.length];
+		for (int c = 0; c < columns.length; c++)
+		{
+			array[c] = columns[c] == null ? null : columns[c].get(row);
+		}
+		return array;
+	}
+
+	@Override
+	public Object getValue(int row, int column)
+	{
+		if (row < 0 || row >= rowCount || column < 0 || column >= columns.length || columns[column] == null)
+		{
+			return null;
+		}
+		return columns[column].get(row);
+	}
+
+	public void removeRow(int index)
+	{
+		if (index == -1)
+		{
+			columns = new ColumnData[columns.length];
+			rowCount = 0;
+		}
+		else if (index >= 0 && index < rowCount)
+		{
+			for (ColumnData column : columns)
+			{
+				if (column != null) column.remove(index, rowCount);
+			}
+			rowCount--;
+		}
+	}
+
+	public void setRow(int index, Object[] array)
+	{
+		if (index < 0) return;
+		if (index >= rowCount)
+		{
+			addRow(index, array);
+			return;
+		}
+		ensureColumns(array);
+		for (int c = 0; c < columns.length; c++)
+		{
+			setValue(c, index, array == null || c >= array.length ? null : array[c]);
+		}
+	}
+
+	public void addRow(Object[] array)
+	{
+		addRow(rowCount, array);
+	}
+
+	public void addRow(int index, Object[] array)
+	{
+		if (index < 0) return;
+		while (index > rowCount)
+		{
+			// fill up with empty rows
+			insertRow(rowCount, null);
+		}
+		insertRow(index, array);
+	}
+
+	private void insertRow(int index, Object[] array)
+	{
+		ensureColumns(array);
+		for (int c = 0; c < columns.length; c++)
+		{
+			Object value = array == null || c >= array.length ? null : array[c];
+			if (columns[c] == null)
+			{
+				if (value == null) continue;
+				columns[c] = ColumnData.createFor(value, rowCount + 1);
+				columns[c].fillNull(rowCount);
+			}
+			else if (value != null && !columns[c].accepts(value))
+			{
+				columns[c] = columns[c].toObjectColumn(rowCount);
+			}
+			columns[c].insert(index, value, rowCount);
+		}
+		rowCount++;
+	}
+
+	private void setValue(int c, int row, Object value)
+	{
+		if (columns[c] == null)
+		{
+			if (value == null) return;
+			columns[c] = ColumnData.createFor(value, rowCount);
+			columns[c].fillNull(rowCount);
+		}
+		else if (value != null && !columns[c].accepts(value))
+		{
+			columns[c] = columns[c].toObjectColumn(rowCount);
+		}
+		columns[c].set(row, value);
+	}
+
+	private void ensureColumns(Object[] array)
+	{
+		if (array != null && array.length > columns.length)
+		{
+			columns = Arrays.copyOf(columns, array.length);
+		}
+	}
+
+	private void trimToSize()
+	{
+		for (ColumnData column : columns)
+		{
+			if (column != null) column.resize(rowCount);
+		}
+	}
+
+	public List<Object[]> getRows()
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(rowCount);
+		for (int r = 0; r < rowCount; r++)
+		{
+			rows.add(getRow(r));
+		}
+		return rows;
+	}
+
+	public void setRows(List<Object[]> rows)
+	{
+		removeRow(-1);
+		if (rows != null)
+		{
+			for (Object[] row : rows)
+			{
+				addRow(row);
+			}
+		}
+	}
+
+	public int getColumnCount()
+	{
+		if (columnNames != null)
+		{
+			return columnNames.length;
+		}
+		return columns.length;
+	}
+
+	public String[] getColumnNames()
+	{
+		if (columnNames == null)
+		{
+			int count = getColumnCount();
+			columnNames = new String[count];
+			for (int i = 0; i < columnNames.length; i++)
+			{
+				columnNames[i] = "column" + i; //$NON-NLS-1$
+			}
+		}
+		return columnNames;
+	}
+
+	public void setColumnNames(String[] columnNames)
+	{
+		this.columnNames = columnNames;
+		if (columnNames != null && columnNames.length > columns.length)
+		{
+			columns = Arrays.copyOf(columns, columnNames.length);
+		}
+	}
+
+	public int[] getColumnTypes()
+	{
+		if (columnTypes == null)
+		{
+			return null;
+		}
+		int[] tps = new int[columnTypes.length];
+		for (int i = 0; i < columnTypes.length; i++)
+		{
+			tps[i] = columnTypes[i].getSqlType();
+		}
+		return tps;
+	}
+
+	/* package scope so it does not end up in javadoc */
+	ColumnType[] getColumnTypeInfo()
+	{
+		return columnTypes == null ? null : columnTypes.clone();
+	}
+
+	public void setColumnTypes(int[] intTypes)
+	{
+		this.columnTypes = ColumnType.getColumnTypes(intTypes);
+	}
+
+	public boolean hadMoreRows()
+	{
+		return hadMore;
+	}
+
+	public void clearHadMoreRows()
+	{
+		hadMore = false;
+	}
+
+	public void sort(int column, boolean ascending)
+	{
+		BufferedDataSet rows = new BufferedDataSet(null, null, getRows(), false);
+		rows.sort(column, ascending);
+		setRows(rows.getRows());
+	}
+
+	public void sort(Comparator<Object[]> rowComparator)
+	{
+		Object[][] array = getRows().toArray(new Object[rowCount][]);
+		Arrays.sort(array, rowComparator);
+		setRows(Arrays.asList(array));
+	}
+
+	public boolean addColumn(int columnIndex, String columnName, int columnType)
+	{
+		int size = getColumnCount();
+		int index = (columnIndex == -1) ? size : columnIndex;
+		if (index < 0 || index > size || Utils.stringIsEmpty(columnName))
+		{
+			return false;
+		}
+
+		columnNames = Utils.arrayInsert(columnNames /* no default names */, new String[] { columnName }, index, 1);
+		if (size == 0 || columnTypes != null)
+		{
+			columnTypes = Utils.arrayInsert(columnTypes, new ColumnType[] { ColumnType.getInstance(columnType, Integer.MAX_VALUE, 0) }, index, 1);
+		}
+		ColumnData[] newColumns = new ColumnData[Math.max(columns.length + 1, columnNames.length)];
+		for (int c = 0; c < columns.length; c++)
+		{
+			newColumns[c < index ? c : c + 1] = columns[c];
+		}
+		columns = newColumns;
+		return true;
+	}
+
+	public boolean removeColumn(int columnIndex)
+	{
+		int size = getColumnCount();
+		if (columnIndex < 0 || columnIndex >= size)
+		{
+			return false;
+		}
+		String[] oldColumns = getColumnNames();
+		String[] newColumnNames = new String[size - 1];
+		ColumnType[] newColumnTypes = columnTypes == null || size == 1 ? null : new ColumnType[size - 1];
+		for (int i = 0, j = 0; i < size; i++)
+		{
+			if (i == columnIndex) continue;
+			newColumnNames[j] = oldColumns[i];
+			if (newColumnTypes != null) newColumnTypes[j] = columnTypes[i];
+			j++;
+		}
+		columnNames = newColumnNames;
+		columnTypes = newColumnTypes;
+		if (columnIndex < columns.length)
+		{
+			ColumnData[] newColumns = new ColumnData[columns.length - 1];
+			System.arraycopy(columns, 0, newColumns, 0, columnIndex);
+			System.arraycopy(columns, columnIndex + 1, newColumns, columnIndex, columns.length - columnIndex - 1);
+			columns = newColumns;
+		}
+		return true;
+	}
+
+	public void setColumnName(int columnIndex, String columnName)
+	{
+		if (columnIndex >= 0 && columnIndex < getColumnCount() && !Utils.stringIsEmpty(columnName))
+		{
+			getColumnNames()[columnIndex] = columnName;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("ColumnarDataSet "); //$NON-NLS-1$
+		if (columnNames != null && columnNames.length > 0)
+		{
+			sb.append('{');
+			sb.append("Columnnames "); //$NON-NLS-1$
+			sb.append(Arrays.toString(columnNames));
+			sb.append("} "); //$NON-NLS-1$
+		}
+		int count = rowCount > 100 ? 100 : rowCount;
+		for (int i = 0; i < count; i++)
+		{
+			sb.append("\nrow_"); //$NON-NLS-1$
+			sb.append(i + 1);
+			sb.append('=');
+			sb.append(Arrays.toString(getRow(i)));
+			sb.append(' ');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Values of one column, nulls are kept in a bitmap.
+	 */
+	private static abstract class ColumnData implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		protected BitSet nulls = new BitSet();
+
+		static ColumnData createFor(Object value, int capacity)
+		{
+			Class< ? > type = value.getClass();
+			if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+			{
+				return new LongColumnData(type, capacity);
+			}
+			if (type == Double.class || type == Float.class)
+			{
+				return new DoubleColumnData(type, capacity);
+			}
+			if ((type == Date.class || type == java.sql.Date.class || type == Time.class || type == Timestamp.class) && DateColumnData.isMillis(value))
+			{
+				return new DateColumnData(type, capacity);
+			}
+			if (type == String.class)
+			{
+				return new StringColumnData(capacity);
+			}
+			return new ObjectColumnData(capacity);
+		}
+
+		/**
+		 * Whether the (non-null) value can be stored without changing its type.
+		 */
+		abstract boolean accepts(Object value);
+
+		abstract Object getValue(int row);
+
+		abstract void putValue(int row, Object value);
+
+		abstract int capacity();
+
+		abstract void resize(int capacity);
+
+		abstract void move(int from, int to, int length);
+
+		abstract ColumnData newInstance(int capacity);
+
+		Object get(int row)
+		{
+			return nulls.get(row) ? null : getValue(row);
+		}
+
+		void set(int row, Object value)
+		{
+			if (value == null)
+			{
+				nulls.set(row);
+			}
+			else
+			{
+				nulls.clear(row);
+				putValue(row, value);
+			}
+		}
+
+		void fillNull(int size)
+		{
+			resize(Math.max(capacity(), size));
+			nulls.set(0, size);
+		}
+
+		void insert(int row, Object value, int size)
+		{
+			if (size + 1 > capacity())
+			{
+				resize(Math.max(size + 1, capacity() + (capacity() >> 1) + 16));
+			}
+			if (row < size)
+			{
+				move(row, row + 1, size - row);
+				for (int i = size; i > row; i--)
+				{
+					nulls.set(i, nulls.get(i - 1));
+				}
+			}
+			set(row, value);
+		}
+
+		void remove(int row, int size)
+		{
+			move(row + 1, row, size - row - 1);
+			for (int i = row; i < size - 1; i++)
+			{
+				nulls.set(i, nulls.get(i + 1));
+			}
+			nulls.clear(size - 1);
+		}
+
+		ColumnData copy(int size)
+		{
+			ColumnData copy = newInstance(size);
+			for (int r = 0; r < size; r++)
+			{
+				copy.set(r, get(r));
+			}
+			return copy;
+		}
+
+		ColumnData toObjectColumn(int size)
+		{
+			ObjectColumnData objects = new ObjectColumnData(Math.max(size, capacity()));
+			for (int r = 0; r < size; r++)
+			{
+				objects.set(r, get(r));
+			}
+			return objects;
+		}
+	}
+
+	private static class LongColumnData extends ColumnData
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Class< ? > type;
+		private long[] values;
+
+		LongColumnData(Class< ? > type, int capacity)
+		{
+			this.type = type;
+			this.values = new long[capacity];
+		}
+
+		@Override
+		boolean accepts(Object value)
+		{
+			return value.getClass() == type;
+		}
+
+		@Override
+		Object getValue(int row)
+		{
+			long value = values[row];
+			if (type == Integer.class) return Integer.valueOf((int)value);
+			if (type == Short.class) return Short.valueOf((short)value);
+			if (type == Byte.class) return Byte.valueOf((byte)value);
+			return Long.valueOf(value);
+		}
+
+		@Override
+		void putValue(int row, Object value)
+		{
+			values[row] = ((Number)value).longValue();
+		}
+
+		@Override
+		int capacity()
+		{
+			return values.length;
+		}
+
+		@Override
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void move(int from, int to, int length)
+		{
+			System.arraycopy(values, from, values, to, length);
+		}
+
+		@Override
+		ColumnData newInstance(int capacity)
+		{
+			return new LongColumnData(type, capacity);
+		}
+	}
+
+	private static class DoubleColumnData extends ColumnData
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Class< ? > type;
+		private double[] values;
+
+		DoubleColumnData(Class< ? > type, int capacity)
+		{
+			this.type = type;
+			this.values = new double[capacity];
+		}
+
+		@Override
+		boolean accepts(Object value)
+		{
+			return value.getClass() == type;
+		}
+
+		@Override
+		Object getValue(int row)
+		{
+			double value = values[row];
+			return type == Float.class ? Float.valueOf((float)value) : Double.valueOf(value);
+		}
+
+		@Override
+		void putValue(int row, Object value)
+		{
+			values[row] = ((Number)value).doubleValue();
+		}
+
+		@Override
+		int capacity()
+		{
+			return values.length;
+		}
+
+		@Override
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void move(int from, int to, int length)
+		{
+			System.arraycopy(values, from, values, to, length);
+		}
+
+		@Override
+		ColumnData newInstance(int capacity)
+		{
+			return new DoubleColumnData(type, capacity);
+		}
+	}
+
+	/**
+	 * Dates as milliseconds, a new date object is created for every get, like a copy.
+	 */
+	private static class DateColumnData extends ColumnData
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Class< ? > type;
+		private long[] values;
+
+		DateColumnData(Class< ? > type, int capacity)
+		{
+			this.type = type;
+			this.values = new long[capacity];
+		}
+
+		static boolean isMillis(Object value)
+		{
+			// timestamps with sub-millisecond precision cannot be stored as millis
+			return !(value instanceof Timestamp) || ((Timestamp)value).getNanos() % 1000000 == 0;
+		}
+
+		@Override
+		boolean accepts(Object value)
+		{
+			return value.getClass() == type && isMillis(value);
+		}
+
+		@Override
+		Object getValue(int row)
+		{
+			long value = values[row];
+			if (type == Timestamp.class) return new Timestamp(value);
+			if (type == java.sql.Date.class) return new java.sql.Date(value);
+			if (type == Time.class) return new Time(value);
+			return new Date(value);
+		}
+
+		@Override
+		void putValue(int row, Object value)
+		{
+			values[row] = ((Date)value).getTime();
+		}
+
+		@Override
+		int capacity()
+		{
+			return values.length;
+		}
+
+		@Override
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void move(int from, int to, int length)
+		{
+			System.arraycopy(values, from, values, to, length);
+		}
+
+		@Override
+		ColumnData newInstance(int capacity)
+		{
+			return new DateColumnData(type, capacity);
+		}
+	}
+
+	/**
+	 * Dictionary encoded strings, each distinct string is kept once.
+	 */
+	private static class StringColumnData extends ColumnData
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> dictionary = new ArrayList<>();
+		private transient Map<String, Integer> codes;
+		private int[] values;
+
+		StringColumnData(int capacity)
+		{
+			this.values = new int[capacity];
+		}
+
+		@Override
+		boolean accepts(Object value)
+		{
+			return value instanceof String;
+		}
+
+		@Override
+		Object getValue(int row)
+		{
+			return dictionary.get(values[row]);
+		}
+
+		@Override
+		void putValue(int row, Object value)
+		{
+			if (codes == null)
+			{
+				codes = new HashMap<>();
+				for (int i = 0; i < dictionary.size(); i++)
+				{
+					codes.put(dictionary.get(i), Integer.valueOf(i));
+				}
+			}
+			Integer code = codes.get(value);
+			if (code == null)
+			{
+				code = Integer.valueOf(dictionary.size());
+				dictionary.add((String)value);
+				codes.put((String)value, code);
+			}
+			values[row] = code.intValue();
+		}
+
+		@Override
+		int capacity()
+		{
+			return values.length;
+		}
+
+		@Override
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void move(int from, int to, int length)
+		{
+			System.arraycopy(values, from, values, to, length);
+		}
+
+		@Override
+		ColumnData newInstance(int capacity)
+		{
+			return new StringColumnData(capacity);
+		}
+	}
+
+	private static class ObjectColumnData extends ColumnData
+	{
+		private static final long serialVersionUID = 1L;
+
+		private Object[] values;
+
+		ObjectColumnData(int capacity)
+		{
+			this.values = new Object[capacity];
+		}
+
+		@Override
+		boolean accepts(Object value)
+		{
+			return true;
+		}
+
+		@Override
+		Object getValue(int row)
+		{
+			return values[row];
+		}
+
+		@Override
+		void putValue(int row, Object value)
+		{
+			values[row] = value;
+		}
+
+		@Override
+		void set(int row, Object value)
+		{
+			// no need for the null bitmap
+			values[row] = value;
+		}
+
+		@Override
+		Object get(int row)
+		{
+			return values[row];
+		}
+
+		@Override
+		void fillNull(int size)
+		{
+			resize(Math.max(capacity(), size));
+		}
+
+		@Override
+		int capacity()
+		{
+			return values.length;
+		}
+
+		@Override
+		void resize(int capacity)
+		{
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		void move(int from, int to, int length)
+		{
+			System.arraycopy(values, from, values, to, length);
+		}
+
+		@Override
+		void remove(int row, int size)
+		{
+			move(row + 1, row, size - row - 1);
+			values[size - 1] = null;
+		}
+
+		@Override
+		void insert(int row, Object value, int size)
+		{
+			if (size + 1 > capacity())
+			{
+				resize(Math.max(size + 1, capacity() + (capacity() >> 1) + 16));
+			}
+			if (row < size)
+			{
+				move(row, row + 1, size - row);
+			}
+			values[row] = value;
+		}
+
+		@Override
+		ColumnData newInstance(int capacity)
+		{
+			return new ObjectColumnData(capacity);
+		}
+	}
+}
@@ -0,0 +1,763 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.servoy.base.query.BaseQueryTable;
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.persistence.SortingNullprecedence;
+import com.servoy.j2db.query.AndCondition;
+import com.servoy.j2db.query.AndOrCondition;
+import com.servoy.j2db.query.BooleanCondition;
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.query.IQuerySelectValue;
+import com.servoy.j2db.query.IQuerySort;
+import com.servoy.j2db.query.ISQLCondition;
+import com.servoy.j2db.query.Placeholder;
+import com.servoy.j2db.query.QueryAggregate;
+import com.servoy.j2db.query.QueryColumn;
+import com.servoy.j2db.query.QueryColumnValue;
+import com.servoy.j2db.query.QueryFunction;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.QuerySort;
+import com.servoy.j2db.query.SetCondition;
+import com.servoy.j2db.util.SafeArrayList;
+
+/**
+ * Column oriented copy of the data of an in-memory table that executes the subset of selects that foundsets use directly on the columns.
+ * <p>
+ * Supported are selects on one table with columns, constant values, upper/lower functions or aggregates (without group by), and/or conditions, compare, set
+ * (in), like, between and null conditions with placeholder values, sorts and distinct.
+ * For anything else {@link UnsupportedQueryException} is thrown and the query must be executed by the database.
+ *
+ * @since 2024.09
+ */
+final class ColumnarTable
+{
+	private final String[] columnNames;
+	private final Map<String, Integer> columnIndexes = new HashMap<>();
+	private final Object[][] columns;
+	private final int rowCount;
+
+	/**
+	 * @param columnNames the sql names of the columns
+	 * @param data rows with the values of the columns in the same order as columnNames
+	 */
+	ColumnarTable(String[] columnNames, IDataSet data)
+	{
+		this.columnNames = columnNames;
+		this.rowCount = data.getRowCount();
+		this.columns = new Object[columnNames.length][rowCount];
+		for (int c = 0; c < columnNames.length; c++)
+		{
+			columnIndexes.put(columnNames[c].toLowerCase(Locale.ROOT), Integer.valueOf(c));
+		}
+		for (int r = 0; r < rowCount; r++)
+		{
+			Object[] row = data.getRow(r);
+			for (int c = 0; c < columnNames.length; c++)
+			{
+				columns[c][r] = row[c];
+			}
+		}
+	}
+
+	int getRowCount()
+	{
+		return rowCount;
+	}
+
+	/**
+	 * Execute the select.
+	 *
+	 * @param resultTypes the types of the result columns, may be null
+	 * @throws UnsupportedQueryException when the query cannot be executed in memory
+	 */
+	IDataSet select(QuerySelect select, ColumnType[] resultTypes, boolean distinctInMemory, int startRow, int rowsToRetrieve)
+		throws UnsupportedQueryException
+	{
+		if ((select.getJoins() != null && !select.getJoins().isEmpty()) || select.getHaving() != null ||
+			(select.getGroupBy() != null && !select.getGroupBy().isEmpty()) || select.getLockMode() != QuerySelect.LOCK_MODE_NONE ||
+			select.getColumns() == null || select.getColumns().isEmpty())
+		{
+			throw new UnsupportedQueryException();
+		}
+
+		BaseQueryTable table = select.getTable();
+		BitSet selection = evaluate(table, select.getCondition());
+
+		List<IQuerySelectValue> selectColumns = select.getColumns();
+		int aggregates = 0;
+		for (IQuerySelectValue column : selectColumns)
+		{
+			if (column instanceof QueryAggregate) aggregates++;
+		}
+		List<Object[]> rows;
+		if (aggregates > 0)
+		{
+			if (aggregates != selectColumns.size()) throw new UnsupportedQueryException();
+			Object[] row = new Object[aggregates];
+			for (int i = 0; i < aggregates; i++)
+			{
+				row[i] = aggregate(table, (QueryAggregate)selectColumns.get(i), selection);
+			}
+			rows = new ArrayList<>(1);
+			rows.add(row);
+		}
+		else
+		{
+			ValueSource[] sources = new ValueSource[selectColumns.size()];
+			for (int i = 0; i < sources.length; i++)
+			{
+				sources[i] = getValueSource(table, selectColumns.get(i));
+			}
+			Integer[] selectedRows = sort(table, select.getSorts(), selection);
+			rows = new ArrayList<>(Math.min(selectedRows.length, rowsToRetrieve > 0 ? startRow + rowsToRetrieve + 1 : selectedRows.length));
+			Set<List<Object>> distinct = select.isDistinct() || distinctInMemory ? new HashSet<>() : null;
+			for (Integer r : selectedRows)
+			{
+				Object[] row = new Object[sources.length];
+				for (int i = 0; i < sources.length; i++)
+				{
+					row[i] = sources[i].get(r.intValue());
+				}
+				if (distinct == null || distinct.add(Arrays.asList(row)))
+				{
+					rows.add(row);
+					// one more to know if there are more rows
+					if (rowsToRetrieve > 0 && rows.size() > startRow + rowsToRetrieve) break;
+				}
+			}
+		}
+
+		int from = Math.min(Math.max(startRow, 0), rows.size());
+		int to = rowsToRetrieve > 0 ? Math.min(from + rowsToRetrieve, rows.size()) : rows.size();
+		List<Object[]> result = new SafeArrayList<>(rows.subList(from, to));
+		return new BufferedDataSet(select.getColumnNames(), resultTypes, result, to < rows.size());
+	}
+
+	private BitSet evaluate(BaseQueryTable table, ISQLCondition condition) throws UnsupportedQueryException
+	{
+		if (condition instanceof AndOrCondition)
+		{
+			boolean and = condition instanceof AndCondition;
+			BitSet result = new BitSet(rowCount);
+			if (and) result.set(0, rowCount);
+			for (ISQLCondition c : ((AndOrCondition)condition).getAllConditions())
+			{
+				BitSet bits = evaluate(table, c);
+				if (and) result.and(bits);
+				else result.or(bits);
+			}
+			return result;
+		}
+		if (condition instanceof BooleanCondition)
+		{
+			BitSet result = new BitSet(rowCount);
+			if (((BooleanCondition)condition).getValue()) result.set(0, rowCount);
+			return result;
+		}
+		if (condition instanceof SetCondition)
+		{
+			return evaluateSetCondition(table, (SetCondition)condition);
+		}
+		throw new UnsupportedQueryException();
+	}
+
+	/**
+	 * And-condition: the row matches when for one of the value records all keys match.
+	 * Or-condition (negated set condition): the row matches when for all value records one of the keys matches.
+	 */
+	private BitSet evaluateSetCondition(BaseQueryTable table, SetCondition condition) throws UnsupportedQueryException
+	{
+		IQuerySelectValue[] keys = condition.getKeys();
+		if (keys == null || keys.length == 0) throw new UnsupportedQueryException();
+		int[] operators = condition.getOperators();
+		Object[][] values = getValues(condition.getValues(), keys.length);
+
+		ValueSource[] keySources = new ValueSource[keys.length];
+		Predicate[][] predicates = new Predicate[keys.length][];
+		for (int k = 0; k < keys.length; k++)
+		{
+			keySources[k] = getValueSource(table, keys[k]);
+			int operator = operators[k];
+			if ((operator & ~(IBaseSQLCondition.OPERATOR_MASK | IBaseSQLCondition.ORNULL_MODIFIER | IBaseSQLCondition.CASEINSENSITIVE_MODIFIER)) != 0)
+			{
+				throw new UnsupportedQueryException();
+			}
+			predicates[k] = new Predicate[values[k].length];
+			for (int j = 0; j < values[k].length; j++)
+			{
+				predicates[k][j] = createPredicate(table, operator, values[k][j]);
+			}
+		}
+
+		boolean andCondition = condition.isAndCondition();
+		BitSet result = new BitSet(rowCount);
+		Predicate hashed = keys.length == 1 ? createHashedPredicate(operators[0], values[0], andCondition) : null;
+		if (hashed != null)
+		{
+			for (int r = 0; r < rowCount; r++)
+			{
+				if (hashed.test(keySources[0].get(r), r)) result.set(r);
+			}
+			return result;
+		}
+
+		int records = predicates[0].length;
+		for (int r = 0; r < rowCount; r++)
+		{
+			boolean match = !andCondition;
+			for (int j = 0; j < records && match != andCondition; j++)
+			{
+				boolean recordMatch = andCondition;
+				for (int k = 0; k < keys.length && recordMatch == andCondition; k++)
+				{
+					recordMatch = predicates[k][j].test(keySources[k].get(r), r);
+				}
+				match = recordMatch;
+			}
+			if (match) result.set(r);
+		}
+		return result;
+	}
+
+	/**
+	 * Predicate for one key that is (not) equal to any of a list of constant strings or numbers with a hash lookup instead of a compare per value.
+	 *
+	 * @return null when the operator or the values are not supported for a hash lookup
+	 */
+	private static Predicate createHashedPredicate(int operatorWithModifiers, Object[] values, boolean andCondition) throws UnsupportedQueryException
+	{
+		if ((operatorWithModifiers & IBaseSQLCondition.CASEINSENSITIVE_MODIFIER) != 0) return null;
+		int operator = operatorWithModifiers & IBaseSQLCondition.OPERATOR_MASK;
+		boolean in = operator == IBaseSQLCondition.EQUALS_OPERATOR || operator == IBaseSQLCondition.IN_OPERATOR;
+		if (andCondition ? !in : operator != IBaseSQLCondition.NOT_OPERATOR && operator != IBaseSQLCondition.NOT_IN_OPERATOR) return null;
+
+		List<Object> list = new ArrayList<>(values.length);
+		for (Object value : values)
+		{
+			Object val = value;
+			if (val instanceof Placeholder)
+			{
+				if (!((Placeholder)val).isSet()) throw new UnsupportedQueryException();
+				val = ((Placeholder)val).getValue();
+			}
+			if (val instanceof Object[]) list.addAll(Arrays.asList((Object[])val));
+			else list.add(val);
+		}
+		Set<Object> keys = new HashSet<>();
+		Boolean numbers = null;
+		for (Object val : list)
+		{
+			// let the database decide how null values in the list are handled
+			if (val == null) throw new UnsupportedQueryException();
+			Object key = hashKey(val);
+			if (key == null || (numbers != null && numbers.booleanValue() != val instanceof Number)) return null;
+			numbers = Boolean.valueOf(val instanceof Number);
+			keys.add(key);
+		}
+		if (numbers == null) return null;
+
+		boolean numberKeys = numbers.booleanValue();
+		boolean orNull = (operatorWithModifiers & IBaseSQLCondition.ORNULL_MODIFIER) != 0;
+		return (o, row) -> {
+			if (o == null) return orNull;
+			Object key = (numberKeys ? o instanceof Number : o instanceof String) ? hashKey(o) : null;
+			boolean found;
+			if (key != null)
+			{
+				found = keys.contains(key);
+			}
+			else
+			{
+				// other types, compare like the database would
+				found = false;
+				for (int i = 0; i < list.size() && !found; i++)
+				{
+					found = compare(o, list.get(i), false) == 0;
+				}
+			}
+			return found == in;
+		};
+	}
+
+	/**
+	 * A key for a string or number that is equal for values that compare as equal, like Integer 1, Long 1 and BigDecimal 1.0.
+	 *
+	 * @return null when the value cannot be used as key
+	 */
+	private static Object hashKey(Object value)
+	{
+		if (value instanceof String) return value;
+		if (!(value instanceof Number)) return null;
+		Number n = (Number)value;
+		if (isIntegral(n)) return Long.valueOf(n.longValue());
+		BigDecimal decimal;
+		if (n instanceof BigDecimal || n instanceof BigInteger)
+		{
+			decimal = toBigDecimal(n);
+		}
+		else if (n instanceof Double || n instanceof Float)
+		{
+			double d = n.doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d)) return null;
+			decimal = BigDecimal.valueOf(d);
+		}
+		else
+		{
+			return null;
+		}
+		decimal = decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+		if (decimal.scale() <= 0 && decimal.toBigInteger().bitLength() < 64) return Long.valueOf(decimal.longValue());
+		return decimal;
+	}
+
+	private static Object[][] getValues(Object values, int keyCount) throws UnsupportedQueryException
+	{
+		Object vals = values;
+		if (vals instanceof Placeholder)
+		{
+			if (!((Placeholder)vals).isSet()) throw new UnsupportedQueryException();
+			vals = ((Placeholder)vals).getValue();
+		}
+		if (vals instanceof Object[] && !(vals instanceof Object[][]) && keyCount == 1)
+		{
+			vals = new Object[][] { (Object[])vals };
+		}
+		if (!(vals instanceof Object[][]) || ((Object[][])vals).length != keyCount) throw new UnsupportedQueryException();
+		return (Object[][])vals;
+	}
+
+	private Predicate createPredicate(BaseQueryTable table, int operatorWithModifiers, Object value) throws UnsupportedQueryException
+	{
+		Object val = value;
+		if (val instanceof Placeholder)
+		{
+			if (!((Placeholder)val).isSet()) throw new UnsupportedQueryException();
+			val = ((Placeholder)val).getValue();
+		}
+		boolean orNull = (operatorWithModifiers & IBaseSQLCondition.ORNULL_MODIFIER) != 0;
+		boolean caseInsensitive = (operatorWithModifiers & IBaseSQLCondition.CASEINSENSITIVE_MODIFIER) != 0;
+		int operator = operatorWithModifiers & IBaseSQLCondition.OPERATOR_MASK;
+
+		Predicate predicate;
+		switch (operator)
+		{
+			case IBaseSQLCondition.ISNULL_OPERATOR :
+				return (o, row) -> o == null;
+
+			case IBaseSQLCondition.ISNOTNULL_OPERATOR :
+				return (o, row) -> o != null;
+
+			case IBaseSQLCondition.EQUALS_OPERATOR :
+			case IBaseSQLCondition.IN_OPERATOR :
+			case IBaseSQLCondition.NOT_OPERATOR :
+			case IBaseSQLCondition.NOT_IN_OPERATOR :
+			{
+				boolean negate = operator == IBaseSQLCondition.NOT_OPERATOR || operator == IBaseSQLCondition.NOT_IN_OPERATOR;
+				if (val instanceof IQuerySelectValue)
+				{
+					ValueSource other = getValueSource(table, (IQuerySelectValue)val);
+					predicate = (o, row) -> {
+						Object v = other.get(row);
+						return o != null && v != null && (compare(o, v, caseInsensitive) == 0) != negate;
+					};
+				}
+				else
+				{
+					Object[] list = val instanceof Object[] ? (Object[])val : new Object[] { val };
+					for (Object v : list)
+					{
+						// let the database decide how null values in the list are handled
+						if (v == null) throw new UnsupportedQueryException();
+					}
+					predicate = (o, row) -> {
+						if (o == null) return false;
+						boolean found = false;
+						for (int i = 0; i < list.length && !found; i++)
+						{
+							found = compare(o, list[i], caseInsensitive) == 0;
+						}
+						return found != negate;
+					};
+				}
+				break;
+			}
+
+			case IBaseSQLCondition.GT_OPERATOR :
+			case IBaseSQLCondition.LT_OPERATOR :
+			case IBaseSQLCondition.GTE_OPERATOR :
+			case IBaseSQLCondition.LTE_OPERATOR :
+			{
+				ValueSource other = val instanceof IQuerySelectValue ? getValueSource(table, (IQuerySelectValue)val) : null;
+				if (other == null && (val == null || val instanceof Object[])) throw new UnsupportedQueryException();
+				Object constant = val;
+				predicate = (o, row) -> {
+					Object v = other == null ? constant : other.get(row);
+					if (o == null || v == null) return false;
+					int cmp = compare(o, v, caseInsensitive);
+					switch (operator)
+					{
+						case IBaseSQLCondition.GT_OPERATOR :
+							return cmp > 0;
+						case IBaseSQLCondition.LT_OPERATOR :
+							return cmp < 0;
+						case IBaseSQLCondition.GTE_OPERATOR :
+							return cmp >= 0;
+						default :
+							return cmp <= 0;
+					}
+				};
+				break;
+			}
+
+			case IBaseSQLCondition.BETWEEN_OPERATOR :
+			case IBaseSQLCondition.NOT_BETWEEN_OPERATOR :
+			{
+				if (!(val instanceof Object[]) || ((Object[])val).length != 2 || ((Object[])val)[0] == null || ((Object[])val)[1] == null)
+				{
+					throw new UnsupportedQueryException();
+				}
+				Object low = ((Object[])val)[0];
+				Object high = ((Object[])val)[1];
+				boolean negate = operator == IBaseSQLCondition.NOT_BETWEEN_OPERATOR;
+				predicate = (o, row) -> o != null && (compare(o, low, caseInsensitive) >= 0 && compare(o, high, caseInsensitive) <= 0) != negate;
+				break;
+			}
+
+			case IBaseSQLCondition.LIKE_OPERATOR :
+			case IBaseSQLCondition.NOT_LIKE_OPERATOR :
+			{
+				// the value is the pattern or the pattern and the escape character
+				Object like = val;
+				Character escape = null;
+				if (val instanceof Object[] && ((Object[])val).length == 2 && ((Object[])val)[1] instanceof String && ((String)((Object[])val)[1]).length() == 1)
+				{
+					like = ((Object[])val)[0];
+					escape = Character.valueOf(((String)((Object[])val)[1]).charAt(0));
+				}
+				if (like instanceof Placeholder && ((Placeholder)like).isSet()) like = ((Placeholder)like).getValue();
+				if (!(like instanceof String)) throw new UnsupportedQueryException();
+				Pattern pattern = likePattern((String)like, escape, caseInsensitive);
+				boolean negate = operator == IBaseSQLCondition.NOT_LIKE_OPERATOR;
+				predicate = (o, row) -> {
+					if (o == null) return false;
+					if (!(o instanceof String)) throw new UnsupportedValueException();
+					return pattern.matcher((String)o).matches() != negate;
+				};
+				break;
+			}
+
+			default :
+				throw new UnsupportedQueryException();
+		}
+
+		if (orNull)
+		{
+			Predicate p = predicate;
+			return (o, row) -> o == null || p.test(o, row);
+		}
+		return predicate;
+	}
+
+	/**
+	 * Convert an sql like pattern to a regular expression, % matches any string, _ any character and the escape character, when given, escapes the next
+	 * character.
+	 */
+	static Pattern likePattern(String like, Character escape, boolean caseInsensitive)
+	{
+		StringBuilder regex = new StringBuilder(like.length() + 16);
+		StringBuilder literal = new StringBuilder();
+		for (int i = 0; i < like.length(); i++)
+		{
+			char c = like.charAt(i);
+			boolean escaped = escape != null && c == escape.charValue() && i + 1 < like.length();
+			if (c == '%' || c == '_' || escaped)
+			{
+				if (literal.length() > 0)
+				{
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				if (escaped) literal.append(like.charAt(++i));
+				else regex.append(c == '%' ? ".*" : ".");
+			}
+			else
+			{
+				literal.append(c);
+			}
+		}
+		if (literal.length() > 0) regex.append(Pattern.quote(literal.toString()));
+		return Pattern.compile(regex.toString(), Pattern.DOTALL | (caseInsensitive ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0));
+	}
+
+	private Integer[] sort(BaseQueryTable table, List<IQuerySort> sorts, BitSet selection) throws UnsupportedQueryException
+	{
+		Integer[] rows = new Integer[selection.cardinality()];
+		for (int r = selection.nextSetBit(0), i = 0; r >= 0; r = selection.nextSetBit(r + 1))
+		{
+			rows[i++] = Integer.valueOf(r);
+		}
+		if (sorts == null || sorts.isEmpty()) return rows;
+
+		Comparator<Integer> comparator = null;
+		for (IQuerySort sort : sorts)
+		{
+			if (!(sort instanceof QuerySort)) throw new UnsupportedQueryException();
+			QuerySort querySort = (QuerySort)sort;
+			ValueSource source = getValueSource(table, querySort.getColumn());
+			boolean ascending = querySort.isAscending();
+			boolean ignoreCase = querySort.isIgnoreCase();
+			// nulls are the smallest values, unless they are explicitly sorted last on ascending sort
+			boolean nullsFirst = querySort.nullprecedence() == SortingNullprecedence.ascNullsLast ? !ascending : ascending;
+			Comparator<Integer> columnComparator = (r1, r2) -> {
+				Object o1 = source.get(r1.intValue());
+				Object o2 = source.get(r2.intValue());
+				if (o1 == null || o2 == null)
+				{
+					if (o1 == o2) return 0;
+					return (o1 == null) == nullsFirst ? -1 : 1;
+				}
+				int cmp = compare(o1, o2, ignoreCase);
+				return ascending ? cmp : -cmp;
+			};
+			comparator = comparator == null ? columnComparator : comparator.thenComparing(columnComparator);
+		}
+		try
+		{
+			Arrays.sort(rows, comparator);
+		}
+		catch (UnsupportedValueException e)
+		{
+			throw new UnsupportedQueryException();
+		}
+		return rows;
+	}
+
+	private Object aggregate(BaseQueryTable table, QueryAggregate aggregate, BitSet selection) throws UnsupportedQueryException
+	{
+		IQuerySelectValue aggregee = aggregate.getAggregee();
+		boolean distinct = aggregate.getQuantifier() == QueryAggregate.DISTINCT;
+		if (aggregate.getType() == QueryAggregate.COUNT && aggregee instanceof QueryColumnValue && !distinct)
+		{
+			// count(*) or count(1)
+			return Long.valueOf(selection.cardinality());
+		}
+		if (aggregee instanceof QueryColumnValue) throw new UnsupportedQueryException();
+
+		ValueSource source = getValueSource(table, aggregee);
+		Set<Object> distinctValues = distinct ? new HashSet<>() : null;
+		long count = 0;
+		Object result = null;
+		for (int r = selection.nextSetBit(0); r >= 0; r = selection.nextSetBit(r + 1))
+		{
+			Object value = source.get(r);
+			if (value == null || (distinctValues != null && !distinctValues.add(value))) continue;
+			count++;
+			switch (aggregate.getType())
+			{
+				case QueryAggregate.MIN :
+					if (result == null || compare(value, result, false) < 0) result = value;
+					break;
+				case QueryAggregate.MAX :
+					if (result == null || compare(value, result, false) > 0) result = value;
+					break;
+				case QueryAggregate.SUM :
+				case QueryAggregate.AVG :
+					if (!(value instanceof Number)) throw new UnsupportedQueryException();
+					result = add((Number)result, (Number)value);
+					break;
+				case QueryAggregate.COUNT :
+					break;
+				default :
+					throw new UnsupportedQueryException();
+			}
+		}
+		switch (aggregate.getType())
+		{
+			case QueryAggregate.COUNT :
+				return Long.valueOf(count);
+			case QueryAggregate.AVG :
+				return result == null ? null : Double.valueOf(((Number)result).doubleValue() / count);
+			default :
+				return result;
+		}
+	}
+
+	private static Number add(Number sum, Number value)
+	{
+		if (sum == null) return isIntegral(value) ? (Number)Long.valueOf(value.longValue()) : value;
+		if (isIntegral(sum) && isIntegral(value)) return Long.valueOf(sum.longValue() + value.longValue());
+		if (sum instanceof BigDecimal || value instanceof BigDecimal) return toBigDecimal(sum).add(toBigDecimal(value));
+		return Double.valueOf(sum.doubleValue() + value.doubleValue());
+	}
+
+	private ValueSource getValueSource(BaseQueryTable table, IQuerySelectValue value) throws UnsupportedQueryException
+	{
+		if (value instanceof QueryColumn)
+		{
+			QueryColumn column = (QueryColumn)value;
+			if (!table.equals(column.getTable())) throw new UnsupportedQueryException();
+			Integer index = columnIndexes.get(column.getName().toLowerCase(Locale.ROOT));
+			if (index == null) throw new UnsupportedQueryException();
+			Object[] data = columns[index.intValue()];
+			return row -> data[row];
+		}
+		if (value instanceof QueryColumnValue)
+		{
+			Object constant = ((QueryColumnValue)value).getValue();
+			return row -> constant;
+		}
+		if (value instanceof QueryFunction && ((QueryFunction)value).getArgs() != null && ((QueryFunction)value).getArgs().length == 1)
+		{
+			ValueSource arg = getValueSource(table, ((QueryFunction)value).getArgs()[0]);
+			switch (((QueryFunction)value).getFunction())
+			{
+				case upper :
+					return row -> {
+						Object o = arg.get(row);
+						return o == null ? null : o.toString().toUpperCase(Locale.ROOT);
+					};
+				case lower :
+					return row -> {
+						Object o = arg.get(row);
+						return o == null ? null : o.toString().toLowerCase(Locale.ROOT);
+					};
+				default :
+					break;
+			}
+		}
+		throw new UnsupportedQueryException();
+	}
+
+	/**
+	 * Compare 2 non-null values like the database would.
+	 *
+	 * @throws UnsupportedValueException when the values cannot be compared
+	 */
+	@SuppressWarnings("unchecked")
+	static int compare(Object o1, Object o2, boolean ignoreCase)
+	{
+		if (o1 instanceof Number && o2 instanceof Number)
+		{
+			Number n1 = (Number)o1;
+			Number n2 = (Number)o2;
+			if (isIntegral(n1) && isIntegral(n2)) return Long.compare(n1.longValue(), n2.longValue());
+			if (n1 instanceof BigDecimal || n2 instanceof BigDecimal || n1 instanceof BigInteger || n2 instanceof BigInteger)
+			{
+				return toBigDecimal(n1).compareTo(toBigDecimal(n2));
+			}
+			return Double.compare(n1.doubleValue(), n2.doubleValue());
+		}
+		if (o1 instanceof String && o2 instanceof String)
+		{
+			return ignoreCase ? ((String)o1).compareToIgnoreCase((String)o2) : ((String)o1).compareTo((String)o2);
+		}
+		if (o1 instanceof Date && o2 instanceof Date)
+		{
+			return Long.compare(((Date)o1).getTime(), ((Date)o2).getTime());
+		}
+		if (o1 instanceof Boolean && o2 instanceof Boolean)
+		{
+			return ((Boolean)o1).compareTo((Boolean)o2);
+		}
+		if (isUUID(o1) && isUUID(o2))
+		{
+			// uuids can be stored as text
+			return o1.toString().compareToIgnoreCase(o2.toString());
+		}
+		if (o1.getClass() == o2.getClass() && o1 instanceof Comparable)
+		{
+			return ((Comparable<Object>)o1).compareTo(o2);
+		}
+		throw new UnsupportedValueException();
+	}
+
+	private static boolean isUUID(Object o)
+	{
+		return o instanceof com.servoy.j2db.util.UUID || o instanceof java.util.UUID || (o instanceof String && ((String)o).length() == 36);
+	}
+
+	private static boolean isIntegral(Number n)
+	{
+		return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+	}
+
+	private static BigDecimal toBigDecimal(Number n)
+	{
+		if (n instanceof BigDecimal) return (BigDecimal)n;
+		if (n instanceof BigInteger) return new BigDecimal((BigInteger)n);
+		if (isIntegral(n)) return BigDecimal.valueOf(n.longValue());
+		return BigDecimal.valueOf(n.doubleValue());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ColumnarTable" + new LinkedHashSet<>(Arrays.asList(columnNames)) + " rows: " + rowCount; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@FunctionalInterface
+	private interface ValueSource
+	{
+		Object get(int row);
+	}
+
+	@FunctionalInterface
+	private interface Predicate
+	{
+		boolean test(Object value, int row);
+	}
+
+	/**
+	 * The query cannot be executed on the columnar data.
+	 */
+	static final class UnsupportedQueryException extends Exception
+	{
+		UnsupportedQueryException()
+		{
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Values found in the data that cannot be compared in memory, thrown from inside comparators and predicates.
+	 */
+	static final class UnsupportedValueException extends RuntimeException
+	{
+		UnsupportedValueException()
+		{
+			super(null, null, false, false);
+		}
+	}
+}
@@ -18,6 +18,7 @@ package com.servoy.j2db.dataprocessing;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.servoy.base.persistence.constants.IValueListConstants;
@@ -231,6 +232,21 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 			if (table == null) return;
 
 			FoundSetManager foundSetManager = ((FoundSetManager)application.getFoundSetManager());
+
+			// when other clients see the same data, the contents can be shared with them
+			List<Object> sharedCacheKey = !containsCalculation && ValueListCache.canUseCache(application, table) ? createSharedCacheKey(foundSetManager)
+				: null;
+			if (sharedCacheKey != null)
+			{
+				ValueListCache.Entry entry = ValueListCache.get(application, table, getName(), sharedCacheKey);
+				if (entry != null)
+				{
+					fillFromSharedCache(entry);
+					return;
+				}
+			}
+			long sharedCacheGeneration = sharedCacheKey == null ? 0 : ValueListCache.getGeneration(application, table);
+
 			List<SortColumn> sortColumns = foundSetManager.getSortColumns(table, valueList.getSortOptions());
 			FoundSet fs = (FoundSet)foundSetManager.getNewFoundSet(table, null, sortColumns);
 			if (fs == null)
@@ -259,6 +275,7 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 
 			boolean singleColumn = (total & 7) == 1 || (total & 7) == 2 || (total & 7) == 4;
 
+			boolean maxRowsReached = false;
 			try
 			{
 				startBundlingEvents();
@@ -299,23 +316,8 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 						null, tableFilterParams, !creationSQLParts.isUnique(), 0, maxValuelistRows, IDataServer.VALUELIST_QUERY, trackingInfo);
 					if (set.getRowCount() >= maxValuelistRows)
 					{
-						if (Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.client.report.max.valuelist.items", "true")))
-						{
-							if (!fullyLoadedLogged)
-							{
-								if (application instanceof IApplication)
-								{
-									((IApplication)application).reportJSWarning(
-										"Valuelist " + getName() + " fully loaded with " + maxValuelistRows + " rows, more rows are discarded!!");
-								}
-								else
-								{
-									application.reportJSError(
-										"Valuelist " + getName() + " fully loaded with " + maxValuelistRows + " rows, more rows are discarded!!", null);
-								}
-								fullyLoadedLogged = true;
-							}
-						}
+						maxRowsReached = true;
+						reportFullyLoaded();
 					}
 
 					String[] displayFormat = getDisplayFormat();
@@ -355,26 +357,23 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 					}
 					if (fs.getSize() >= maxValuelistRows)
 					{
-						if (Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.client.report.max.valuelist.items", "true")))
-						{
-							if (!fullyLoadedLogged)
-							{
-								if (application instanceof IApplication)
-								{
-									((IApplication)application).reportJSWarning(
-										"Valuelist " + getName() + " fully loaded with " + maxValuelistRows + " rows, more rows are discarded!!");
-								}
-								else
-								{
-									application.reportJSError(
-										"Valuelist " + getName() + " fully loaded with " + maxValuelistRows + " rows, more rows are discarded!!", null);
-								}
-								fullyLoadedLogged = true;
-							}
-						}
+						maxRowsReached = true;
+						reportFullyLoaded();
 					}
 
 				}
+
+				if (sharedCacheKey != null)
+				{
+					int first = valueList.getAddEmptyValue() == IValueListConstants.EMPTY_VALUE_ALWAYS ? 1 : 0;
+					List<Object> displayValues = new ArrayList<>(getSize());
+					for (int i = first; i < getSize(); i++)
+					{
+						displayValues.add(getElementAt(i));
+					}
+					ValueListCache.put(application, table, getName(), sharedCacheKey, sharedCacheGeneration, displayValues,
+						realValues.subList(first, realValues.size()), maxRowsReached);
+				}
 			}
 			finally
 			{
@@ -387,6 +386,70 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 		}
 	}
 
+	/**
+	 * The key for the shared cache, everything that can make the contents different for clients that show this valuelist.
+	 */
+	private List<Object> createSharedCacheKey(FoundSetManager foundSetManager)
+	{
+		String[] displayFormat = getDisplayFormat();
+		return Arrays.asList(valueList.getUUID(), application.getSolution() == null ? null : application.getSolution().getName(), valueList.getName(),
+			valueList.getDataProviderID1(), valueList.getDataProviderID2(), valueList.getDataProviderID3(), Integer.valueOf(valueList.getShowDataProviders()),
+			Integer.valueOf(valueList.getReturnDataProviders()), valueList.getSortOptions(), valueList.getSeparator(),
+			Boolean.valueOf(valueList.getUseTableFilter()), Integer.valueOf(maxValuelistRows), application.getLocale(),
+			displayFormat == null ? null : Arrays.asList(displayFormat),
+			foundSetManager.getTableFilterParams(table.getServerName(), createValuelistQuery(application, valueList, table)));
+	}
+
+	private void fillFromSharedCache(ValueListCache.Entry entry)
+	{
+		if (isLoaded) return;
+		isLoaded = true;
+		try
+		{
+			startBundlingEvents();
+			if (valueList.getAddEmptyValue() == IValueListConstants.EMPTY_VALUE_ALWAYS)
+			{
+				addElement(""); //$NON-NLS-1$
+				realValues.add(null);
+			}
+			for (int i = 0; i < entry.displayValues.length; i++)
+			{
+				addElement(entry.displayValues[i]);
+				realValues.add(entry.realValues[i]);
+			}
+			if (entry.maxRowsReached)
+			{
+				reportFullyLoaded();
+			}
+		}
+		finally
+		{
+			stopBundlingEvents();
+		}
+	}
+
+	@SuppressWarnings("nls")
+	private void reportFullyLoaded()
+	{
+		if (Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.client.report.max.valuelist.items", "true")))
+		{
+			if (!fullyLoadedLogged)
+			{
+				if (application instanceof IApplication)
+				{
+					((IApplication)application).reportJSWarning(
+						"Valuelist " + getName() + " fully loaded with " + maxValuelistRows + " rows, more rows are discarded!!");
+				}
+				else
+				{
+					application.reportJSError("Valuelist " + getName() + " fully loaded with " + maxValuelistRows + " rows, more rows are discarded!!",
+						null);
+				}
+				fullyLoadedLogged = true;
+			}
+		}
+	}
+
 	public static boolean willConcat(int selectedColumnValuesBitmask)
 	{
 		boolean concatShowValues = false;
@@ -71,6 +71,20 @@ public class DataSetWithIndex implements IDataSetWithIndex, ISerializableDataSet
 		return dataset.getRow(row);
 	}
 
+	@Override
+	public Object getValue(int row, int column)
+	{
+		return dataset.getValue(row, column);
+	}
+
+	/**
+	 * @return the data set that holds the rows
+	 */
+	public IDataSet getDataSet()
+	{
+		return dataset;
+	}
+
 	@Override
 	public void removeRow(int index)
 	{
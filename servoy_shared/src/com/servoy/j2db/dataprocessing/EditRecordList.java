@@ -20,15 +20,19 @@ import static com.servoy.j2db.util.Utils.equalObjects;
 import static java.util.Arrays.stream;
 import static java.util.Collections.reverse;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantLock;
@@ -63,6 +67,7 @@ import com.servoy.j2db.query.QueryInsert;
 import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.IntHashMap;
 import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.UUID;
 import com.servoy.j2db.util.Utils;
 
 /**
@@ -714,30 +719,19 @@ public class EditRecordList
 			List<RowUpdateInfo> infos = orderUpdatesForInsertOrder(rowUpdates, RowUpdateInfo::getRow, false);
 
 			ISQLStatement[] statements;
+			int[] statementIndexes = null; // per info the index of the statement it was merged in
+			int[] statementRows = null; // per info the row in the (merged) statement
 			if (fsm.config.statementBatching() && infos.size() > 1)
 			{
 				// Merge insert statements insert statements from all info's: multiple info's can share the same statement of the records are batched together on the statement level
-				List<ISQLStatement> mergedStatements = new ArrayList<>(infos.size());
-
-				ISQLStatement prevStatement = null;
-				for (RowUpdateInfo rowUpdateInfo : infos)
+				statementIndexes = new int[infos.size()];
+				statementRows = new int[infos.size()];
+				List<ISQLStatement> mergedStatements = mergeInsertStatements(infos, statementIndexes, statementRows);
+				statements = mergedStatements.toArray(new ISQLStatement[mergedStatements.size()]);
+				if (Debug.tracing())
 				{
-					ISQLStatement statement = rowUpdateInfo.getISQLStatement();
-
-					if (statement.getAction() == ISQLActionTypes.INSERT_ACTION &&
-						prevStatement != null && prevStatement.getAction() == ISQLActionTypes.INSERT_ACTION &&
-						insertStatementsCanBeMerged(prevStatement, statement))
-					{
-						mergeInsertStatements(prevStatement, statement);
-					}
-					else
-					{
-						prevStatement = statement;
-						mergedStatements.add(statement);
-					}
+					Debug.trace("Batched " + infos.size() + " row updates in " + statements.length + " statements"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 				}
-
-				statements = mergedStatements.toArray(new ISQLStatement[mergedStatements.size()]);
 			}
 			else
 			{
@@ -759,7 +753,7 @@ public class EditRecordList
 				return ISaveConstants.SAVE_FAILED;
 			}
 
-			if (idents.length != infos.size())
+			if (idents.length != statements.length)
 			{
 				Debug.error("Should be of same size!!"); //$NON-NLS-1$
 			}
@@ -779,9 +773,9 @@ public class EditRecordList
 
 				String oldKey = row.getPKHashKey();
 				Record record = rowUpdateInfo.getRecord();
-				if (idents != null && i < idents.length && idents[i] != null)
+				Object retValue = getUpdateResult(idents, statements, statementIndexes, statementRows, i);
+				if (retValue != null)
 				{
-					Object retValue = idents[i];
 					if (retValue instanceof Exception)
 					{
 						log.debug("stopEditing(" + javascriptStop + ") encountered an exception - could be expected and treated by solution code or not", //$NON-NLS-1$//$NON-NLS-2$
@@ -1195,6 +1189,177 @@ public class EditRecordList
 		return true;
 	}
 
+	/**
+	 * Merge the insert statements of the infos per table and statement shape, so a batch of new records is inserted with a few statements.
+	 * An insert is only moved to an earlier statement when it does not refer to the pk of a new row that is inserted by a statement in between,
+	 * it is never moved before an update or delete.
+	 *
+	 * @param statementIndexes filled with the index of the statement per info
+	 * @param statementRows filled with the row in the statement per info
+	 */
+	private List<ISQLStatement> mergeInsertStatements(List<RowUpdateInfo> infos, int[] statementIndexes, int[] statementRows)
+	{
+		List<ISQLStatement> mergedStatements = new ArrayList<>(infos.size());
+		List<Set<Object>> newPksPerStatement = new ArrayList<>(infos.size());
+		Map<String, Integer> lastInsertStatements = new HashMap<>();
+		int batchSize = fsm.config.statementBatchSize();
+
+		for (int i = 0; i < infos.size(); i++)
+		{
+			RowUpdateInfo rowUpdateInfo = infos.get(i);
+			ISQLStatement statement = rowUpdateInfo.getISQLStatement();
+			Row row = rowUpdateInfo.getRow();
+
+			int target = -1;
+			if (statement.getAction() == ISQLActionTypes.INSERT_ACTION)
+			{
+				String key = statement.getServerName() + '.' + statement.getTableName();
+				Integer last = lastInsertStatements.get(key);
+				if (last != null)
+				{
+					ISQLStatement targetStatement = mergedStatements.get(last.intValue());
+					if (targetStatement.getPKs() != null && targetStatement.getPKs().getRowCount() < batchSize &&
+						insertStatementsCanBeMerged(targetStatement, statement) &&
+						!refersToNewPks(row, newPksPerStatement.subList(last.intValue() + 1, newPksPerStatement.size())))
+					{
+						target = last.intValue();
+					}
+				}
+				if (target == -1)
+				{
+					lastInsertStatements.put(key, Integer.valueOf(mergedStatements.size()));
+				}
+			}
+			else
+			{
+				// an update or delete may depend on the inserts before it, later inserts are not merged into those
+				lastInsertStatements.clear();
+			}
+
+			if (target >= 0)
+			{
+				ISQLStatement targetStatement = mergedStatements.get(target);
+				statementIndexes[i] = target;
+				statementRows[i] = targetStatement.getPKs().getRowCount();
+				mergeInsertStatements(targetStatement, statement);
+			}
+			else
+			{
+				statementIndexes[i] = mergedStatements.size();
+				statementRows[i] = 0;
+				mergedStatements.add(statement);
+				newPksPerStatement.add(new HashSet<>());
+			}
+
+			if (!row.existInDB())
+			{
+				Set<Object> newPks = newPksPerStatement.get(statementIndexes[i]);
+				for (Object pk : row.getPK())
+				{
+					if (pk != null) newPks.add(normalizePkValue(pk));
+				}
+			}
+		}
+		return mergedStatements;
+	}
+
+	private static boolean refersToNewPks(Row row, List<Set<Object>> newPksPerStatement)
+	{
+		if (newPksPerStatement.isEmpty())
+		{
+			return false;
+		}
+		Object[] values = row.getRawColumnData();
+		if (values != null)
+		{
+			for (Object value : values)
+			{
+				if (value != null)
+				{
+					Object normalized = normalizePkValue(value);
+					for (Set<Object> newPks : newPksPerStatement)
+					{
+						if (newPks.contains(normalized))
+						{
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	static Object normalizePkValue(Object value)
+	{
+		if (value instanceof UUID)
+		{
+			// same uuids are the same even if not the same object
+			return value.toString();
+		}
+		// the same number can be an Integer in the pk and a Long, BigDecimal or Double in the foreign key
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+		{
+			return Long.valueOf(((Number)value).longValue());
+		}
+		if (value instanceof Double || value instanceof Float)
+		{
+			double d = ((Number)value).doubleValue();
+			if (d == Math.rint(d) && Math.abs(d) < 0x1p63)
+			{
+				return Long.valueOf((long)d);
+			}
+			return Double.isInfinite(d) || Double.isNaN(d) ? value : normalizeDecimal(BigDecimal.valueOf(d));
+		}
+		if (value instanceof BigDecimal)
+		{
+			return normalizeDecimal((BigDecimal)value);
+		}
+		if (value instanceof BigInteger)
+		{
+			return normalizeDecimal(new BigDecimal((BigInteger)value));
+		}
+		return value;
+	}
+
+	private static Object normalizeDecimal(BigDecimal value)
+	{
+		BigDecimal decimal = value.stripTrailingZeros();
+		if (decimal.scale() <= 0 && decimal.toBigInteger().bitLength() < 64)
+		{
+			return Long.valueOf(decimal.longValue());
+		}
+		return decimal;
+	}
+
+	/**
+	 * Get the result of performUpdates for an info, merged statements return either 1 result for all rows or a result per row.
+	 */
+	private static Object getUpdateResult(Object[] idents, ISQLStatement[] statements, int[] statementIndexes, int[] statementRows, int info)
+	{
+		if (idents == null)
+		{
+			return null;
+		}
+		if (statementIndexes == null)
+		{
+			return info < idents.length ? idents[info] : null;
+		}
+		int statementIndex = statementIndexes[info];
+		if (statementIndex >= idents.length)
+		{
+			return null;
+		}
+		Object retValue = idents[statementIndex];
+		IDataSet pks = statements[statementIndex].getPKs();
+		if (retValue instanceof Object[] && pks != null && pks.getRowCount() > 1 && ((Object[])retValue).length == pks.getRowCount())
+		{
+			// merged statements are never requeried, so this is the result per row (like generated keys)
+			return ((Object[])retValue)[statementRows[info]];
+		}
+		return retValue;
+	}
+
 	/**
 	 * Merge the src statement into the target statement.
 	 */
@@ -43,6 +43,7 @@ import java.lang.ref.WeakReference;
 import java.rmi.RemoteException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -56,6 +57,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.mozilla.javascript.BaseFunction;
 import org.mozilla.javascript.Callable;
@@ -166,6 +168,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	protected SQLSheet sheet; //SQL statements to perform on certain actions
 
 	private volatile PksAndRecordsHolder pksAndRecords;
+	private ChunkSizeAdvisor chunkSizeAdvisor;
+	private AtomicReference<PKChunkPrefetch> pkChunkPrefetch = new AtomicReference<>();
 
 	protected QuerySelect creationSqlSelect;
 	private List<TableFilter> foundSetFilters;
@@ -222,6 +226,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			throw new IllegalArgumentException(app.getApplication().getI18NMessage("servoy.foundSet.error.sqlsheet")); //$NON-NLS-1$
 		}
 		pksAndRecords = new PksAndRecordsHolder(this, fsm.config.chunkSize(), fsm.config.optimizedChangeFires());
+		chunkSizeAdvisor = new ChunkSizeAdvisor(fsm.config);
 		relationName = relation_name;
 		this.sheet = sheet;
 
@@ -673,6 +678,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		clear();
 		getFoundSetManager().removeFoundSet(this);
 		disposed = true;
+		PKChunkPrefetch prefetch = pkChunkPrefetch.getAndSet(null);
+		if (prefetch != null) prefetch.cancel();
 		return true;
 	}
 
@@ -2783,6 +2790,18 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	 */
 	protected int queryForMorePKs(PksAndRecordsHolder pksAndRecordsCopy, int originalPKRowcount, int maxResult, boolean fireChanges)
 	{
+		int prefetched = addPrefetchedPKs(pksAndRecordsCopy, fireChanges);
+		if (prefetched >= 0)
+		{
+			PKDataSet pks = pksAndRecordsCopy.getPks();
+			if (pks.hadMoreRows() && (maxResult <= 0 || pks.getRowCount() < maxResult))
+			{
+				// read-ahead did not get enough pks, or all pks are requested
+				return prefetched + queryForMorePKs(pksAndRecordsCopy, pks.getRowCount(), maxResult, fireChanges);
+			}
+			return prefetched;
+		}
+
 		try
 		{
 			String transaction_id = fsm.getTransactionID(sheet);
@@ -2818,20 +2837,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			int offset = 0;
 			if (lastPkHash != null)
 			{
-				for (int i = 0; offset == 0 && i < newpks.getRowCount(); i++)
-				{
-					if (lastPkHash.equals(createPKHashKey(newpks.getRow(i))))
-					{
-						// found the last pk from the previous set
-						if (i != 0)
-						{
-							// out-of-sync
-							Debug.warn("Data has been added in the database since first select of foundSet, new data is ignored"); //$NON-NLS-1$
-						}
-						// ignore PKs before the last pk of previous set, they have been added since last chunk select
-						offset = i + 1;
-					}
-				}
+				offset = getNextChunkOffset(lastPkHash, newpks);
 				if (offset == 0 && startRow > 0)
 				{
 					// not found, reselect from start
@@ -2849,46 +2855,198 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 					}
 				}
 			}
-			if (pks != null)
+			return addMorePKs(pksAndRecordsCopy, originalPKRowcount, startRow, offset, newpks, size, fireChanges);
+		}
+		catch (ServoyException ex)
+		{
+			fsm.getApplication().reportError(fsm.getApplication().getI18NMessage("servoy.foundSet.error.retrievingMoreData"), ex); //$NON-NLS-1$
+			throw new RuntimeException(fsm.getApplication().getI18NMessage("servoy.foundSet.error.retrievingMoreData"), ex); //$NON-NLS-1$
+		}
+		catch (Exception ex)
+		{
+			throw new RuntimeException(fsm.getApplication().getI18NMessage("servoy.foundSet.error.retrievingMoreData"), ex); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Find the index in the next chunk of pks after the last pk of the previous chunk.
+	 *
+	 * @return the index of the first new pk, 0 when the last pk was not found
+	 */
+	private static int getNextChunkOffset(String lastPkHash, IDataSet newpks)
+	{
+		for (int i = 0; i < newpks.getRowCount(); i++)
+		{
+			if (lastPkHash.equals(createPKHashKey(newpks.getRow(i))))
 			{
-				synchronized (pks)
+				// found the last pk from the previous set
+				if (i != 0)
 				{
-					int addIndex = originalPKRowcount;
-					for (int i = offset; i < newpks.getRowCount(); i++)
-					{
-						// check for duplicates
-						Object[] newpk = newpks.getRow(i);
-						if (!pks.hasPKCache() /* only check for duplicates if foundset could not be connected */ || !pks.containsPk(newpk))
-						{
-							pks.setRow(addIndex++, newpk, false);
-							dbIndexLastPk = startRow + 1 + i; // keep index in db of last added pk to correct maxresult in next chunk
-						}
-					}
+					// out-of-sync
+					Debug.warn("Data has been added in the database since first select of foundSet, new data is ignored"); //$NON-NLS-1$
+				}
+				// ignore PKs before the last pk of previous set, they have been added since last chunk select
+				return i + 1;
+			}
+		}
+		return 0;
+	}
 
-					if (!newpks.hadMoreRows())
+	private int addMorePKs(PksAndRecordsHolder pksAndRecordsCopy, int originalPKRowcount, int startRow, int offset, IDataSet newpks, int size,
+		boolean fireChanges)
+	{
+		PKDataSet pks = pksAndRecordsCopy.getPks();
+		int dbIndexLastPk = pksAndRecordsCopy.getDbIndexLastPk();
+		if (pks != null)
+		{
+			synchronized (pks)
+			{
+				int addIndex = originalPKRowcount;
+				for (int i = offset; i < newpks.getRowCount(); i++)
+				{
+					// check for duplicates
+					Object[] newpk = newpks.getRow(i);
+					if (!pks.hasPKCache() /* only check for duplicates if foundset could not be connected */ || !pks.containsPk(newpk))
 					{
-						pks.clearHadMoreRows();
+						pks.setRow(addIndex++, newpk, false);
+						dbIndexLastPk = startRow + 1 + i; // keep index in db of last added pk to correct maxresult in next chunk
 					}
 				}
+
+				if (!newpks.hadMoreRows())
+				{
+					pks.clearHadMoreRows();
+				}
 			}
-			pksAndRecordsCopy.setDbIndexLastPk(dbIndexLastPk);
+		}
+		pksAndRecordsCopy.setDbIndexLastPk(dbIndexLastPk);
 
-			int newSize = getCorrectedSizeForFires();
-			if (fireChanges && newpks.getRowCount() != 0)
+		int newSize = getCorrectedSizeForFires();
+		if (fireChanges && newpks.getRowCount() != 0)
+		{
+			fireFoundSetEvent(size, newSize, FoundSetEvent.CHANGE_INSERT);
+		}
+		return newSize - size;
+	}
+
+	/**
+	 * Start a background query for the next chunk of pks when the accessed row has passed servoy.foundset.pkPrefetch.threshold of the loaded pks.
+	 */
+	private void prefetchPKs(PksAndRecordsHolder pksAndRecordsCopy, int row, int rowCount)
+	{
+		if (!fsm.config.pkPrefetch() || row < rowCount * fsm.config.pkPrefetchThreshold() || findMode || disposed)
+		{
+			return;
+		}
+		if (hasPKPrefetch(pksAndRecordsCopy))
+		{
+			// already loading the next chunk
+			return;
+		}
+		if (fsm.getGlobalTransaction() != null || !hasAccess(IRepository.READ))
+		{
+			// do not use the transaction connection from another thread
+			return;
+		}
+
+		QuerySelect sqlSelect = pksAndRecordsCopy.getQuerySelectForReading();
+		int pkChunkSize = chunkSizeAdvisor.nextPkChunkSize();
+		int maxResult = (((rowCount - 1) / pkChunkSize) + 2) * pkChunkSize;
+		int dbIndexLastPk = pksAndRecordsCopy.getDbIndexLastPk();
+		int startRow = dbIndexLastPk > 0 && rowCount > 0 ? dbIndexLastPk - 1 : rowCount;
+		int correctedMaxResult = dbIndexLastPk > 0 && rowCount > 0 ? (maxResult + dbIndexLastPk - rowCount) : maxResult;
+
+		PKChunkPrefetch prefetch = new PKChunkPrefetch(pksAndRecordsCopy, startRow);
+		PKChunkPrefetch old = pkChunkPrefetch.getAndSet(prefetch);
+		if (old != null) old.cancel();
+		prefetch.setTask(fsm.getApplication().getScheduledExecutor().submit(() -> {
+			long time = System.currentTimeMillis();
+			IDataSet newpks;
+			try
+			{
+				newpks = performQuery(null, sqlSelect, getRowIdentColumnTypes(), startRow, correctedMaxResult, IDataServer.FOUNDSET_LOAD_QUERY);
+			}
+			catch (Exception e)
 			{
-				fireFoundSetEvent(size, newSize, FoundSetEvent.CHANGE_INSERT);
+				prefetch.failed(e);
+				return;
 			}
-			return newSize - size;
+			chunkSizeAdvisor.chunkLoaded(fsm.getApplication(), getDataSource(), true, pkChunkSize, System.currentTimeMillis() - time);
+			if (Debug.tracing())
+			{
+				Debug.trace("Read-ahead for PKs, time: " + (System.currentTimeMillis() - time) + " thread: " + Thread.currentThread().getName() + //$NON-NLS-1$//$NON-NLS-2$
+					" SQL: " + sqlSelect.toString()); //$NON-NLS-1$
+			}
+			// release a client thread that is waiting for the pks before the hand-off, invokeLater is synchronous on session clients
+			prefetch.setPks(newpks);
+			// add the pks on the client thread, so the insert is fired from there
+			fsm.getApplication().invokeLater(() -> {
+				if (newpks != null && pkChunkPrefetch.compareAndSet(prefetch, null))
+				{
+					PksAndRecordsHolder copy;
+					synchronized (pksAndRecords)
+					{
+						copy = pksAndRecords.shallowCopy();
+					}
+					addPrefetchedPKs(copy, prefetch, newpks, true);
+				}
+			});
+		}));
+	}
+
+	private boolean hasPKPrefetch(PksAndRecordsHolder pksAndRecordsCopy)
+	{
+		PKChunkPrefetch current = pkChunkPrefetch.get();
+		return current != null && current.matches(pksAndRecordsCopy);
+	}
+
+	/**
+	 * Add the pks of a read-ahead for the pks in pksAndRecordsCopy, waits for the read-ahead when it is still running.
+	 *
+	 * @return the number of records added, -1 when there was no (valid) read-ahead
+	 */
+	private int addPrefetchedPKs(PksAndRecordsHolder pksAndRecordsCopy, boolean fireChanges)
+	{
+		PKChunkPrefetch prefetch = pkChunkPrefetch.getAndSet(null);
+		if (prefetch == null)
+		{
+			return -1;
 		}
-		catch (ServoyException ex)
+		if (!prefetch.matches(pksAndRecordsCopy) || fsm.getGlobalTransaction() != null)
 		{
-			fsm.getApplication().reportError(fsm.getApplication().getI18NMessage("servoy.foundSet.error.retrievingMoreData"), ex); //$NON-NLS-1$
-			throw new RuntimeException(fsm.getApplication().getI18NMessage("servoy.foundSet.error.retrievingMoreData"), ex); //$NON-NLS-1$
+			// foundset was changed or a transaction was started since the read-ahead was started
+			prefetch.cancel();
+			return -1;
 		}
-		catch (Exception ex)
+		IDataSet newpks = prefetch.getPks();
+		if (newpks == null)
 		{
-			throw new RuntimeException(fsm.getApplication().getI18NMessage("servoy.foundSet.error.retrievingMoreData"), ex); //$NON-NLS-1$
+			return -1;
+		}
+		return addPrefetchedPKs(pksAndRecordsCopy, prefetch, newpks, fireChanges);
+	}
+
+	/**
+	 * Add the pks that were read ahead by prefetch, the prefetch must already be removed from pkChunkPrefetch.
+	 */
+	private int addPrefetchedPKs(PksAndRecordsHolder pksAndRecordsCopy, PKChunkPrefetch prefetch, IDataSet newpks, boolean fireChanges)
+	{
+		if (!prefetch.matches(pksAndRecordsCopy) || fsm.getGlobalTransaction() != null)
+		{
+			return -1;
 		}
+
+		int offset = 0;
+		if (prefetch.getDbIndexLastPk() > 0 && prefetch.getOriginalPKRowcount() > 0)
+		{
+			offset = getNextChunkOffset(createPKHashKey(pksAndRecordsCopy.getPks().getRow(prefetch.getOriginalPKRowcount() - 1)), newpks);
+			if (offset == 0 && prefetch.getStartRow() > 0)
+			{
+				// could not connect, let the normal query handle it
+				return -1;
+			}
+		}
+		return addMorePKs(pksAndRecordsCopy, prefetch.getOriginalPKRowcount(), prefetch.getStartRow(), offset, newpks, getSize(), fireChanges);
 	}
 
 	public List<SortColumn> getLastSortColumns()
@@ -3023,6 +3181,34 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		}
 	}
 
+	/**
+	 * Release the cached records in the given range so they can be GC'ed, they will be created again when asked for.
+	 * Selected, edited and new records are kept.
+	 */
+	public void releaseCachedRecords(int startRow, int endRow)
+	{
+		if (findMode)
+		{
+			// no flushing in find mode
+			return;
+		}
+
+		int[] selectedIndexes = getSelectedIndexes().clone();
+		Arrays.sort(selectedIndexes);
+		synchronized (pksAndRecords)
+		{
+			SafeArrayList<IRecordInternal> cachedRecords = pksAndRecords.getCachedRecords();
+			for (int i = Math.max(0, startRow); i <= endRow && i < cachedRecords.size(); i++)
+			{
+				IRecordInternal record = cachedRecords.get(i);
+				if (record != null && record.existInDataSource() && !record.isEditing() && Arrays.binarySearch(selectedIndexes, i) < 0)
+				{
+					cachedRecords.set(i, null);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Get a state for a certain (cached primary key) row
 	 *
@@ -3030,7 +3216,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	 */
 	public IRecordInternal getRecord(int row)
 	{
-		return getRecord(row, fsm.config.chunkSize());
+		return getRecord(row, chunkSizeAdvisor.getChunkSize());
 	}
 
 	private IRecordInternal getRecord(int row, int sizeHint)
@@ -3053,11 +3239,22 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 
 		if (row >= rowCount - 1)
 		{
-			int hint = ((row / fsm.config.pkChunkSize()) + 2) * fsm.config.pkChunkSize();
+			// the chunk size was already advanced for the query of a pending read-ahead
+			boolean prefetched = hadMoreRows && hasPKPrefetch(pksAndRecordsCopy);
+			int pkChunkSize;
+			if (prefetched) pkChunkSize = chunkSizeAdvisor.getPkChunkSize();
+			else if (hadMoreRows) pkChunkSize = chunkSizeAdvisor.nextPkChunkSize();
+			else pkChunkSize = fsm.config.pkChunkSize();
+			int hint = ((row / pkChunkSize) + 2) * pkChunkSize;
 			int nQueried = 0;
 			if (hadMoreRows)
 			{
+				long time = System.currentTimeMillis();
 				nQueried = queryForMorePKs(pksAndRecordsCopy, rowCount, hint, true);
+				if (!prefetched)
+				{
+					chunkSizeAdvisor.chunkLoaded(fsm.getApplication(), getDataSource(), true, pkChunkSize, System.currentTimeMillis() - time);
+				}
 			}
 
 			String dataSource = getDataSource();
@@ -3091,6 +3288,11 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			}
 		}
 
+		else if (hadMoreRows)
+		{
+			prefetchPKs(pksAndRecordsCopy, row, rowCount);
+		}
+
 		IRecordInternal state = pksAndRecordsCopy.getCachedRecords().get(row);
 		if (state == null && !findMode)
 		{
@@ -3210,8 +3412,9 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	@Override
 	public Object forEach(IRecordCallback callback)
 	{
+		boolean streaming = fsm.config.streamingForEach();
 		FoundSetIterator foundsetIterator = new FoundSetIterator();
-		while (foundsetIterator.hasNext())
+		while (!(streaming && foundsetIterator.isAtEndOfLoadedPKs()) && foundsetIterator.hasNext())
 		{
 			IRecord currentRecord = foundsetIterator.next();
 			Object returnValue = callback.handleRecord(currentRecord, foundsetIterator.currentIndex, this);
@@ -3220,6 +3423,73 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 				return returnValue;
 			}
 		}
+		if (streaming && foundsetIterator.isAtEndOfLoadedPKs())
+		{
+			return forEachStreamed(callback, foundsetIterator.currentIndex + 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Iterate over the records that are not loaded in the foundset yet, the pks are read with a cursor and are not added to the foundset,
+	 * so the foundset and the iteration do not keep all pks and records in memory.
+	 * <p>
+	 * The callback gets records of this foundset that are not in it, getRecordIndex() returns -1 for them. Changes to such a record are saved with
+	 * its row, the foundset only shows them when the record is loaded in it.
+	 */
+	private Object forEachStreamed(IRecordCallback callback, int startIndex)
+	{
+		PksAndRecordsHolder holder = getPksAndRecords();
+		PKDataSet pks = holder.getPks();
+		QuerySelect sqlSelect = holder.getQuerySelectForReading();
+		int dbIndexLastPk = holder.getDbIndexLastPk();
+		int startRow = dbIndexLastPk > 0 ? dbIndexLastPk : pks.getRowCount();
+		try (QueryCursor cursor = new QueryCursor((start, rowsToRetrieve) -> {
+			try
+			{
+				return performQuery(fsm.getTransactionID(sheet), sqlSelect, getRowIdentColumnTypes(), start, rowsToRetrieve, IDataServer.FOUNDSET_LOAD_QUERY);
+			}
+			catch (RemoteException e)
+			{
+				throw new RepositoryException(e);
+			}
+		}, startRow, fsm.config.pkChunkSize(), -1))
+		{
+			RowManager rowManager = fsm.getRowManager(getDataSource());
+			int index = startIndex;
+			List<Object[]> pkRows;
+			while (!(pkRows = cursor.nextRows()).isEmpty())
+			{
+				if (getPksAndRecords().getPks() != pks)
+				{
+					// pks set has changed, a foundset operation (like sort) occurred, cannot iterate anymore
+					throw new RuntimeException(fsm.getApplication().getI18NMessage("servoy.foundSet.error.invalidIteration")); //$NON-NLS-1$
+				}
+				IDataSet pkSet = new BufferedDataSet(null, new ArrayList<>(pkRows));
+				int r = 0;
+				while (r < pkSet.getRowCount())
+				{
+					List<Row> rows = rowManager.getRows(pkSet, r, pkSet.getRowCount() - r, false);
+					for (Row row : rows)
+					{
+						// skip pks that were already loaded in the foundset (moved in db while iterating)
+						if (row != null && !pks.containsPk(row.getPK()))
+						{
+							Object returnValue = callback.handleRecord(new Record(this, row), index++, this);
+							if (returnValue != null && returnValue != Undefined.instance)
+							{
+								return returnValue;
+							}
+						}
+					}
+					r += Math.max(1, rows.size());
+				}
+			}
+		}
+		catch (ServoyException e)
+		{
+			throw new RuntimeException(e);
+		}
 		return null;
 	}
 
@@ -4038,9 +4308,10 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	// is already synched by caller around the PksAndRecordsHolder instance
 	private Record createRecord(int row, int sz, IDataSet pks, SafeArrayList<IRecordInternal> cachedRecords)
 	{
-		int a_sizeHint = (sz > fsm.config.pkChunkSize()) ? fsm.config.pkChunkSize() : sz; //safety, SQL in limit
+		boolean sequential = cachedRecords.get(row - 1) != null || cachedRecords.get(row + 1) != null;
+		int a_sizeHint = Math.min(chunkSizeAdvisor.nextChunkSize(sz, sequential), fsm.config.pkChunkSize()); //safety, SQL in limit
 
-		if (Math.abs(row - lastRecordCreatedIndex) > 30 && cachedRecords.get(row - 1) == null && cachedRecords.get(row + 1) == null)
+		if (Math.abs(row - lastRecordCreatedIndex) > 30 && !sequential)
 		{
 			synchronized (pksAndRecords)
 			{
@@ -4059,11 +4330,11 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 				{
 					if (cachedRecords.get(row + 1) != null)
 					{
-						startRow = row - fsm.config.chunkSize();
+						startRow = row - chunkSizeAdvisor.getChunkSize();
 					}
 					else
 					{
-						startRow = row - fsm.config.chunkSize() / 2;
+						startRow = row - chunkSizeAdvisor.getChunkSize() / 2;
 					}
 					startRow = Math.max(startRow, 0);
 				}
@@ -4073,7 +4344,9 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 				sizeHint = ((cachedRecords.get(row + 1) != null || pks.getRowCount() == 1) ? 1 : a_sizeHint);
 			}
 			int oldSize = pks.getRowCount();
+			long time = System.currentTimeMillis();
 			List<Row> rows = rowManager.getRows(pks, startRow, sizeHint, false);
+			chunkSizeAdvisor.chunkLoaded(fsm.getApplication(), getDataSource(), false, sizeHint, System.currentTimeMillis() - time);
 			//construct States
 			for (int r = rows.size(); --r >= 0;)
 			{
@@ -4150,7 +4423,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	// caller already synced on PksAndRecordsHolder
 	private void removeRecords(int row, boolean breakOnNull, SafeArrayList<IRecordInternal> cachedRecords)
 	{
-		int cacheSize = fsm.config.chunkSize() * 3;
+		int cacheSize = Math.max(fsm.config.chunkSize(), chunkSizeAdvisor.getChunkSize()) * 3;
 		int selected = getSelectedIndex();
 		if (row > cacheSize)
 		{
@@ -6170,7 +6443,19 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			{
 				end = index;
 			}
-			dataproviders = entries.get(record);
+			// the event covers all these records, so it must mention the changed dataproviders of each of them
+			List<String> recordDataproviders = entries.get(record);
+			if (dataproviders == null)
+			{
+				dataproviders = new ArrayList<String>(recordDataproviders);
+			}
+			else
+			{
+				for (String dataprovider : recordDataproviders)
+				{
+					if (!dataproviders.contains(dataprovider)) dataproviders.add(dataprovider);
+				}
+			}
 		}
 		if (start != Integer.MAX_VALUE && end != -1)
 		{
@@ -6178,6 +6463,27 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		}
 	}
 
+	/**
+	 * The dataproviders that were changed in the row of an update event, so that listeners only have to update those.
+	 * Calculations are included as they could depend on the changed columns.
+	 *
+	 * @return the changed dataproviders or null if not known
+	 */
+	private List<String> getChangedDataProviders(RowEvent e)
+	{
+		Object[] changedColumnNames = e.getChangedColumnNames();
+		if (changedColumnNames == null || changedColumnNames.length == 0) return null;
+
+		List<String> dataproviders = new ArrayList<String>(changedColumnNames.length);
+		for (Object changedColumnName : changedColumnNames)
+		{
+			if (!(changedColumnName instanceof String)) return null;
+			dataproviders.add((String)changedColumnName);
+		}
+		dataproviders.addAll(sheet.getAllCalculationNames());
+		return dataproviders;
+	}
+
 	private boolean isInNotify = false;
 
 	public void notifyChange(RowEvent e) //this method is only called if I'm not the source of the event
@@ -6262,7 +6568,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 									if (e.getType() == RowEvent.UPDATE)
 									{
 										clearAggregates();
-										fireFoundSetEvent(i, i, FoundSetEvent.CHANGE_UPDATE);
+										fireFoundSetEvent(i, i, FoundSetEvent.CHANGE_UPDATE, getChangedDataProviders(e));
 									}
 									else if (e.getType() == RowEvent.DELETE)
 									{
@@ -7061,6 +7367,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	{
 		FoundSet obj = (FoundSet)super.clone();
 		obj.pksAndRecords = new PksAndRecordsHolder(obj, fsm.config.chunkSize(), fsm.config.optimizedChangeFires());
+		obj.chunkSizeAdvisor = new ChunkSizeAdvisor(fsm.config);
+		obj.pkChunkPrefetch = new AtomicReference<>();
 		synchronized (pksAndRecords)
 		{
 			obj.pksAndRecords.setPksAndQuery(new BufferedDataSet(pksAndRecords.getPks()), pksAndRecords.getDbIndexLastPk(),
@@ -7850,6 +8158,15 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			return nextRecord;
 		}
 
+		/**
+		 * All loaded pks are iterated and the foundset has more pks in the db.
+		 */
+		boolean isAtEndOfLoadedPKs()
+		{
+			PKDataSet loadedPks = getPksAndRecords().getPks();
+			return currentRecord == null && loadedPks != null && loadedPks.hadMoreRows() && currentIndex + 1 >= loadedPks.getRowCount();
+		}
+
 		private boolean listContainsArray(List<Object[]> list, Object[] value)
 		{
 			if (list != null)
@@ -38,6 +38,7 @@ import static java.lang.Boolean.parseBoolean;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
@@ -49,8 +50,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -130,6 +133,7 @@ import com.servoy.j2db.querybuilder.impl.QBFactory;
 import com.servoy.j2db.querybuilder.impl.QBSelect;
 import com.servoy.j2db.scripting.GlobalScope;
 import com.servoy.j2db.scripting.IExecutingEnviroment;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
 import com.servoy.j2db.util.DataSourceUtils;
 import com.servoy.j2db.util.DatabaseUtils;
 import com.servoy.j2db.util.Debug;
@@ -161,6 +165,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 	private ConcurrentMap<Pair<String, String>, IFoundSetInternal> namedFoundSets;
 	private WeakReference<IFoundSetInternal> noTableFoundSet;
 	private Map<String, RowManager> rowManagers; //dataSource -> RowManager... 1 per table
+	private Map<String, IRowCache> serverRowCaches; //serverName -> row cache shared by the RowManagers of that server
 	private Map<ITable, CopyOnWriteArrayList<ITableChangeListener>> tableListeners; //table -> ArrayList(tableListeners)
 	protected SQLGenerator sqlGenerator;
 	private GlobalTransaction globalTransaction;
@@ -190,6 +195,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 	{
 		application = app;
 		this.config = config;
+		this.disableRelatedSiblingsPrefetch = !config.relatedSiblingsPrefetch();
 		initMembers();
 		editRecordList = new EditRecordList(this);
 		foundsetfactory = factory;
@@ -282,6 +288,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 
 	public void flushCachedDatabaseData(String dataSource)
 	{
+		ValueListCache.invalidate(application, dataSource);
 		Runnable action = createFlushAction(dataSource);
 		action.run();
 	}
@@ -622,24 +629,16 @@ public class FoundSetManager implements IFoundSetManagerInternal
 					int currIndex = parent.getRecordIndex(state);
 					if (!disableRelatedSiblingsPrefetch && currIndex >= 0 && parent instanceof FoundSet)
 					{
-						int relatedChunkSize = config.chunkSize() / 3;
+						int relatedChunkSize = config.relatedSiblingsPrefetchSize();
 						Object[] siblingRecords = ((FoundSet)parent).getPksAndRecords().getCachedRecords().toArray(); // take a snapshot of cachedRecords
+						// records after the current one first (scrolling down), then the ones before it
 						for (int s = currIndex + 1; s < siblingRecords.length && toFetch.size() < relatedChunkSize; s++)
 						{
-							IRecordInternal sibling = (IRecordInternal)siblingRecords[s];
-							if (sibling != null)
-							{
-								RelatedHashedArgumentsWithState extra = calculateFKHash(sibling, relation, true);
-								if (extra != null && !rfs.containsKey(extra.hashedArguments.hash) /* already cached */)
-								{
-									String extraLockString = relationName + extra.hashedArguments.hash;
-									if (!locks.contains(extraLockString))
-									{
-										locks.add(extraLockString);
-										toFetch.add(extra);
-									}
-								}
-							}
+							addSiblingToFetch((IRecordInternal)siblingRecords[s], relation, rfs, toFetch);
+						}
+						for (int s = Math.min(currIndex, siblingRecords.length) - 1; s >= 0 && toFetch.size() < relatedChunkSize; s--)
+						{
+							addSiblingToFetch((IRecordInternal)siblingRecords[s], relation, rfs, toFetch);
 						}
 					}
 				}
@@ -716,6 +715,29 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		return retval;
 	}
 
+	/**
+	 * Add the related arguments of a sibling record to the list of related foundsets to fetch when not cached or being fetched already.
+	 * Caller must synchronize on locks.
+	 */
+	private void addSiblingToFetch(IRecordInternal sibling, Relation relation, ConcurrentMap<String, RelatedFoundSet> rfs,
+		List<RelatedHashedArgumentsWithState> toFetch) throws RepositoryException
+	{
+		if (sibling == null)
+		{
+			return;
+		}
+		RelatedHashedArgumentsWithState extra = calculateFKHash(sibling, relation, true);
+		if (extra != null && !rfs.containsKey(extra.hashedArguments.hash) /* already cached */)
+		{
+			String extraLockString = relation.getName() + extra.hashedArguments.hash;
+			if (!locks.contains(extraLockString))
+			{
+				locks.add(extraLockString);
+				toFetch.add(extra);
+			}
+		}
+	}
+
 	private RelatedFoundSet getCachedRelatedFoundset(String relationName, RelatedHashedArgumentsWithState relatedArguments)
 	{
 		ConcurrentMap<String, RelatedFoundSet> rfsCache = getCachedSubStates().get(relationName);
@@ -908,6 +930,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		{
 			rm.dispose();
 		}
+		PerformanceStatistics.unregister(getRowCacheStatisticsName());
 		initMembers();
 		sqlGenerator = null;
 		scopesScopeProvider = null;
@@ -925,6 +948,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		noTableFoundSet = null;
 
 		rowManagers = new ConcurrentHashMap<>(64);
+		serverRowCaches = new ConcurrentHashMap<>(8);
 		tableListeners = new ConcurrentHashMap<>(16);
 		tableFilterParams = new ConcurrentHashMap<String, List<TableFilter>>();
 
@@ -1016,14 +1040,73 @@ public class FoundSetManager implements IFoundSetManagerInternal
 			{
 				// first time this client uses this table
 				getDataServer().addClientAsTableUser(application.getClientID(), t.getServerName(), t.getName());
-				rm = new RowManager(this, getSQLGenerator().getCachedTableSQLSheet(dataSource));
+				rm = new RowManager(this, getSQLGenerator().getCachedTableSQLSheet(dataSource), getRowCache(dataSource, t.getServerName()));
 				rowManagers.put(dataSource, rm);
+				PerformanceStatistics.register(getRowCacheStatisticsName(), this::getRowCacheStatistics);
 			}
 			return rm;
 		}
 		return null;
 	}
 
+	private IRowCache getRowCache(String dataSource, String serverName)
+	{
+		if (config.rowCachePerServer())
+		{
+			return serverRowCaches.computeIfAbsent(serverName, this::createRowCache);
+		}
+		return createRowCache(dataSource);
+	}
+
+	private IRowCache createRowCache(String key)
+	{
+		long maxBytes = config.rowCacheMaxBytes(key);
+		long maxRows = config.rowCacheMaxRows(key);
+		if (maxBytes > 0 || maxRows > 0)
+		{
+			return new BoundedRowCache(key, maxRows, maxBytes);
+		}
+		return new SoftRowCache(key);
+	}
+
+	/**
+	 * Get the row caches with their hit/miss/eviction statistics, keyed on datasource.
+	 */
+	public Map<String, IRowCache> getRowCaches()
+	{
+		Map<String, IRowCache> rowCaches = new HashMap<>();
+		rowManagers.forEach((dataSource, rm) -> rowCaches.put(dataSource, rm.getRowCache()));
+		return rowCaches;
+	}
+
+	private String getRowCacheStatisticsName()
+	{
+		return "row caches of client " + application.getClientID(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Totals of the row caches of this client followed by the caches with the most misses, per-server caches are shared by row managers and counted once.
+	 */
+	@SuppressWarnings("nls")
+	private String getRowCacheStatistics()
+	{
+		Set<IRowCache> caches = Collections.newSetFromMap(new IdentityHashMap<>());
+		caches.addAll(getRowCaches().values());
+		long rows = 0, hits = 0, misses = 0, evictions = 0;
+		for (IRowCache cache : caches)
+		{
+			rows += Math.max(0, cache.getCachedRowCount());
+			hits += cache.getHitCount();
+			misses += cache.getMissCount();
+			evictions += cache.getEvictionCount();
+		}
+		return "caches=" + caches.size() + ", rows=" + rows + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + caches.stream()
+			.sorted(Comparator.comparingLong(IRowCache::getMissCount).reversed())
+			.limit(5)
+			.map(Object::toString)
+			.collect(joining(", ", " [", "]"));
+	}
+
 	ITable getTable(IFoundSetListener l)
 	{
 		String dataSource = l.getDataSource();
@@ -2543,7 +2626,30 @@ public class FoundSetManager implements IFoundSetManagerInternal
 			Debug.trace(
 				"Custom query, time: " + (System.currentTimeMillis() - time) + " thread: " + Thread.currentThread().getName() + " SQL: " + sqlSelect); //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
 		}
-		return set;
+		// large results are kept per column to save memory
+		return ColumnarDataSet.compactLarge(set, config.columnarDataSetMinRows());
+	}
+
+	/**
+	 * Open a cursor over a custom query, the rows are read in pages of fetchSize rows when the cursor is advanced.
+	 */
+	public QueryCursor openQueryCursor(String serverName, ISQLSelect sqlSelect, boolean includeFilters, int fetchSize, int maxNumberOfRowsToRetrieve)
+		throws ServoyException
+	{
+		IDataServer ds = application.getDataServer();
+		String transaction_id = getTransactionID(serverName);
+		ArrayList<TableFilter> filters = includeFilters ? getTableFilterParams(serverName, sqlSelect) : null;
+		String clientID = application.getClientID();
+		return new QueryCursor((startRow, rowsToRetrieve) -> {
+			long time = System.currentTimeMillis();
+			IDataSet set = ds.performCustomQuery(clientID, serverName, "<user_query>", transaction_id, sqlSelect, filters, startRow, rowsToRetrieve); //$NON-NLS-1$
+			if (Debug.tracing())
+			{
+				Debug.trace("Custom query cursor, start row: " + startRow + ", time: " + (System.currentTimeMillis() - time) + " thread: " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					Thread.currentThread().getName() + " SQL: " + sqlSelect); //$NON-NLS-1$
+			}
+			return set;
+		}, 0, fetchSize <= 0 ? config.pkChunkSize() : fetchSize, maxNumberOfRowsToRetrieve);
 	}
 
 	public String createDataSourceFromQuery(String name, String serverName, ISQLSelect sqlSelect, boolean useTableFilters, int maxNumberOfRowsToRetrieve,
@@ -3002,7 +3108,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		this.alwaysFollowPkSelection = alwaysFollowPkSelection;
 	}
 
-	private boolean disableRelatedSiblingsPrefetch = true;
+	private boolean disableRelatedSiblingsPrefetch;
 
 	public boolean isDisableRelatedSiblingsPrefetch()
 	{
@@ -3703,6 +3809,18 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		return getDataSetByQuery(serverName, select.build(), useTableFilters, max_returned_rows);
 	}
 
+	public QueryCursor openQueryCursor(IQueryBuilder query, boolean useTableFilters, int fetchSize, int max_returned_rows) throws ServoyException
+	{
+		QBSelect select = (QBSelect)query;
+
+		String serverName = getDataSourceServerName(select.getDataSource());
+
+		if (serverName == null)
+			throw new RuntimeException(new ServoyException(ServoyException.InternalCodes.SERVER_NOT_FOUND, new Object[] { select.getDataSource() }));
+
+		return openQueryCursor(serverName, select.build(), useTableFilters, fetchSize, max_returned_rows);
+	}
+
 	private static boolean compareColumnTypes(List<ColumnType> types1, List<ColumnType> types2)
 	{
 		if (types1 == types2) return true;
@@ -18,7 +18,9 @@
 package com.servoy.j2db.dataprocessing;
 
 import static com.servoy.j2db.util.Utils.getAsBoolean;
+import static com.servoy.j2db.util.Utils.getAsDouble;
 import static com.servoy.j2db.util.Utils.getAsInteger;
+import static com.servoy.j2db.util.Utils.getAsLong;
 
 import java.util.Properties;
 
@@ -31,28 +33,58 @@ public class FoundSetManagerConfig
 	private final int pkChunkSize;
 	private final int chunkSize;
 	private final int initialRelatedChunkSize;
+	private final boolean adaptiveChunkSize;
+	private final int maxPkChunkSize;
+	private final int maxChunkSize;
+	private final long adaptiveChunkSizeWindow;
+	private final boolean pkPrefetch;
+	private final boolean relatedSiblingsPrefetch;
+	private final int columnarDataSetMinRows;
+	private final int relatedSiblingsPrefetchSize;
+	private final double pkPrefetchThreshold;
+	private final boolean streamingForEach;
 	private final boolean loadRelatedRecordsIfParentIsNew;
 	private final boolean statementBatching;
+	private final int statementBatchSize;
 	private final boolean disableInsertsReorder;
 	private final boolean verifyPKDatasetAgainstTableFilters;
 	private final boolean optimizedNotifyChange;
 	private final boolean optimizedChangeFires;
 	private final boolean uninitializedFoundsetWhenFiltersAreAdded;
 	private final boolean setRelationNameComment;
+	private final long rowCacheMaxRows;
+	private final long rowCacheMaxBytes;
+	private final boolean rowCachePerServer;
+	private final Properties settings;
 
 	public FoundSetManagerConfig(Properties settings)
 	{
+		this.settings = settings;
 		pkChunkSize = getAsInteger(settings.getProperty("servoy.foundset.config.pkChunkSize", Integer.toString(200)));// primarykeys to be get in one roundtrip
 		chunkSize = getAsInteger(settings.getProperty("servoy.foundset.chunkSize", Integer.toString(30)));// records to be get in one roundtrip
 		initialRelatedChunkSize = getAsInteger(settings.getProperty("servoy.foundset.initialRelatedChunkSize", Integer.toString(chunkSize * 2))); // initial related records to get in one roundtrip
+		adaptiveChunkSize = getAsBoolean(settings.getProperty("servoy.foundset.adaptiveChunkSize", "false")); // grow the chunk sizes of a foundset while it is scrolled through sequentially
+		maxPkChunkSize = Math.max(pkChunkSize, getAsInteger(settings.getProperty("servoy.foundset.config.maxPkChunkSize", Integer.toString(pkChunkSize * 25)))); // max primarykeys to be get in one roundtrip when adaptive
+		maxChunkSize = Math.min(pkChunkSize, Math.max(chunkSize, getAsInteger(settings.getProperty("servoy.foundset.maxChunkSize", Integer.toString(pkChunkSize))))); // max records to be get in one roundtrip when adaptive, limited by the pk chunk size (sql in limit)
+		adaptiveChunkSizeWindow = getAsLong(settings.getProperty("servoy.foundset.adaptiveChunkSize.window", "2000")); // ms between chunk loads to count as continuous scrolling
+		pkPrefetch = getAsBoolean(settings.getProperty("servoy.foundset.pkPrefetch", "false")); // read-ahead the next chunk of pks on a background thread
+		pkPrefetchThreshold = getAsDouble(settings.getProperty("servoy.foundset.pkPrefetch.threshold", "0.75")); // fraction of the loaded pks that must be passed to start the read-ahead
+		streamingForEach = getAsBoolean(settings.getProperty("servoy.foundset.forEach.streaming", "false")); // forEach streams the pks that are not loaded yet instead of loading them all in the foundset
+		relatedSiblingsPrefetch = getAsBoolean(settings.getProperty("servoy.foundset.relatedSiblingsPrefetch", "false")); // fetch related foundsets of sibling records together with the requested one
+		relatedSiblingsPrefetchSize = Math.min(pkChunkSize, getAsInteger(settings.getProperty("servoy.foundset.relatedSiblingsPrefetch.size", Integer.toString(chunkSize)))); // max related foundsets to fetch together, limited by the pk chunk size (sql in limit)
+		columnarDataSetMinRows = getAsInteger(settings.getProperty("servoy.dataset.columnar.minRows", "0")); // query results with at least this many rows are stored per column, 0 (default) to disable; rows of such results are copies, changes must be stored with setRow
 		loadRelatedRecordsIfParentIsNew = getAsBoolean(settings.getProperty("servoy.foundset.loadRelatedRecordsIfParentIsNew", "false")); // force-load of possible existing records in DB when initializing a related foundset when the parent is new and the relations is restricted on the rowIdentifier columns of the parent record
 		disableInsertsReorder = getAsBoolean(settings.getProperty("servoy.disable.record.insert.reorder", "false"));
-		statementBatching = getAsBoolean(settings.getProperty("servoy.foundset.statementBatching", "false")); // whether to batch inserts/updates for rows together in the same SQLStatement where possible
+		statementBatching = getAsBoolean(settings.getProperty("servoy.foundset.statementBatching", "true")); // whether to batch the inserts of new rows of the same table together in one SQLStatement where possible, updates and deletes are not batched
+		statementBatchSize = Math.max(1, getAsInteger(settings.getProperty("servoy.foundset.statementBatching.maxSize", "200"))); // max rows batched together in one SQLStatement
 		verifyPKDatasetAgainstTableFilters = getAsBoolean(settings.getProperty("servoy.foundset.verifyPKDatasetAgainstTableFilters", "true")); // when false we do not trigger a query with fs.loadRecords(pk) icw table filters
 		optimizedNotifyChange = getAsBoolean(settings.getProperty("servoy.foundset.optimizedNotifyChange", "true")); // whether to use new optimized mechanism to call notifyChange on IRowListeners
 		optimizedChangeFires = getAsBoolean(settings.getProperty("servoy.foundset.optimizedChangeFires", "true")); // whether to use new optimized mechanism to call notifyChange on IRowListeners
 		uninitializedFoundsetWhenFiltersAreAdded = getAsBoolean(settings.getProperty("servoy.foundset.unitializeWithFilter", "false")); // whether to set initialized to false for a foundset when fs filter params are added
 		setRelationNameComment = getAsBoolean(settings.getProperty("servoy.client.sql.setRelationComment", "true"));
+		rowCacheMaxRows = getAsLong(settings.getProperty("servoy.foundset.rowCache.maxRows", "0")); // when set, rows are kept in a bounded lru cache instead of soft references
+		rowCacheMaxBytes = getAsLong(settings.getProperty("servoy.foundset.rowCache.maxBytes", "0")); // when set, the bounded row cache budget is in estimated bytes instead of rows
+		rowCachePerServer = "server".equals(settings.getProperty("servoy.foundset.rowCache.scope", "datasource")); // budget per datasource or shared by all datasources of a server
 	}
 
 	public int pkChunkSize()
@@ -70,6 +102,56 @@ public class FoundSetManagerConfig
 		return initialRelatedChunkSize;
 	}
 
+	public boolean adaptiveChunkSize()
+	{
+		return adaptiveChunkSize;
+	}
+
+	public int maxPkChunkSize()
+	{
+		return maxPkChunkSize;
+	}
+
+	public int maxChunkSize()
+	{
+		return maxChunkSize;
+	}
+
+	public long adaptiveChunkSizeWindow()
+	{
+		return adaptiveChunkSizeWindow;
+	}
+
+	public boolean pkPrefetch()
+	{
+		return pkPrefetch;
+	}
+
+	public double pkPrefetchThreshold()
+	{
+		return pkPrefetchThreshold;
+	}
+
+	public boolean streamingForEach()
+	{
+		return streamingForEach;
+	}
+
+	public boolean relatedSiblingsPrefetch()
+	{
+		return relatedSiblingsPrefetch;
+	}
+
+	public int relatedSiblingsPrefetchSize()
+	{
+		return relatedSiblingsPrefetchSize;
+	}
+
+	public int columnarDataSetMinRows()
+	{
+		return columnarDataSetMinRows;
+	}
+
 	public boolean loadRelatedRecordsIfParentIsNew()
 	{
 		return loadRelatedRecordsIfParentIsNew;
@@ -80,6 +162,11 @@ public class FoundSetManagerConfig
 		return statementBatching;
 	}
 
+	public int statementBatchSize()
+	{
+		return statementBatchSize;
+	}
+
 	public boolean disableInsertsReorder()
 	{
 		return disableInsertsReorder;
@@ -109,4 +196,27 @@ public class FoundSetManagerConfig
 	{
 		return setRelationNameComment;
 	}
+
+	/**
+	 * Max number of rows in the row cache for a datasource or server, 0 when rows are kept in soft references.
+	 * Can be overruled per datasource or server name with servoy.foundset.rowCache.maxRows.&lt;datasource or server&gt;.
+	 */
+	public long rowCacheMaxRows(String key)
+	{
+		return getAsLong(settings.getProperty("servoy.foundset.rowCache.maxRows." + key, Long.toString(rowCacheMaxRows)));
+	}
+
+	/**
+	 * Max estimated bytes of the rows in the row cache for a datasource or server, 0 when the budget is not in bytes.
+	 * Can be overruled per datasource or server name with servoy.foundset.rowCache.maxBytes.&lt;datasource or server&gt;.
+	 */
+	public long rowCacheMaxBytes(String key)
+	{
+		return getAsLong(settings.getProperty("servoy.foundset.rowCache.maxBytes." + key, Long.toString(rowCacheMaxBytes)));
+	}
+
+	public boolean rowCachePerServer()
+	{
+		return rowCachePerServer;
+	}
 }
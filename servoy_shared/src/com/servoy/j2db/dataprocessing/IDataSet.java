@@ -47,6 +47,19 @@ public interface IDataSet extends Serializable, Cloneable
 	 */
 	public Object[] getRow(int row);
 
+	/**
+	 * Get the value of one cell, without creating a row array when the data set does not store its data per row.
+	 *
+	 * @param row the row index
+	 * @param column the column index
+	 * @return the value, null when the row or column does not exist
+	 */
+	public default Object getValue(int row, int column)
+	{
+		Object[] array = getRow(row);
+		return array == null || column < 0 || column >= array.length ? null : array[column];
+	}
+
 	/**
 	 * Remove a row from memory (not in db).
 	 *
@@ -39,6 +39,8 @@ public interface IFoundSetScriptMethods extends IFoundSetInternal
 	 * If no value is returned all records of the foundset will be traversed. Foundset modifications( like sort, omit...) cannot be performed in the callback function.
 	 * If foundset is modified an exception will be thrown. This exception will also happen if a refresh happens because of a rollback call for records on this datasource when iterating.
 	 * When an exception is thrown from the callback function, the iteration over the foundset will be stopped.
+	 * When the servoy.foundset.forEach.streaming setting is enabled, the records after the loaded ones are read in chunks and are not added to the foundset,
+	 * such a record is not part of the foundset (its index in the foundset is -1).
 	 *
 	 * @sample
 	 *  foundset.forEach(function(record,recordIndex,foundset) {
@@ -0,0 +1,73 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.lang.ref.ReferenceQueue;
+
+import com.servoy.j2db.util.IReferenceWithData;
+
+/**
+ * Cache policy for the rows held by a {@link RowManager}.
+ * <p>
+ * The row manager keeps its rows in a pk-hash map of references with calculation dependency data, the row cache decides what kind of reference is used
+ * and how long rows stay strongly reachable. Rows that are no longer reachable are cleaned up by the row manager like rows of collected soft references,
+ * the calculation dependency data of those entries is kept until the row manager decides they can be removed.
+ *
+ * @since 2024.09
+ */
+public interface IRowCache
+{
+	/**
+	 * Create the reference for a row that is put in the pk-hash map of the row manager.
+	 */
+	<D> IReferenceWithData<Row, D> createReference(Row row, ReferenceQueue< ? super Row> queue);
+
+	/**
+	 * A row was found in the pk-hash map of the row manager.
+	 */
+	void rowHit(Row row);
+
+	/**
+	 * A row was not found in the pk-hash map of the row manager (not loaded or already collected).
+	 */
+	void rowMiss();
+
+	/**
+	 * A reference was found cleared by the garbage collector.
+	 */
+	void rowCollected();
+
+	/**
+	 * The row was removed from the row manager, it does not have to be kept anymore.
+	 */
+	void invalidate(Row row);
+
+	long getHitCount();
+
+	long getMissCount();
+
+	/**
+	 * Number of rows that were dropped from the cache because of the budget or by the garbage collector.
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Number of rows that are strongly held by this cache, -1 when the cache does not hold rows itself.
+	 */
+	long getCachedRowCount();
+}
@@ -0,0 +1,365 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.servoy.j2db.dataprocessing.ColumnarTable.UnsupportedQueryException;
+import com.servoy.j2db.persistence.Column;
+import com.servoy.j2db.persistence.IServer;
+import com.servoy.j2db.persistence.ITable;
+import com.servoy.j2db.persistence.RepositoryException;
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.query.ISQLSelect;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.QueryTable;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+import com.servoy.j2db.util.xmlxport.ColumnInfoDef;
+
+/**
+ * Executes selects on in-memory datasources in the client on a column oriented copy of the table instead of sending them to the in-memory database of the
+ * server.
+ * The engine is opt-in with the servoy.inmem.columnarEngine setting, tables with more than servoy.inmem.columnarEngine.maxRows rows (default 100000) are
+ * not copied.
+ * <p>
+ * The in-memory database stays the owner of the data, the copy of a table is loaded with one query on first use and dropped when the table is changed.
+ * Selects that cannot be executed on the copy (joins, group by, custom sql, table filters, selects in a transaction) go to the database.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class InMemoryTableEngine
+{
+	private static final Statistics STATISTICS = new Statistics();
+
+	private InMemoryTableEngine()
+	{
+	}
+
+	public static boolean isEnabled()
+	{
+		return Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.inmem.columnarEngine", "false"));
+	}
+
+	private static int getMaxRows()
+	{
+		return Utils.getAsInteger(Settings.getInstance().getProperty("servoy.inmem.columnarEngine.maxRows", "100000"));
+	}
+
+	/**
+	 * Wrap the data server of a client so that its selects on in-memory tables are executed on the columnar copies.
+	 */
+	public static IDataServer createDataServer(IDataServer dataServer)
+	{
+		if (dataServer == null || !isEnabled()) return dataServer;
+		PerformanceStatistics.register("in-memory columnar engine", InMemoryTableEngine::getStatistics);
+		return new ColumnarDataServer(dataServer, getMaxRows());
+	}
+
+	/**
+	 * @return the number of selects executed in memory, sent to the database and the number of table loads of all clients
+	 */
+	public static Statistics getStatistics()
+	{
+		return STATISTICS;
+	}
+
+	private static String getKey(String tableName)
+	{
+		return tableName == null ? null : tableName.toLowerCase(Locale.ROOT);
+	}
+
+	private static final class ColumnarDataServer extends AbstractDelegateDataServer
+	{
+		private final ConcurrentMap<String, TableState> tables = new ConcurrentHashMap<>();
+		private final int maxRows;
+
+		private ColumnarDataServer(IDataServer dataServer, int maxRows)
+		{
+			super(dataServer);
+			this.maxRows = maxRows;
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve) throws ServoyException
+		{
+			IDataSet result = select(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve);
+			return result != null ? result
+				: super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve);
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type) throws ServoyException
+		{
+			IDataSet result = select(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve);
+			return result != null ? result
+				: super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+					type);
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type, ITrackingSQLStatement trackingInfo)
+			throws ServoyException
+		{
+			IDataSet result = trackingInfo != null ? null
+				: select(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve);
+			return result != null ? result
+				: super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+					type, trackingInfo);
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, boolean updateIdleTimestamp) throws ServoyException
+		{
+			IDataSet result = select(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve);
+			return result != null ? result
+				: super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+					updateIdleTimestamp);
+		}
+
+		@Override
+		public IDataSet[] performQuery(String client_id, String server_name, String transaction_id, QueryData[] array) throws ServoyException
+		{
+			if (array == null || !IServer.INMEM_SERVER.equals(server_name)) return super.performQuery(client_id, server_name, transaction_id, array);
+
+			// only executed in memory when all queries can be, otherwise the batch goes to the database as a whole
+			IDataSet[] results = new IDataSet[array.length];
+			for (int i = 0; i < array.length; i++)
+			{
+				QueryData queryData = array[i];
+				results[i] = queryData.getTrackingInfo() != null ? null
+					: select(client_id, server_name, transaction_id, queryData.getSqlSelect(), null, queryData.getFilters(), queryData.isDistinctInMemory(),
+						queryData.getStartRow(), queryData.getRowsToRetrieve());
+				if (results[i] == null) return super.performQuery(client_id, server_name, transaction_id, array);
+			}
+			return results;
+		}
+
+		/**
+		 * @return the result of the select executed on the columnar copy, null when it must be executed by the database
+		 */
+		private IDataSet select(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve) throws ServoyException
+		{
+			if (!IServer.INMEM_SERVER.equals(server_name)) return null;
+			if (transaction_id != null || !(sqlSelect instanceof QuerySelect) || (filters != null && !filters.isEmpty()))
+			{
+				STATISTICS.fallbacks.increment();
+				return null;
+			}
+
+			QuerySelect select = (QuerySelect)sqlSelect;
+			TableState state = select.getTable() == null ? null : tables.get(getKey(select.getTable().getName()));
+			ColumnarTable data = state == null ? null : getData(client_id, state);
+			if (data != null)
+			{
+				try
+				{
+					IDataSet result = data.select(select, resultTypes, distinctInMemory, startRow, rowsToRetrieve);
+					STATISTICS.served.increment();
+					return result;
+				}
+				catch (UnsupportedQueryException | ColumnarTable.UnsupportedValueException e)
+				{
+					// not supported in memory, let the database handle it
+				}
+			}
+			STATISTICS.fallbacks.increment();
+			return null;
+		}
+
+		private ColumnarTable getData(String client_id, TableState state) throws ServoyException
+		{
+			ColumnarTable data = state.data;
+			if (data != null || state.tooLarge) return data;
+
+			long generation = state.generation;
+			Collection<Column> columns = state.table.getColumns();
+			String[] columnNames = new String[columns.size()];
+			ColumnType[] columnTypes = new ColumnType[columns.size()];
+			QueryTable queryTable = state.table.queryTable();
+			QuerySelect select = new QuerySelect(queryTable);
+			int c = 0;
+			for (Column column : columns)
+			{
+				select.addColumn(column.queryColumn(queryTable));
+				columnNames[c] = column.getSQLName();
+				columnTypes[c++] = column.getColumnType();
+			}
+			IDataSet set = super.performQuery(client_id, IServer.INMEM_SERVER, null, select, columnTypes, null, false, 0, maxRows + 1,
+				IDataServer.CUSTOM_QUERY);
+			STATISTICS.loads.increment();
+
+			synchronized (state)
+			{
+				// skip the result when the table was changed during the load
+				if (state.generation != generation) return null;
+				if (set == null || set.hadMoreRows() || set.getRowCount() > maxRows)
+				{
+					Debug.log("In-memory table " + state.table.getSQLName() + " has more than " + maxRows + " rows, selects are executed by the database");
+					state.tooLarge = true;
+					return null;
+				}
+				state.data = new ColumnarTable(columnNames, set);
+				return state.data;
+			}
+		}
+
+		private void register(ITable table)
+		{
+			if (table != null && IServer.INMEM_SERVER.equals(table.getServerName()))
+			{
+				tables.put(getKey(table.getSQLName()), new TableState(table));
+			}
+		}
+
+		private void invalidate(String tableName)
+		{
+			if (tableName == null)
+			{
+				// raw sql, can be any table
+				tables.values().forEach(TableState::invalidate);
+			}
+			else
+			{
+				TableState state = tables.get(getKey(tableName));
+				if (state != null) state.invalidate();
+			}
+		}
+
+		@Override
+		public InsertResult insertDataSet(String client_id, IDataSet set, String dataSource, String serverName, String tableName, String tid,
+			ColumnType[] columnTypes, String[] pkNames, HashMap<String, ColumnInfoDef> columnInfoDefinitions) throws ServoyException
+		{
+			if (IServer.INMEM_SERVER.equals(serverName) && tableName != null) invalidate(tableName);
+			InsertResult result = super.insertDataSet(client_id, set, dataSource, serverName, tableName, tid, columnTypes, pkNames, columnInfoDefinitions);
+			if (result != null) register(result.getTable());
+			return result;
+		}
+
+		@Override
+		public ITable insertQueryResult(String client_id, String queryServerName, String queryTid, ISQLSelect sqlSelect, ArrayList<TableFilter> filters,
+			boolean distinctInMemory, int startRow, int rowsToRetrieve, int type, String dataSource, String targetServerName, String targetTableName,
+			String targetTid, ColumnType[] columnTypes, String[] pkNames) throws ServoyException
+		{
+			if (IServer.INMEM_SERVER.equals(targetServerName) && targetTableName != null) invalidate(targetTableName);
+			ITable table = super.insertQueryResult(client_id, queryServerName, queryTid, sqlSelect, filters, distinctInMemory, startRow, rowsToRetrieve,
+				type, dataSource, targetServerName, targetTableName, targetTid, columnTypes, pkNames);
+			register(table);
+			return table;
+		}
+
+		@Override
+		public Object[] performUpdates(String clientId, ISQLStatement[] statements) throws ServoyException
+		{
+			try
+			{
+				return super.performUpdates(clientId, statements);
+			}
+			finally
+			{
+				for (int i = 0; statements != null && i < statements.length; i++)
+				{
+					if (IServer.INMEM_SERVER.equals(statements[i].getServerName())) invalidate(statements[i].getTableName());
+				}
+			}
+		}
+
+		@Override
+		public boolean endTransactions(String client_id, String[] transaction_id, boolean commit) throws RepositoryException
+		{
+			try
+			{
+				return super.endTransactions(client_id, transaction_id, commit);
+			}
+			finally
+			{
+				// a rollback restores the data of the tables that were updated in the transaction
+				invalidate(null);
+			}
+		}
+
+		@Override
+		public void dropTemporaryTable(String client_id, String serverName, String tableName) throws RepositoryException
+		{
+			if (IServer.INMEM_SERVER.equals(serverName) && tableName != null) tables.remove(getKey(tableName));
+			super.dropTemporaryTable(client_id, serverName, tableName);
+		}
+	}
+
+	private static final class TableState
+	{
+		private final ITable table;
+		private volatile ColumnarTable data;
+		private volatile boolean tooLarge;
+		private volatile long generation;
+
+		private TableState(ITable table)
+		{
+			this.table = table;
+		}
+
+		private synchronized void invalidate()
+		{
+			generation++;
+			data = null;
+			tooLarge = false;
+		}
+	}
+
+	public static final class Statistics
+	{
+		private final LongAdder served = new LongAdder();
+		private final LongAdder fallbacks = new LongAdder();
+		private final LongAdder loads = new LongAdder();
+
+		public long getServed()
+		{
+			return served.sum();
+		}
+
+		public long getFallbacks()
+		{
+			return fallbacks.sum();
+		}
+
+		public long getLoads()
+		{
+			return loads.sum();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "executed in memory: " + getServed() + ", executed by database: " + getFallbacks() + ", table loads: " + getLoads();
+		}
+	}
+}
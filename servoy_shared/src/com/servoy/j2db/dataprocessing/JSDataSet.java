@@ -61,6 +61,7 @@ import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.HtmlUtils;
 import com.servoy.j2db.util.IDelegate;
 import com.servoy.j2db.util.Pair;
+import com.servoy.j2db.util.SafeArrayList;
 import com.servoy.j2db.util.ServoyException;
 import com.servoy.j2db.util.Utils;
 import com.servoy.j2db.util.WrappedObjectReference;
@@ -545,7 +546,7 @@ public class JSDataSet implements Wrapper, IDelegate<IDataSet>, Scriptable, Symb
 				Object[] array = new Object[set.getRowCount()];
 				for (int j = 0; j < set.getRowCount(); j++)
 				{
-					array[j] = set.getRow(j)[index - 1];//all Javascript calls are 1 based
+					array[j] = set.getValue(j, index - 1);//all Javascript calls are 1 based
 				}
 				return array;
 			}
@@ -1026,7 +1027,7 @@ public class JSDataSet implements Wrapper, IDelegate<IDataSet>, Scriptable, Symb
 				for (int x = 0; x < numberOfColumns; x++)
 				{
 					out.append(value_delimiter);
-					Object val = set.getRow(j)[x];
+					Object val = set.getValue(j, x);
 					out.append(Utils.stringReplace((val != null ? val.toString() : ""), value_delimiter, value_delimiter + value_delimiter)); //$NON-NLS-1$
 					out.append(value_delimiter);
 					if (x < numberOfColumns - 1) out.append(column_separator);
@@ -1086,11 +1087,7 @@ public class JSDataSet implements Wrapper, IDelegate<IDataSet>, Scriptable, Symb
 		{
 			if (r >= 0 && r < set.getRowCount())
 			{
-				Object[] array = set.getRow(r);
-				if (c >= 0 && c < array.length)
-				{
-					return array[c];
-				}
+				return set.getValue(r, c);
 			}
 		}
 		return null;
@@ -1467,6 +1464,13 @@ public class JSDataSet implements Wrapper, IDelegate<IDataSet>, Scriptable, Symb
 			}
 			else
 			{
+				if (set instanceof DataSetWithIndex && ((DataSetWithIndex)set).getDataSet() instanceof ColumnarDataSet)
+				{
+					// scripts can change the cells of the returned row array, that only works on a data set that keeps its rows
+					IDataSet columnar = ((DataSetWithIndex)set).getDataSet();
+					set = new DataSetWithIndex(new BufferedDataSet(columnar.getColumnNames(), BufferedDataSetInternal.getColumnTypeInfo(columnar),
+						new SafeArrayList<>(columnar.getRows()), columnar.hadMoreRows()), set.getRowIndex());
+				}
 				Object[] array = set.getRow(index);
 				if (array != null)
 				{
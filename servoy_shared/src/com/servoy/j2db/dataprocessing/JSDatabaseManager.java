@@ -133,7 +133,7 @@ public class JSDatabaseManager implements IJSDatabaseManager
 		{
 			public Class< ? >[] getAllReturnedTypes()
 			{
-				return new Class< ? >[] { COLUMNTYPE.class, SQL_ACTION_TYPES.class, JSColumn.class, JSDataSet.class, JSFoundSetUpdater.class, JSRecordMarker.class, JSRecordMarkers.class, Record.class, FoundSet.class, JSTable.class, //
+				return new Class< ? >[] { COLUMNTYPE.class, SQL_ACTION_TYPES.class, JSColumn.class, JSDataSet.class, JSQueryCursor.class, JSFoundSetUpdater.class, JSRecordMarker.class, JSRecordMarkers.class, Record.class, FoundSet.class, JSTable.class, //
 					QBSelect.class, QBAggregate.class, QBCase.class, QBCaseWhen.class, QBColumn.class, QBColumns.class, QBCondition.class, //
 					QBFunction.class, QBGroupBy.class, QBJoin.class, QBJoins.class, QBLogicalCondition.class, QBWhereCondition.class, QBResult.class, //
 					QBSearchedCaseExpression.class, QBSort.class, QBSorts.class, QBTableClause.class, QBPart.class, QBParameter.class, QBParameters.class, //
@@ -1810,6 +1810,60 @@ public class JSDatabaseManager implements IJSDatabaseManager
 		}
 	}
 
+	/**
+	 * Opens a cursor over a query builder query, the rows are read from the database in pages of fetch_size rows when the cursor is advanced,
+	 * so only one page of the result is kept in memory. Use this for processing large results that should not be loaded in a dataset at once.
+	 * The query should have a stable sort (for example on the pk), close the cursor when not all rows are read.
+	 *
+	 * Using this variation of getQueryCursor any Tablefilter on the involved tables will be taken into account.
+	 *
+	 * @sample
+	 * var query = datasources.db.example_data.orders.createSelect();
+	 * query.result.add(query.columns.orderid).add(query.columns.freight);
+	 * query.sort.add(query.columns.orderid);
+	 * var cursor = databaseManager.getQueryCursor(query, 1000);
+	 * try {
+	 * 	while (cursor.hasNext()) {
+	 * 		var row = cursor.next();
+	 * 		// process row[0], row[1]
+	 * 	}
+	 * } finally {
+	 * 	cursor.close();
+	 * }
+	 *
+	 * @param query QBSelect query.
+	 * @param fetch_size The number of rows read per page.
+	 *
+	 * @return The JSQueryCursor over the results of the query.
+	 */
+	public JSQueryCursor js_getQueryCursor(QBSelect query, Number fetch_size) throws ServoyException
+	{
+		return js_getQueryCursor(query, Boolean.TRUE, fetch_size);
+	}
+
+	/**
+	 * @clonedesc js_getQueryCursor(QBSelect, Number)
+	 * @sampleas js_getQueryCursor(QBSelect, Number)
+	 *
+	 * @param query QBSelect query.
+	 * @param useTableFilters use table filters (default true).
+	 * @param fetch_size The number of rows read per page.
+	 *
+	 * @return The JSQueryCursor over the results of the query.
+	 */
+	public JSQueryCursor js_getQueryCursor(QBSelect query, Boolean useTableFilters, Number fetch_size) throws ServoyException
+	{
+		application.checkAuthorized();
+
+		if (!QBSelect.validateQueryArguments(query.build(), application))
+		{
+			return new JSQueryCursor(application, new QueryCursor((startRow, rowsToRetrieve) -> new BufferedDataSet(), 0, 1, 0));
+		}
+
+		return new JSQueryCursor(application, ((FoundSetManager)application.getFoundSetManager()).openQueryCursor(query,
+			!Boolean.FALSE.equals(useTableFilters), Utils.getAsInteger(fetch_size), -1));
+	}
+
 	/**
 	 * @deprecated As of release 3.5, replaced by {@link plugins.rawSQL#executeStoredProcedure(String, String, Object[], int[], int)}.
 	 */
@@ -3880,7 +3934,10 @@ public class JSDatabaseManager implements IJSDatabaseManager
 	 * <p>
 	 * For example, when orders from a record in a customer foundset are retrieved, already the orders of a few sibling records are also prefetched.
 	 * By default this prefetch is enabled for SmartClient but is disabled for all serverbased clients like NGClient and HeadlessClient.
-	 * Because server based client are close enough to the database that they can fetch the siblings themselfs
+	 * Because server based client are close enough to the database that they can fetch the siblings themselfs.
+	 * It can be enabled for all clients with the servoy.foundset.relatedSiblingsPrefetch=true setting.
+	 * The number of related foundsets that are fetched together is set with servoy.foundset.relatedSiblingsPrefetch.size (default 30).
+	 * For relations from a foreign key to the primary key of the related table the records of all siblings are loaded in a single query.
 	 * <p>
 	 *
 	 * @sample
@@ -0,0 +1,205 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.annotations.JSFunction;
+
+import com.servoy.j2db.IApplication;
+import com.servoy.j2db.documentation.ServoyDocumented;
+import com.servoy.j2db.scripting.IJavaScriptType;
+import com.servoy.j2db.scripting.annotations.JSReadonlyProperty;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.ServoyException;
+
+/**
+ * Scriptable wrapper around a {@link QueryCursor}, rows of the query are read in pages when the cursor is advanced.
+ *
+ * @since 2024.09
+ */
+@ServoyDocumented(category = ServoyDocumented.RUNTIME)
+public class JSQueryCursor implements IJavaScriptType
+{
+	private final IApplication application;
+	private final QueryCursor cursor;
+
+	public JSQueryCursor(IApplication application, QueryCursor cursor)
+	{
+		this.application = application;
+		this.cursor = cursor;
+	}
+
+	public QueryCursor getCursor()
+	{
+		return cursor;
+	}
+
+	/**
+	 * Returns true when the cursor has more rows, this may read the next page of the query.
+	 *
+	 * @sample
+	 * var cursor = databaseManager.getQueryCursor(query, 1000);
+	 * while (cursor.hasNext()) {
+	 * 	var row = cursor.next();
+	 * }
+	 *
+	 * @return true if next() will return a row.
+	 */
+	@JSFunction
+	public boolean hasNext()
+	{
+		return cursor.hasNext();
+	}
+
+	/**
+	 * Returns the next row of the query as an array, the cursor is closed automatically after the last row.
+	 *
+	 * @sampleas hasNext()
+	 *
+	 * @return Object array of data or null when there are no more rows.
+	 */
+	@JSFunction
+	public Object[] next()
+	{
+		return cursor.hasNext() ? cursor.next() : null;
+	}
+
+	/**
+	 * Returns the rows of the current page that were not returned yet as a dataset, this reads the next page when the current page is consumed.
+	 * Use this to process the result in batches of fetch size rows.
+	 *
+	 * @sample
+	 * var cursor = query.getCursor(500);
+	 * var ds = cursor.nextDataSet();
+	 * while (ds.getMaxRowIndex() > 0) {
+	 * 	// process the batch
+	 * 	ds = cursor.nextDataSet();
+	 * }
+	 *
+	 * @return JSDataSet with the next rows, empty when the cursor is at the end.
+	 */
+	@JSFunction
+	public JSDataSet nextDataSet() throws ServoyException
+	{
+		String[] columnNames = cursor.getColumnNames();
+		return new JSDataSet(application, new BufferedDataSet(columnNames, new ArrayList<>(cursor.nextRows())));
+	}
+
+	/**
+	 * Iterates over the remaining rows of the cursor, the callback gets the row array and the 1-based row number.
+	 * The iteration stops when the callback returns a value, that value is returned. The cursor is closed after the iteration.
+	 * When an exception is thrown from the callback function, the iteration is stopped and the exception is thrown from forEach.
+	 *
+	 * @sample
+	 * var cursor = databaseManager.getQueryCursor(query, 1000);
+	 * cursor.forEach(function(row, rowNumber) {
+	 * 	// process row
+	 * });
+	 *
+	 * @param callback The callback function to be called for each row.
+	 *
+	 * @return The value returned by the callback that stopped the iteration, or null.
+	 */
+	@JSFunction
+	public Object forEach(Function callback)
+	{
+		try
+		{
+			while (cursor.hasNext())
+			{
+				Object[] row = cursor.next();
+				Object returnValue = application.getScriptEngine().executeFunction(callback, callback.getParentScope(), callback.getParentScope(),
+					new Object[] { row, Integer.valueOf(cursor.getRowsRead()) }, false, true);
+				if (returnValue != null && returnValue != Undefined.instance)
+				{
+					return returnValue;
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			Debug.error("Error executing cursor callback: ", e); //$NON-NLS-1$
+			if (e instanceof RuntimeException)
+			{
+				throw (RuntimeException)e;
+			}
+			throw new RuntimeException(e);
+		}
+		finally
+		{
+			cursor.close();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the column names of the query result.
+	 *
+	 * @sample
+	 * var names = cursor.getColumnNames();
+	 *
+	 * @return String array of column names.
+	 */
+	@JSFunction
+	public String[] getColumnNames() throws ServoyException
+	{
+		return cursor.getColumnNames();
+	}
+
+	/**
+	 * The number of rows returned by this cursor so far.
+	 *
+	 * @sample
+	 * application.output(cursor.rowsRead);
+	 *
+	 * @return the number of rows read.
+	 */
+	@JSReadonlyProperty
+	public int getRowsRead()
+	{
+		return cursor.getRowsRead();
+	}
+
+	/**
+	 * Closes the cursor and releases the buffered rows, call this when not all rows are read.
+	 *
+	 * @sample
+	 * var cursor = databaseManager.getQueryCursor(query, 1000);
+	 * try {
+	 * 	if (cursor.hasNext()) {
+	 * 		var row = cursor.next();
+	 * 	}
+	 * } finally {
+	 * 	cursor.close();
+	 * }
+	 */
+	@JSFunction
+	public void close()
+	{
+		cursor.close();
+	}
+
+	@Override
+	public String toString()
+	{
+		// do not read a page here, this is called by the debugger
+		return "JSQueryCursor[rowsRead: " + cursor.getRowsRead() + (cursor.isClosed() ? ", closed]" : "]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
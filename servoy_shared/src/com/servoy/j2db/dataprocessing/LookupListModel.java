@@ -18,6 +18,7 @@ package com.servoy.j2db.dataprocessing;
 
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -29,6 +30,8 @@ import com.servoy.base.query.BaseQueryTable;
 import com.servoy.base.query.IBaseSQLCondition;
 import com.servoy.j2db.IApplication;
 import com.servoy.j2db.dataprocessing.CustomValueList.DisplayString;
+import com.servoy.j2db.persistence.Column;
+import com.servoy.j2db.persistence.IColumnTypes;
 import com.servoy.j2db.persistence.IRepository;
 import com.servoy.j2db.persistence.IServer;
 import com.servoy.j2db.persistence.ITable;
@@ -632,15 +635,21 @@ public class LookupListModel extends AbstractListModel
 			}
 			tableFilterParams.add(nameFilter);
 		}
-		SQLStatement trackingInfo = null;
-		if (foundSetManager.getEditRecordList().hasAccess(table, IRepository.TRACKING_VIEWS))
+		int startRow = 0;
+		int maxRows = 100;
+		IDataSet set = searchTypeaheadIndex(filter, valueList, alsoFilterOnRealValues, sqlParts, tableFilterParams, startRow, maxRows);
+		if (set == null)
 		{
-			trackingInfo = new SQLStatement(ISQLActionTypes.SELECT_ACTION, table.getServerName(), table.getName(), null, null);
-			trackingInfo.setTrackingData(sqlParts.getColumnNames(), new Object[][] { }, new Object[][] { }, application.getUserUID(),
-				foundSetManager.getTrackingInfo(), application.getClientID());
+			SQLStatement trackingInfo = null;
+			if (foundSetManager.getEditRecordList().hasAccess(table, IRepository.TRACKING_VIEWS))
+			{
+				trackingInfo = new SQLStatement(ISQLActionTypes.SELECT_ACTION, table.getServerName(), table.getName(), null, null);
+				trackingInfo.setTrackingData(sqlParts.getColumnNames(), new Object[][] { }, new Object[][] { }, application.getUserUID(),
+					foundSetManager.getTrackingInfo(), application.getClientID());
+			}
+			set = application.getDataServer().performQuery(application.getClientID(), table.getServerName(), transaction_id, sqlParts, null,
+				tableFilterParams, !sqlParts.isUnique(), startRow, maxRows, IDataServer.VALUELIST_QUERY, trackingInfo);
 		}
-		IDataSet set = application.getDataServer().performQuery(application.getClientID(), table.getServerName(), transaction_id, sqlParts, null,
-			tableFilterParams, !sqlParts.isUnique(), 0, 100, IDataServer.VALUELIST_QUERY, trackingInfo);
 		String[] displayFormat = (lookup instanceof LookupValueList) ? ((LookupValueList)lookup).getDisplayFormat() : null;
 		for (int i = 0; i < set.getRowCount(); i++)
 		{
@@ -655,6 +664,82 @@ public class LookupListModel extends AbstractListModel
 		hadMoreRows = set.hadMoreRows();
 	}
 
+	/**
+	 * Search the shared {@link TypeaheadIndex} instead of the database, when it is enabled and the filter can be applied in memory like the query does.
+	 *
+	 * @param startRow first row of the result, like the query
+	 * @param maxRows max rows of the result, like the query
+	 * @return null when the database must be queried
+	 */
+	private IDataSet searchTypeaheadIndex(String filter, ValueList valueList, boolean alsoFilterOnRealValues, QuerySelect sqlParts,
+		ArrayList<TableFilter> tableFilterParams, int startRow, int maxRows) throws ServoyException
+	{
+		if (!TypeaheadIndex.isEnabled() || !ValueListCache.canShareData(application, table)) return null;
+
+		// same as the where part: a leading % matches anywhere in the value, other wildcards are left to the database
+		boolean contains = filter.startsWith("%"); //$NON-NLS-1$
+		String txt = contains ? filter.substring(1) : filter;
+		if (txt.endsWith("%")) txt = txt.substring(0, txt.length() - 1); //$NON-NLS-1$
+		if (txt.indexOf('%') >= 0 || txt.indexOf('_') >= 0) return null;
+
+		ArrayList<String> prefixes = new ArrayList<String>();
+		if (!"".equals(filter)) //$NON-NLS-1$
+		{
+			prefixes.add(txt);
+			String separator = valueList.getSeparator();
+			if (concatShowValues && separator != null && !separator.equals("")) //$NON-NLS-1$
+			{
+				if (contains) return null;
+				for (String displayValue : Utils.stringSplit(txt, separator))
+				{
+					if (!displayValue.trim().equals("")) prefixes.add(displayValue); //$NON-NLS-1$
+				}
+			}
+		}
+
+		ArrayList<IQuerySelectValue> columns = sqlParts.getColumns();
+		String[] dataProviderIDs = new String[] { valueList.getDataProviderID1(), valueList.getDataProviderID2(), valueList.getDataProviderID3() };
+		ArrayList<Integer> searchColumns = new ArrayList<Integer>();
+		for (int i = 0; i < dataProviderIDs.length; i++)
+		{
+			int dp = 1 << i;
+			if ((showValues & dp) != 0 || (alsoFilterOnRealValues && (returnValues & dp) != 0))
+			{
+				if (Column.mapToDefaultType(table.getColumnType(dataProviderIDs[i])) != IColumnTypes.TEXT) return null;
+				int index = columns.indexOf(DBValueList.getQuerySelectValue(table, sqlParts.getTable(), dataProviderIDs[i]));
+				if (index < 0) return null;
+				if (!searchColumns.contains(Integer.valueOf(index))) searchColumns.add(Integer.valueOf(index));
+			}
+		}
+
+		ArrayList<IQuerySort> sorts = sqlParts.getSorts();
+		int[] sortColumns = new int[sorts == null ? 0 : sorts.size()];
+		for (int i = 0; i < sortColumns.length; i++)
+		{
+			if (!(sorts.get(i) instanceof QuerySort)) return null;
+			QuerySort sort = (QuerySort)sorts.get(i);
+			int index = columns.indexOf(sort.getColumn());
+			if (index < 0) return null;
+			sortColumns[i] = sort.isAscending() ? index + 1 : -(index + 1);
+		}
+
+		TypeaheadIndex index = TypeaheadIndex.getIndex(table, creationSQLParts,
+			Arrays.asList(ValueListCache.getDataSource(application, table.getServerName(), table.getName()), valueList.getUUID(),
+				application.getSolution() == null ? null : application.getSolution().getName(), valueList.getDataProviderID1(), valueList.getDataProviderID2(),
+				valueList.getDataProviderID3(), Integer.valueOf(showValues), Integer.valueOf(returnValues), tableFilterParams));
+		if (index == null) return null;
+
+		int[] search = new int[searchColumns.size()];
+		for (int i = 0; i < search.length; i++)
+		{
+			search[i] = searchColumns.get(i).intValue();
+		}
+		return index.search(
+			(select, rowsToLoad) -> application.getDataServer().performQuery(application.getClientID(), table.getServerName(), null, select, null,
+				tableFilterParams, false, 0, rowsToLoad, IDataServer.VALUELIST_QUERY),
+			prefixes.toArray(new String[prefixes.size()]), contains, search, sortColumns, startRow, maxRows);
+	}
+
 	/**
 	 * @param txt
 	 * @throws Exception
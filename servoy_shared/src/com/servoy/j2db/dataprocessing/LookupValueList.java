@@ -272,6 +272,7 @@ public class LookupValueList implements IValueList
 	{
 		if (dontQuery || table == null) return;
 
+		Object lookupValue = display != null ? display : real;
 		Object value = null;
 		int values = 0;
 		if (display != null)
@@ -380,6 +381,28 @@ public class LookupValueList implements IValueList
 			tableFilterParams.add(new TableFilter("lookupValueList.nameFilter", table.getServerName(), table.getName(), table.getSQLName(), //$NON-NLS-1$
 				DBValueList.NAME_COLUMN, IBaseSQLCondition.EQUALS_OPERATOR, valueList.getName()));
 		}
+		String[] displayFormats = getDisplayFormat();
+
+		// lookups of table values can be shared with other clients that see the same data, related values depend on the parent record
+		List<Object> sharedCacheKey = null;
+		long sharedCacheGeneration = 0;
+		if (valueList.getDatabaseValuesType() == IValueListConstants.TABLE_VALUES && ValueListCache.canUseCache(application, table))
+		{
+			sharedCacheKey = Arrays.asList(valueList.getUUID(), application.getSolution() == null ? null : application.getSolution().getName(),
+				valueList.getName(), valueList.getDataProviderID1(), valueList.getDataProviderID2(), valueList.getDataProviderID3(),
+				Integer.valueOf(showValues), Integer.valueOf(returnValues), valueList.getSortOptions(), separator, Boolean.valueOf(valueList.getUseTableFilter()),
+				Integer.valueOf(maxValuelistRows), application.getLocale(), displayFormats == null ? null : Arrays.asList(displayFormats),
+				Boolean.valueOf(display != null), lookupValue, tableFilterParams);
+			ValueListCache.Entry entry = ValueListCache.get(application, table, valueList.getName(), sharedCacheKey);
+			if (entry != null)
+			{
+				alDisplay.addAll(Arrays.asList(entry.displayValues));
+				alReal.addAll(Arrays.asList(entry.realValues));
+				return;
+			}
+			sharedCacheGeneration = ValueListCache.getGeneration(application, table);
+		}
+
 		SQLStatement trackingInfo = null;
 		if (foundSetManager.getEditRecordList().hasAccess(table, IRepository.TRACKING_VIEWS))
 		{
@@ -389,7 +412,7 @@ public class LookupValueList implements IValueList
 		}
 		IDataSet set = application.getDataServer().performQuery(application.getClientID(), table.getServerName(), transaction_id, select, null,
 			tableFilterParams, !select.isUnique(), 0, maxValuelistRows, IDataServer.VALUELIST_QUERY, trackingInfo);
-		String[] displayFormats = getDisplayFormat();
+		int first = alDisplay.size();
 		for (int i = 0; i < set.getRowCount(); i++)
 		{
 			Object[] row = CustomValueList.processRow(set.getRow(i), showValues, returnValues);
@@ -400,6 +423,11 @@ public class LookupValueList implements IValueList
 				alReal.add(CustomValueList.handleRowData(valueList, concatReturnValues, returnValues, row, application));
 			}
 		}
+		if (sharedCacheKey != null)
+		{
+			ValueListCache.put(application, table, valueList.getName(), sharedCacheKey, sharedCacheGeneration, alDisplay.subList(first, alDisplay.size()),
+				alReal.subList(first, alReal.size()), false);
+		}
 	}
 
 	public boolean hasRealValues()
@@ -0,0 +1,131 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.util.Debug;
+
+/**
+ * A read-ahead of the next chunk of pks of a foundset that is queried on a background thread.
+ * <p>
+ * It keeps the state of the pks the query was based on, the result can only be added to the foundset when its pks have not been changed
+ * since then (by a sort, refresh, loadRecords or data broadcast).
+ * <p>
+ * The pks are completed by the background task before it hands them to the client thread, a client thread that waits for the pks
+ * never waits for that hand-off. On session and headless clients invokeLater runs synchronously, waiting for the task itself would deadlock.
+ *
+ * @since 2024.09
+ */
+class PKChunkPrefetch
+{
+	private final PKDataSet pks;
+	private final QuerySelect querySelect;
+	private final int originalPKRowcount;
+	private final int dbIndexLastPk;
+	private final int startRow;
+	private final CompletableFuture<IDataSet> result = new CompletableFuture<>();
+	private volatile Future< ? > task;
+
+	PKChunkPrefetch(PksAndRecordsHolder pksAndRecords, int startRow)
+	{
+		this.pks = pksAndRecords.getPks();
+		this.querySelect = pksAndRecords.getQuerySelectForReading();
+		this.originalPKRowcount = pks.getRowCount();
+		this.dbIndexLastPk = pksAndRecords.getDbIndexLastPk();
+		this.startRow = startRow;
+	}
+
+	void setTask(Future< ? > task)
+	{
+		this.task = task;
+	}
+
+	void setPks(IDataSet pks)
+	{
+		result.complete(pks);
+	}
+
+	void failed(Throwable t)
+	{
+		result.completeExceptionally(t);
+	}
+
+	/**
+	 * Check if the pks are still the same as when this read-ahead was started.
+	 */
+	boolean matches(PksAndRecordsHolder pksAndRecords)
+	{
+		PKDataSet currentPks = pksAndRecords.getPks();
+		return currentPks == pks && currentPks.getRowCount() == originalPKRowcount && currentPks.hadMoreRows() &&
+			pksAndRecords.getDbIndexLastPk() == dbIndexLastPk && pksAndRecords.getQuerySelectForReading() == querySelect;
+	}
+
+	int getOriginalPKRowcount()
+	{
+		return originalPKRowcount;
+	}
+
+	int getDbIndexLastPk()
+	{
+		return dbIndexLastPk;
+	}
+
+	int getStartRow()
+	{
+		return startRow;
+	}
+
+	/**
+	 * Wait for the pks, returns null when the query failed or was cancelled.
+	 */
+	IDataSet getPks()
+	{
+		try
+		{
+			return result.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			Debug.log("Read-ahead of next pk chunk failed, pks will be queried again", e.getCause()); //$NON-NLS-1$
+		}
+		catch (CancellationException e)
+		{
+			// ignore
+		}
+		return null;
+	}
+
+	void cancel()
+	{
+		Future< ? > future = task;
+		if (future != null)
+		{
+			future.cancel(false);
+		}
+		result.complete(null);
+	}
+}
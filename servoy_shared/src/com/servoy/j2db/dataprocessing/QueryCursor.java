@@ -0,0 +1,188 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.servoy.j2db.util.ServoyException;
+
+/**
+ * Cursor over the result of a query that only keeps one page of rows in memory.
+ * <p>
+ * The next page is only read from the server when the current page is consumed (pull based, so a slow consumer never gets more than one page buffered),
+ * pages are read using the startRow/rowsToRetrieve arguments of the query methods, so the query should have a stable sort.
+ * The cursor must be closed when the caller stops before the end of the result, a closed cursor returns no more rows.
+ *
+ * @since 2024.09
+ */
+public class QueryCursor implements Iterator<Object[]>, Closeable
+{
+	/**
+	 * Reads a page of the result.
+	 */
+	@FunctionalInterface
+	public interface IPageLoader
+	{
+		IDataSet loadPage(int startRow, int rowsToRetrieve) throws ServoyException;
+	}
+
+	private final IPageLoader pageLoader;
+	private final int fetchSize;
+	private final int maxRows;
+
+	private IDataSet page;
+	private int pageIndex;
+	private int nextStartRow;
+	private int rowsRead;
+	private boolean closed;
+
+	/**
+	 * @param pageLoader reads the pages
+	 * @param startRow the first row of the result to read
+	 * @param fetchSize number of rows per page
+	 * @param maxRows maximum number of rows returned by the cursor, -1 for all rows
+	 */
+	public QueryCursor(IPageLoader pageLoader, int startRow, int fetchSize, int maxRows)
+	{
+		this.pageLoader = pageLoader;
+		this.nextStartRow = startRow;
+		this.fetchSize = Math.max(1, fetchSize);
+		this.maxRows = maxRows;
+	}
+
+	public int getFetchSize()
+	{
+		return fetchSize;
+	}
+
+	/**
+	 * @return the number of rows returned by the cursor so far
+	 */
+	public int getRowsRead()
+	{
+		return rowsRead;
+	}
+
+	public boolean isClosed()
+	{
+		return closed;
+	}
+
+	/**
+	 * @return the column names of the result, reads the first page when not read yet
+	 */
+	public String[] getColumnNames() throws ServoyException
+	{
+		if (page == null && !closed)
+		{
+			readNextPage();
+		}
+		return page == null ? new String[0] : page.getColumnNames();
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		try
+		{
+			return ensureRows();
+		}
+		catch (ServoyException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Object[] next()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		rowsRead++;
+		return page.getRow(pageIndex++);
+	}
+
+	/**
+	 * Returns the rows of the current page that were not returned yet, reads the next page when the current page is consumed.
+	 *
+	 * @return the next rows, empty when the cursor is at the end
+	 */
+	public List<Object[]> nextRows() throws ServoyException
+	{
+		if (!ensureRows())
+		{
+			return Collections.emptyList();
+		}
+		List<Object[]> rows = page.getRows().subList(pageIndex, page.getRowCount());
+		if (maxRows >= 0 && rowsRead + rows.size() > maxRows)
+		{
+			rows = rows.subList(0, maxRows - rowsRead);
+		}
+		pageIndex += rows.size();
+		rowsRead += rows.size();
+		return rows;
+	}
+
+	private boolean ensureRows() throws ServoyException
+	{
+		if (closed || (maxRows >= 0 && rowsRead >= maxRows))
+		{
+			return false;
+		}
+		while (page == null || pageIndex >= page.getRowCount())
+		{
+			if (page != null && (!page.hadMoreRows() || page.getRowCount() == 0))
+			{
+				// last page consumed
+				close();
+				return false;
+			}
+			readNextPage();
+		}
+		return true;
+	}
+
+	private void readNextPage() throws ServoyException
+	{
+		int rowsToRetrieve = maxRows >= 0 ? Math.min(fetchSize, maxRows - rowsRead) : fetchSize;
+		IDataSet ds = pageLoader.loadPage(nextStartRow, rowsToRetrieve);
+		page = ds == null ? new BufferedDataSet() : ds;
+		pageIndex = 0;
+		nextStartRow += page.getRowCount();
+	}
+
+	/**
+	 * Releases the current page, the cursor does not return rows anymore after this.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		if (page != null)
+		{
+			// keep the column names for getColumnNames()
+			page = new BufferedDataSet(page.getColumnNames(), Collections.emptyList());
+			pageIndex = 0;
+		}
+	}
+}
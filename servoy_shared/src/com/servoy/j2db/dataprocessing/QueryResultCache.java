@@ -0,0 +1,600 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.servoy.base.query.BaseQueryTable;
+import com.servoy.j2db.query.AbstractBaseQuery;
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.query.CustomCondition;
+import com.servoy.j2db.query.ISQLSelect;
+import com.servoy.j2db.query.QueryCustomElement;
+import com.servoy.j2db.query.QueryCustomJoin;
+import com.servoy.j2db.query.QueryCustomSelect;
+import com.servoy.j2db.query.QueryCustomSort;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.DataSourceUtils;
+import com.servoy.j2db.util.SafeArrayList;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Server wide cache of the results of read-only queries, so that clients that run the same query with the same arguments and table filters share the result.
+ * The cache is opt-in per datasource with the servoy.queryCache.datasources setting, a comma separated list of datasources (db:/server/table),
+ * servers (db:/server/*) or * for all tables.
+ * <p>
+ * A result is removed when one of the tables in the query is changed, by a client on this server or notified by a data broadcast.
+ * Results expire after servoy.queryCache.ttl seconds (default 300), results with more than servoy.queryCache.maxResultRows rows (default 1000) are not
+ * cached and the total size of the cache is limited to servoy.queryCache.maxRows rows (default 100000).
+ * <p>
+ * Queries in a transaction, tracked queries, queries with locks or custom sql and refresh queries always go to the database.
+ * <p>
+ * The hits and misses per datasource are shown in the {@link PerformanceStatistics} as "query result cache".
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class QueryResultCache
+{
+	private static final int SUMMARY_DATASOURCES = 10;
+
+	private static final ConcurrentMap<String, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Set<Key>> KEYS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Statistics> STATISTICS = new ConcurrentHashMap<>();
+
+	private static final Class< ? >[] CUSTOM_SQL_TYPES = { CustomCondition.class, QueryCustomElement.class, QueryCustomJoin.class, QueryCustomSelect.class, //
+		QueryCustomSort.class };
+
+	private static volatile Cache<Key, Entry> entries;
+	private static volatile String enabledSetting;
+	private static volatile Set<String> enabledDataSources = Collections.emptySet();
+
+	private QueryResultCache()
+	{
+	}
+
+	public static boolean isEnabled()
+	{
+		return !getEnabledDataSources().isEmpty();
+	}
+
+	private static Set<String> getEnabledDataSources()
+	{
+		String setting = Settings.getInstance().getProperty("servoy.queryCache.datasources", "");
+		if (!setting.equals(enabledSetting))
+		{
+			Set<String> dataSources = new HashSet<>();
+			for (String ds : setting.split(","))
+			{
+				if (ds.trim().length() > 0) dataSources.add(ds.trim());
+			}
+			enabledDataSources = dataSources;
+			enabledSetting = setting;
+		}
+		return enabledDataSources;
+	}
+
+	private static boolean isEnabled(String dataSource)
+	{
+		Set<String> dataSources = getEnabledDataSources();
+		if (dataSources.contains("*") || dataSources.contains(dataSource)) return true;
+		String[] servernameTablename = DataSourceUtils.getDBServernameTablename(dataSource);
+		return servernameTablename != null && dataSources.contains(DataSourceUtils.createDBTableDataSource(servernameTablename[0], "*"));
+	}
+
+	private static Cache<Key, Entry> getEntries()
+	{
+		if (entries == null)
+		{
+			synchronized (QueryResultCache.class)
+			{
+				if (entries == null)
+				{
+					entries = CacheBuilder.newBuilder()
+						.maximumWeight(Utils.getAsInteger(Settings.getInstance().getProperty("servoy.queryCache.maxRows", "100000")))
+						.weigher((Key key, Entry entry) -> entry.rows.size() + 1)
+						.expireAfterWrite(Utils.getAsInteger(Settings.getInstance().getProperty("servoy.queryCache.ttl", "300")), TimeUnit.SECONDS)
+						.removalListener(notification -> {
+							if (notification.getCause() == RemovalCause.REPLACED) return;
+							Key key = (Key)notification.getKey();
+							for (String dataSource : key.dataSources)
+							{
+								Set<Key> keys = KEYS.get(dataSource);
+								if (keys != null) keys.remove(key);
+							}
+						})
+						.build();
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Create the key for a query, null when the query cannot be cached.
+	 * The datasources of the key use the real server name, so the query must already be mapped for switched servers.
+	 */
+	static Key createKey(String serverName, String transactionID, ISQLSelect sqlSelect, ColumnType[] resultTypes, List<TableFilter> filters,
+		boolean distinctInMemory, int startRow, int rowsToRetrieve, int type, ITrackingSQLStatement trackingInfo)
+	{
+		if (serverName == null || transactionID != null || trackingInfo != null || !(sqlSelect instanceof QuerySelect) ||
+			((QuerySelect)sqlSelect).getLockMode() != QuerySelect.LOCK_MODE_NONE)
+		{
+			return null;
+		}
+		switch (type)
+		{
+			case IDataServer.REFRESH_ROLLBACK_QUERY :
+			case IDataServer.RAW_QUERY :
+			case IDataServer.LOCKS_QUERY :
+			case IDataServer.INSERT_QUERY :
+			case IDataServer.UPDATE_QUERY :
+			case IDataServer.DELETE_QUERY :
+				return null;
+		}
+
+		// the main table first, statistics are kept per main table
+		Set<String> dataSources = new LinkedHashSet<>();
+		if (!addDataSources(serverName, ((QuerySelect)sqlSelect).getTable(), dataSources) || !addDataSources(serverName, sqlSelect, dataSources))
+		{
+			return null;
+		}
+		if (filters != null)
+		{
+			for (TableFilter filter : filters)
+			{
+				if (filter.getTableFilterdefinition() instanceof QueryTableFilterdefinition &&
+					!addDataSources(serverName, ((QueryTableFilterdefinition)filter.getTableFilterdefinition()).getQuerySelect(), dataSources))
+				{
+					return null;
+				}
+			}
+		}
+		if (dataSources.isEmpty()) return null;
+		for (String dataSource : dataSources)
+		{
+			if (!isEnabled(dataSource)) return null;
+		}
+
+		return new Key(serverName, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+			dataSources.toArray(new String[dataSources.size()]));
+	}
+
+	private static boolean addDataSources(String serverName, Object query, Set<String> dataSources)
+	{
+		for (Object element : AbstractBaseQuery.search(query, QueryResultCache::isTableOrCustomSql))
+		{
+			// custom sql can read any table
+			if (!(element instanceof BaseQueryTable)) return false;
+			String[] servernameTablename = DataSourceUtils.getDBServernameTablename(((BaseQueryTable)element).getDataSource());
+			if (servernameTablename == null) return false; // in-memory and view tables are client-specific
+			dataSources.add(DataSourceUtils.createDBTableDataSource(serverName, servernameTablename[1]));
+		}
+		return true;
+	}
+
+	private static boolean isTableOrCustomSql(Object o)
+	{
+		if (o instanceof BaseQueryTable) return true;
+		for (Class< ? > customSqlType : CUSTOM_SQL_TYPES)
+		{
+			if (customSqlType.isInstance(o)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The generations of the datasources of the key must be taken before querying and given to {@link #put}, so that data that was queried before a
+	 * change isn't cached.
+	 */
+	static long[] getGenerations(Key key)
+	{
+		long[] generations = new long[key.dataSources.length];
+		for (int i = 0; i < generations.length; i++)
+		{
+			generations[i] = GENERATIONS.computeIfAbsent(key.dataSources[i], ds -> new AtomicLong()).get();
+		}
+		return generations;
+	}
+
+	/**
+	 * @return a copy of the cached result, null when not cached.
+	 */
+	static IDataSet get(Key key)
+	{
+		Entry entry = entries == null ? null : entries.getIfPresent(key);
+		if (entry != null && !isCurrent(key, entry.generations))
+		{
+			entries.invalidate(key);
+			entry = null;
+		}
+		Statistics statistics = STATISTICS.computeIfAbsent(key.dataSources[0], ds -> new Statistics());
+		if (entry == null)
+		{
+			statistics.misses.increment();
+			return null;
+		}
+		statistics.hits.increment();
+		return entry.createDataSet();
+	}
+
+	static void put(Key key, long[] generations, IDataSet result)
+	{
+		if (!(result instanceof BufferedDataSet) || result.getRowCount() > Utils.getAsInteger(
+			Settings.getInstance().getProperty("servoy.queryCache.maxResultRows", "1000")))
+		{
+			return;
+		}
+		if (!isCurrent(key, generations)) return;
+
+		Entry entry = new Entry((BufferedDataSet)result, generations);
+		for (String dataSource : key.dataSources)
+		{
+			KEYS.computeIfAbsent(dataSource, ds -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+		Cache<Key, Entry> cache = getEntries();
+		cache.put(key, entry);
+		STATISTICS.computeIfAbsent(key.dataSources[0], ds -> new Statistics()).stored.increment();
+		// a change between the generation check and the put must win
+		if (!isCurrent(key, generations)) cache.invalidate(key);
+	}
+
+	private static boolean isCurrent(Key key, long[] generations)
+	{
+		for (int i = 0; i < generations.length; i++)
+		{
+			// keys are equal when the queries are equal, so they have the same datasources
+			AtomicLong generation = GENERATIONS.get(key.dataSources[i]);
+			if (generation == null || generation.get() != generations[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Data of a table was changed, the server name in the datasource must be the real (not switched) server name.
+	 *
+	 * @param dataSource the changed table, null when all tables may have changed.
+	 */
+	public static void dataChanged(String dataSource)
+	{
+		if (dataSource == null)
+		{
+			GENERATIONS.values().forEach(AtomicLong::incrementAndGet);
+			if (entries != null) entries.invalidateAll();
+			return;
+		}
+		// no generation means no query of the table was started, so nothing to invalidate
+		AtomicLong generation = GENERATIONS.get(dataSource);
+		if (generation != null) generation.incrementAndGet();
+		Set<Key> keys = KEYS.get(dataSource);
+		if (keys != null && entries != null) entries.invalidateAll(new ArrayList<>(keys));
+	}
+
+	/**
+	 * Any table of the server may have changed.
+	 */
+	public static void serverChanged(String serverName)
+	{
+		GENERATIONS.keySet().forEach(dataSource -> {
+			String[] servernameTablename = DataSourceUtils.getDBServernameTablename(dataSource);
+			if (servernameTablename != null && serverName.equals(servernameTablename[0])) dataChanged(dataSource);
+		});
+	}
+
+	/**
+	 * Wrap the data server of a client so that the results of cacheable queries are shared.
+	 * Must be placed below the switch server proxy, so the server names in the queries are the real ones.
+	 */
+	public static IDataServer createCachingDataServer(IDataServer dataServer)
+	{
+		if (dataServer == null || !isEnabled()) return dataServer;
+		PerformanceStatistics.register("query result cache", QueryResultCache::getSummary);
+		return new CachingDataServer(dataServer);
+	}
+
+	/**
+	 * @return the hits, misses and stored results per datasource of the main table of the query, sorted on datasource.
+	 */
+	public static Map<String, Statistics> getStatistics()
+	{
+		return Collections.unmodifiableMap(new TreeMap<>(STATISTICS));
+	}
+
+	/**
+	 * @return the number of rows in the cache.
+	 */
+	public static long getCachedRows()
+	{
+		return entries == null ? 0 : entries.asMap().values().stream().mapToLong(entry -> entry.rows.size()).sum();
+	}
+
+	/**
+	 * Number of cached results and rows followed by the datasources with the most misses, as shown in the {@link PerformanceStatistics}.
+	 */
+	static String getSummary()
+	{
+		return "results: " + (entries == null ? 0 : entries.size()) + ", rows: " + getCachedRows() + STATISTICS.entrySet().stream()
+			.sorted(Comparator.comparingLong((Map.Entry<String, Statistics> entry) -> entry.getValue().getMisses()).reversed())
+			.limit(SUMMARY_DATASOURCES)
+			.map(entry -> "\n  " + entry.getKey() + ": " + entry.getValue())
+			.collect(Collectors.joining());
+	}
+
+	private static final class CachingDataServer extends AbstractDelegateDataServer
+	{
+		private CachingDataServer(IDataServer dataServer)
+		{
+			super(dataServer);
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve) throws ServoyException
+		{
+			return performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+				IDataServer.CUSTOM_QUERY, null);
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type) throws ServoyException
+		{
+			return performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve, type,
+				null);
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type, ITrackingSQLStatement trackingInfo)
+			throws ServoyException
+		{
+			Key key = createKey(server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve, type,
+				trackingInfo);
+			if (key == null)
+			{
+				return super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow,
+					rowsToRetrieve, type, trackingInfo);
+			}
+			IDataSet result = get(key);
+			if (result == null)
+			{
+				long[] generations = getGenerations(key);
+				key = key.freeze();
+				result = super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow,
+					rowsToRetrieve, type, trackingInfo);
+				put(key, generations, result);
+			}
+			return result;
+		}
+
+		@Override
+		public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+			ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, boolean updateIdleTimestamp) throws ServoyException
+		{
+			Key key = createKey(server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+				IDataServer.CUSTOM_QUERY, null);
+			if (key == null)
+			{
+				return super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow,
+					rowsToRetrieve, updateIdleTimestamp);
+			}
+			IDataSet result = get(key);
+			if (result == null)
+			{
+				long[] generations = getGenerations(key);
+				key = key.freeze();
+				result = super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow,
+					rowsToRetrieve, updateIdleTimestamp);
+				put(key, generations, result);
+			}
+			return result;
+		}
+
+		@Override
+		public IDataSet[] performQuery(String client_id, String server_name, String transaction_id, QueryData[] array) throws ServoyException
+		{
+			if (array == null) return super.performQuery(client_id, server_name, transaction_id, array);
+
+			// only served from the cache when all queries are cached, otherwise the batch goes to the database as a whole
+			Key[] keys = new Key[array.length];
+			IDataSet[] results = new IDataSet[array.length];
+			boolean allCached = true;
+			for (int i = 0; i < array.length; i++)
+			{
+				QueryData queryData = array[i];
+				keys[i] = createKey(server_name, transaction_id, queryData.getSqlSelect(), null, queryData.getFilters(), queryData.isDistinctInMemory(),
+					queryData.getStartRow(), queryData.getRowsToRetrieve(), queryData.getType(), queryData.getTrackingInfo());
+				results[i] = keys[i] == null ? null : get(keys[i]);
+				allCached &= results[i] != null;
+			}
+			if (allCached) return results;
+
+			long[][] generations = new long[array.length][];
+			for (int i = 0; i < array.length; i++)
+			{
+				if (keys[i] != null && results[i] == null)
+				{
+					generations[i] = getGenerations(keys[i]);
+					keys[i] = keys[i].freeze();
+				}
+			}
+			results = super.performQuery(client_id, server_name, transaction_id, array);
+			for (int i = 0; results != null && i < results.length && i < array.length; i++)
+			{
+				if (generations[i] != null) put(keys[i], generations[i], results[i]);
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Key of a cached result, compares the query including the values of the placeholders.
+	 */
+	static final class Key
+	{
+		private final String serverName;
+		private final ISQLSelect sqlSelect;
+		private final ColumnType[] resultTypes;
+		private final List<TableFilter> filters;
+		private final boolean distinctInMemory;
+		private final int startRow;
+		private final int rowsToRetrieve;
+		private final String[] dataSources;
+		private final int hashCode;
+
+		private Key(String serverName, ISQLSelect sqlSelect, ColumnType[] resultTypes, List<TableFilter> filters, boolean distinctInMemory, int startRow,
+			int rowsToRetrieve, String[] dataSources)
+		{
+			this.serverName = serverName;
+			this.sqlSelect = sqlSelect;
+			this.resultTypes = resultTypes;
+			this.filters = filters;
+			this.distinctInMemory = distinctInMemory;
+			this.startRow = startRow;
+			this.rowsToRetrieve = rowsToRetrieve;
+			this.dataSources = dataSources;
+			this.hashCode = Objects.hash(serverName, sqlSelect, Integer.valueOf(Arrays.hashCode(resultTypes)), filters, Boolean.valueOf(distinctInMemory),
+				Integer.valueOf(startRow), Integer.valueOf(rowsToRetrieve));
+		}
+
+		/**
+		 * The query and filters of the caller can be changed after the call, the key that is stored must have its own copy.
+		 */
+		Key freeze()
+		{
+			return new Key(serverName, AbstractBaseQuery.deepClone(sqlSelect), resultTypes == null ? null : resultTypes.clone(),
+				filters == null ? null : new ArrayList<>(filters), distinctInMemory, startRow, rowsToRetrieve, dataSources);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key)obj;
+			return hashCode == other.hashCode && distinctInMemory == other.distinctInMemory && startRow == other.startRow &&
+				rowsToRetrieve == other.rowsToRetrieve && serverName.equals(other.serverName) && Arrays.equals(resultTypes, other.resultTypes) &&
+				Objects.equals(filters, other.filters) && sqlSelect.equals(other.sqlSelect);
+		}
+	}
+
+	private static final class Entry
+	{
+		private final String[] columnNames;
+		private final ColumnType[] columnTypes;
+		private final List<Object[]> rows;
+		private final boolean hadMoreRows;
+		private final long[] generations;
+
+		private Entry(BufferedDataSet set, long[] generations)
+		{
+			this.generations = generations;
+			this.columnNames = set.getColumnNames();
+			this.columnTypes = set.getColumnTypeInfo();
+			this.rows = copyRows(set);
+			this.hadMoreRows = set.hadMoreRows();
+		}
+
+		/**
+		 * Clients can change the returned data set and its rows, each gets a copy.
+		 */
+		IDataSet createDataSet()
+		{
+			List<Object[]> copy = new SafeArrayList<>(rows.size() + 5);
+			for (Object[] row : rows)
+			{
+				copy.add(row == null ? null : row.clone());
+			}
+			return new BufferedDataSet(columnNames == null ? null : columnNames.clone(), columnTypes == null ? null : columnTypes.clone(), copy,
+				hadMoreRows);
+		}
+
+		private static List<Object[]> copyRows(IDataSet set)
+		{
+			List<Object[]> rows = new ArrayList<>(set.getRowCount());
+			for (int i = 0; i < set.getRowCount(); i++)
+			{
+				Object[] row = set.getRow(i);
+				rows.add(row == null ? null : row.clone());
+			}
+			return rows;
+		}
+	}
+
+	public static final class Statistics
+	{
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder stored = new LongAdder();
+
+		public long getHits()
+		{
+			return hits.sum();
+		}
+
+		public long getMisses()
+		{
+			return misses.sum();
+		}
+
+		public long getStored()
+		{
+			return stored.sum();
+		}
+
+		public double getHitRate()
+		{
+			long h = hits.sum();
+			long total = h + misses.sum();
+			return total == 0 ? 0 : (double)h / total;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "hits: " + getHits() + ", misses: " + getMisses() + ", stored: " + getStored() + ", hit rate: " + Math.round(getHitRate() * 100) + "%";
+		}
+	}
+}
@@ -24,9 +24,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.stream.IntStream;
 import java.util.stream.IntStream.Builder;
@@ -199,6 +201,10 @@ public abstract class RelatedFoundSet extends FoundSet
 		String clientID = fsm.getApplication().getClientID();
 		ArrayList<TableFilter> sqlFilters = fsm.getTableFilterParams(sheet.getServerName(), cleanSelect);
 
+		boolean isFKPKRef = relation.isFKPKRef(fsm.getApplication().getFlattenedSolution());
+		// keep a reference to the rows until the foundsets are created, so they are not removed from the row cache before that
+		List<Row> preloadedRows = isFKPKRef && whereArsgLists.length > 1 ? loadForeignRows(fsm, relation, whereArsgLists) : null;
+
 		for (int i = 0; i < whereArsgLists.length; i++)
 		{
 			Object[] whereArgs = whereArsgLists[i];
@@ -225,7 +231,7 @@ public abstract class RelatedFoundSet extends FoundSet
 
 			// We allow null values in where-args (is handled in the QueryGenerator)
 			Row cachedRow = null;
-			if (relation.isFKPKRef(fsm.getApplication().getFlattenedSolution()))
+			if (isFKPKRef)
 			{
 				// optimize for FK->PK relation, if the data is already cached, do not query
 				RowManager rowManager = fsm.getRowManager(relation.getForeignDataSource());
@@ -372,9 +378,56 @@ public abstract class RelatedFoundSet extends FoundSet
 			throw new RepositoryException("Related query parameters out of sync " + d + '/' + queryIndex.size()); //$NON-NLS-1$
 		}
 
+		if (preloadedRows != null && Debug.tracing())
+		{
+			Debug.trace(Thread.currentThread().getName() + ": Relation " + relation.getName() + " preloaded " + preloadedRows.size() + " rows for " + //$NON-NLS-1$ //$NON-NLS-2$//$NON-NLS-3$
+				whereArsgLists.length + " foundsets, queries left: " + queryDatas.size()); //$NON-NLS-1$
+		}
+
 		return foundsets;
 	}
 
+	/**
+	 * Load the rows for a FK->PK relation of multiple parents in one query (select where pk in (...)) into the row cache,
+	 * so the related foundsets can be created from cached rows instead of a query per parent.
+	 *
+	 * @return the loaded rows
+	 */
+	private static List<Row> loadForeignRows(FoundSetManager fsm, Relation relation, Object[][] whereArgsLists)
+	{
+		try
+		{
+			RowManager rowManager = fsm.getRowManager(relation.getForeignDataSource());
+			if (rowManager == null)
+			{
+				return null;
+			}
+			BufferedDataSet pks = new BufferedDataSet();
+			Set<String> pkHashes = new HashSet<>();
+			for (Object[] whereArgs : whereArgsLists)
+			{
+				if (whereArgs != null && whereArgs.length > 0 && stream(whereArgs).allMatch(arg -> arg != null && !(arg instanceof DbIdentValue)) &&
+					rowManager.peekCachedRow(whereArgs) == null && pkHashes.add(RowManager.createPKHashKey(whereArgs)))
+				{
+					pks.addRow(whereArgs);
+				}
+			}
+			if (pks.getRowCount() < 2)
+			{
+				// nothing to gain
+				return null;
+			}
+			// none of the rows is cached, do not look them up again
+			return rowManager.getRows(pks, 0, pks.getRowCount(), true);
+		}
+		catch (ServoyException e)
+		{
+			// the related foundsets will be queried one by one
+			Debug.log("Could not load records of relation " + relation.getName() + " in one query", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+	}
+
 	private static void testException(String clientID, Throwable t)
 	{
 		if (Debug.tracing() && t instanceof RepositoryException)
@@ -71,10 +71,10 @@ import com.servoy.j2db.query.TablePlaceholderKey;
 import com.servoy.j2db.scripting.GlobalScope;
 import com.servoy.j2db.util.ConcurrentSoftvaluesMultimap;
 import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.IReferenceWithData;
 import com.servoy.j2db.util.Pair;
 import com.servoy.j2db.util.SafeArrayList;
 import com.servoy.j2db.util.ServoyException;
-import com.servoy.j2db.util.SoftReferenceWithData;
 import com.servoy.j2db.util.UUID;
 import com.servoy.j2db.util.Utils;
 
@@ -87,10 +87,12 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 {
 	private final FoundSetManager fsm;
 	private final ReferenceQueue<Row> referenceQueue;
-	private final Map<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> pkRowMap; // pkString -> SoftReference(Row)
+	private final Map<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> pkRowMap; // pk key (see createPKKey) -> Reference(Row)
+	private final IRowCache rowCache;
+	private final Object[] pkLocks; // lock stripes for creating/removing rows, based on pk hash
 	private final SQLSheet sheet;
 	private final ConcurrentMap<IRowListener, Object> listeners;
-	private final ConcurrentHashMap<String, ConcurrentSoftvaluesMultimap<String, RelatedFoundSet>> listenersByRelationEqualValues;
+	private final ConcurrentHashMap<String, ConcurrentSoftvaluesMultimap<Object, RelatedFoundSet>> listenersByRelationEqualValues;
 	private final Set<NamedLock> lockedRowPKs;
 	private final Map<String, Set<String>> globalCalcDependencies = new HashMap<String, Set<String>>();
 	private final Map<String, Set<String>> relationsUsedInCalcs = new HashMap<String, Set<String>>();
@@ -100,10 +102,16 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 
 	private volatile FSMTableNotifier fsmNotifier;
 
-	RowManager(FoundSetManager fsm, SQLSheet sheet)
+	RowManager(FoundSetManager fsm, SQLSheet sheet, IRowCache rowCache)
 	{
 		this.fsm = fsm;
 		this.sheet = sheet;
+		this.rowCache = rowCache;
+		pkLocks = new Object[PK_LOCK_STRIPES];
+		for (int i = 0; i < PK_LOCK_STRIPES; i++)
+		{
+			pkLocks[i] = new Object();
+		}
 		pkRowMap = new ConcurrentHashMap<>(64);
 		referenceQueue = new ReferenceQueue<Row>();
 		listeners = CacheBuilder.newBuilder().weakKeys().<IRowListener, Object> build().asMap();
@@ -114,10 +122,53 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	public void dispose()
 	{
 		fsm.removeGlobalFoundsetEventListener(this);
+		for (IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr : pkRowMap.values())
+		{
+			rowCache.invalidate(sr.get());
+		}
+	}
+
+	IRowCache getRowCache()
+	{
+		return rowCache;
+	}
+
+	private IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getRowReference(String pkHashKey)
+	{
+		return pkRowMap.get(createPKKey(pkHashKey));
+	}
+
+	private IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> newRowReference(Row row)
+	{
+		return rowCache.createReference(row, referenceQueue);
+	}
+
+	/**
+	 * Remove the row from the pk map, the row does not have to be kept in the row cache anymore.
+	 */
+	private IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> removeCachedRow(String pkHashKey)
+	{
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> removed = pkRowMap.remove(createPKKey(pkHashKey));
+		if (removed != null)
+		{
+			rowCache.invalidate(removed.get());
+		}
+		return removed;
 	}
 
 	private static Object dummy = new Object();
 
+	private static final int PK_LOCK_STRIPES = 64; // must be a power of 2
+
+	/**
+	 * Get the lock that guards creating, replacing and removing of the row with this pk hash, rows with different pks can be handled concurrently.
+	 */
+	private Object getPKLock(Object pkKey)
+	{
+		int h = pkKey.hashCode();
+		return pkLocks[(h ^ (h >>> 16)) & (PK_LOCK_STRIPES - 1)];
+	}
+
 	void register(IRowListener fs)
 	{
 		boolean listenersByEqualValuesAdded = false;
@@ -132,16 +183,16 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				Object[] eqArgs = relatedFoundSet.getWhereArgs(true);
 				if (eqArgs != null && !stream(eqArgs).anyMatch(DbIdentValue.class::isInstance))
 				{
-					ConcurrentSoftvaluesMultimap<String, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
+					ConcurrentSoftvaluesMultimap<Object, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
 					if (listenersByEqualValues == null)
 					{
-						listenersByEqualValues = new ConcurrentSoftvaluesMultimap<String, RelatedFoundSet>();
-						ConcurrentSoftvaluesMultimap<String, RelatedFoundSet> prevValue = listenersByRelationEqualValues.putIfAbsent(relation.getName(),
+						listenersByEqualValues = new ConcurrentSoftvaluesMultimap<Object, RelatedFoundSet>();
+						ConcurrentSoftvaluesMultimap<Object, RelatedFoundSet> prevValue = listenersByRelationEqualValues.putIfAbsent(relation.getName(),
 							listenersByEqualValues);
 						if (prevValue != null) listenersByEqualValues = prevValue;
 					}
 
-					listenersByEqualValues.add(createPKHashKey(eqArgs), relatedFoundSet);
+					listenersByEqualValues.add(createPKKey(eqArgs), relatedFoundSet);
 					listenersByEqualValuesAdded = true;
 				}
 			}
@@ -166,10 +217,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				Object[] eqArgs = relatedFoundSet.getWhereArgs(true);
 				if (eqArgs != null)
 				{
-					ConcurrentSoftvaluesMultimap<String, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
+					ConcurrentSoftvaluesMultimap<Object, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
 					if (listenersByEqualValues != null)
 					{
-						listenersByEqualValues.remove(createPKHashKey(eqArgs), relatedFoundSet);
+						listenersByEqualValues.remove(createPKKey(eqArgs), relatedFoundSet);
 					}
 				}
 			}
@@ -200,6 +251,12 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	//See ALSO Row.getPKHashKey
 	public static String createPKHashKey(Object[] pk)
 	{
+		if (pk != null && pk.length == 1 && (pk[0] instanceof Integer || pk[0] instanceof Long))
+		{
+			// most common case, same result as below
+			String str = pk[0].toString();
+			return str.length() + "." + str + ';'; //$NON-NLS-1$
+		}
 		StringBuilder sb = new StringBuilder();
 		if (pk != null)
 		{
@@ -215,6 +272,134 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		return sb.toString();
 	}
 
+	/**
+	 * Create the key under which a row is kept in the row map, this is a compact form of the pk hash key.
+	 * For single-column pks with an integer or uuid value this is a Long or UUID, for other pks it is the pk hash key itself.
+	 * <p>
+	 * The result is always the same as createPKKey(createPKHashKey(pk)), but the pk hash string is not created for the common single-column pks.
+	 */
+	static Object createPKKey(Object[] pk)
+	{
+		if (pk != null && pk.length == 1)
+		{
+			Object val = pk[0];
+			if (val instanceof Integer || val instanceof Long || val instanceof Short || val instanceof Byte)
+			{
+				return Long.valueOf(((Number)val).longValue());
+			}
+			if (val instanceof UUID)
+			{
+				return new java.util.UUID(((UUID)val).getMostSignificantBits(), ((UUID)val).getLeastSignificantBits());
+			}
+		}
+		return createPKKey(createPKHashKey(pk));
+	}
+
+	/**
+	 * Create the row map key for a pk hash key, see {@link #createPKKey(Object[])}.
+	 */
+	static Object createPKKey(String pkHashKey)
+	{
+		// single value pk hash: <length>.<value>;
+		int dot = pkHashKey.indexOf('.');
+		if (dot < 1 || dot > 2 || pkHashKey.length() < 4 || pkHashKey.charAt(pkHashKey.length() - 1) != ';')
+		{
+			return pkHashKey;
+		}
+		int length = 0;
+		for (int i = 0; i < dot; i++)
+		{
+			char c = pkHashKey.charAt(i);
+			if (c < '0' || c > '9') return pkHashKey;
+			length = length * 10 + (c - '0');
+		}
+		int start = dot + 1;
+		int end = start + length;
+		if (end != pkHashKey.length() - 1)
+		{
+			// multiple values
+			return pkHashKey;
+		}
+		if (length == 36)
+		{
+			java.util.UUID uuid = parseCanonicalUUID(pkHashKey, start);
+			return uuid == null ? pkHashKey : uuid;
+		}
+		if (isCanonicalLong(pkHashKey, start, end))
+		{
+			return Long.valueOf(Long.parseLong(pkHashKey, start, end, 10));
+		}
+		return pkHashKey;
+	}
+
+	/**
+	 * Get the pk hash key for a row map key, see {@link #createPKKey(Object[])}.
+	 */
+	static String getPKHashKey(Object pkKey)
+	{
+		if (pkKey instanceof String)
+		{
+			return (String)pkKey;
+		}
+		String str = pkKey.toString(); // Long or lowercase java UUID
+		return str.length() + "." + str + ';'; //$NON-NLS-1$
+	}
+
+	/**
+	 * Check if the chars are the only string representation of a long value, so a Long key maps back to the same pk hash.
+	 */
+	private static boolean isCanonicalLong(String s, int start, int end)
+	{
+		int digitsStart = s.charAt(start) == '-' ? start + 1 : start;
+		int ndigits = end - digitsStart;
+		if (ndigits < 1 || ndigits > 19 || (s.charAt(digitsStart) == '0' && (ndigits > 1 || digitsStart > start)))
+		{
+			return false;
+		}
+		for (int i = digitsStart; i < end; i++)
+		{
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') return false;
+		}
+		if (ndigits == 19)
+		{
+			try
+			{
+				Long.parseLong(s, start, end, 10);
+			}
+			catch (NumberFormatException e)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse a lowercase uuid in the standard 8-4-4-4-12 form, returns null when the chars are not in that form.
+	 */
+	private static java.util.UUID parseCanonicalUUID(String s, int start)
+	{
+		long msb = 0;
+		long lsb = 0;
+		for (int i = 0; i < 36; i++)
+		{
+			char c = s.charAt(start + i);
+			if (i == 8 || i == 13 || i == 18 || i == 23)
+			{
+				if (c != '-') return null;
+				continue;
+			}
+			int digit;
+			if (c >= '0' && c <= '9') digit = c - '0';
+			else if (c >= 'a' && c <= 'f') digit = c - 'a' + 10;
+			else return null;
+			if (i < 18) msb = (msb << 4) | digit;
+			else lsb = (lsb << 4) | digit;
+		}
+		return new java.util.UUID(msb, lsb);
+	}
+
 	private static String valueHash(Object pkval)
 	{
 		Object val = pkval;
@@ -276,14 +461,30 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 
 	Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRow(Object[] pk)
 	{
-		return getCachedRow(createPKHashKey(pk));
+		return getCachedRowForKey(createPKKey(pk), true);
 	}
 
-	private Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRow(String pkhashKey)
+	/**
+	 * Get a cached row without counting the lookup in the row cache statistics.
+	 */
+	Row peekCachedRow(Object[] pk)
+	{
+		return getCachedRowForKey(createPKKey(pk), false).getLeft();
+	}
+
+	private Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRow(String pkhashKey, boolean access)
+	{
+		return getCachedRowForKey(createPKKey(pkhashKey), access);
+	}
+
+	/**
+	 * @param access when true the lookup is counted in the row cache statistics and a found row is marked as recently used
+	 */
+	private Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRowForKey(Object pkKey, boolean access)
 	{
 		Row rowData = null;
 		Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = null;
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkhashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkKey);
 		if (sr != null)
 		{
 			data = sr.getData();
@@ -293,12 +494,23 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				Debug.trace("-----------CacheMiss"); //$NON-NLS-1$
 				if (canRemove(sr))
 				{
-					removeRowReferences(pkhashKey, null);
-					pkRowMap.remove(pkhashKey);
+					removeRowReferences(getPKHashKey(pkKey), null);
+					pkRowMap.remove(pkKey, sr);
 					data = null;
 				}
 			}
 		}
+		if (access)
+		{
+			if (rowData == null)
+			{
+				rowCache.rowMiss();
+			}
+			else
+			{
+				rowCache.rowHit(rowData);
+			}
+		}
 		return new Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(rowData, data);
 	}
 
@@ -338,19 +550,18 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			pk[i] = val;
 		}
 		Row rowData = null;
-		String pkHashKey = createPKHashKey(pk);
+		Object pkKey = createPKKey(pk);
 		boolean fireCalcs = false;
-		synchronized (this)
+		synchronized (getPKLock(pkKey))
 		{
-			Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> cachedRow = getCachedRow(pkHashKey);
+			Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> cachedRow = getCachedRowForKey(pkKey, true);
 			rowData = cachedRow.getLeft();
 			Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = cachedRow.getRight();
 			if (rowData == null)
 			{
 				rowData = createExistInDBRowObject(columndata);
-				SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(
-					rowData, referenceQueue);
-				pkRowMap.put(rowData.getPKHashKey(), sr);
+				IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = newRowReference(rowData);
+				pkRowMap.put(pkKey, sr);
 				if (data != null)
 				{
 					// use existing dependencies if row was GD'd before
@@ -362,7 +573,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 		if (fireCalcs)
 		{
-			fireDependingCalcs(pkHashKey, null, fires);
+			fireDependingCalcs(pkRowMap.get(pkKey), null, fires);
 		}
 		return rowData;
 	}
@@ -382,8 +593,8 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		Row row = new Row(this, data, sheet.getAllUnstoredCalculationNamesWithNoValue(), existInDB);
 		if (addToMap)
 		{
-			pkRowMap.put(row.getPKHashKey(),
-				new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));
+			pkRowMap.put(createPKKey(row.getPKHashKey()),
+				newRowReference(row));
 			clearAndCheckCache();
 		}
 		return row;
@@ -439,9 +650,9 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	boolean changeByOther(String pkHashKey, int action, Object[] insertColumnDataOrChangedColumns, Row insertedRow)
 	{
 		Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> cachedRow;
-		synchronized (this)
+		synchronized (getPKLock(createPKKey(pkHashKey)))
 		{
-			cachedRow = getCachedRow(pkHashKey);
+			cachedRow = getCachedRow(pkHashKey, false);
 		}
 		Row rowData = cachedRow.getLeft();
 		if (rowData != null && action != ISQLActionTypes.INSERT_ACTION) // in case of rawSQL insert & notify, insertColumnDataOrChangedColumns is null, so the row corresponding to the pk was taken from DB and cached
@@ -496,7 +707,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				// the row is in memory but not longer referenced from any record or it was deleted.
 				// do remove it so that it will be re queried when needed (when it was not deleted)
 				removeRowReferences(pkHashKey, null);
-				pkRowMap.remove(pkHashKey);
+				removeCachedRow(pkHashKey);
 			}
 			return false;
 		}
@@ -506,10 +717,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			if (insertedRow != null)
 			{
 				fireNotifyChange(null, insertedRow, insertedRow.getPKHashKey(), null, RowEvent.INSERT, false, true);
-				if (!insertedRow.hasListeners() && canRemove(pkRowMap.get(pkHashKey))) //new row is not in use
+				if (!insertedRow.hasListeners() && canRemove(getRowReference(pkHashKey))) //new row is not in use
 				{
 					removeRowReferences(pkHashKey, null);
-					pkRowMap.remove(pkHashKey);
+					removeCachedRow(pkHashKey);
 					return false;
 				}
 				return true;
@@ -521,16 +732,15 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				if (rowData.hasListeners())//new row is in use
 				{
 					boolean fireCalcs = false;
-					synchronized (this)
+					synchronized (getPKLock(createPKKey(pkHashKey)))
 					{
-						SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(
-							rowData, referenceQueue);
+						IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = newRowReference(rowData);
 						if (cachedRow.getRight() != null)
 						{
 							sr.setData(cachedRow.getRight());
 							fireCalcs = true;
 						}
-						pkRowMap.put(rowData.getPKHashKey(), sr);
+						pkRowMap.put(createPKKey(rowData.getPKHashKey()), sr);
 					}
 					if (fireCalcs)
 					{
@@ -550,7 +760,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		return false;
 	}
 
-	synchronized List<Row> getRows(IDataSet pks, int row, int sizeHint, boolean queryAll) throws ServoyException
+	List<Row> getRows(IDataSet pks, int row, int sizeHint, boolean queryAll) throws ServoyException
 	{
 		List<Row> retval = new SafeArrayList<Row>();
 		if (row >= pks.getRowCount()) return retval;
@@ -634,19 +844,19 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			}
 
 			//construct Rows
+			Map<Object, Row> rowsByPKKey = new HashMap<>();
+			for (int r = 0; r < formdata.getRowCount(); r++)
+			{
+				rowData = getRowBasedonPKFromEntireColumnArray(formdata.getRow(r));
+				rowsByPKKey.putIfAbsent(createPKKey(rowData.getPK()), rowData);
+			}
 			for (int k = row; k < maxRow; k++)
 			{
-				String pkHash = createPKHashKey(pks.getRow(k));
 				//reorder based on pk in mem,cannot do related sort icw SELECT_IN
-				for (int r = 0; r < formdata.getRowCount(); r++)
+				rowData = rowsByPKKey.get(createPKKey(pks.getRow(k)));
+				if (rowData != null)
 				{
-					Object[] columndata = formdata.getRow(r);
-					rowData = getRowBasedonPKFromEntireColumnArray(columndata);
-					if (pkHash.equals(createPKHashKey(rowData.getPK())))
-					{
-						retval.set(k - row, rowData);
-						break;
-					}
+					retval.set(k - row, rowData);
 				}
 			}
 			if (retval.size() < maxRow - row)
@@ -694,8 +904,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				if (!columns.isEmpty())
 				{
 					Object[] eqArgs = columns.stream().map(column -> row.getValue(column.getDataProviderID())).toArray();
-					String eqHash = RowManager.createPKHashKey(eqArgs);
-					toNotify.addAll(entry.getValue().get(eqHash));
+					toNotify.addAll(entry.getValue().get(createPKKey(eqArgs)));
 				}
 			});
 		}
@@ -1058,15 +1267,20 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param oldKeyHash pkhash
 	 * @param runnables
 	 */
-	synchronized void fireDependingCalcsForPKUpdate(final Row row, final String oldKeyHash, List<Runnable> runnables)
+	void fireDependingCalcsForPKUpdate(final Row row, final String oldKeyHash, List<Runnable> runnables)
 	{
 		// do recalcPKHashKey incase its called before and pk did not yet exist
 		String newKeyHash = row.recalcPKHashKey();
 		if (!oldKeyHash.equals(newKeyHash))
 		{
-			final SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> srOld = pkRowMap.get(oldKeyHash);
-			pkRowMap.put(newKeyHash,
-				new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));// (over)write new
+			final Object oldKey = createPKKey(oldKeyHash);
+			final IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> srOld = pkRowMap.get(oldKey);
+			Object newKey = createPKKey(newKeyHash);
+			synchronized (getPKLock(newKey))
+			{
+				pkRowMap.put(newKey,
+					newRowReference(row));// (over)write new
+			}
 			if (srOld != null)
 			{
 				// run fires later
@@ -1076,29 +1290,26 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 					{
 						// calcs depending on old pk are invalid
 						fireDependingCalcs(srOld, null, null);
-						pkRowMap.remove(oldKeyHash);//remove old
+						pkRowMap.remove(oldKey, srOld);//remove old
 					}
 				});
 			}
 		}
 		else
 		{
-			if (!pkRowMap.containsKey(newKeyHash))
-			{
-				pkRowMap.put(newKeyHash,
-					new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));
-				clearAndCheckCache();
-			}
+			pkUpdated(row);
 		}
 	}
 
 	void pkUpdated(Row row)
 	{
-		String newKeyHash = row.recalcPKHashKey();
-		if (!pkRowMap.containsKey(newKeyHash))
+		Object newKey = createPKKey(row.recalcPKHashKey());
+		if (!pkRowMap.containsKey(newKey))
 		{
-			pkRowMap.put(newKeyHash,
-				new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));
+			synchronized (getPKLock(newKey))
+			{
+				pkRowMap.computeIfAbsent(newKey, key -> newRowReference(row));
+			}
 			clearAndCheckCache();
 		}
 	}
@@ -1108,22 +1319,24 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		if (referenceQueue.poll() != null)
 		{
 			// quicly clear the whole queue, so that it is empty for the next time.
+			rowCache.rowCollected();
 			while (referenceQueue.poll() != null)
 			{
+				rowCache.rowCollected();
 			}
 
 			// test the hashmap for empty  Softreferences
-			Iterator<Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>> it = pkRowMap
+			Iterator<Entry<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>> it = pkRowMap
 				.entrySet()
 				.iterator();
 			while (it.hasNext())
 			{
-				Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry = it.next();
-				SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> value = entry.getValue();
+				Entry<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry = it.next();
+				IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> value = entry.getValue();
 				if (value == null || (value.get() == null && canRemove(value)))
 				{
-					removeRowReferences(entry.getKey(), null);
-					it.remove();
+					removeRowReferences(getPKHashKey(entry.getKey()), null);
+					pkRowMap.remove(entry.getKey(), value);
 				}
 			}
 		}
@@ -1189,18 +1402,18 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				}
 			}
 
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> removed;
-			synchronized (this)
+			IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> removed;
+			synchronized (getPKLock(createPKKey(r.getPKHashKey())))
 			{
-				removed = pkRowMap.remove(r.getPKHashKey());
+				removed = removeCachedRow(r.getPKHashKey());
 			}
 			fireDependingCalcs(removed, null, null);
 		}
 		else
 		{
-			synchronized (this)
+			synchronized (getPKLock(createPKKey(r.getPKHashKey())))
 			{
-				pkRowMap.remove(r.getPKHashKey());
+				removeCachedRow(r.getPKHashKey());
 			}
 		}
 		fireNotifyChange(src, r, r.getPKHashKey(), null, RowEvent.DELETE);
@@ -1210,9 +1423,9 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	{
 		if (r != null)
 		{
-			synchronized (this)
+			synchronized (getPKLock(createPKKey(r.getPKHashKey())))
 			{
-				pkRowMap.remove(r.getPKHashKey());
+				removeCachedRow(r.getPKHashKey());
 			}
 		}
 	}
@@ -1304,27 +1517,27 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	/**
 	 * Flushes all cached rows which are not edited.
 	 */
-	synchronized void flushAllCachedRows()
+	void flushAllCachedRows()
 	{
-		//expensive but safe
-		@SuppressWarnings("unchecked")
-		Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>[] array = pkRowMap.entrySet()
-			.toArray(
-				new Entry[pkRowMap.size()]);
-		for (Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry : array)
+		for (Entry<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry : pkRowMap.entrySet())
 		{
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> ref = entry.getValue();
-			Row row = ref.get();
-			if (row == null || !row.isChanged())
+			synchronized (getPKLock(entry.getKey()))
 			{
-				if (canRemove(ref))
+				IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> ref = pkRowMap.get(entry.getKey());
+				if (ref == null) continue;
+				Row row = ref.get();
+				if (row == null || !row.isChanged())
 				{
-					removeRowReferences(entry.getKey(), null);
-					pkRowMap.remove(entry.getKey());
-				}
-				else
-				{
-					ref.clear();
+					rowCache.invalidate(row);
+					if (canRemove(ref))
+					{
+						removeRowReferences(getPKHashKey(entry.getKey()), null);
+						pkRowMap.remove(entry.getKey(), ref);
+					}
+					else
+					{
+						ref.clear();
+					}
 				}
 			}
 		}
@@ -1458,11 +1671,11 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 					String whereArgsHash = ((RelatedFoundSet)sourceFoundset).getWhereArgsHash();
 					List<CalculationDependency> calculationDependencies = new ArrayList<CalculationDependency>();
 
-					for (Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry : pkRowMap
+					for (Entry<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry : pkRowMap
 						.entrySet())
 					{
-						String pkHash = entry.getKey();
-						SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = entry.getValue();
+						String pkHash = getPKHashKey(entry.getKey());
+						IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = entry.getValue();
 						synchronized (sr)
 						{
 							Row row = sr.get();
@@ -1574,16 +1787,16 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	/**
 	 * @param dp
 	 */
-	private synchronized boolean clearCalc(String dp, List<RowFireNotifyChange> fires)
+	private boolean clearCalc(String dp, List<RowFireNotifyChange> fires)
 	{
 		boolean changed = false;
-		Iterator<Map.Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>> it = pkRowMap
+		Iterator<Map.Entry<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>> it = pkRowMap
 			.entrySet()
 			.iterator();
 		while (it.hasNext())
 		{
-			Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry = it.next();
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = entry.getValue();
+			Entry<Object, IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry = it.next();
+			IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = entry.getValue();
 			Row row = sr.get();
 			if (row != null)
 			{
@@ -1591,8 +1804,8 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			}
 			else if (canRemove(sr))
 			{
-				removeRowReferences(entry.getKey(), dp);
-				it.remove();//was empty remove while we are here anyway...
+				removeRowReferences(getPKHashKey(entry.getKey()), dp);
+				pkRowMap.remove(entry.getKey(), sr);//was empty remove while we are here anyway...
 			}
 		}
 		return changed;
@@ -1600,7 +1813,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 
 	public void flagAllRowCalcsForRecalculation(String pkHashKey)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 		if (sr != null)
 		{
 			List<String> calcsUptodate = null;
@@ -1620,7 +1833,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	{
 		if (calcs != null && calcs.size() > 0)
 		{
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+			IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 			if (sr != null)
 			{
 				List<RowFireNotifyChange> myFires = new ArrayList<RowFireNotifyChange>();
@@ -1635,7 +1848,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 
 	public boolean flagRowCalcForRecalculation(String pkHashKey, String calc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 		if (sr != null)
 		{
 			Row row = sr.get();
@@ -1656,7 +1869,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 */
 	public void removeRowReferences(String pkHashKey, String calc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 		if (sr != null)
 		{
 			CalculationDependencyData rowRefs = null;
@@ -1806,7 +2019,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
-	private boolean canRemove(SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr)
+	private boolean canRemove(IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr)
 	{
 		if (sr != null)
 		{
@@ -1842,7 +2055,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 						Debug.error(e);
 						return false;
 					}
-					if (rm != null && rm.getCachedRow(dep.pkHashKey).getLeft() != null)
+					if (rm != null && rm.getCachedRow(dep.pkHashKey, false).getLeft() != null)
 					{
 						return false;
 					}
@@ -1867,7 +2080,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 */
 	public void fireDependingCalcs(String pkHashKey, String dataProviderId, List<RowFireNotifyChange> fires)
 	{
-		fireDependingCalcs(pkRowMap.get(pkHashKey), dataProviderId, fires);
+		fireDependingCalcs(getRowReference(pkHashKey), dataProviderId, fires);
 	}
 
 	/**
@@ -1876,7 +2089,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param pkHashKey
 	 * @param dataProviderId, null for all
 	 */
-	protected void fireDependingCalcs(SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr,
+	protected void fireDependingCalcs(IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr,
 		String dataProviderId, List<RowFireNotifyChange> fires)
 	{
 		List<CalculationDependency> deps = null;
@@ -1954,7 +2167,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	{
 		if (flagRowCalcForRecalculation(pkHashKey, calc))
 		{
-			Row row = getCachedRow(pkHashKey).getLeft();
+			Row row = getCachedRow(pkHashKey, false).getLeft();
 			if (row != null)
 			{
 				List<RowFireNotifyChange> myFires;
@@ -1991,7 +2204,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 */
 	public void addCalculationDependency(String pkHashKey, String dataproviderId, String dependingDataSource, String dependingPkHashKey, String dependingCalc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2042,7 +2255,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	public void removeCalculationDependency(String pkHashKey, String dataproviderId, String dependingDataSource, String dependingPkHashKey,
 		String dependingCalc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2088,7 +2301,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 */
 	private void addCalculationDependencyBackReference(RowReference rowReference, String pkHashKey, String calc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(pkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2136,7 +2349,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 
 		// add a relation dependency for the calc
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(dependingPkHashKey);
+		IReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = getRowReference(dependingPkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
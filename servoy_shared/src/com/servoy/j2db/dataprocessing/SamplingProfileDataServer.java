@@ -0,0 +1,242 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.query.ISQLSelect;
+import com.servoy.j2db.server.shared.DataCallStatistics;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.ServoyException;
+
+/**
+ * A wrapper around the actual {@link IDataServer} that records the timings of a sample of the queries and updates in {@link DataCallStatistics},
+ * aggregated by sql shape. Unlike the developer ProfileDataServer this does not generate the sql, the shape is made from the query objects.
+ *
+ * @since 2024.09
+ */
+public class SamplingProfileDataServer extends AbstractDelegateDataServer
+{
+	private final Supplier<DataCallStatistics> statisticsSupplier;
+	private final int sampleRate;
+
+	/**
+	 * @param dataserver the data server to profile
+	 * @param statisticsSupplier returns the statistics to record in, may return null when there is nothing to record in (yet)
+	 * @param sampleRate 1 to profile all calls, n to profile 1 out of n calls
+	 */
+	public SamplingProfileDataServer(IDataServer dataserver, Supplier<DataCallStatistics> statisticsSupplier, int sampleRate)
+	{
+		super(dataserver);
+		this.statisticsSupplier = statisticsSupplier;
+		this.sampleRate = Math.max(1, sampleRate);
+	}
+
+	@FunctionalInterface
+	private interface DataCall<T>
+	{
+		T call() throws ServoyException;
+	}
+
+	private <T> T profile(String action, String serverName, Supplier<String> sql, DataCall<T> call) throws ServoyException
+	{
+		if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+		{
+			return call.call();
+		}
+		long startTime = System.currentTimeMillis();
+		try
+		{
+			return call.call();
+		}
+		finally
+		{
+			record(action, serverName, sql, System.currentTimeMillis() - startTime);
+		}
+	}
+
+	private void record(String action, String serverName, Supplier<String> sql, long ms)
+	{
+		try
+		{
+			DataCallStatistics statistics = statisticsSupplier.get();
+			if (statistics != null)
+			{
+				statistics.record(action, serverName, DataCallStatistics.normalize(sql.get()), ms);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			// profiling should never break the data call
+			Debug.error("Could not record data call statistics", e); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+		ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve) throws ServoyException
+	{
+		return profile("Query", server_name, sqlSelect::toString, //$NON-NLS-1$
+			() -> super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve));
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String driverTableName, String transaction_id, String sql, Object[] questiondata,
+		int startRow, int rowsToRetrieve) throws ServoyException
+	{
+		return profile("Query", server_name, () -> sql, //$NON-NLS-1$
+			() -> super.performQuery(client_id, server_name, driverTableName, transaction_id, sql, questiondata, startRow, rowsToRetrieve));
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+		ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type) throws ServoyException
+	{
+		return profile(getQueryAction(type), server_name, sqlSelect::toString,
+			() -> super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve, type));
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+		ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type, ITrackingSQLStatement trackingInfo)
+		throws ServoyException
+	{
+		return profile(getQueryAction(type), server_name, sqlSelect::toString, () -> super.performQuery(client_id, server_name, transaction_id, sqlSelect,
+			resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve, type, trackingInfo));
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String driverTableName, String transaction_id, String sql, Object[] questiondata,
+		int startRow, int rowsToRetrieve, int type) throws ServoyException
+	{
+		return profile(getQueryAction(type), server_name, () -> sql,
+			() -> super.performQuery(client_id, server_name, driverTableName, transaction_id, sql, questiondata, startRow, rowsToRetrieve, type));
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+		ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, boolean updateIdleTimestamp) throws ServoyException
+	{
+		return profile("Query", server_name, sqlSelect::toString, () -> super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, //$NON-NLS-1$
+			filters, distinctInMemory, startRow, rowsToRetrieve, updateIdleTimestamp));
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String driverTableName, String transaction_id, String sql, Object[] questiondata,
+		int startRow, int rowsToRetrieve, boolean updateIdleTimestamp) throws ServoyException
+	{
+		return profile("Query", server_name, () -> sql, () -> super.performQuery(client_id, server_name, driverTableName, transaction_id, sql, questiondata, //$NON-NLS-1$
+			startRow, rowsToRetrieve, updateIdleTimestamp));
+	}
+
+	@Override
+	public IDataSet performCustomQuery(String client_id, String server_name, String driverTableName, String transaction_id, ISQLSelect sqlSelect,
+		ArrayList<TableFilter> filters, int startRow, int rowsToRetrieve) throws ServoyException
+	{
+		return profile("Custom Query", server_name, sqlSelect::toString, //$NON-NLS-1$
+			() -> super.performCustomQuery(client_id, server_name, driverTableName, transaction_id, sqlSelect, filters, startRow, rowsToRetrieve));
+	}
+
+	@Override
+	public IDataSet[] performQuery(String client_id, String server_name, String transaction_id, QueryData[] array) throws ServoyException
+	{
+		if (array == null || array.length == 0)
+		{
+			return super.performQuery(client_id, server_name, transaction_id, array);
+		}
+		// the queries are executed together, record each with its part of the time
+		long startTime = System.currentTimeMillis();
+		try
+		{
+			return super.performQuery(client_id, server_name, transaction_id, array);
+		}
+		finally
+		{
+			if (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0)
+			{
+				long ms = (System.currentTimeMillis() - startTime) / array.length;
+				for (QueryData queryData : array)
+				{
+					record(getQueryAction(queryData.getType()), server_name, () -> String.valueOf(queryData.getSqlSelect()), ms);
+				}
+			}
+		}
+	}
+
+	@Override
+	public Object[] performUpdates(String clientId, ISQLStatement[] statements) throws ServoyException
+	{
+		if (statements == null || statements.length == 0)
+		{
+			return super.performUpdates(clientId, statements);
+		}
+		// the statements are executed together, record each with its part of the time
+		long startTime = System.currentTimeMillis();
+		try
+		{
+			return super.performUpdates(clientId, statements);
+		}
+		finally
+		{
+			if (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0)
+			{
+				long ms = (System.currentTimeMillis() - startTime) / statements.length;
+				for (ISQLStatement statement : statements)
+				{
+					record(getUpdateAction(statement.getAction()), statement.getServerName(), () -> String.valueOf(statement.getUpdate()), ms);
+				}
+			}
+		}
+	}
+
+	private static String getQueryAction(int type)
+	{
+		switch (type)
+		{
+			case IDataServer.FOUNDSET_LOAD_QUERY :
+				return "Foundset Load"; //$NON-NLS-1$
+			case IDataServer.RELATION_QUERY :
+				return "Relation Query"; //$NON-NLS-1$
+			case IDataServer.AGGREGATE_QUERY :
+				return "Aggregate Query"; //$NON-NLS-1$
+			case IDataServer.VALUELIST_QUERY :
+				return "Valuelist Query"; //$NON-NLS-1$
+			case IDataServer.CUSTOM_QUERY :
+				return "Custom Query"; //$NON-NLS-1$
+			default :
+				return "Query"; //$NON-NLS-1$
+		}
+	}
+
+	private static String getUpdateAction(int action)
+	{
+		switch (action)
+		{
+			case ISQLActionTypes.INSERT_ACTION :
+				return "Insert"; //$NON-NLS-1$
+			case ISQLActionTypes.DELETE_ACTION :
+				return "Delete"; //$NON-NLS-1$
+			case ISQLActionTypes.UPDATE_ACTION :
+				return "Update"; //$NON-NLS-1$
+			default :
+				return "Statement"; //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,481 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.persistence.Column;
+import com.servoy.j2db.persistence.ITable;
+import com.servoy.j2db.query.AbstractBaseQuery;
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.query.IQuerySelectValue;
+import com.servoy.j2db.query.QueryColumn;
+import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.SetCondition;
+import com.servoy.j2db.util.DataSourceUtils;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Server wide in-memory index of the values of a lookup valuelist, so that typeahead fields can be filtered without a query per keystroke.
+ * The index is opt-in with the servoy.valuelist.typeaheadIndex setting.
+ * <p>
+ * An index holds the valuelist columns of all rows of the table (as seen through the table filters of the clients that share it) by primary key.
+ * Tables with more than servoy.valuelist.typeaheadIndex.maxRows rows (default 100000) are not indexed, at most servoy.valuelist.typeaheadIndex.maxIndexes
+ * (default 200) indexes are kept.
+ * <p>
+ * Data changes of a table are collected and applied on the next search: the changed rows are queried by primary key, a change without primary keys (or too
+ * many of them) reloads the whole index. The rows are loaded by one client at a time outside the lock of the search, searches of other clients fall back
+ * to the database meanwhile, as they do when a load fails.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class TypeaheadIndex
+{
+	private static final int MAX_PENDING_PKS = 500;
+
+	private static volatile Cache<List<Object>, TypeaheadIndex> indexes;
+
+	private final ITable table;
+	private final QuerySelect loadQuery;
+	private final int valueColumnCount;
+	private final int maxRows;
+
+	// data changes can come from any thread, they don't wait for a running load
+	private final ConcurrentMap<String, Object[]> pendingPks = new ConcurrentHashMap<>();
+	private volatile boolean reload = true;
+	private final ReentrantLock loadLock = new ReentrantLock();
+
+	// guarded by this
+	private final Map<String, Object[]> rows = new HashMap<>();
+	private volatile boolean tooLarge;
+	private Snapshot snapshot;
+
+	private TypeaheadIndex(ITable table, QuerySelect loadQuery, int valueColumnCount, int maxRows)
+	{
+		this.table = table;
+		this.loadQuery = loadQuery;
+		this.valueColumnCount = valueColumnCount;
+		this.maxRows = maxRows;
+	}
+
+	public static boolean isEnabled()
+	{
+		return Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.valuelist.typeaheadIndex", "false"));
+	}
+
+	private static Cache<List<Object>, TypeaheadIndex> getIndexes()
+	{
+		if (indexes == null)
+		{
+			synchronized (TypeaheadIndex.class)
+			{
+				if (indexes == null)
+				{
+					indexes = CacheBuilder.newBuilder()
+						.maximumSize(Utils.getAsInteger(Settings.getInstance().getProperty("servoy.valuelist.typeaheadIndex.maxIndexes", "200")))
+						.<List<Object>, TypeaheadIndex> build();
+				}
+			}
+		}
+		return indexes;
+	}
+
+	/**
+	 * Get the shared index for the key, the first element of the key must be the real datasource of the table.
+	 *
+	 * @param query the distinct valuelist query, only the columns and table are used.
+	 * @return null when there is no primary key to keep the index up to date with.
+	 */
+	static TypeaheadIndex getIndex(ITable table, QuerySelect query, List<Object> key)
+	{
+		List<Column> pkColumns = table.getRowIdentColumns();
+		if (pkColumns.isEmpty()) return null;
+
+		Cache<List<Object>, TypeaheadIndex> cache = getIndexes();
+		TypeaheadIndex index = cache.getIfPresent(key);
+		if (index == null)
+		{
+			synchronized (cache)
+			{
+				index = cache.getIfPresent(key);
+				if (index == null)
+				{
+					QuerySelect loadQuery = AbstractBaseQuery.deepClone(query);
+					loadQuery.setDistinct(false);
+					loadQuery.clearSorts();
+					ArrayList<IQuerySelectValue> columns = loadQuery.getColumnsClone();
+					int valueColumnCount = columns.size();
+					for (Column column : pkColumns)
+					{
+						columns.add(column.queryColumn(loadQuery.getTable()));
+					}
+					loadQuery.setColumns(columns);
+					index = new TypeaheadIndex(table, loadQuery, valueColumnCount,
+						Utils.getAsInteger(Settings.getInstance().getProperty("servoy.valuelist.typeaheadIndex.maxRows", "100000")));
+					cache.put(key, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Data of a table was changed, the server name in the datasource must be the real (not switched) server name.
+	 *
+	 * @param pks the changed rows, null when unknown.
+	 */
+	static void dataChanged(String dataSource, IDataSet pks)
+	{
+		Cache<List<Object>, TypeaheadIndex> cache = indexes;
+		if (cache == null) return;
+		cache.asMap().forEach((key, index) -> {
+			if (dataSource == null || dataSource.equals(key.get(0))) index.changed(pks);
+		});
+	}
+
+	static void serverChanged(String serverName)
+	{
+		Cache<List<Object>, TypeaheadIndex> cache = indexes;
+		if (cache == null) return;
+		cache.asMap().forEach((key, index) -> {
+			String[] servernameTablename = DataSourceUtils.getDBServernameTablename((String)key.get(0));
+			if (servernameTablename != null && serverName.equals(servernameTablename[0])) index.changed(null);
+		});
+	}
+
+	private void changed(IDataSet pks)
+	{
+		if (pks == null || pks.getRowCount() + pendingPks.size() > MAX_PENDING_PKS)
+		{
+			reload = true;
+			pendingPks.clear();
+			return;
+		}
+		IDataSet rightTypePks = BufferedDataSetInternal.convertPksToRightType(pks, table);
+		for (int i = 0; i < rightTypePks.getRowCount(); i++)
+		{
+			Object[] pk = rightTypePks.getRow(i);
+			pendingPks.put(RowManager.createPKHashKey(pk), pk);
+		}
+	}
+
+	/**
+	 * Search the index, the filter is applied like the valuelist query does: case insensitive, a leading % matches anywhere in the value.
+	 *
+	 * @param loader queries the rows for the index with the table filters of the index
+	 * @param prefixes values that must match the start of a column value, or that must be contained in it when contains is set; empty to match all rows.
+	 * @param searchColumns indexes of the valuelist columns that are searched
+	 * @param sortColumns indexes of the valuelist columns to sort on, 1-based, negative for descending
+	 * @return the valuelist columns of the matching rows, null when the index cannot be used now (the table has too many rows, the index is being
+	 *         loaded for another client or loading failed)
+	 */
+	IDataSet search(Loader loader, String[] prefixes, boolean contains, int[] searchColumns, int[] sortColumns, int startRow, int rowCount)
+	{
+		if (reload || !pendingPks.isEmpty())
+		{
+			if (!loadLock.tryLock()) return null;
+			try
+			{
+				if (!refresh(loader)) return null;
+			}
+			finally
+			{
+				loadLock.unlock();
+			}
+		}
+		synchronized (this)
+		{
+			if (tooLarge) return null;
+			return search(getSnapshot(), prefixes, contains, searchColumns, sortColumns, startRow, rowCount);
+		}
+	}
+
+	private static IDataSet search(Snapshot current, String[] prefixes, boolean contains, int[] searchColumns, int[] sortColumns, int startRow,
+		int rowCount)
+	{
+		BitSet matches = new BitSet(current.values.length);
+		if (prefixes.length == 0)
+		{
+			matches.set(0, current.values.length);
+		}
+		for (String prefix : prefixes)
+		{
+			String upperPrefix = prefix.toUpperCase();
+			for (int column : searchColumns)
+			{
+				if (contains) current.findContaining(column, upperPrefix, matches);
+				else current.findStartingWith(column, upperPrefix, matches);
+			}
+		}
+
+		List<Object[]> result = new ArrayList<>(Math.min(rowCount, matches.cardinality()));
+		int skip = startRow;
+		for (int position : current.getOrder(sortColumns))
+		{
+			if (matches.get(position))
+			{
+				if (skip > 0) skip--;
+				else if (result.size() == rowCount) return new BufferedDataSet(null, (ColumnType[])null, result, true);
+				else result.add(current.values[position]);
+			}
+		}
+		return new BufferedDataSet(null, (ColumnType[])null, result, false);
+	}
+
+	/**
+	 * Load the changes, the caller holds the load lock.
+	 *
+	 * @return false when loading failed, the index is reloaded on the next search.
+	 */
+	private boolean refresh(Loader loader)
+	{
+		if (reload)
+		{
+			reload = false;
+			// changes from here on are loaded again on the next search
+			pendingPks.clear();
+			IDataSet set = load(loader, loadQuery, maxRows + 1);
+			if (set == null) return false;
+			synchronized (this)
+			{
+				rows.clear();
+				snapshot = null;
+				tooLarge = set.getRowCount() > maxRows || set.hadMoreRows();
+				if (tooLarge)
+				{
+					Debug.log("Typeahead index on " + table.getDataSource() + " not used, the table has more than " + maxRows + " rows");
+				}
+				else
+				{
+					addRows(set);
+				}
+			}
+		}
+		else if (tooLarge)
+		{
+			// changed rows do not matter until the next full reload
+			pendingPks.clear();
+		}
+		else if (!pendingPks.isEmpty())
+		{
+			List<Object[]> pks = new ArrayList<>(pendingPks.values());
+			pks.forEach(pk -> pendingPks.remove(RowManager.createPKHashKey(pk)));
+
+			List<Column> pkColumns = table.getRowIdentColumns();
+			QueryColumn[] pkQueryColumns = new QueryColumn[pkColumns.size()];
+			for (int i = 0; i < pkQueryColumns.length; i++)
+			{
+				pkQueryColumns[i] = pkColumns.get(i).queryColumn(loadQuery.getTable());
+			}
+			SetCondition pkCondition = SQLGenerator.createSetConditionFromPKs(IBaseSQLCondition.EQUALS_OPERATOR, pkQueryColumns, pkColumns,
+				new BufferedDataSet(null, pks));
+			QuerySelect select = AbstractBaseQuery.deepClone(loadQuery);
+			select.setCondition(SQLGenerator.CONDITION_SEARCH, pkCondition);
+			IDataSet set = load(loader, select, pks.size());
+			if (set == null) return false;
+			synchronized (this)
+			{
+				pks.forEach(pk -> rows.remove(RowManager.createPKHashKey(pk)));
+				addRows(set);
+				snapshot = null;
+				if (rows.size() > maxRows) reload = true;
+			}
+		}
+		return true;
+	}
+
+	private IDataSet load(Loader loader, QuerySelect select, int maxRowsToLoad)
+	{
+		try
+		{
+			return loader.load(select, maxRowsToLoad);
+		}
+		catch (ServoyException e)
+		{
+			// the changed rows are unknown now, try again with a full load
+			reload = true;
+			Debug.error("Could not load the typeahead index on " + table.getDataSource() + ", using the database", e);
+			return null;
+		}
+	}
+
+	private void addRows(IDataSet set)
+	{
+		for (int i = 0; i < set.getRowCount(); i++)
+		{
+			Object[] row = set.getRow(i);
+			rows.put(RowManager.createPKHashKey(Arrays.copyOfRange(row, valueColumnCount, row.length)), Arrays.copyOf(row, valueColumnCount));
+		}
+	}
+
+	private Snapshot getSnapshot()
+	{
+		if (snapshot == null)
+		{
+			// the valuelist query is distinct
+			Map<List<Object>, Object[]> distinct = new LinkedHashMap<>();
+			for (Object[] row : rows.values())
+			{
+				distinct.putIfAbsent(Arrays.asList(row), row);
+			}
+			snapshot = new Snapshot(distinct.values().toArray(new Object[distinct.size()][]), valueColumnCount);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Queries rows for the index.
+	 */
+	@FunctionalInterface
+	interface Loader
+	{
+		IDataSet load(QuerySelect select, int maxRows) throws ServoyException;
+	}
+
+	/**
+	 * Immutable search structures over the distinct values, rebuilt after a change.
+	 */
+	private static final class Snapshot
+	{
+		private final Object[][] values;
+		// per column the upper case values and the positions sorted on them
+		private final String[][] upperValues;
+		private final int[][] sortedPositions;
+		private final Map<String, int[]> orders = new HashMap<>();
+
+		private Snapshot(Object[][] values, int columnCount)
+		{
+			this.values = values;
+			upperValues = new String[columnCount][];
+			sortedPositions = new int[columnCount][];
+		}
+
+		private String[] getUpperValues(int column)
+		{
+			if (upperValues[column] == null)
+			{
+				String[] upper = new String[values.length];
+				for (int i = 0; i < values.length; i++)
+				{
+					Object value = values[i][column];
+					upper[i] = value == null ? null : value.toString().toUpperCase();
+				}
+				upperValues[column] = upper;
+			}
+			return upperValues[column];
+		}
+
+		private int[] getSortedPositions(int column)
+		{
+			if (sortedPositions[column] == null)
+			{
+				String[] upper = getUpperValues(column);
+				sortedPositions[column] = sortPositions((p1, p2) -> {
+					if (upper[p1] == null) return upper[p2] == null ? 0 : -1;
+					if (upper[p2] == null) return 1;
+					return upper[p1].compareTo(upper[p2]);
+				});
+			}
+			return sortedPositions[column];
+		}
+
+		private void findStartingWith(int column, String prefix, BitSet matches)
+		{
+			String[] upper = getUpperValues(column);
+			int[] positions = getSortedPositions(column);
+			// binary search for the first value that is not smaller than the prefix, nulls are sorted first
+			int low = 0;
+			int high = positions.length;
+			while (low < high)
+			{
+				int mid = (low + high) >>> 1;
+				String value = upper[positions[mid]];
+				if (value == null || value.compareTo(prefix) < 0) low = mid + 1;
+				else high = mid;
+			}
+			for (int i = low; i < positions.length && upper[positions[i]].startsWith(prefix); i++)
+			{
+				matches.set(positions[i]);
+			}
+		}
+
+		private void findContaining(int column, String part, BitSet matches)
+		{
+			String[] upper = getUpperValues(column);
+			for (int i = 0; i < upper.length; i++)
+			{
+				if (upper[i] != null && upper[i].contains(part)) matches.set(i);
+			}
+		}
+
+		private int[] getOrder(int[] sortColumns)
+		{
+			return orders.computeIfAbsent(Arrays.toString(sortColumns), k -> sortPositions((p1, p2) -> {
+				for (int sortColumn : sortColumns)
+				{
+					int column = Math.abs(sortColumn) - 1;
+					int compare = compareValues(values[p1][column], values[p2][column]);
+					if (compare != 0) return sortColumn < 0 ? -compare : compare;
+				}
+				return 0;
+			}));
+		}
+
+		private int[] sortPositions(Comparator<Integer> comparator)
+		{
+			Integer[] positions = new Integer[values.length];
+			for (int i = 0; i < positions.length; i++)
+			{
+				positions[i] = Integer.valueOf(i);
+			}
+			Arrays.sort(positions, comparator);
+			int[] sorted = new int[positions.length];
+			for (int i = 0; i < sorted.length; i++)
+			{
+				sorted[i] = positions[i].intValue();
+			}
+			return sorted;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static int compareValues(Object o1, Object o2)
+		{
+			if (o1 == null) return o2 == null ? 0 : -1;
+			if (o2 == null) return 1;
+			if (o1 instanceof String && o2 instanceof String) return String.CASE_INSENSITIVE_ORDER.compare((String)o1, (String)o2);
+			if (o1 instanceof Comparable && o1.getClass() == o2.getClass()) return ((Comparable)o1).compareTo(o2);
+			return o1.toString().compareTo(o2.toString());
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.dataprocessing;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.servoy.j2db.IServiceProvider;
+import com.servoy.j2db.persistence.IRepository;
+import com.servoy.j2db.persistence.ITable;
+import com.servoy.j2db.persistence.RepositoryException;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.DataSourceUtils;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Pair;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Server wide cache of the contents of database valuelists, so that clients that show the same valuelist don't all query the database for it.
+ * The cache is opt-in with the servoy.valuelist.sharedCache setting.
+ * <p>
+ * Entries are stored per (real) database table; a data change of a table, by a client on this server or notified by a data broadcast, removes all entries of
+ * that table.
+ * The key of an entry is made by the valuelist and holds everything that makes the contents different between clients (query, table filters, locale).
+ * Entries expire after servoy.valuelist.sharedCache.ttl seconds (default 300), this can be set per valuelist with
+ * servoy.valuelist.sharedCache.ttl.&lt;valuelistname&gt;.
+ * <p>
+ * The cache is not used by clients that are in a transaction, have edited records or track selects on the table, because they can see other data.
+ * <p>
+ * The hits and misses per valuelist are shown in the {@link PerformanceStatistics} as "valuelist cache".
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class ValueListCache
+{
+	private static final int SUMMARY_VALUELISTS = 10;
+
+	private static final ConcurrentMap<String, Cache<List<Object>, Entry>> ENTRIES = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Statistics> STATISTICS = new ConcurrentHashMap<>();
+	// pks of the last data broadcast, the same broadcast is received by all clients of this server with the same pks
+	private static final AtomicReference<WeakReference<IDataSet>> LAST_BROADCAST_PKS = new AtomicReference<>(new WeakReference<>(null));
+
+	private ValueListCache()
+	{
+	}
+
+	public static boolean isEnabled()
+	{
+		return Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.valuelist.sharedCache", "false"));
+	}
+
+	/**
+	 * Check if any of the caches that are invalidated on data changes is enabled: this cache, the typeahead indexes or the query result cache.
+	 */
+	static boolean isAnyCacheEnabled()
+	{
+		return isEnabled() || TypeaheadIndex.isEnabled() || QueryResultCache.isEnabled();
+	}
+
+	/**
+	 * Check if the client can use the shared contents for a valuelist on the table.
+	 */
+	static boolean canUseCache(IServiceProvider application, ITable table)
+	{
+		return isEnabled() && canShareData(application, table);
+	}
+
+	/**
+	 * Check if the client sees the same data of the table as other clients with the same table filters.
+	 */
+	static boolean canShareData(IServiceProvider application, ITable table)
+	{
+		if (table == null || !(application.getFoundSetManager() instanceof FoundSetManager)) return false;
+		FoundSetManager foundSetManager = (FoundSetManager)application.getFoundSetManager();
+		try
+		{
+			return foundSetManager.getTransactionID(table.getServerName()) == null &&
+				!foundSetManager.getEditRecordList().hasAccess(table, IRepository.TRACKING_VIEWS) &&
+				foundSetManager.getEditRecordList().getEditedRecords(table.getDataSource(), null, false).length == 0;
+		}
+		catch (Exception e)
+		{
+			Debug.error(e);
+			return false;
+		}
+	}
+
+	/**
+	 * The generation of the table must be taken before querying and given to {@link #put}, so that data that was queried before a change isn't cached.
+	 */
+	static long getGeneration(IServiceProvider application, ITable table)
+	{
+		return GENERATIONS.computeIfAbsent(getDataSource(application, table.getServerName(), table.getName()), ds -> new AtomicLong()).get();
+	}
+
+	static Entry get(IServiceProvider application, ITable table, String valueListName, List<Object> key)
+	{
+		Cache<List<Object>, Entry> entries = ENTRIES.get(getDataSource(application, table.getServerName(), table.getName()));
+		Entry entry = entries == null ? null : entries.getIfPresent(key);
+		if (entry != null && entry.expires < System.currentTimeMillis())
+		{
+			entries.invalidate(key);
+			entry = null;
+		}
+		Statistics statistics = STATISTICS.get(valueListName);
+		if (statistics == null)
+		{
+			statistics = STATISTICS.computeIfAbsent(valueListName, name -> new Statistics());
+			PerformanceStatistics.register("valuelist cache", ValueListCache::getSummary);
+		}
+		if (entry == null) statistics.misses.increment();
+		else statistics.hits.increment();
+		return entry;
+	}
+
+	static void put(IServiceProvider application, ITable table, String valueListName, List<Object> key, long generation, List<Object> displayValues,
+		List<Object> realValues, boolean maxRowsReached)
+	{
+		String dataSource = getDataSource(application, table.getServerName(), table.getName());
+		AtomicLong currentGeneration = GENERATIONS.get(dataSource);
+		if (currentGeneration == null || currentGeneration.get() != generation) return;
+
+		long ttl = Utils.getAsLong(Settings.getInstance().getProperty("servoy.valuelist.sharedCache.ttl." + valueListName,
+			Settings.getInstance().getProperty("servoy.valuelist.sharedCache.ttl", "300")));
+		if (ttl <= 0) return;
+
+		Cache<List<Object>, Entry> entries = ENTRIES.computeIfAbsent(dataSource, ds -> CacheBuilder.newBuilder()
+			.maximumSize(Utils.getAsInteger(Settings.getInstance().getProperty("servoy.valuelist.sharedCache.maxEntries", "1000")))
+			.<List<Object>, Entry> build());
+		entries.put(key, new Entry(displayValues.toArray(), realValues.toArray(), maxRowsReached, System.currentTimeMillis() + ttl * 1000));
+		// a change between the generation check and the put must win
+		if (currentGeneration.get() != generation) entries.invalidate(key);
+	}
+
+	/**
+	 * Data of a table was changed, the changed rows are unknown.
+	 * @see #invalidate(String, IDataSet)
+	 */
+	public static void invalidate(String dataSource)
+	{
+		invalidate(dataSource, null);
+	}
+
+	/**
+	 * Data of a table was changed, the server name in the datasource must be the real (not switched) server name.
+	 *
+	 * @param pks the changed rows, null when unknown.
+	 */
+	public static void invalidate(String dataSource, IDataSet pks)
+	{
+		if (dataSource == null) return;
+		// no generation means no valuelist of the table was queried, so nothing to invalidate
+		AtomicLong generation = GENERATIONS.get(dataSource);
+		if (generation != null) generation.incrementAndGet();
+		ENTRIES.remove(dataSource);
+		TypeaheadIndex.dataChanged(dataSource, pks);
+		QueryResultCache.dataChanged(dataSource);
+	}
+
+	/**
+	 * Data of a table was changed, the datasource is the one of the client (can be a switched server).
+	 */
+	static void invalidate(IServiceProvider application, String dataSource)
+	{
+		if (!isAnyCacheEnabled()) return;
+		if (dataSource == null)
+		{
+			invalidateAll();
+			return;
+		}
+		String[] servernameTablename = DataSourceUtils.getDBServernameTablename(dataSource);
+		if (servernameTablename != null) invalidate(getDataSource(application, servernameTablename[0], servernameTablename[1]));
+	}
+
+	public static void invalidateAll()
+	{
+		GENERATIONS.values().forEach(AtomicLong::incrementAndGet);
+		ENTRIES.clear();
+		TypeaheadIndex.dataChanged(null, null);
+		QueryResultCache.dataChanged(null);
+	}
+
+	/**
+	 * A data broadcast of a data change was received, this is called by each client of this server that gets the broadcast.
+	 * The caches are shared by all clients, so a broadcast with the same pks as the previous one was already handled.
+	 */
+	public static void dataBroadcast(String serverName, String tableName, IDataSet pks)
+	{
+		if (!isAnyCacheEnabled()) return;
+		if (pks != null && LAST_BROADCAST_PKS.get().get() == pks) return;
+		invalidate(DataSourceUtils.createDBTableDataSource(serverName, tableName), pks);
+		if (pks != null) LAST_BROADCAST_PKS.set(new WeakReference<>(pks));
+	}
+
+	/**
+	 * A data broadcast of a flush was received, the datasource is null when all tables may have changed.
+	 */
+	public static void flushBroadcast(String dataSource)
+	{
+		if (!isAnyCacheEnabled()) return;
+		if (dataSource == null) invalidateAll();
+		else invalidate(dataSource);
+	}
+
+	private static void invalidateServer(String serverName)
+	{
+		GENERATIONS.forEach((dataSource, generation) -> {
+			String[] servernameTablename = DataSourceUtils.getDBServernameTablename(dataSource);
+			if (servernameTablename != null && serverName.equals(servernameTablename[0]))
+			{
+				generation.incrementAndGet();
+				ENTRIES.remove(dataSource);
+			}
+		});
+		TypeaheadIndex.serverChanged(serverName);
+		QueryResultCache.serverChanged(serverName);
+	}
+
+	/**
+	 * Wrap the data server of a client so that the updates it does remove the cached contents, the cached query results and update the typeahead indexes
+	 * of the updated tables.
+	 * Data changes of other clients are handled by the data broadcast.
+	 */
+	public static IDataServer createInvalidatingDataServer(IDataServer dataServer)
+	{
+		return dataServer == null || (!isEnabled() && !TypeaheadIndex.isEnabled() && !QueryResultCache.isEnabled()) ? dataServer
+			: new InvalidatingDataServer(dataServer);
+	}
+
+	/**
+	 * @return the hits and misses per valuelist name, sorted on name.
+	 */
+	public static Map<String, Statistics> getStatistics()
+	{
+		return Collections.unmodifiableMap(new TreeMap<>(STATISTICS));
+	}
+
+	/**
+	 * Number of cached entries followed by the valuelists with the most misses, as shown in the {@link PerformanceStatistics}.
+	 */
+	static String getSummary()
+	{
+		long entries = ENTRIES.values().stream().mapToLong(Cache::size).sum();
+		return "tables: " + ENTRIES.size() + ", entries: " + entries + STATISTICS.entrySet().stream()
+			.sorted(Comparator.comparingLong((Map.Entry<String, Statistics> entry) -> entry.getValue().getMisses()).reversed())
+			.limit(SUMMARY_VALUELISTS)
+			.map(entry -> "\n  " + entry.getKey() + ": " + entry.getValue())
+			.collect(Collectors.joining());
+	}
+
+	/**
+	 * The datasource with the server name that the client really uses, clients can have switched servers.
+	 */
+	static String getDataSource(IServiceProvider application, String serverName, String tableName)
+	{
+		IDataServer dataServer = application.getDataServer();
+		String realServerName = dataServer instanceof DataServerProxy ? ((DataServerProxy)dataServer).getMappedServerName(serverName) : serverName;
+		return DataSourceUtils.createDBTableDataSource(realServerName, tableName);
+	}
+
+	/**
+	 * Below the switch server proxy, so the server names in the statements are the real ones.
+	 */
+	private static final class InvalidatingDataServer extends AbstractDelegateDataServer
+	{
+		// server and table names (null for raw sql) that were updated per transaction, other clients may have cached data before the commit
+		private final ConcurrentMap<String, Set<Pair<String, String>>> transactionUpdates = new ConcurrentHashMap<>();
+
+		private InvalidatingDataServer(IDataServer dataServer)
+		{
+			super(dataServer);
+		}
+
+		@Override
+		public Object[] performUpdates(String clientId, ISQLStatement[] statements) throws ServoyException
+		{
+			try
+			{
+				return super.performUpdates(clientId, statements);
+			}
+			finally
+			{
+				for (int i = 0; statements != null && i < statements.length; i++)
+				{
+					invalidateUpdated(statements[i].getServerName(), statements[i].getTableName(), statements[i].getPKs());
+					if (statements[i].getTransactionID() != null && statements[i].getServerName() != null)
+					{
+						transactionUpdates.computeIfAbsent(statements[i].getTransactionID(), tid -> ConcurrentHashMap.newKeySet())
+							.add(new Pair<>(statements[i].getServerName(), statements[i].getTableName()));
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean endTransactions(String client_id, String[] transaction_id, boolean commit) throws RepositoryException
+		{
+			try
+			{
+				return super.endTransactions(client_id, transaction_id, commit);
+			}
+			finally
+			{
+				for (int i = 0; transaction_id != null && i < transaction_id.length; i++)
+				{
+					Set<Pair<String, String>> updates = transaction_id[i] == null ? null : transactionUpdates.remove(transaction_id[i]);
+					if (updates != null) updates.forEach(update -> invalidateUpdated(update.getLeft(), update.getRight(), null));
+				}
+			}
+		}
+
+		private static void invalidateUpdated(String serverName, String tableName, IDataSet pks)
+		{
+			if (tableName == null)
+			{
+				// raw sql, can be any table of the server
+				if (serverName != null) invalidateServer(serverName);
+			}
+			else
+			{
+				invalidate(DataSourceUtils.createDBTableDataSource(serverName, tableName), pks);
+			}
+		}
+	}
+
+	static final class Entry
+	{
+		final Object[] displayValues;
+		final Object[] realValues;
+		final boolean maxRowsReached;
+		final long expires;
+
+		private Entry(Object[] displayValues, Object[] realValues, boolean maxRowsReached, long expires)
+		{
+			this.displayValues = displayValues;
+			this.realValues = realValues;
+			this.maxRowsReached = maxRowsReached;
+			this.expires = expires;
+		}
+	}
+
+	public static final class Statistics
+	{
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		public long getHits()
+		{
+			return hits.sum();
+		}
+
+		public long getMisses()
+		{
+			return misses.sum();
+		}
+
+		public double getHitRate()
+		{
+			long h = hits.sum();
+			long total = h + misses.sum();
+			return total == 0 ? 0 : (double)h / total;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "hits: " + getHits() + ", misses: " + getMisses() + ", hit rate: " + Math.round(getHitRate() * 100) + "%";
+		}
+	}
+}
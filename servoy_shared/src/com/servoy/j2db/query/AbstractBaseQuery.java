@@ -26,16 +26,19 @@ import java.util.function.Predicate;
 
 import com.servoy.base.query.BaseQueryTable;
 import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.util.IDelegate;
 import com.servoy.j2db.util.Pair;
 import com.servoy.j2db.util.TypePredicate;
 import com.servoy.j2db.util.serialize.IWriteReplace;
 import com.servoy.j2db.util.serialize.ReplacedObject;
 import com.servoy.j2db.util.visitor.DeepCloneVisitor;
+import com.servoy.j2db.util.visitor.ICopyOnWriteVisitable;
 import com.servoy.j2db.util.visitor.IVisitable;
 import com.servoy.j2db.util.visitor.IVisitor;
 import com.servoy.j2db.util.visitor.IVisitor.VisitorResult;
 import com.servoy.j2db.util.visitor.ReplaceVisitor;
 import com.servoy.j2db.util.visitor.SearchVisitor;
+import com.servoy.j2db.util.visitor.VisitOnceDelegateVisitor;
 
 /**
  * Base class for all DML classes.
@@ -183,12 +186,42 @@ public abstract class AbstractBaseQuery implements ISQLQuery
 
 		else if (o2 instanceof IVisitable)
 		{
+			if (o2 == o && o2 instanceof ICopyOnWriteVisitable)
+			{
+				// shared between query clones, only a copy may be changed
+				return visitCopyOnWrite(o2, visitor);
+			}
 			((IVisitable)o2).acceptVisitor(visitor);
 		}
 
 		return o2;
 	}
 
+	/**
+	 * Visit the children of a shared object, when one was replaced the visited object is replaced with a copy.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T visitCopyOnWrite(T o, IVisitor visitor)
+	{
+		Object copy = ((ICopyOnWriteVisitable)o).acceptVisitorCopyOnWrite(visitor);
+		if (copy == o)
+		{
+			return o;
+		}
+
+		// other references to the same object must get the copy as well
+		Object v = visitor;
+		while (v instanceof IVisitor)
+		{
+			if (v instanceof VisitOnceDelegateVisitor)
+			{
+				((VisitOnceDelegateVisitor)v).replaceVisited(o, copy);
+			}
+			v = v instanceof IDelegate< ? > ? ((IDelegate< ? >)v).getDelegate() : null;
+		}
+		return (T)copy; // the copy is of the same class
+	}
+
 	public static <T> T deepClone(T o)
 	{
 		return deepClone(o, false);
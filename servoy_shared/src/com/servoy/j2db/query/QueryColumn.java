@@ -20,16 +20,19 @@ import com.servoy.base.query.BaseQueryColumn;
 import com.servoy.base.query.BaseQueryTable;
 import com.servoy.j2db.util.serialize.IWriteReplaceExtended;
 import com.servoy.j2db.util.serialize.ReplacedObject;
+import com.servoy.j2db.util.visitor.ICopyOnWriteVisitable;
 import com.servoy.j2db.util.visitor.IVisitor;
 
 
 /**
  * Class for a column referring to a table in a query structure.
+ * <p>
+ * Columns are shared between query clones, visitors that replace the table get a copy.
  *
  * @author rgansevles
  *
  */
-public final class QueryColumn extends BaseQueryColumn implements IWriteReplaceExtended, IQuerySelectValue
+public final class QueryColumn extends BaseQueryColumn implements IWriteReplaceExtended, IQuerySelectValue, ICopyOnWriteVisitable
 {
 	public QueryColumn(BaseQueryTable table, int id, String name, ColumnType columnType, String nativeTypename, int flags, boolean identity)
 	{
@@ -79,6 +82,25 @@ public final class QueryColumn extends BaseQueryColumn implements IWriteReplaceE
 		table = AbstractBaseQuery.acceptVisitor(table, visitor);
 	}
 
+	public QueryColumn acceptVisitorCopyOnWrite(IVisitor visitor)
+	{
+		BaseQueryTable visitedTable = AbstractBaseQuery.acceptVisitor(table, visitor);
+		if (visitedTable == table)
+		{
+			return this;
+		}
+		try
+		{
+			QueryColumn copy = (QueryColumn)shallowClone();
+			copy.table = visitedTable;
+			return copy;
+		}
+		catch (CloneNotSupportedException e)
+		{
+			throw new RuntimeException("Clone not supported in class " + getClass(), e); //$NON-NLS-1$
+		}
+	}
+
 	///////// serialization ////////////////
 
 	public Object writeReplace()
@@ -138,16 +160,25 @@ public final class QueryColumn extends BaseQueryColumn implements IWriteReplaceE
 	}
 
 	/**
-	 * Update the fields that have not been set in serialization
+	 * Update the fields that have not been set in serialization.
+	 * <p>
+	 * Only for a column that was just deserialized with its id, before it is used in a query: columns are shared between query clones,
+	 * so changing a complete column would change it in all clones. Create a new column to get one with other fields.
 	 *
 	 * @param name
 	 * @param sqlType
 	 * @param length
 	 * @param scale
 	 * @param identity
+	 *
+	 * @throws IllegalStateException when the fields of the column are already set.
 	 */
 	public void update(String name, int sqlType, int length, int scale, String nativeTypename, int flags, boolean identity)
 	{
+		if (columnType != null)
+		{
+			throw new IllegalStateException("Cannot update column " + this.name + ", it may be shared between queries"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
 		this.name = name;
 		this.columnType = ColumnType.getInstance(sqlType, length, scale);
 		this.nativeTypename = nativeTypename;
@@ -34,9 +34,13 @@ import org.mozilla.javascript.annotations.JSSetter;
 import com.servoy.base.query.BaseColumnType;
 import com.servoy.base.query.BaseQueryTable;
 import com.servoy.j2db.IApplication;
+import com.servoy.j2db.dataprocessing.BufferedDataSet;
 import com.servoy.j2db.dataprocessing.FoundSet;
+import com.servoy.j2db.dataprocessing.FoundSetManager;
 import com.servoy.j2db.dataprocessing.IGlobalValueEntry;
 import com.servoy.j2db.dataprocessing.JSDataSet;
+import com.servoy.j2db.dataprocessing.JSQueryCursor;
+import com.servoy.j2db.dataprocessing.QueryCursor;
 import com.servoy.j2db.dataprocessing.ValueFactory.DbIdentValue;
 import com.servoy.j2db.documentation.ServoyDocumented;
 import com.servoy.j2db.persistence.Column;
@@ -786,6 +790,38 @@ public class QBSelect extends QBTableClause implements IQueryBuilder
 		}
 	}
 
+	/**
+	 * Opens a cursor over this query, same as databaseManager.getQueryCursor.
+	 * The rows are read from the database in pages of fetch_size rows when the cursor is advanced, so only one page of the result is kept in memory.
+	 * The query should have a stable sort (for example on the pk), close the cursor when not all rows are read.
+	 *
+	 * @sample
+	 * var query = datasources.db.example_data.orders.createSelect();
+	 * query.result.add(query.columns.orderid);
+	 * query.sort.add(query.columns.orderid);
+	 * query.getCursor(1000).forEach(function(row, rowNumber) {
+	 * 	// process row
+	 * });
+	 *
+	 * @param fetch_size The number of rows read per page.
+	 *
+	 * @return The JSQueryCursor over the results of the query.
+	 */
+	@JSFunction
+	public JSQueryCursor getCursor(Number fetch_size) throws ServoyException
+	{
+		IApplication application = tableProvider.getApplication();
+		application.checkAuthorized();
+
+		if (!QBSelect.validateQueryArguments(this.build(), application))
+		{
+			return new JSQueryCursor(application, new QueryCursor((startRow, rowsToRetrieve) -> new BufferedDataSet(), 0, 1, 0));
+		}
+
+		return new JSQueryCursor(application, ((FoundSetManager)application.getFoundSetManager()).openQueryCursor(this, true,
+			Utils.getAsInteger(fetch_size), -1));
+	}
+
 	public static boolean validateQueryArguments(ISQLQuery select, IApplication application)
 	{
 		if (select != null)
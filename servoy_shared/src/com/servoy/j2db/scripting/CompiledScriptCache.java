@@ -0,0 +1,201 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.scripting;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+import com.servoy.j2db.util.xmlxport.SolutionImportNotifier;
+
+/**
+ * Server wide cache of the classes that rhino generates for compiled solution methods, so that clients of the same solution don't all parse and generate
+ * the same method again. The cache is opt-in with the servoy.script.compileCache setting.
+ * <p>
+ * The key is a hash of the function source and source name together with the compile settings of the context (optimization level, language version).
+ * Classes are kept per application class loader of the context (the plugin class loader of the client), the generated classes are defined in a loader
+ * with that as parent, so a class is only reused by clients that resolve java classes the same way. The cache only holds weak references to the loaders
+ * and the generated classes, so it does not keep the plugin class loader of a closed client alive.
+ * A hit creates a new function object of the cached class in the scope of the client, just like rhino does after compiling.
+ * Only functions compiled to java classes are cached, interpreted functions (optimization level -1) and contexts with a debugger (other than the
+ * profiler) always compile.
+ * <p>
+ * The cache is cleared when a solution is imported, at most servoy.script.compileCache.maxEntries (default 10000) classes are kept per class loader.
+ * The hits, misses and saved compile time are shown in the {@link PerformanceStatistics} as "compiled script cache".
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class CompiledScriptCache
+{
+	private static final Cache<ClassLoader, Cache<String, Entry>> ENTRIES = CacheBuilder.newBuilder().weakKeys().<ClassLoader, Cache<String, Entry>> build();
+
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final LongAdder compileNanos = new LongAdder();
+	private static final LongAdder savedNanos = new LongAdder();
+
+	static
+	{
+		SolutionImportNotifier.addImportListener(CompiledScriptCache::clear);
+		PerformanceStatistics.register("compiled script cache", () -> isEnabled() ? getStatistics() : null);
+	}
+
+	private CompiledScriptCache()
+	{
+	}
+
+	public static boolean isEnabled()
+	{
+		return Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.script.compileCache", "false"));
+	}
+
+	/**
+	 * Compile the function declaration in the scope, or create it from the class of an earlier compile of the same source.
+	 */
+	static Function compileFunction(Context cx, Scriptable scope, String declaration, String sourceName, int lineno)
+	{
+		if (!isEnabled() || cx.getOptimizationLevel() < 0 || (cx.getDebugger() != null && !(cx.getDebugger() instanceof ProfilingDebugger)))
+		{
+			return cx.compileFunction(scope, declaration, sourceName, lineno, null);
+		}
+
+		String key = Hashing.sha256().newHasher()
+			.putString(declaration, StandardCharsets.UTF_8)
+			.putString(sourceName, StandardCharsets.UTF_8)
+			.putInt(lineno)
+			.putInt(cx.getOptimizationLevel())
+			.putInt(cx.getLanguageVersion())
+			.putBoolean(cx.isGeneratingSource())
+			.putBoolean(cx.isGeneratingDebug())
+			.hash().toString();
+
+		Cache<String, Entry> entries = getEntries(cx.getApplicationClassLoader());
+		Entry entry = entries.getIfPresent(key);
+		Class< ? > functionClass = entry == null ? null : entry.functionClass.get();
+		if (functionClass != null)
+		{
+			try
+			{
+				// the constructor that rhino itself calls for a generated function class
+				Function f = (Function)functionClass.getConstructor(Scriptable.class, Context.class, int.class).newInstance(scope, cx, Integer.valueOf(0));
+				hits.increment();
+				savedNanos.add(entry.compileNanos);
+				return f;
+			}
+			catch (Exception e)
+			{
+				Debug.error("Could not create function " + sourceName + " from the compiled script cache", e);
+				entries.invalidate(key);
+			}
+		}
+
+		long start = System.nanoTime();
+		Function f = cx.compileFunction(scope, declaration, sourceName, lineno, null);
+		long nanos = System.nanoTime() - start;
+		misses.increment();
+		compileNanos.add(nanos);
+		try
+		{
+			f.getClass().getConstructor(Scriptable.class, Context.class, int.class);
+			entries.put(key, new Entry(f.getClass(), nanos));
+		}
+		catch (NoSuchMethodException e)
+		{
+			// not a class generated by the rhino compiler
+		}
+		return f;
+	}
+
+	private static Cache<String, Entry> getEntries(ClassLoader applicationClassLoader)
+	{
+		try
+		{
+			return ENTRIES.get(applicationClassLoader == null ? CompiledScriptCache.class.getClassLoader() : applicationClassLoader,
+				() -> CacheBuilder.newBuilder()
+					.maximumSize(Utils.getAsInteger(Settings.getInstance().getProperty("servoy.script.compileCache.maxEntries", "10000")))
+					.<String, Entry> build());
+		}
+		catch (ExecutionException e)
+		{
+			// cannot happen, creating the cache does not throw
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static void clear()
+	{
+		ENTRIES.invalidateAll();
+	}
+
+	public static long getHits()
+	{
+		return hits.sum();
+	}
+
+	public static long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * @return the time spent compiling methods that were not in the cache, in milliseconds.
+	 */
+	public static long getCompileTime()
+	{
+		return compileNanos.sum() / 1000000;
+	}
+
+	/**
+	 * @return the compile time of the methods that were created from the cache, in milliseconds.
+	 */
+	public static long getSavedCompileTime()
+	{
+		return savedNanos.sum() / 1000000;
+	}
+
+	public static String getStatistics()
+	{
+		return "class loaders: " + ENTRIES.size() + ", entries: " + ENTRIES.asMap().values().stream().mapToLong(Cache::size).sum() + ", hits: " + getHits() + ", misses: " + getMisses() + ", compile time: " +
+			getCompileTime() + "ms, compile time saved: " + getSavedCompileTime() + "ms";
+	}
+
+	private static final class Entry
+	{
+		// weak, the class references its defining loader which has the application class loader (the key) as parent
+		private final WeakReference<Class< ? >> functionClass;
+		private final long compileNanos;
+
+		private Entry(Class< ? > functionClass, long compileNanos)
+		{
+			this.functionClass = new WeakReference<>(functionClass);
+			this.compileNanos = compileNanos;
+		}
+	}
+}
@@ -610,8 +610,8 @@ public class ScriptEngine implements IScriptSupport
 		}
 
 		// f below always seems to be NativeFunction instance as both Codegen.createFunctionObject and Interpreter.createFunctionObject return
-		// a NativeFunction instance; and that is what cx.compileFunction(...) ends up calling
-		Function f = cx.compileFunction(scope, declaration, sourceName, sp.getLineNumberOffset(), null);
+		// a NativeFunction instance; and that is what cx.compileFunction(...) ends up calling (also for functions created from the compiled script cache)
+		Function f = CompiledScriptCache.compileFunction(cx, scope, declaration, sourceName, sp.getLineNumberOffset());
 		if (!(sp instanceof ScriptCalculation))
 		{
 			if (sp.getScopeName() != null)
@@ -0,0 +1,253 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.shared;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Statistics of data calls (queries and updates) aggregated by the shape of the sql, so the same query with different arguments is counted together.
+ * This makes repeated queries like N+1 relation loads stand out in the most frequent list.
+ * <p>
+ * The number of kept shapes is limited, when there are too many the least frequent ones are removed.
+ *
+ * @since 2024.09
+ */
+public class DataCallStatistics
+{
+	public static final int DEFAULT_MAX_SHAPES = 1000;
+
+	private static final int SUMMARY_SHAPES = 5;
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'"); //$NON-NLS-1$
+	private static final Pattern PLACEHOLDER_VALUE = Pattern.compile("\\$\\{([^=}]*)=[^}]*\\}"); //$NON-NLS-1$
+	private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b"); //$NON-NLS-1$
+	private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+"); //$NON-NLS-1$
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+"); //$NON-NLS-1$
+
+	private final ConcurrentMap<String, DataCallStatistic> statistics = new ConcurrentHashMap<>();
+	private final int maxShapes;
+
+	public DataCallStatistics()
+	{
+		this(DEFAULT_MAX_SHAPES);
+	}
+
+	public DataCallStatistics(int maxShapes)
+	{
+		this.maxShapes = maxShapes;
+	}
+
+	/**
+	 * Normalize sql (or the string form of a query object) to its shape: literals and argument values are replaced by ?, argument lists are collapsed.
+	 */
+	public static String normalize(String sql)
+	{
+		if (sql == null) return null;
+		String shape = STRING_LITERAL.matcher(sql).replaceAll("?"); //$NON-NLS-1$
+		shape = PLACEHOLDER_VALUE.matcher(shape).replaceAll("\\${$1}"); //$NON-NLS-1$
+		shape = NUMBER.matcher(shape).replaceAll("?"); //$NON-NLS-1$
+		shape = PARAMETER_LIST.matcher(shape).replaceAll("?..."); //$NON-NLS-1$
+		return WHITESPACE.matcher(shape).replaceAll(" ").trim(); //$NON-NLS-1$
+	}
+
+	/**
+	 * @param action the kind of call, like Query or Update
+	 * @param serverName the db server
+	 * @param shape the normalized sql, see {@link #normalize(String)}
+	 * @param ms the running time
+	 */
+	public void record(String action, String serverName, String shape, long ms)
+	{
+		String key = action + ':' + serverName + ':' + shape;
+		DataCallStatistic statistic = statistics.get(key);
+		if (statistic == null)
+		{
+			statistic = statistics.computeIfAbsent(key, k -> new DataCallStatistic(action, serverName, shape));
+			statistic.record(ms);
+			if (statistics.size() > maxShapes * 1.1) // 10% more is allowed
+			{
+				removeLeastFrequent(statistic);
+			}
+		}
+		else
+		{
+			statistic.record(ms);
+		}
+	}
+
+	/**
+	 * Remove the least frequent shapes, except the shape that was just added, otherwise a new shape could never get in a full table.
+	 */
+	private synchronized void removeLeastFrequent(DataCallStatistic added)
+	{
+		int toRemove = statistics.size() - maxShapes;
+		if (toRemove > 0)
+		{
+			List<DataCallStatistic> sorted = sorted(Comparator.comparingLong(DataCallStatistic::getCount));
+			for (int i = 0; toRemove > 0 && i < sorted.size(); i++)
+			{
+				DataCallStatistic statistic = sorted.get(i);
+				if (statistic != added)
+				{
+					statistics.remove(statistic.getAction() + ':' + statistic.getServerName() + ':' + statistic.getShape());
+					toRemove--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the n shapes with the highest total running time
+	 */
+	public List<DataCallStatistic> getSlowest(int n)
+	{
+		return top(Comparator.comparingLong(DataCallStatistic::getTotalTimeMS).reversed(), n);
+	}
+
+	/**
+	 * @return the n shapes with the highest number of calls
+	 */
+	public List<DataCallStatistic> getMostFrequent(int n)
+	{
+		return top(Comparator.comparingLong(DataCallStatistic::getCount).reversed(), n);
+	}
+
+	public int size()
+	{
+		return statistics.size();
+	}
+
+	public void clear()
+	{
+		statistics.clear();
+	}
+
+	/**
+	 * Number of shapes with the slowest and the most frequent shapes, as shown in the performance statistics.
+	 */
+	@Override
+	public String toString()
+	{
+		return "shapes: " + size() + "\nslowest:\n" + toLines(getSlowest(SUMMARY_SHAPES)) + "\nmost frequent:\n" + toLines(getMostFrequent(SUMMARY_SHAPES)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private static String toLines(List<DataCallStatistic> statistics)
+	{
+		return statistics.stream().map(statistic -> "  " + statistic).collect(Collectors.joining("\n")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private List<DataCallStatistic> top(Comparator<DataCallStatistic> comparator, int n)
+	{
+		List<DataCallStatistic> sorted = sorted(comparator);
+		return sorted.size() > n ? new ArrayList<>(sorted.subList(0, n)) : sorted;
+	}
+
+	private List<DataCallStatistic> sorted(Comparator<DataCallStatistic> comparator)
+	{
+		List<DataCallStatistic> sorted = new ArrayList<>(statistics.values());
+		sorted.sort(comparator);
+		return sorted;
+	}
+
+	/**
+	 * Aggregated timings of 1 sql shape.
+	 */
+	public static class DataCallStatistic
+	{
+		private final String action;
+		private final String serverName;
+		private final String shape;
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalTimeMS = new LongAdder();
+		private final AtomicLong maxTimeMS = new AtomicLong();
+		private final LatencyHistogram histogram = new LatencyHistogram(0);
+
+		DataCallStatistic(String action, String serverName, String shape)
+		{
+			this.action = action;
+			this.serverName = serverName;
+			this.shape = shape;
+		}
+
+		void record(long ms)
+		{
+			count.increment();
+			totalTimeMS.add(ms);
+			maxTimeMS.accumulateAndGet(ms, Math::max);
+			histogram.record(ms);
+		}
+
+		public String getAction()
+		{
+			return action;
+		}
+
+		public String getServerName()
+		{
+			return serverName;
+		}
+
+		public String getShape()
+		{
+			return shape;
+		}
+
+		public long getCount()
+		{
+			return count.sum();
+		}
+
+		public long getTotalTimeMS()
+		{
+			return totalTimeMS.sum();
+		}
+
+		public long getMaxTimeMS()
+		{
+			return maxTimeMS.get();
+		}
+
+		public long getAverageTimeMS()
+		{
+			long cnt = getCount();
+			return cnt == 0 ? 0 : getTotalTimeMS() / cnt;
+		}
+
+		/**
+		 * @param percentile between 0 and 100, like 99.9
+		 */
+		public long getPercentileTimeMS(double percentile)
+		{
+			return histogram.getPercentile(percentile);
+		}
+
+		@Override
+		public String toString()
+		{
+			return action + " on " + serverName + ": " + shape + " [count: " + getCount() + ", total: " + getTotalTimeMS() + "ms, max: " + getMaxTimeMS() + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+				"ms, p99: " + getPercentileTimeMS(99) + "ms]"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -52,4 +52,26 @@ public interface IPerformanceRegistry
 
 	String getId();
 
+	/**
+	 * The statistics of the data calls of the clients that profile their data calls, aggregated by sql shape.
+	 *
+	 * @param context the solution name
+	 * @return the statistics or null if there is no performance data for the context
+	 */
+	default DataCallStatistics getDataCallStatistics(String context)
+	{
+		PerformanceData performanceData = getPerformanceData(context);
+		return performanceData != null ? performanceData.getDataCallStatistics() : null;
+	}
+
+	/**
+	 * The server wide statistics of caches and pools, see {@link PerformanceStatistics}.
+	 *
+	 * @return the statistics by name
+	 */
+	default Map<String, String> getStatistics()
+	{
+		return PerformanceStatistics.getStatistics();
+	}
+
 }
@@ -0,0 +1,238 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.shared;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free histogram of timings in ms for calculating percentiles.
+ * <p>
+ * Values are counted in log-linear buckets (like HDR histograms): exact below {@link #LINEAR_LIMIT}, above that every power of 2 is split in
+ * {@link #SUB_BUCKETS} buckets, so a percentile is at most 1/{@link #SUB_BUCKETS} off. Next to the counts since creation, the counts of a sliding time
+ * window are kept in a ring of slots with int counts, a slot is cleared when it is reused for a new period. Timings that are recorded while a slot is
+ * cleared may be lost from the window, the window percentiles are an approximation.
+ * <p>
+ * Recording is a few atomic increments without locking, a slot is only allocated the first time it is used.
+ *
+ * @since 2024.09
+ */
+public class LatencyHistogram
+{
+	public static final long DEFAULT_WINDOW_MS = 5 * 60 * 1000;
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+	private static final int MAX_BITS = 24; // ~4.6 hours in ms, larger values are counted in the last bucket
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_BITS - LINEAR_BITS) * SUB_BUCKETS;
+	private static final int WINDOW_SLOTS = 6;
+
+	private final AtomicLongArray counts;
+	private final AtomicReferenceArray<Slot> window = new AtomicReferenceArray<>(WINDOW_SLOTS);
+	private final long slotMS;
+
+	public LatencyHistogram()
+	{
+		this(DEFAULT_WINDOW_MS);
+	}
+
+	/**
+	 * @param windowMS the length of the sliding window, 0 for no sliding window
+	 */
+	public LatencyHistogram(long windowMS)
+	{
+		this.counts = new AtomicLongArray(BUCKET_COUNT);
+		this.slotMS = windowMS <= 0 ? 0 : Math.max(1, windowMS / WINDOW_SLOTS);
+	}
+
+	/**
+	 * Creates a copy, including the sliding window.
+	 */
+	public LatencyHistogram(LatencyHistogram copy)
+	{
+		this(copy.slotMS * WINDOW_SLOTS);
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			counts.set(i, copy.counts.get(i));
+		}
+		for (int s = 0; s < WINDOW_SLOTS; s++)
+		{
+			Slot slot = copy.window.get(s);
+			if (slot != null)
+			{
+				window.set(s, new Slot(slot));
+			}
+		}
+	}
+
+	public void record(long ms)
+	{
+		int bucket = bucket(ms);
+		counts.incrementAndGet(bucket);
+		if (slotMS > 0)
+		{
+			getSlot(System.currentTimeMillis() / slotMS).counts.incrementAndGet(bucket);
+		}
+	}
+
+	private Slot getSlot(long period)
+	{
+		int index = (int)(period % WINDOW_SLOTS);
+		Slot slot = window.get(index);
+		if (slot == null)
+		{
+			window.compareAndSet(index, null, new Slot(period));
+			slot = window.get(index);
+		}
+		long slotPeriod = slot.period.get();
+		if (slotPeriod < period && slot.period.compareAndSet(slotPeriod, period))
+		{
+			// reuse the slot for the new period
+			for (int i = 0; i < BUCKET_COUNT; i++)
+			{
+				slot.counts.set(i, 0);
+			}
+		}
+		// the slot period is newer only when the clock was just moved, count in the newer slot
+		return slot;
+	}
+
+	/**
+	 * @param percentile between 0 and 100, like 99.9
+	 * @return the timing below which the given percentage of all recorded timings fall, -1 when nothing was recorded
+	 */
+	public long getPercentile(double percentile)
+	{
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			snapshot[i] = counts.get(i);
+		}
+		return percentile(snapshot, percentile);
+	}
+
+	/**
+	 * @param percentile between 0 and 100, like 99.9
+	 * @return the percentile of the timings recorded in the sliding window, -1 when nothing was recorded in the window
+	 */
+	public long getWindowPercentile(double percentile)
+	{
+		if (slotMS == 0)
+		{
+			return -1;
+		}
+		long[] snapshot = new long[BUCKET_COUNT];
+		long oldestPeriod = System.currentTimeMillis() / slotMS - WINDOW_SLOTS + 1;
+		for (int s = 0; s < WINDOW_SLOTS; s++)
+		{
+			Slot slot = window.get(s);
+			if (slot != null && slot.period.get() >= oldestPeriod)
+			{
+				for (int i = 0; i < BUCKET_COUNT; i++)
+				{
+					snapshot[i] += slot.counts.get(i);
+				}
+			}
+		}
+		return percentile(snapshot, percentile);
+	}
+
+	public long getWindowMS()
+	{
+		return slotMS * WINDOW_SLOTS;
+	}
+
+	private static long percentile(long[] snapshot, double percentile)
+	{
+		long total = 0;
+		for (long c : snapshot)
+		{
+			total += c;
+		}
+		if (total == 0)
+		{
+			return -1;
+		}
+		long rank = Math.max(1, (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			seen += snapshot[i];
+			if (seen >= rank)
+			{
+				return highestValue(i);
+			}
+		}
+		return highestValue(BUCKET_COUNT - 1);
+	}
+
+	static int bucket(long ms)
+	{
+		if (ms < LINEAR_LIMIT)
+		{
+			return ms < 0 ? 0 : (int)ms;
+		}
+		int bits = 64 - Long.numberOfLeadingZeros(ms);
+		if (bits > MAX_BITS)
+		{
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int)(ms >>> (bits - LINEAR_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (bits - LINEAR_BITS - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * The highest value that is counted in the bucket.
+	 */
+	static long highestValue(int bucket)
+	{
+		if (bucket < LINEAR_LIMIT)
+		{
+			return bucket;
+		}
+		int bits = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS + 1;
+		int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+		long lowest = ((long)(SUB_BUCKETS + subBucket)) << (bits - LINEAR_BITS);
+		return lowest + (1L << (bits - LINEAR_BITS)) - 1;
+	}
+
+	private static final class Slot
+	{
+		final AtomicLong period;
+		final AtomicIntegerArray counts;
+
+		Slot(long period)
+		{
+			this.period = new AtomicLong(period);
+			this.counts = new AtomicIntegerArray(BUCKET_COUNT);
+		}
+
+		Slot(Slot copy)
+		{
+			this.period = new AtomicLong(copy.period.get());
+			this.counts = new AtomicIntegerArray(BUCKET_COUNT);
+			for (int i = 0; i < BUCKET_COUNT; i++)
+			{
+				counts.set(i, copy.counts.get(i));
+			}
+		}
+	}
+}
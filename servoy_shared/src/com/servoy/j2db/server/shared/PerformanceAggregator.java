@@ -55,6 +55,7 @@ public class PerformanceAggregator
 		{
 			final int maxEntries = "sql".equals(registry.getId()) ? DEFAULT_MAX_SQL_ENTRIES_TO_KEEP_IN_PRODUCTION : DEFAULT_MAX_ENTRIES_TO_KEEP_IN_PRODUCTION; //$NON-NLS-1$
 			aggregatesByAction = new ConcurrentHashMap<String, PerformanceTimingAggregate>(maxEntriesToKeep > 0 ? maxEntriesToKeep : maxEntries);
+			PerformanceStatistics.scheduleLog();
 		}
 	}
 
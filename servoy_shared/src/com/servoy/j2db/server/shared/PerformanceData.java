@@ -3,6 +3,7 @@ package com.servoy.j2db.server.shared;
 
 import java.util.Comparator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
@@ -51,6 +52,8 @@ public class PerformanceData
 
 	private final String contextId;
 
+	private volatile DataCallStatistics dataCallStatistics;
+
 	public PerformanceData(IPerformanceRegistry registry, Logger log, String contextId, PerformanceAggregator aggregator)
 	{
 		super();
@@ -181,6 +184,21 @@ public class PerformanceData
 		this.aggregator.addTiming(timing.getAction(), interval_ms, total_ms, timing.getType(), timing.getSubTimings(), nrecords);
 	}
 
+	/**
+	 * Add a timing that is aggregated under the action and under a sub-action for the value, so the action has one entry with the timings per value below it.
+	 */
+	public void addTiming(String action, String subActionValue, long total_ms, int type)
+	{
+		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF) return;
+
+		PerformanceTiming subAction = new PerformanceTiming(subActionValue, type, null, null, System.currentTimeMillis() - total_ms, null, registry, null,
+			contextId, aggregator);
+		subAction.setEndTime();
+		ConcurrentLinkedQueue<PerformanceTiming> subActions = new ConcurrentLinkedQueue<>();
+		subActions.add(subAction);
+		aggregator.addTiming(action, total_ms, total_ms, type, subActions, 1);
+	}
+
 	public Pair<Long, Long> startSubAction(String action, long start_ms, int type, String clientUUID, String customObject)
 	{
 		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF) return null;
@@ -233,4 +251,25 @@ public class PerformanceData
 	{
 		return aggregator;
 	}
+
+	/**
+	 * The data calls statistics of this context, created on first use and then shown in the {@link PerformanceStatistics} as "data calls of &lt;context&gt;".
+	 */
+	public DataCallStatistics getDataCallStatistics()
+	{
+		DataCallStatistics statistics = dataCallStatistics;
+		if (statistics == null)
+		{
+			synchronized (this)
+			{
+				statistics = dataCallStatistics;
+				if (statistics == null)
+				{
+					statistics = dataCallStatistics = new DataCallStatistics();
+					PerformanceStatistics.register("data calls of " + contextId, statistics::toString); //$NON-NLS-1$
+				}
+			}
+		}
+		return statistics;
+	}
 }
\ No newline at end of file
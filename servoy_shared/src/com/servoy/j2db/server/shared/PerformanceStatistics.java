@@ -0,0 +1,122 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.server.shared;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Server wide statistics of caches and pools by name, next to the performance data of the server.
+ * <p>
+ * The statistics and the percentiles of the slowest actions in the performance data are written to the com.servoy.j2db.performanceStatistics logger at
+ * debug level every servoy.performanceStats.statisticsLogInterval seconds (default 300, 0 to disable). They are also available through
+ * {@link IPerformanceRegistry#getStatistics()}.
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class PerformanceStatistics
+{
+	private static final Logger log = LoggerFactory.getLogger("com.servoy.j2db.performanceStatistics");
+
+	private static final int LOGGED_ACTIONS = 20;
+
+	private static final ConcurrentMap<String, Supplier< ? >> STATISTICS = new ConcurrentHashMap<>();
+	private static boolean logScheduled;
+
+	private PerformanceStatistics()
+	{
+	}
+
+	/**
+	 * Add or replace statistics, the supplier is called when the statistics are shown and the string value of its result is used.
+	 */
+	public static void register(String name, Supplier< ? > statistics)
+	{
+		STATISTICS.put(name, statistics);
+		scheduleLog();
+	}
+
+	public static void unregister(String name)
+	{
+		STATISTICS.remove(name);
+	}
+
+	/**
+	 * @return the current statistics by name, sorted on name.
+	 */
+	public static Map<String, String> getStatistics()
+	{
+		Map<String, String> statistics = new TreeMap<>();
+		STATISTICS.forEach((name, supplier) -> {
+			Object value = supplier.get();
+			if (value != null) statistics.put(name, value.toString());
+		});
+		return statistics;
+	}
+
+	static void logStatistics()
+	{
+		if (!log.isDebugEnabled()) return;
+		try
+		{
+			IServerStatus serverStatus = ApplicationServerRegistry.exists() ? ApplicationServerRegistry.get().getServerStatus() : null;
+			PerformanceTimingAggregate[] performanceData = serverStatus != null ? serverStatus.getPerformanceData() : null;
+			if (performanceData != null && performanceData.length > 0)
+			{
+				log.debug("performance:\n" + Arrays.stream(performanceData)
+					.sorted(Comparator.comparingLong(PerformanceTimingAggregate::getTotalTimeMS).reversed())
+					.limit(LOGGED_ACTIONS)
+					.map(PerformanceTimingAggregate::toString)
+					.collect(Collectors.joining("\n")));
+			}
+			getStatistics().forEach((name, value) -> log.debug(name + ": " + value));
+		}
+		catch (RuntimeException e)
+		{
+			Debug.error("Error logging the performance statistics", e);
+		}
+	}
+
+	static synchronized void scheduleLog()
+	{
+		if (!logScheduled && ApplicationServerRegistry.exists())
+		{
+			logScheduled = true;
+			long interval = Utils.getAsLong(Settings.getInstance().getProperty("servoy.performanceStats.statisticsLogInterval", "300"));
+			if (interval > 0)
+			{
+				ApplicationServerRegistry.get().getExecutor().scheduleWithFixedDelay(PerformanceStatistics::logStatistics, interval, interval,
+					TimeUnit.SECONDS);
+			}
+		}
+	}
+}
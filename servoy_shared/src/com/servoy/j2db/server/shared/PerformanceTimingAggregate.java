@@ -38,6 +38,7 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 	private final AtomicLong xtotal_ms = new AtomicLong();
 	private final AtomicLong total_interval_ms = new AtomicLong();
 	private final AtomicInteger count = new AtomicInteger();
+	private final LatencyHistogram histogram; // null for the total of the sub-actions, those have their own aggregates
 
 	private final PerformanceTimingAggregate totalSubActionTimes;
 
@@ -46,6 +47,7 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		super(registry);
 		this.action = action;
 		this.type = type;
+		this.histogram = new LatencyHistogram();
 		totalSubActionTimes = new PerformanceTimingAggregate(action + " - subactions", registry); //$NON-NLS-1$
 	}
 
@@ -61,6 +63,7 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		this.count.set(copy.getCount());
 		this.xtotal_ms.set(copy.getTotalTimeMS());
 		this.total_interval_ms.set(copy.getTotalIntervalTimeMS());
+		this.histogram = copy.histogram != null ? new LatencyHistogram(copy.histogram) : null;
 		if (copy.totalSubActionTimes != null)
 		{
 			totalSubActionTimes = new PerformanceTimingAggregate(copy.totalSubActionTimes);
@@ -76,6 +79,7 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		super(registry);
 		this.action = action;
 		this.type = IDataServer.METHOD_CALL;
+		this.histogram = null;
 		totalSubActionTimes = null;
 	}
 
@@ -116,6 +120,7 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 	public void updateTime(long interval_ms, long running_ms, int nrecords)
 	{
 		updateTime(interval_ms, running_ms, running_ms, running_ms, (running_ms * running_ms), nrecords);
+		if (histogram != null) histogram.record(running_ms);
 	}
 
 	public String getAction()
@@ -191,4 +196,54 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		return s2.get();
 	}
 
+	/**
+	 * @param percentile between 0 and 100, like 99.9
+	 * @return the running time in ms below which the given percentage of the timings fall, -1 when there are no timings or no percentiles are kept
+	 */
+	public long getPercentileTimeMS(double percentile)
+	{
+		return histogram != null ? histogram.getPercentile(percentile) : -1;
+	}
+
+	/**
+	 * Same as {@link #getPercentileTimeMS(double)} but only for the timings of the last {@link #getWindowMS()} ms.
+	 */
+	public long getWindowPercentileTimeMS(double percentile)
+	{
+		return histogram != null ? histogram.getWindowPercentile(percentile) : -1;
+	}
+
+	public long getWindowMS()
+	{
+		return histogram != null ? histogram.getWindowMS() : 0;
+	}
+
+	public long getP50TimeMS()
+	{
+		return getPercentileTimeMS(50);
+	}
+
+	public long getP95TimeMS()
+	{
+		return getPercentileTimeMS(95);
+	}
+
+	public long getP99TimeMS()
+	{
+		return getPercentileTimeMS(99);
+	}
+
+	public long getP999TimeMS()
+	{
+		return getPercentileTimeMS(99.9);
+	}
+
+	@Override
+	public String toString()
+	{
+		return action + " [" + getTypeString() + ", count: " + getCount() + ", total: " + getTotalTimeMS() + "ms, avg: " + getAverageTimeMS() + "ms, max: " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			getMaxTimeMS() + "ms, p50: " + getP50TimeMS() + "ms, p95: " + getP95TimeMS() + "ms, p99: " + getP99TimeMS() + "ms, p99.9: " + getP999TimeMS() + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			"ms, last " + (getWindowMS() / 1000) + "s p95: " + getWindowPercentileTimeMS(95) + "ms, p99: " + getWindowPercentileTimeMS(99) + "ms]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
 }
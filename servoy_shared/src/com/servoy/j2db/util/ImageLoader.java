@@ -65,6 +65,11 @@ public class ImageLoader
 {
 	private static final Logger log = LoggerFactory.getLogger(ImageLoader.class.getCanonicalName());
 
+	/**
+	 * Images that are this many times bigger than the requested size are decoded with subsampling, so the full size image is never in memory.
+	 */
+	private static final int SUBSAMPLING_FACTOR = 2;
+
 	public static ImageIcon getIcon(byte[] array, int width, int height, boolean keepAspect)
 	{
 		return getIcon(array, width, height, keepAspect, null);
@@ -74,7 +79,7 @@ public class ImageLoader
 	{
 		if (array == null || array.length == 0) return null;
 		ImageIcon icon = null;
-		if (array.length < 150000)
+		if (array.length < 150000 && !needsSubsampling(array, width, height))
 		{
 			// this method is faster for smaller images
 			icon = new ImageIcon(array);
@@ -109,6 +114,16 @@ public class ImageLoader
 		return resizeImageIcon(icon, width, height, keepAspect, fixedWidth);
 	}
 
+	/**
+	 * Small files can still be very large images (for example a png of one color), check the dimensions before decoding the whole image.
+	 */
+	private static boolean needsSubsampling(byte[] array, int width, int height)
+	{
+		if (width <= 0 && height <= 0) return false;
+		Dimension size = getSize(array);
+		return (width > 0 && size.width >= width * SUBSAMPLING_FACTOR) || (height > 0 && size.height >= height * SUBSAMPLING_FACTOR);
+	}
+
 	public static ImageIcon resizeImageIcon(ImageIcon icon, int width, int height, boolean keepAspect)
 	{
 		return resizeImageIcon(icon, width, height, keepAspect, null);
@@ -353,7 +368,24 @@ public class ImageLoader
 		return resize(imageData, width, height, aspect, null);
 	}
 
+	/**
+	 * Resize the image, the result is cached in the {@link ImageResizeCache}.
+	 */
 	public static byte[] resize(byte[] imageData, int width, int height, boolean aspect, Boolean fixedWidth)
+	{
+		if (imageData == null || imageData.length == 0 || !ImageResizeCache.isEnabled()) return resizeImage(imageData, width, height, aspect, fixedWidth);
+
+		String key = ImageResizeCache.createKey(imageData, width, height, aspect, fixedWidth);
+		byte[] resized = key == null ? null : ImageResizeCache.get(key);
+		if (resized == null)
+		{
+			resized = resizeImage(imageData, width, height, aspect, fixedWidth);
+			if (resized != null && key != null) ImageResizeCache.put(key, resized);
+		}
+		return resized;
+	}
+
+	private static byte[] resizeImage(byte[] imageData, int width, int height, boolean aspect, Boolean fixedWidth)
 	{
 		String contentType = MimeTypes.getContentType(imageData);
 		if (contentType == null || contentType.toLowerCase().indexOf("gif") != -1) contentType = "image/png";
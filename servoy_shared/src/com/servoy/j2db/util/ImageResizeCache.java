@@ -0,0 +1,236 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.servoy.j2db.server.shared.PerformanceStatistics;
+
+/**
+ * Server wide cache of resized images, keyed on the hash of the image content and the requested size, so that the same thumbnail is not decoded and encoded
+ * again for every call or client.
+ * <p>
+ * The memory size of the cache is servoy.image.resizeCache.maxSize kilobytes (default 32768), 0 disables the cache.
+ * When servoy.image.resizeCache.dir is set, the resized images are also stored in that directory, up to servoy.image.resizeCache.maxDiskSize kilobytes
+ * (default 262144); the oldest files are removed when the directory gets bigger.
+ * <p>
+ * The hits and misses are shown in the {@link PerformanceStatistics} as "image resize cache".
+ *
+ * @since 2024.09
+ */
+@SuppressWarnings("nls")
+public final class ImageResizeCache
+{
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder DISK_HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+
+	private static volatile Cache<String, byte[]> cache;
+	private static volatile File diskDir;
+	private static final AtomicLong diskSize = new AtomicLong(-1);
+
+	private ImageResizeCache()
+	{
+	}
+
+	public static boolean isEnabled()
+	{
+		return getMaxSize() > 0;
+	}
+
+	private static long getMaxSize()
+	{
+		return Utils.getAsLong(Settings.getInstance().getProperty("servoy.image.resizeCache.maxSize", "32768"), false) * 1024;
+	}
+
+	private static Cache<String, byte[]> getCache()
+	{
+		if (cache == null)
+		{
+			synchronized (ImageResizeCache.class)
+			{
+				if (cache == null)
+				{
+					cache = CacheBuilder.newBuilder()
+						.maximumWeight(getMaxSize())
+						.weigher((String key, byte[] data) -> data.length + key.length())
+						.build();
+					String dir = Settings.getInstance().getProperty("servoy.image.resizeCache.dir");
+					if (dir != null && dir.trim().length() > 0)
+					{
+						File f = new File(dir.trim());
+						if (f.isDirectory() || f.mkdirs()) diskDir = f;
+						else Debug.error("Cannot use servoy.image.resizeCache.dir '" + dir + "', directory could not be created");
+					}
+					PerformanceStatistics.register("image resize cache", ImageResizeCache::getStatistics);
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * @return the key of the resized image, the key is also used as file name
+	 */
+	static String createKey(byte[] imageData, int width, int height, boolean keepAspect, Boolean fixedWidth)
+	{
+		try
+		{
+			StringBuilder key = new StringBuilder(80);
+			key.append(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(imageData)));
+			key.append('_').append(width).append('x').append(height).append('_').append(keepAspect ? 'a' : 's');
+			if (fixedWidth != null) key.append(fixedWidth.booleanValue() ? 'w' : 'h');
+			return key.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			Debug.error(e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return a copy of the cached resized image, null when not cached
+	 */
+	static byte[] get(String key)
+	{
+		byte[] data = getCache().getIfPresent(key);
+		if (data == null && diskDir != null)
+		{
+			File file = new File(diskDir, key);
+			if (file.isFile())
+			{
+				data = Utils.readFile(file, -1);
+				if (data != null && data.length > 0)
+				{
+					// keep recently used files when the directory is trimmed
+					file.setLastModified(System.currentTimeMillis());
+					cache.put(key, data);
+					DISK_HITS.increment();
+					return data.clone();
+				}
+				data = null;
+			}
+		}
+		if (data == null)
+		{
+			MISSES.increment();
+			return null;
+		}
+		HITS.increment();
+		return data.clone();
+	}
+
+	static void put(String key, byte[] data)
+	{
+		getCache().put(key, data.clone());
+		if (diskDir != null)
+		{
+			File file = new File(diskDir, key);
+			if (file.exists()) return;
+			try
+			{
+				File tmp = File.createTempFile(key, ".tmp", diskDir);
+				Files.write(tmp.toPath(), data);
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				if (getDiskSize() >= 0 && diskSize.addAndGet(data.length) > getMaxDiskSize()) trimDisk();
+			}
+			catch (IOException e)
+			{
+				Debug.error("Cannot store resized image in " + diskDir, e);
+			}
+		}
+	}
+
+	private static long getMaxDiskSize()
+	{
+		return Utils.getAsLong(Settings.getInstance().getProperty("servoy.image.resizeCache.maxDiskSize", "262144"), false) * 1024;
+	}
+
+	private static long getDiskSize()
+	{
+		if (diskSize.get() == -1)
+		{
+			File[] files = diskDir.listFiles(File::isFile);
+			diskSize.compareAndSet(-1, files == null ? 0 : Arrays.stream(files).mapToLong(File::length).sum());
+		}
+		return diskSize.get();
+	}
+
+	/**
+	 * Remove the least recently used files until the directory is at 3/4 of the maximum size.
+	 */
+	private static synchronized void trimDisk()
+	{
+		long maxDiskSize = getMaxDiskSize();
+		if (diskSize.get() <= maxDiskSize) return;
+		File[] files = diskDir.listFiles(File::isFile);
+		if (files == null) return;
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		long size = Arrays.stream(files).mapToLong(File::length).sum();
+		for (int i = 0; i < files.length && size > maxDiskSize * 3 / 4; i++)
+		{
+			long length = files[i].length();
+			if (files[i].delete()) size -= length;
+		}
+		diskSize.set(size);
+	}
+
+	public static void clear()
+	{
+		if (cache != null) cache.invalidateAll();
+	}
+
+	public static long getHits()
+	{
+		return HITS.sum();
+	}
+
+	public static long getDiskHits()
+	{
+		return DISK_HITS.sum();
+	}
+
+	public static long getMisses()
+	{
+		return MISSES.sum();
+	}
+
+	/**
+	 * @return hits (memory and disk), misses and the memory size of the cache
+	 */
+	public static String getStatistics()
+	{
+		long hits = getHits() + getDiskHits();
+		long total = hits + getMisses();
+		return "hits: " + getHits() + ", disk hits: " + getDiskHits() + ", misses: " + getMisses() + ", hit rate: " +
+			(total == 0 ? 0 : Math.round(hits * 100.0 / total)) + "%, size: " + (cache == null ? 0 : cache.asMap().values().stream().mapToLong(
+				data -> data.length).sum() / 1024) + "KB";
+	}
+}
@@ -27,7 +27,7 @@ import java.lang.ref.SoftReference;
  * @param <R>
  * @param <D>
  */
-public class SoftReferenceWithData<R, D> extends SoftReference<R>
+public class SoftReferenceWithData<R, D> extends SoftReference<R> implements IReferenceWithData<R, D>
 {
 	private D data;
 
@@ -0,0 +1,33 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+package com.servoy.j2db.util.visitor;
+
+import com.servoy.j2db.util.Immutable;
+
+/**
+ * Visitable that is shared between clones, so it is not changed by a visitor, a visitor that replaces one of its children gets a copy.
+ *
+ * @since 2024.09
+ */
+public interface ICopyOnWriteVisitable extends IVisitable, Immutable
+{
+	/**
+	 * Accept a visitor recursively without changing this object.
+	 * @return this when no child was replaced, otherwise a copy of this object with the replaced children
+	 */
+	public Object acceptVisitorCopyOnWrite(IVisitor visitor);
+}
@@ -63,6 +63,18 @@ public class VisitOnceDelegateVisitor implements IVisitor, IDelegate<IVisitor>
 		return visitedResult;
 	}
 
+	/**
+	 * The visited object was replaced after its visit (copy-on-write of immutable objects), give the replacement on next visits.
+	 */
+	public void replaceVisited(Object o, Object replacement)
+	{
+		EqualityWrapper wrapper = new EqualityWrapper(o);
+		if (map.containsKey(wrapper))
+		{
+			map.put(wrapper, replacement);
+		}
+	}
+
 	public IVisitor getDelegate()
 	{
 		return visitor;